@@ -26,17 +26,17 @@ import java.util.ArrayList;
  */
 public class CpuMonitor implements Monitor {
     private final CpuProgress m_progress;
-    private final CpuState m_state;
 
     private final ArrayList<MultipleThresholdDouble> m_thresholdsCpuUsage;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsStealUsage;
 
     /**
      * Constructor
      */
     public CpuMonitor() {
         m_progress = new CpuProgress();
-        m_state = new CpuState();
         m_thresholdsCpuUsage = new ArrayList<>();
+        m_thresholdsStealUsage = new ArrayList<>();
     }
 
     /**
@@ -48,6 +48,15 @@ public class CpuMonitor implements Monitor {
         m_thresholdsCpuUsage.add(p_threshold);
     }
 
+    /**
+     * Add a threshold for steal time tracking (average of all cores in percent, i.e. [0, 100])
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdStealUsagePercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsStealUsage.add(p_threshold);
+    }
+
     @Override
     public String toString() {
         return "";
@@ -56,11 +65,14 @@ public class CpuMonitor implements Monitor {
     @Override
     public void update() throws StateUpdateException {
         m_progress.update();
-        m_state.update();
 
         for (MultipleThresholdDouble threshold : m_thresholdsCpuUsage) {
             threshold.evaluate(m_progress.getCpuUsagePercent());
         }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsStealUsage) {
+            threshold.evaluate(m_progress.getAverageStealUsagePercent());
+        }
     }
 
     @Override
@@ -78,9 +90,10 @@ public class CpuMonitor implements Monitor {
     }
 
     public float[] getLoads() {
-        float load1 = m_state.getLoadAvarage1Min();
-        float load5 = m_state.getLoadAvarage5Min();
-        float load15 = m_state.getLoadAvarage15Min();
+        CpuState state = m_progress.getState();
+        float load1 = state.getLoadAvarage1Min();
+        float load5 = state.getLoadAvarage5Min();
+        float load15 = state.getLoadAvarage15Min();
 
         return new float[]{load1, load5, load15};
     }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+import java.util.ArrayList;
+
+import de.hhu.bsinfo.dxmonitor.progress.InfinibandErrorProgress;
+import de.hhu.bsinfo.dxmonitor.progress.InfinibandProgress;
+import de.hhu.bsinfo.dxmonitor.state.InfinibandErrorState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Monitor for Infiniband related data
+ */
+public class InfinibandMonitor implements Monitor {
+    private final InfinibandProgress m_progress;
+    private final InfinibandErrorProgress m_errorProgress;
+
+    private final ArrayList<ThresholdDouble> m_thresholdReceiveThroughput;
+    private final ArrayList<ThresholdDouble> m_thresholdTransmitThroughput;
+    private final ArrayList<ThresholdLong> m_thresholdReceiveErrors;
+    private final ArrayList<ThresholdLong> m_thresholdActivePorts;
+    private final ArrayList<ThresholdLong> m_thresholdLinkDowned;
+    private final ArrayList<ThresholdDouble> m_thresholdLinkErrorRate;
+    private final ArrayList<ThresholdDouble> m_thresholdTransmitDiscardRate;
+    private final ArrayList<ThresholdDouble> m_thresholdTransmitWaitRate;
+    private final ArrayList<ThresholdDouble> m_thresholdSequenceErrorRate;
+    private final ArrayList<ThresholdDouble> m_thresholdRnrRetryErrorRate;
+
+    /**
+     * Constructor
+     *
+     * @param p_deviceIdentifier Name of the ib device (e.g. mlx4_0)
+     */
+    public InfinibandMonitor(final String p_deviceIdentifier) {
+        m_progress = new InfinibandProgress(p_deviceIdentifier);
+        m_errorProgress = new InfinibandErrorProgress(p_deviceIdentifier);
+        m_thresholdReceiveThroughput = new ArrayList<>();
+        m_thresholdTransmitThroughput = new ArrayList<>();
+        m_thresholdReceiveErrors = new ArrayList<>();
+        m_thresholdActivePorts = new ArrayList<>();
+        m_thresholdLinkDowned = new ArrayList<>();
+        m_thresholdLinkErrorRate = new ArrayList<>();
+        m_thresholdTransmitDiscardRate = new ArrayList<>();
+        m_thresholdTransmitWaitRate = new ArrayList<>();
+        m_thresholdSequenceErrorRate = new ArrayList<>();
+        m_thresholdRnrRetryErrorRate = new ArrayList<>();
+    }
+
+    /**
+     * Adds a Callback which will be triggered if receive throughput (all ports, bytes/sec) exceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdReceiveThroughput(final ThresholdDouble p_threshold) {
+        m_thresholdReceiveThroughput.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if transmit throughput (all ports, bytes/sec) exceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdTransmitThroughput(final ThresholdDouble p_threshold) {
+        m_thresholdTransmitThroughput.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the number of received faulty packets (all ports, per update)
+     * exceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdReceiveErrors(final ThresholdLong p_threshold) {
+        m_thresholdReceiveErrors.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the number of ports in ACTIVE state exceeds/deceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdActivePorts(final ThresholdLong p_threshold) {
+        m_thresholdActivePorts.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the number of link down events (all ports, per update)
+     * exceeds a certain value. Use a value of 0 to detect a flapping link.
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdLinkDowned(final ThresholdLong p_threshold) {
+        m_thresholdLinkDowned.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the physical link errors per second (symbol errors, link error
+     * recoveries and local link integrity errors of all ports) exceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdLinkErrorRate(final ThresholdDouble p_threshold) {
+        m_thresholdLinkErrorRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the discarded outbound packets per second (all ports) exceed a
+     * certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdTransmitDiscardRate(final ThresholdDouble p_threshold) {
+        m_thresholdTransmitDiscardRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the transmit wait ticks per second (no credits available to send,
+     * all ports) exceed a certain value. This indicates congestion.
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdTransmitWaitRate(final ThresholdDouble p_threshold) {
+        m_thresholdTransmitWaitRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the sequence errors per second (out of sequence and packet
+     * sequence errors, all ports) exceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdSequenceErrorRate(final ThresholdDouble p_threshold) {
+        m_thresholdSequenceErrorRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the RNR NAK retry errors per second (all ports) exceed a certain
+     * value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdRnrRetryErrorRate(final ThresholdDouble p_threshold) {
+        m_thresholdRnrRetryErrorRate.add(p_threshold);
+    }
+
+    /**
+     * Returns the infiniband error progress class.
+     * @return infiniband error progress
+     */
+    public InfinibandErrorProgress getErrorProgress() {
+        return m_errorProgress;
+    }
+
+    /**
+     * Returns the infiniband progress class.
+     * @return infiniband progress
+     */
+    public InfinibandProgress getProgress() {
+        return m_progress;
+    }
+
+    @Override
+    public String toString() {
+        return m_progress + "\n" + m_errorProgress;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_progress.update();
+        m_errorProgress.update();
+
+        for (ThresholdDouble threshold : m_thresholdReceiveThroughput) {
+            threshold.evaluate(m_progress.getReceiveThroughput());
+        }
+
+        for (ThresholdDouble threshold : m_thresholdTransmitThroughput) {
+            threshold.evaluate(m_progress.getTransmitThroughput());
+        }
+
+        if (!m_thresholdReceiveErrors.isEmpty()) {
+            long errors = m_progress.getReceiveErrorCount();
+
+            for (ThresholdLong threshold : m_thresholdReceiveErrors) {
+                threshold.evaluate(errors);
+            }
+        }
+
+        if (!m_thresholdActivePorts.isEmpty()) {
+            long activePorts = 0;
+
+            for (int i = 0; i < m_progress.getPortCount(); i++) {
+                if (m_progress.getState().isActive(i)) {
+                    activePorts++;
+                }
+            }
+
+            for (ThresholdLong threshold : m_thresholdActivePorts) {
+                threshold.evaluate(activePorts);
+            }
+        }
+
+        for (ThresholdLong threshold : m_thresholdLinkDowned) {
+            threshold.evaluate(m_errorProgress.getDelta(InfinibandErrorState.LINK_DOWNED));
+        }
+
+        for (ThresholdDouble threshold : m_thresholdLinkErrorRate) {
+            threshold.evaluate(m_errorProgress.getLinkErrorRate());
+        }
+
+        for (ThresholdDouble threshold : m_thresholdTransmitDiscardRate) {
+            threshold.evaluate(m_errorProgress.getRate(InfinibandErrorState.PORT_XMIT_DISCARDS));
+        }
+
+        for (ThresholdDouble threshold : m_thresholdTransmitWaitRate) {
+            threshold.evaluate(m_errorProgress.getRate(InfinibandErrorState.PORT_XMIT_WAIT));
+        }
+
+        for (ThresholdDouble threshold : m_thresholdSequenceErrorRate) {
+            threshold.evaluate(m_errorProgress.getSequenceErrorRate());
+        }
+
+        for (ThresholdDouble threshold : m_thresholdRnrRetryErrorRate) {
+            threshold.evaluate(m_errorProgress.getRate(InfinibandErrorState.RNR_NAK_RETRY_ERR));
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return m_progress.generateCSVHeader(p_delim) + p_delim + m_errorProgress.generateCSVHeader(p_delim);
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return m_progress.toCSV(p_delim) + p_delim + m_errorProgress.toCSV(p_delim);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+import java.util.ArrayList;
+
+import de.hhu.bsinfo.dxmonitor.progress.JVMBufferPoolProgress;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Monitor for the direct and mapped buffer pools of the JVM. Thresholds on the growth averaged since the first
+ * update (or the last reset) catch slow leaks, thresholds on the used memory catch absolute limits.
+ */
+public class JVMBufferPoolMonitor implements Monitor {
+    private final JVMBufferPoolProgress m_progress;
+
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsDirectGrowthRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsDirectAverageGrowthRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsMappedGrowthRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsMappedAverageGrowthRate;
+    private final ArrayList<ThresholdLong> m_thresholdsDirectUsed;
+    private final ArrayList<ThresholdLong> m_thresholdsMappedUsed;
+
+    /**
+     * Constructor
+     */
+    public JVMBufferPoolMonitor() {
+        m_progress = new JVMBufferPoolProgress();
+
+        m_thresholdsDirectGrowthRate = new ArrayList<>();
+        m_thresholdsDirectAverageGrowthRate = new ArrayList<>();
+        m_thresholdsMappedGrowthRate = new ArrayList<>();
+        m_thresholdsMappedAverageGrowthRate = new ArrayList<>();
+        m_thresholdsDirectUsed = new ArrayList<>();
+        m_thresholdsMappedUsed = new ArrayList<>();
+    }
+
+    /**
+     * Add a threshold for the growth of the memory used for direct buffers since the last update (bytes/s)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdDirectGrowthRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsDirectGrowthRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the growth of the memory used for direct buffers averaged since the first update
+     * (bytes/s)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdDirectAverageGrowthRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsDirectAverageGrowthRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the growth of the memory used for mapped buffers since the last update (bytes/s)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdMappedGrowthRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsMappedGrowthRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the growth of the memory used for mapped buffers averaged since the first update
+     * (bytes/s)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdMappedAverageGrowthRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsMappedAverageGrowthRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the memory used for direct buffers (bytes)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdDirectUsed(final ThresholdLong p_threshold) {
+        m_thresholdsDirectUsed.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the memory used for mapped buffers (bytes)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdMappedUsed(final ThresholdLong p_threshold) {
+        m_thresholdsMappedUsed.add(p_threshold);
+    }
+
+    /**
+     * Get the buffer pool progress
+     */
+    public JVMBufferPoolProgress getProgress() {
+        return m_progress;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_progress.update();
+
+        for (MultipleThresholdDouble threshold : m_thresholdsDirectGrowthRate) {
+            threshold.evaluate(m_progress.getDirectUsedGrowthRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsDirectAverageGrowthRate) {
+            threshold.evaluate(m_progress.getAverageDirectUsedGrowthRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsMappedGrowthRate) {
+            threshold.evaluate(m_progress.getMappedUsedGrowthRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsMappedAverageGrowthRate) {
+            threshold.evaluate(m_progress.getAverageMappedUsedGrowthRate());
+        }
+
+        for (ThresholdLong threshold : m_thresholdsDirectUsed) {
+            threshold.evaluate(m_progress.getState().getDirectUsed());
+        }
+
+        for (ThresholdLong threshold : m_thresholdsMappedUsed) {
+            threshold.evaluate(m_progress.getState().getMappedUsed());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return m_progress.generateCSVHeader(p_delim);
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return m_progress.toCSV(p_delim);
+    }
+
+    @Override
+    public String toString() {
+        return m_progress.toString();
+    }
+}
@@ -13,6 +13,7 @@
 
 package de.hhu.bsinfo.dxmonitor.monitor;
 
+import de.hhu.bsinfo.dxmonitor.progress.VmStatProgress;
 import de.hhu.bsinfo.dxmonitor.state.MemState;
 import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
 
@@ -25,15 +26,25 @@ import java.util.ArrayList;
  */
 public class MemMonitor implements Monitor {
     private final MemState m_state;
+    private final VmStatProgress m_vmStatProgress;
 
     private final ArrayList<MultipleThresholdDouble> m_thresholdMemoryFree;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdAllocStallRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdCompactStallRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdMajorFaultRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdSwapOutRate;
 
     /**
      * Constructor
      */
     public MemMonitor() {
         m_state = new MemState();
+        m_vmStatProgress = new VmStatProgress();
         m_thresholdMemoryFree = new ArrayList<>();
+        m_thresholdAllocStallRate = new ArrayList<>();
+        m_thresholdCompactStallRate = new ArrayList<>();
+        m_thresholdMajorFaultRate = new ArrayList<>();
+        m_thresholdSwapOutRate = new ArrayList<>();
     }
 
     /**
@@ -44,6 +55,40 @@ public class MemMonitor implements Monitor {
         m_thresholdMemoryFree.add(p_threshold);
     }
 
+    /**
+     * Adds a Callback which will be triggered if the allocations stalled for direct reclaim per second
+     * exceed/deceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdAllocStallRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdAllocStallRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the allocations stalled for compaction per second
+     * exceed/deceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdCompactStallRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdCompactStallRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the major page faults per second exceed/deceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdMajorFaultRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdMajorFaultRate.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the pages swapped out per second exceed/deceed a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdSwapOutRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdSwapOutRate.add(p_threshold);
+    }
+
     /**
      * Returns the memory state class.
      * @return memory state
@@ -52,13 +97,38 @@ public class MemMonitor implements Monitor {
         return m_state;
     }
 
+    /**
+     * Returns the progress of the virtual memory counters (paging, reclaim, compaction).
+     * @return vmstat progress
+     */
+    public VmStatProgress getVmStatProgress() {
+        return m_vmStatProgress;
+    }
+
     @Override
     public void update() throws StateUpdateException {
         m_state.update();
+        m_vmStatProgress.update();
 
         for (MultipleThresholdDouble threshold : m_thresholdMemoryFree) {
             threshold.evaluate(m_state.getFreePercent());
         }
+
+        for (MultipleThresholdDouble threshold : m_thresholdAllocStallRate) {
+            threshold.evaluate(m_vmStatProgress.getAllocStallRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdCompactStallRate) {
+            threshold.evaluate(m_vmStatProgress.getCompactStallRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdMajorFaultRate) {
+            threshold.evaluate(m_vmStatProgress.getMajorFaultRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdSwapOutRate) {
+            threshold.evaluate(m_vmStatProgress.getSwapOutRate());
+        }
     }
 
     @Override
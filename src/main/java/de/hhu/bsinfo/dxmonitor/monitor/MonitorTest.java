@@ -13,6 +13,7 @@
 
 package de.hhu.bsinfo.dxmonitor.monitor;
 
+import de.hhu.bsinfo.dxmonitor.state.PressureState;
 import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
 
 /**
@@ -28,12 +29,62 @@ public class MonitorTest {
      * @param p_args Cmd args
      */
     public static void main(final String[] p_args) {
+        testPressureTriggerMonitor(15);
+
         MonitorTest test = new MonitorTest();
         test.run();
     }
 
+    /**
+     * Test case for the pressure trigger monitor with triggers of different window sizes (each sampled trigger
+     * must cover its own window)
+     *
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testPressureTriggerMonitor(final int p_timeFrameSec) {
+        System.out.println("================================================");
+        System.out.println("testPressureTriggerMonitor");
+
+        PressureTriggerMonitor monitor = new PressureTriggerMonitor();
+        PressureTrigger[] triggers = {
+                new PressureTrigger("CpuSome1s", PressureState.RESOURCE_CPU, false, 10 * 1000, 1000 * 1000,
+                        MonitorTest::callbackPressureTrigger),
+                new PressureTrigger("CpuSome10s", PressureState.RESOURCE_CPU, false, 100 * 1000, 10 * 1000 * 1000,
+                        MonitorTest::callbackPressureTrigger),
+                new PressureTrigger("MemorySome2s", PressureState.RESOURCE_MEMORY, false, 50 * 1000, 2000 * 1000,
+                        MonitorTest::callbackPressureTrigger)};
+
+        for (PressureTrigger trigger : triggers) {
+            monitor.addTrigger(trigger);
+        }
+
+        monitor.start();
+
+        try {
+            Thread.sleep(p_timeFrameSec * 1000L);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        monitor.shutdown();
+
+        for (PressureTrigger trigger : triggers) {
+            System.out.println(trigger);
+        }
+    }
+
+    /**
+     * Example callback for pressure triggers
+     *
+     * @param p_trigger Trigger that fired
+     */
+    private static void callbackPressureTrigger(final PressureTrigger p_trigger) {
+        System.out.println("Pressure trigger fired: " + p_trigger.getName());
+    }
+
     private final CpuMonitor m_cpuMonitor;
     private final MemMonitor m_memMonitor;
+    private final SwapMonitor m_swapMonitor;
 
     /**
      * Constructor
@@ -41,6 +92,10 @@ public class MonitorTest {
     public MonitorTest() {
         m_cpuMonitor = new CpuMonitor();
         m_memMonitor = new MemMonitor();
+        m_swapMonitor = new SwapMonitor();
+
+        m_swapMonitor.addThresholdProcessSwapInFaults(new ThresholdLong("ProcessSwapIn", 0, true,
+                this::callbackProcessSwapIn));
 
         //m_cpuMonitor.addThresholdCpuUsagePercent(new ThresholdDouble("CpuUsage1", 10.0, true,
         //        this::callbackCpuUsageThresholdExceed));
@@ -56,12 +111,14 @@ public class MonitorTest {
             try {
                 m_cpuMonitor.update();
                 m_memMonitor.update();
+                m_swapMonitor.update();
             } catch (StateUpdateException e) {
                 e.printStackTrace();
             }
 
             System.out.println("Cpu: " + m_cpuMonitor.getProgress().toString() + "\n");
             System.out.println("Memory: " + m_memMonitor.getState().toString() + "\n");
+            System.out.println("Swap: " + m_swapMonitor.toString() + "\n");
 
             try {
                 Thread.sleep(1000);
@@ -92,4 +149,16 @@ public class MonitorTest {
         System.out.println("CPU threshold deceeded: " + p_currentValue);
         System.out.println(p_threshold);
     }
+
+    /**
+     * Example callback for the process swapping in
+     *
+     * @param p_currentValue Major faults of the process swapping in since the last update
+     * @param p_threshold Threshold exceeded
+     */
+    private void callbackProcessSwapIn(final long p_currentValue, final ThresholdLong p_threshold) {
+        System.out.println("Process swapped in, " + p_currentValue + " major faults, " +
+                m_swapMonitor.getProgress().getProcessSwapInKB() + " KB (net)");
+        System.out.println(p_threshold);
+    }
 }
@@ -28,6 +28,8 @@ public class NetworkMonitor implements Monitor {
 
     private final ArrayList<ThresholdDouble> m_thresholdReceiveThroughput;
     private final ArrayList<ThresholdDouble> m_thresholdTransmitThroughput;
+    private final ArrayList<ThresholdDouble> m_thresholdReceiveUtilization;
+    private final ArrayList<ThresholdDouble> m_thresholdTransmitUtilization;
 
     /**
      * Constructor
@@ -37,10 +39,13 @@ public class NetworkMonitor implements Monitor {
         m_progress = new NetworkProgress(p_name);
         m_thresholdReceiveThroughput = new ArrayList<>();
         m_thresholdTransmitThroughput = new ArrayList<>();
+        m_thresholdReceiveUtilization = new ArrayList<>();
+        m_thresholdTransmitUtilization = new ArrayList<>();
     }
 
     /**
-     * Adds a Callback which will be triggered if receive throughput exceeds a certain value
+     * Adds a Callback which will be triggered if receive throughput (bytes/ms, see
+     * NetworkProgress.getReceiveThroughput) exceeds a certain value
      * @param p_threshold Threshold class which will call the callback
      */
     public void addThresholdReceiveThroughput(final ThresholdDouble p_threshold) {
@@ -48,13 +53,32 @@ public class NetworkMonitor implements Monitor {
     }
 
     /**
-     * Adds a Callback which will be triggered if transmit throughput exceeds a certain value
+     * Adds a Callback which will be triggered if transmit throughput (bytes/ms, see
+     * NetworkProgress.getTransmitThroughput) exceeds a certain value
      * @param p_threshold Threshold class which will call the callback
      */
     public void addThresholdTransmitThroughput(final ThresholdDouble p_threshold) {
         m_thresholdTransmitThroughput.add(p_threshold);
     }
 
+    /**
+     * Adds a Callback which will be triggered if the receive throughput relative to the line rate (in percent)
+     * exceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdReceiveUtilizationPercent(final ThresholdDouble p_threshold) {
+        m_thresholdReceiveUtilization.add(p_threshold);
+    }
+
+    /**
+     * Adds a Callback which will be triggered if the transmit throughput relative to the line rate (in percent)
+     * exceeds a certain value
+     * @param p_threshold Threshold class which will call the callback
+     */
+    public void addThresholdTransmitUtilizationPercent(final ThresholdDouble p_threshold) {
+        m_thresholdTransmitUtilization.add(p_threshold);
+    }
+
     /**
      * Returns the network progress class.
      * @return network progress
@@ -79,6 +103,14 @@ public class NetworkMonitor implements Monitor {
         for (ThresholdDouble threshold : m_thresholdTransmitThroughput) {
             threshold.evaluate(m_progress.getTransmitThroughput());
         }
+
+        for (ThresholdDouble threshold : m_thresholdReceiveUtilization) {
+            threshold.evaluate(m_progress.getReceiveUtilizationPercent());
+        }
+
+        for (ThresholdDouble threshold : m_thresholdTransmitUtilization) {
+            threshold.evaluate(m_progress.getTransmitUtilizationPercent());
+        }
     }
 
     @Override
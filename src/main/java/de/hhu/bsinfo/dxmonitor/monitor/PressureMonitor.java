@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+import java.util.ArrayList;
+
+import de.hhu.bsinfo.dxmonitor.progress.PressureProgress;
+import de.hhu.bsinfo.dxmonitor.state.PressureState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Monitor for the pressure stall information of cpu, memory and io (system wide or of a cgroup).
+ * Thresholds are evaluated on the stall percentage since the last update.
+ */
+public class PressureMonitor implements Monitor {
+    private final PressureProgress m_cpuProgress;
+    private final PressureProgress m_memoryProgress;
+    private final PressureProgress m_ioProgress;
+
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsCpuSome;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsCpuFull;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsMemorySome;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsMemoryFull;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsIoSome;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsIoFull;
+
+    /**
+     * Constructor for the system wide pressure
+     */
+    public PressureMonitor() {
+        this(null);
+    }
+
+    /**
+     * Constructor for the pressure of a cgroup (v2)
+     *
+     * @param p_cgroupPath Path of the cgroup, e.g. /sys/fs/cgroup/system.slice (null for system wide)
+     */
+    public PressureMonitor(final String p_cgroupPath) {
+        m_cpuProgress = new PressureProgress(PressureState.RESOURCE_CPU, p_cgroupPath);
+        m_memoryProgress = new PressureProgress(PressureState.RESOURCE_MEMORY, p_cgroupPath);
+        m_ioProgress = new PressureProgress(PressureState.RESOURCE_IO, p_cgroupPath);
+
+        m_thresholdsCpuSome = new ArrayList<>();
+        m_thresholdsCpuFull = new ArrayList<>();
+        m_thresholdsMemorySome = new ArrayList<>();
+        m_thresholdsMemoryFull = new ArrayList<>();
+        m_thresholdsIoSome = new ArrayList<>();
+        m_thresholdsIoFull = new ArrayList<>();
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) at least one task stalled on cpu
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdCpuSomePercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsCpuSome.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) all non idle tasks stalled on cpu
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdCpuFullPercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsCpuFull.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) at least one task stalled on memory
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdMemorySomePercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsMemorySome.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) all non idle tasks stalled on memory
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdMemoryFullPercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsMemoryFull.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) at least one task stalled on io
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdIoSomePercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsIoSome.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the share of time (percent) all non idle tasks stalled on io
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdIoFullPercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsIoFull.add(p_threshold);
+    }
+
+    /**
+     * Get the progress of the cpu pressure
+     */
+    public PressureProgress getCpuProgress() {
+        return m_cpuProgress;
+    }
+
+    /**
+     * Get the progress of the memory pressure
+     */
+    public PressureProgress getMemoryProgress() {
+        return m_memoryProgress;
+    }
+
+    /**
+     * Get the progress of the io pressure
+     */
+    public PressureProgress getIoProgress() {
+        return m_ioProgress;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_cpuProgress.update();
+        m_memoryProgress.update();
+        m_ioProgress.update();
+
+        for (MultipleThresholdDouble threshold : m_thresholdsCpuSome) {
+            threshold.evaluate(m_cpuProgress.getSomeStallPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsCpuFull) {
+            threshold.evaluate(m_cpuProgress.getFullStallPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsMemorySome) {
+            threshold.evaluate(m_memoryProgress.getSomeStallPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsMemoryFull) {
+            threshold.evaluate(m_memoryProgress.getFullStallPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsIoSome) {
+            threshold.evaluate(m_ioProgress.getSomeStallPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsIoFull) {
+            threshold.evaluate(m_ioProgress.getFullStallPercent());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return m_cpuProgress.generateCSVHeader(p_delim) + p_delim + m_memoryProgress.generateCSVHeader(p_delim) +
+                p_delim + m_ioProgress.generateCSVHeader(p_delim);
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return m_cpuProgress.toCSV(p_delim) + p_delim + m_memoryProgress.toCSV(p_delim) + p_delim +
+                m_ioProgress.toCSV(p_delim);
+    }
+
+    @Override
+    public String toString() {
+        return m_cpuProgress.toString() + '\n' + m_memoryProgress + '\n' + m_ioProgress;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+/**
+ * A pressure stall trigger: The callback is called if tasks stalled on a resource for at least the specified
+ * time within a time window (same semantics as the kernel's PSI triggers, at most one event per window).
+ * Triggers are registered at a PressureTriggerMonitor.
+ */
+public class PressureTrigger {
+
+    /**
+     * CallbackFunction for trigger callback
+     */
+    @FunctionalInterface
+    public interface CallbackFunction {
+        /**
+         * Function signature for callback on trigger
+         *
+         * @param p_trigger The trigger that fired
+         */
+        void handle(final PressureTrigger p_trigger);
+    }
+
+    // limits of the kernel
+    private static final long MIN_WINDOW_US = 500 * 1000;
+    private static final long MAX_WINDOW_US = 10 * 1000 * 1000;
+
+    private final String m_name;
+    private final String m_resource;
+    private final String m_cgroupPath;
+    private final boolean m_full;
+    private final long m_stallUs;
+    private final long m_windowUs;
+
+    private final CallbackFunction m_callback;
+
+    private volatile boolean m_native;
+    private volatile long m_hitCount;
+    private volatile String m_error;
+
+    /**
+     * Constructor for a trigger on the system wide pressure
+     *
+     * @param p_name Name of the trigger (for debugging)
+     * @param p_resource Resource (e.g. PressureState.RESOURCE_MEMORY)
+     * @param p_full True to trigger on the stall time of all non idle tasks ("full"), false for the stall time of
+     *         at least one task ("some")
+     * @param p_stallUs Stall time in us within the window to trigger
+     * @param p_windowUs Window in us (500 ms to 10 s)
+     * @param p_callback Callback to call if the trigger fires
+     */
+    public PressureTrigger(final String p_name, final String p_resource, final boolean p_full, final long p_stallUs,
+            final long p_windowUs, final CallbackFunction p_callback) {
+        this(p_name, p_resource, null, p_full, p_stallUs, p_windowUs, p_callback);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_name Name of the trigger (for debugging)
+     * @param p_resource Resource (e.g. PressureState.RESOURCE_MEMORY)
+     * @param p_cgroupPath Path of the cgroup (v2), e.g. /sys/fs/cgroup/system.slice (null for system wide)
+     * @param p_full True to trigger on the stall time of all non idle tasks ("full"), false for the stall time of
+     *         at least one task ("some")
+     * @param p_stallUs Stall time in us within the window to trigger
+     * @param p_windowUs Window in us (500 ms to 10 s)
+     * @param p_callback Callback to call if the trigger fires
+     */
+    public PressureTrigger(final String p_name, final String p_resource, final String p_cgroupPath,
+            final boolean p_full, final long p_stallUs, final long p_windowUs, final CallbackFunction p_callback) {
+        if (p_windowUs < MIN_WINDOW_US || p_windowUs > MAX_WINDOW_US) {
+            throw new IllegalArgumentException("Window must be between " + MIN_WINDOW_US + " and " + MAX_WINDOW_US +
+                    " us: " + p_windowUs);
+        }
+
+        if (p_stallUs <= 0 || p_stallUs > p_windowUs) {
+            throw new IllegalArgumentException("Stall time must be > 0 and <= window: " + p_stallUs);
+        }
+
+        m_name = p_name;
+        m_resource = p_resource;
+        m_cgroupPath = p_cgroupPath;
+        m_full = p_full;
+        m_stallUs = p_stallUs;
+        m_windowUs = p_windowUs;
+        m_callback = p_callback;
+    }
+
+    /**
+     * Get the name of this trigger
+     */
+    public String getName() {
+        return m_name;
+    }
+
+    /**
+     * Get the resource of this trigger
+     */
+    public String getResource() {
+        return m_resource;
+    }
+
+    /**
+     * Get the path of the cgroup (null for system wide)
+     */
+    public String getCgroupPath() {
+        return m_cgroupPath;
+    }
+
+    /**
+     * True if the trigger fires on the "full" stall time, false on the "some" stall time
+     */
+    public boolean isFull() {
+        return m_full;
+    }
+
+    /**
+     * Get the stall time in us within the window to trigger
+     */
+    public long getStallUs() {
+        return m_stallUs;
+    }
+
+    /**
+     * Get the window in us
+     */
+    public long getWindowUs() {
+        return m_windowUs;
+    }
+
+    /**
+     * True if the trigger is registered with the kernel, false if the stall times are polled
+     */
+    public boolean isNative() {
+        return m_native;
+    }
+
+    /**
+     * Get the number of times the trigger fired thus far
+     */
+    public long getHitCount() {
+        return m_hitCount;
+    }
+
+    /**
+     * True if the trigger was dropped by the monitor because its pressure file failed (e.g. cgroup removed)
+     */
+    public boolean isFailed() {
+        return m_error != null;
+    }
+
+    /**
+     * Get the reason the trigger failed
+     *
+     * @return Error message or null if not failed
+     */
+    public String getError() {
+        return m_error;
+    }
+
+    @Override
+    public String toString() {
+        return m_name + ", m_resource " + m_resource + ", m_cgroupPath " + m_cgroupPath + ", m_full " + m_full +
+                ", m_stallUs " + m_stallUs + ", m_windowUs " + m_windowUs + ", m_native " + m_native +
+                ", m_hitCount " + m_hitCount + ", m_error " + m_error;
+    }
+
+    /**
+     * Get the trigger definition as written to the pressure file, e.g. "some 150000 1000000"
+     */
+    String getDefinition() {
+        return (m_full ? "full " : "some ") + m_stallUs + ' ' + m_windowUs;
+    }
+
+    /**
+     * Set if the trigger is registered with the kernel
+     *
+     * @param p_native True if registered with the kernel
+     */
+    void setNative(final boolean p_native) {
+        m_native = p_native;
+    }
+
+    /**
+     * Mark the trigger as failed, it won't fire anymore
+     *
+     * @param p_error Reason of the failure
+     */
+    void fail(final String p_error) {
+        m_error = p_error;
+    }
+
+    /**
+     * Call the callback (on the thread of the monitor)
+     */
+    void fire() {
+        m_hitCount++;
+        m_callback.handle(this);
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import de.hhu.bsinfo.dxmonitor.state.PressureState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.util.PressureTriggerNative;
+
+/**
+ * Event driven monitor for pressure stall triggers. If the native backend (PressureTriggerNative) is available,
+ * the triggers are registered with the kernel and the callbacks are called within milliseconds of the stall.
+ * Otherwise (or if the kernel rejects the trigger, e.g. unprivileged with a window not a multiple of 2 s),
+ * the stall times are polled with a resolution of 1/20 of the window of each trigger. All callbacks are called
+ * on a dedicated thread. A trigger whose pressure file fails (e.g. the cgroup was removed) is dropped and marked
+ * as failed (see PressureTrigger.isFailed), the other triggers keep running.
+ */
+public class PressureTriggerMonitor {
+    private static final int MAX_NATIVE_TRIGGERS = 64;
+    private static final int SAMPLES_PER_WINDOW = 20;
+    // max time to wait for native triggers before checking for shutdown
+    private static final int MAX_POLL_TIMEOUT_MS = 100;
+
+    private final ArrayList<PressureTrigger> m_triggers;
+
+    private Thread m_thread;
+    private volatile boolean m_running;
+
+    /**
+     * Constructor
+     */
+    public PressureTriggerMonitor() {
+        m_triggers = new ArrayList<>();
+    }
+
+    /**
+     * Check if the native backend is available
+     */
+    public static boolean isNativeAvailable() {
+        return PressureTriggerNative.isAvailable();
+    }
+
+    /**
+     * Add a trigger. Triggers must be added before starting the monitor.
+     *
+     * @param p_trigger Trigger to add
+     */
+    public void addTrigger(final PressureTrigger p_trigger) {
+        if (m_thread != null) {
+            throw new IllegalStateException("Triggers must be added before starting the monitor");
+        }
+
+        m_triggers.add(p_trigger);
+    }
+
+    /**
+     * Register the triggers and start the thread calling the callbacks
+     */
+    public void start() {
+        if (m_thread != null) {
+            throw new IllegalStateException("Monitor already started");
+        }
+
+        ArrayList<PressureTrigger> nativeTriggers = new ArrayList<>();
+        ArrayList<SampledTrigger> sampledTriggers = new ArrayList<>();
+        int[] fds = new int[Math.min(m_triggers.size(), MAX_NATIVE_TRIGGERS)];
+
+        for (PressureTrigger trigger : m_triggers) {
+            // also checks if the pressure file exists
+            PressureState state = new PressureState(trigger.getResource(), trigger.getCgroupPath());
+            int fd = -1;
+
+            if (PressureTriggerNative.isAvailable() && nativeTriggers.size() < fds.length) {
+                fd = PressureTriggerNative.open(state.getPath(), trigger.getDefinition());
+            }
+
+            if (fd >= 0) {
+                fds[nativeTriggers.size()] = fd;
+                nativeTriggers.add(trigger);
+                trigger.setNative(true);
+            } else {
+                sampledTriggers.add(new SampledTrigger(trigger, state));
+                trigger.setNative(false);
+            }
+        }
+
+        m_running = true;
+        m_thread = new Thread(() -> run(nativeTriggers, fds, sampledTriggers), "PressureTriggerMonitor");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stop the thread and unregister the triggers
+     */
+    public void shutdown() {
+        if (m_thread == null) {
+            return;
+        }
+
+        m_running = false;
+
+        try {
+            m_thread.join();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loop of the monitor thread
+     *
+     * @param p_nativeTriggers Triggers registered with the kernel
+     * @param p_fds File descriptors of the native triggers
+     * @param p_sampledTriggers Triggers polled
+     */
+    private void run(final ArrayList<PressureTrigger> p_nativeTriggers, final int[] p_fds,
+            final ArrayList<SampledTrigger> p_sampledTriggers) {
+        int[] fired = new int[p_fds.length];
+        int nativeCount = p_nativeTriggers.size();
+
+        while (m_running && (nativeCount > 0 || !p_sampledTriggers.isEmpty())) {
+            long now = System.nanoTime();
+            long waitNs = MAX_POLL_TIMEOUT_MS * 1000L * 1000L;
+
+            // every trigger is sampled with its own interval to fill its ring with exactly one window
+            for (int i = p_sampledTriggers.size() - 1; i >= 0; i--) {
+                SampledTrigger trigger = p_sampledTriggers.get(i);
+
+                if (!trigger.sampleIfDue(now)) {
+                    p_sampledTriggers.remove(i);
+                    continue;
+                }
+
+                waitNs = Math.min(waitNs, Math.max(0, trigger.getNextSample() - now));
+            }
+
+            if (nativeCount > 0) {
+                // round up to not spin on timeouts below 1 ms
+                int timeoutMs = (int) ((waitNs + 999999) / 1000 / 1000);
+                int ret = PressureTriggerNative.poll(p_fds, nativeCount, timeoutMs, fired);
+
+                if (ret < 0) {
+                    // poll itself failed, none of the native triggers can be waited for anymore
+                    for (int i = 0; i < nativeCount; i++) {
+                        PressureTriggerNative.close(p_fds[i]);
+                        p_nativeTriggers.get(i).fail("Poll failed: errno " + -ret);
+                    }
+
+                    nativeCount = 0;
+                    continue;
+                }
+
+                for (int i = nativeCount - 1; i >= 0; i--) {
+                    if (fired[i] < 0) {
+                        // e.g. cgroup removed: drop the trigger and keep waiting for the others
+                        PressureTriggerNative.close(p_fds[i]);
+                        p_nativeTriggers.remove(i).fail("Pressure file failed (cgroup removed?): errno " +
+                                -fired[i]);
+
+                        nativeCount--;
+                        System.arraycopy(p_fds, i + 1, p_fds, i, nativeCount - i);
+                        System.arraycopy(fired, i + 1, fired, i, nativeCount - i);
+                    }
+                }
+
+                for (int i = 0; i < nativeCount; i++) {
+                    if (fired[i] > 0) {
+                        p_nativeTriggers.get(i).fire();
+                    }
+                }
+            } else {
+                LockSupport.parkNanos(waitNs);
+            }
+        }
+
+        for (int i = 0; i < nativeCount; i++) {
+            PressureTriggerNative.close(p_fds[i]);
+        }
+    }
+
+    /**
+     * Trigger emulated by polling the total stall time of the pressure file
+     */
+    private static final class SampledTrigger {
+        private final PressureTrigger m_trigger;
+        private final PressureState m_state;
+
+        // ring buffer with the samples of the last window
+        private final long[] m_times;
+        private final long[] m_totals;
+        private int m_pos;
+        private int m_count;
+
+        private long m_nextSample;
+        private long m_lastFire;
+        private boolean m_fired;
+
+        /**
+         * Constructor
+         *
+         * @param p_trigger Trigger to emulate
+         * @param p_state State to read the stall times from
+         */
+        private SampledTrigger(final PressureTrigger p_trigger, final PressureState p_state) {
+            m_trigger = p_trigger;
+            m_state = p_state;
+
+            m_times = new long[SAMPLES_PER_WINDOW + 1];
+            m_totals = new long[SAMPLES_PER_WINDOW + 1];
+
+            m_nextSample = System.nanoTime();
+        }
+
+        /**
+         * Get the time the next sample is due (System.nanoTime())
+         */
+        private long getNextSample() {
+            return m_nextSample;
+        }
+
+        /**
+         * Take a sample if due and fire the trigger if the stall time within the window exceeds the threshold
+         *
+         * @param p_now Current time (System.nanoTime())
+         * @return False if the pressure file can't be read anymore (trigger failed)
+         */
+        private boolean sampleIfDue(final long p_now) {
+            if (p_now - m_nextSample < 0) {
+                return true;
+            }
+
+            long intervalNs = m_trigger.getWindowUs() * 1000 / SAMPLES_PER_WINDOW;
+
+            m_nextSample += intervalNs;
+
+            // don't try to catch up if the thread was delayed
+            if (p_now - m_nextSample >= 0) {
+                m_nextSample = p_now + intervalNs;
+            }
+
+            try {
+                m_state.update();
+            } catch (StateUpdateException e) {
+                m_trigger.fail(e.getMessage());
+                return false;
+            }
+
+            long total = m_trigger.isFull() ? m_state.getFullTotalUs() : m_state.getSomeTotalUs();
+
+            m_times[m_pos] = p_now;
+            m_totals[m_pos] = total;
+            m_pos = (m_pos + 1) % m_times.length;
+
+            if (m_count < m_times.length) {
+                m_count++;
+            }
+
+            // oldest sample, i.e. about one window ago if the buffer is filled
+            int oldest = m_count < m_times.length ? 0 : m_pos;
+            long windowNs = m_trigger.getWindowUs() * 1000;
+
+            // like the kernel, fire at most once per window
+            if (m_fired && p_now - m_lastFire < windowNs) {
+                return true;
+            }
+
+            if (total - m_totals[oldest] >= m_trigger.getStallUs()) {
+                m_fired = true;
+                m_lastFire = p_now;
+                m_trigger.fire();
+            }
+
+            return true;
+        }
+    }
+}
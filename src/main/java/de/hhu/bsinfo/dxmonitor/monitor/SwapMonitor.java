@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.monitor;
+
+import java.util.ArrayList;
+
+import de.hhu.bsinfo.dxmonitor.progress.SwapProgress;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Monitor for the swap usage and activity of the system and of a single process (e.g. the JVM). Any swap-in of
+ * the process is caught by a ThresholdLong exceeding 0 added with addThresholdProcessSwapInFaults (the amount
+ * swapped in is 0 if the process swapped out more in the same interval, see SwapProgress).
+ */
+public class SwapMonitor implements Monitor {
+    private final SwapProgress m_progress;
+
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsSwapUsed;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsSwapInRate;
+    private final ArrayList<MultipleThresholdDouble> m_thresholdsSwapOutRate;
+    private final ArrayList<ThresholdLong> m_thresholdsProcessSwap;
+    private final ArrayList<ThresholdLong> m_thresholdsProcessSwapIn;
+    private final ArrayList<ThresholdLong> m_thresholdsProcessSwapInFaults;
+
+    /**
+     * Constructor for the current process
+     */
+    public SwapMonitor() {
+        this(new SwapProgress());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process
+     */
+    public SwapMonitor(final int p_pid) {
+        this(new SwapProgress(p_pid));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_progress Swap progress to evaluate
+     */
+    private SwapMonitor(final SwapProgress p_progress) {
+        m_progress = p_progress;
+
+        m_thresholdsSwapUsed = new ArrayList<>();
+        m_thresholdsSwapInRate = new ArrayList<>();
+        m_thresholdsSwapOutRate = new ArrayList<>();
+        m_thresholdsProcessSwap = new ArrayList<>();
+        m_thresholdsProcessSwapIn = new ArrayList<>();
+        m_thresholdsProcessSwapInFaults = new ArrayList<>();
+    }
+
+    /**
+     * Add a threshold for the used swap space (percent of the total swap space)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdSwapUsedPercent(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsSwapUsed.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the pages swapped in per second (system wide)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdSwapInRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsSwapInRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the pages swapped out per second (system wide)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdSwapOutRate(final MultipleThresholdDouble p_threshold) {
+        m_thresholdsSwapOutRate.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the memory of the process currently swapped out (in KB)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdProcessSwapKB(final ThresholdLong p_threshold) {
+        m_thresholdsProcessSwap.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the memory of the process swapped in since the last update (in KB)
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdProcessSwapInKB(final ThresholdLong p_threshold) {
+        m_thresholdsProcessSwapIn.add(p_threshold);
+    }
+
+    /**
+     * Add a threshold for the major faults of the process swapping in since the last update
+     *
+     * @param p_threshold Threshold to add
+     */
+    public void addThresholdProcessSwapInFaults(final ThresholdLong p_threshold) {
+        m_thresholdsProcessSwapInFaults.add(p_threshold);
+    }
+
+    /**
+     * Get the swap progress
+     */
+    public SwapProgress getProgress() {
+        return m_progress;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_progress.update();
+
+        for (MultipleThresholdDouble threshold : m_thresholdsSwapUsed) {
+            threshold.evaluate(m_progress.getSwapUsedPercent());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsSwapInRate) {
+            threshold.evaluate(m_progress.getSwapInRate());
+        }
+
+        for (MultipleThresholdDouble threshold : m_thresholdsSwapOutRate) {
+            threshold.evaluate(m_progress.getSwapOutRate());
+        }
+
+        for (ThresholdLong threshold : m_thresholdsProcessSwap) {
+            threshold.evaluate(m_progress.getProcessSwapKB());
+        }
+
+        for (ThresholdLong threshold : m_thresholdsProcessSwapIn) {
+            threshold.evaluate(m_progress.getProcessSwapInKB());
+        }
+
+        for (ThresholdLong threshold : m_thresholdsProcessSwapInFaults) {
+            threshold.evaluate(m_progress.getProcessSwapInFaults());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return m_progress.generateCSVHeader(p_delim);
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return m_progress.toCSV(p_delim);
+    }
+
+    @Override
+    public String toString() {
+        return m_progress.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.CgroupCpuState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * CPU progress of a cgroup: usage in cores, usage of the quota and throttling, i.e. if the quota and not the
+ * hardware limits the cgroup
+ */
+public class CgroupCpuProgress implements Progress {
+    private CgroupCpuState m_lastState;
+    private CgroupCpuState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_usage;
+    private float m_throttledRatio;
+    private float m_throttledPeriodRate;
+    private float m_throttledTime;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupCpuProgress() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy or null for the cgroup of the current process
+     */
+    public CgroupCpuProgress(final String p_cgroup) {
+        m_lastState = new CgroupCpuState(p_cgroup);
+        m_currentState = new CgroupCpuState(p_cgroup);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public CgroupCpuState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the CPU usage of the cgroup in cores, e.g. 1.5 = one and a half cores busy
+     */
+    public float getUsage() {
+        return m_usage;
+    }
+
+    /**
+     * Get the CPU usage relative to the cores the cgroup can use (quota or cpuset)
+     *
+     * @return Usage [0, 1]
+     */
+    public float getEffectiveUsage() {
+        float cores = m_currentState.getEffectiveCores();
+
+        return cores > 0 ? Math.min(1.0f, m_usage / cores) : 0;
+    }
+
+    /**
+     * Get the share of enforcement periods in which the cgroup was throttled
+     *
+     * @return Ratio [0, 1]
+     */
+    public float getThrottledRatio() {
+        return m_throttledRatio;
+    }
+
+    /**
+     * Get the throttled periods per second
+     */
+    public float getThrottledPeriodRate() {
+        return m_throttledPeriodRate;
+    }
+
+    /**
+     * Get the time the tasks of the cgroup were throttled per second (in seconds, summed over all CPUs)
+     */
+    public float getThrottledTime() {
+        return m_throttledTime;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        CgroupCpuState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        long usageDiff = m_currentState.getUsageUs() - m_lastState.getUsageUs();
+        long periodsDiff = m_currentState.getPeriods() - m_lastState.getPeriods();
+        long throttledDiff = m_currentState.getThrottledPeriods() - m_lastState.getThrottledPeriods();
+        long throttledTimeDiff = m_currentState.getThrottledUs() - m_lastState.getThrottledUs();
+
+        if (timeDiff <= 0) {
+            m_usage = 0;
+            m_throttledPeriodRate = 0;
+            m_throttledTime = 0;
+        } else {
+            m_usage = usageDiff <= 0 ? 0 : usageDiff / 1000.0f / 1000.0f / timeDiff;
+            m_throttledPeriodRate = throttledDiff <= 0 ? 0 : throttledDiff / timeDiff;
+            m_throttledTime = throttledTimeDiff <= 0 ? 0 : throttledTimeDiff / 1000.0f / 1000.0f / timeDiff;
+        }
+
+        m_throttledRatio = periodsDiff <= 0 || throttledDiff <= 0 ? 0 : (float) throttledDiff / periodsDiff;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "usage (cores)" + p_delim + "effective cores" + p_delim + "effective usage" + p_delim +
+                "throttled ratio" + p_delim + "throttled periods/sec" + p_delim + "throttled time (s/sec)";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_usage) + p_delim + m_currentState.getEffectiveCores() + p_delim +
+                getEffectiveUsage() + p_delim + m_throttledRatio + p_delim + m_throttledPeriodRate + p_delim +
+                m_throttledTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cgroup cpu: usage %.2f of %.2f cores (%2.2f %%), throttled %2.2f %% of periods " +
+                        "(%.2f/s), throttled time %.3f s/s", m_usage, m_currentState.getEffectiveCores(),
+                getEffectiveUsage() * 100, m_throttledRatio * 100, m_throttledPeriodRate, m_throttledTime);
+    }
+}
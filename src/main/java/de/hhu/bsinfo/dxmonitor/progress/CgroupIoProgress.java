@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.CgroupIoState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Block io progress of a cgroup (throughput and operations per second)
+ */
+public class CgroupIoProgress implements Progress {
+    private CgroupIoState m_lastState;
+    private CgroupIoState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_readThroughput;
+    private float m_writeThroughput;
+    private float m_readIops;
+    private float m_writeIops;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupIoProgress() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy or null for the cgroup of the current process
+     */
+    public CgroupIoProgress(final String p_cgroup) {
+        m_lastState = new CgroupIoState(p_cgroup);
+        m_currentState = new CgroupIoState(p_cgroup);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public CgroupIoState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the bytes read per second
+     */
+    public float getReadThroughput() {
+        return m_readThroughput;
+    }
+
+    /**
+     * Get the bytes written per second
+     */
+    public float getWriteThroughput() {
+        return m_writeThroughput;
+    }
+
+    /**
+     * Get the read operations per second
+     */
+    public float getReadIops() {
+        return m_readIops;
+    }
+
+    /**
+     * Get the write operations per second
+     */
+    public float getWriteIops() {
+        return m_writeIops;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        CgroupIoState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        m_readThroughput = rate(m_currentState.getReadBytes(), m_lastState.getReadBytes(), timeDiff);
+        m_writeThroughput = rate(m_currentState.getWriteBytes(), m_lastState.getWriteBytes(), timeDiff);
+        m_readIops = rate(m_currentState.getReadIos(), m_lastState.getReadIos(), timeDiff);
+        m_writeIops = rate(m_currentState.getWriteIos(), m_lastState.getWriteIos(), timeDiff);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "read (bytes/sec)" + p_delim + "write (bytes/sec)" + p_delim + "read iops" + p_delim + "write iops";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_readThroughput) + p_delim + m_writeThroughput + p_delim + m_readIops + p_delim +
+                m_writeIops;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cgroup io: read %.2f bytes/s (%.2f iops), write %.2f bytes/s (%.2f iops)",
+                m_readThroughput, m_readIops, m_writeThroughput, m_writeIops);
+    }
+
+    /**
+     * Calculate the rate of a counter
+     *
+     * @param p_current Current value of the counter
+     * @param p_last Last value of the counter
+     * @param p_timeDiff Time between both values in seconds
+     * @return Rate per second
+     */
+    private static float rate(final long p_current, final long p_last, final float p_timeDiff) {
+        long diff = p_current - p_last;
+
+        return diff <= 0 || p_timeDiff <= 0 ? 0 : diff / p_timeDiff;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.CgroupMemoryState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Memory progress of a cgroup: headroom to the limit, usage growth and rates of the limit events
+ */
+public class CgroupMemoryProgress implements Progress {
+    private CgroupMemoryState m_lastState;
+    private CgroupMemoryState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_growthRate;
+    private float m_majorFaultRate;
+    private final float[] m_eventRates;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupMemoryProgress() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy or null for the cgroup of the current process
+     */
+    public CgroupMemoryProgress(final String p_cgroup) {
+        m_lastState = new CgroupMemoryState(p_cgroup);
+        m_currentState = new CgroupMemoryState(p_cgroup);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_eventRates = new float[CgroupMemoryState.EVENT_COUNT];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public CgroupMemoryState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the memory which can still be used before hitting the (lower) limit
+     *
+     * @return Headroom in bytes or -1 if unlimited
+     */
+    public long getHeadroomBytes() {
+        return m_currentState.getHeadroomBytes();
+    }
+
+    /**
+     * Get the headroom relative to the (lower) limit
+     *
+     * @return Ratio [0, 1] or 1 if unlimited
+     */
+    public float getHeadroomRatio() {
+        long limit = m_currentState.getLimitBytes();
+
+        return limit <= 0 ? 1 : (float) m_currentState.getHeadroomBytes() / limit;
+    }
+
+    /**
+     * Get the change of the usage per second (in bytes, negative if shrinking)
+     */
+    public float getGrowthRate() {
+        return m_growthRate;
+    }
+
+    /**
+     * Get the estimated time until the limit is reached at the current growth rate
+     *
+     * @return Time in seconds or -1 if unlimited or not growing
+     */
+    public float getTimeToLimit() {
+        long headroom = m_currentState.getHeadroomBytes();
+
+        return headroom == -1 || m_growthRate <= 0 ? -1 : headroom / m_growthRate;
+    }
+
+    /**
+     * Get the rate (per second) of an event
+     *
+     * @param p_event Event (e.g. CgroupMemoryState.EVENT_HIGH)
+     */
+    public float getEventRate(final int p_event) {
+        return m_eventRates[p_event];
+    }
+
+    /**
+     * Get the major page faults (requiring io) per second
+     */
+    public float getMajorFaultRate() {
+        return m_majorFaultRate;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        CgroupMemoryState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        if (timeDiff <= 0) {
+            return;
+        }
+
+        m_growthRate = (m_currentState.getCurrentBytes() - m_lastState.getCurrentBytes()) / timeDiff;
+
+        long faults = m_currentState.getStat(CgroupMemoryState.STAT_PGMAJFAULT) -
+                m_lastState.getStat(CgroupMemoryState.STAT_PGMAJFAULT);
+        m_majorFaultRate = faults <= 0 ? 0 : faults / timeDiff;
+
+        for (int i = 0; i < m_eventRates.length; i++) {
+            long diff = m_currentState.getEventCount(i) - m_lastState.getEventCount(i);
+
+            m_eventRates[i] = diff <= 0 ? 0 : diff / timeDiff;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "current (bytes)" + p_delim + "limit (bytes)" + p_delim + "headroom (bytes)" + p_delim +
+                "headroom ratio" + p_delim + "growth (bytes/sec)" + p_delim + "high events/sec" + p_delim +
+                "max events/sec" + p_delim + "oom kills/sec" + p_delim + "majflt/sec";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_currentState.getCurrentBytes()) + p_delim + m_currentState.getLimitBytes() +
+                p_delim + getHeadroomBytes() + p_delim + getHeadroomRatio() + p_delim + m_growthRate + p_delim +
+                m_eventRates[CgroupMemoryState.EVENT_HIGH] + p_delim + m_eventRates[CgroupMemoryState.EVENT_MAX] +
+                p_delim + m_eventRates[CgroupMemoryState.EVENT_OOM_KILL] + p_delim + m_majorFaultRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cgroup memory: current %d bytes, limit %d bytes, headroom %d bytes (%2.2f %%), " +
+                        "growth %.2f bytes/s, high events %.2f/s, max events %.2f/s, oom kills %.2f/s, " +
+                        "majflt %.2f/s", m_currentState.getCurrentBytes(), m_currentState.getLimitBytes(),
+                getHeadroomBytes(), getHeadroomRatio() * 100, m_growthRate,
+                m_eventRates[CgroupMemoryState.EVENT_HIGH], m_eventRates[CgroupMemoryState.EVENT_MAX],
+                m_eventRates[CgroupMemoryState.EVENT_OOM_KILL], m_majorFaultRate);
+    }
+}
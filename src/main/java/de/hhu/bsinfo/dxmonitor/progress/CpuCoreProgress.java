@@ -17,12 +17,16 @@ import de.hhu.bsinfo.dxmonitor.state.CpuCoreState;
 import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
 
 /**
- * Progress for a single CPU core.
+ * Progress for a single CPU core. The cores of a CpuProgress are calculated from the states of its single read of
+ * /proc/stat and can't be updated on their own.
  *
  * @author Burak Akguel, burak.akguel@hhu.de, 23.11.2017
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
  */
 public class CpuCoreProgress implements Progress {
+    private final int m_coreId;
+
+    // null if updated by a CpuProgress
     private CpuCoreState m_lastState;
     private CpuCoreState m_currentState;
 
@@ -36,18 +40,42 @@ public class CpuCoreProgress implements Progress {
     private float m_softIrqUsage;
     private float m_irqUsage;
     private float m_ioWaitUsage;
+    private float m_stealUsage;
+    private float m_guestUsage;
 
     /**
      * Constructor
      *
-     * @param p_coreId Id of the core to track progress of
+     * @param p_coreId Id of the core to track progress of or CpuCoreState.TOTAL for all cores
      */
     public CpuCoreProgress(final int p_coreId) {
-        m_lastState = new CpuCoreState(p_coreId);
-        m_currentState = new CpuCoreState(p_coreId);
+        this(p_coreId, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_coreId Id of the core to track progress of or CpuCoreState.TOTAL for all cores
+     * @param p_readStates True to read the states of the core on update, false if updated by a CpuProgress
+     */
+    CpuCoreProgress(final int p_coreId, final boolean p_readStates) {
+        m_coreId = p_coreId;
+
+        if (p_readStates) {
+            m_lastState = new CpuCoreState(p_coreId);
+            m_currentState = new CpuCoreState(p_coreId);
+        }
+
         m_first = true;
     }
 
+    /**
+     * Get the id of the core (CpuCoreState.TOTAL for all cores)
+     */
+    public int getCoreId() {
+        return m_coreId;
+    }
+
     /**
      * Get the total core load to total core cycles (delta of the previous two update calls) ratio
      */
@@ -104,6 +132,22 @@ public class CpuCoreProgress implements Progress {
         return m_ioWaitUsage;
     }
 
+    /**
+     * Get the steal time (waiting for the hypervisor) to total core cycles (delta of the previous two update calls)
+     * ratio
+     */
+    public float getStealUsage() {
+        return m_stealUsage;
+    }
+
+    /**
+     * Get the guest usage (guest and guest nice, part of usr and nice) to total core cycles (delta of the previous
+     * two update calls) ratio
+     */
+    public float getGuestUsage() {
+        return m_guestUsage;
+    }
+
     /**
      * Get the total core load to total core cycles (delta of the previous two update calls) ratio in percent
      */
@@ -160,16 +204,35 @@ public class CpuCoreProgress implements Progress {
         return getIoWaitUsage() * 100;
     }
 
+    /**
+     * Get the steal time to total core cycles (delta of the previous two update calls) ratio in percent
+     */
+    public float getStealUsagePercent() {
+        return getStealUsage() * 100;
+    }
+
+    /**
+     * Get the guest usage to total core cycles (delta of the previous two update calls) ratio in percent
+     */
+    public float getGuestUsagePercent() {
+        return getGuestUsage() * 100;
+    }
+
     @Override
     public String toString() {
         return String.format("core %d: usage %2.2f, idle %2.2f, usr %2.2f, sys %2.2f, nice %2.2f, soft irq %2.2f, "
-                + "irq %2.2f, io wait %2.2f", m_lastState.getCoreId(), getCpuUsagePercent(), getIdleUsagePercent(),
-                getUsrUsagePercent(), getSysUsagePercent(), getNiceUsagePercent(), getSoftIrqUsagePercent(),
-                getIrqUsagePercent(), getIoWaitUsagePercent());
+                + "irq %2.2f, io wait %2.2f, steal %2.2f, guest %2.2f", m_coreId, getCpuUsagePercent(),
+                getIdleUsagePercent(), getUsrUsagePercent(), getSysUsagePercent(), getNiceUsagePercent(),
+                getSoftIrqUsagePercent(), getIrqUsagePercent(), getIoWaitUsagePercent(), getStealUsagePercent(),
+                getGuestUsagePercent());
     }
 
     @Override
     public void update() throws StateUpdateException {
+        if (m_currentState == null) {
+            throw new IllegalStateException("Progress of core " + m_coreId + " is updated by its CpuProgress");
+        }
+
         CpuCoreState tmp = m_lastState;
         m_lastState = m_currentState;
         m_currentState = tmp;
@@ -181,7 +244,18 @@ public class CpuCoreProgress implements Progress {
 
         m_currentState.update();
 
-        float totalDiff = m_currentState.getTotal() - m_lastState.getTotal();
+        update(m_lastState, m_currentState);
+    }
+
+    /**
+     * Calculate the ratios from two states of the core
+     *
+     * @param p_lastState Previous state of the core (null or offline if not available)
+     * @param p_currentState Current state of the core
+     */
+    void update(final CpuCoreState p_lastState, final CpuCoreState p_currentState) {
+        float totalDiff = p_lastState == null || !p_lastState.isOnline() ? 0 :
+                p_currentState.getTotal() - p_lastState.getTotal();
 
         if (totalDiff <= 0) {
             m_cpuUsage = 0;
@@ -192,15 +266,22 @@ public class CpuCoreProgress implements Progress {
             m_softIrqUsage = 0;
             m_irqUsage = 0;
             m_ioWaitUsage = 0;
+            m_stealUsage = 0;
+            m_guestUsage = 0;
         } else {
-            m_cpuUsage = 1.0f - ((float) m_currentState.getIdle() - m_lastState.getIdle()) / totalDiff;
-            m_idleUsage = ((float) m_currentState.getIdle() - m_lastState.getIdle()) / totalDiff;
-            m_sysUsage = ((float) m_currentState.getSys() - m_lastState.getSys()) / totalDiff;
-            m_usrUsage = ((float) m_currentState.getUsr() - m_lastState.getUsr()) / totalDiff;
-            m_niceUsage = ((float) m_currentState.getNice() - m_lastState.getNice()) / totalDiff;
-            m_softIrqUsage = ((float) m_currentState.getSoftIrq() - m_lastState.getSoftIrq()) / totalDiff;
-            m_irqUsage = ((float) m_currentState.getIrq() - m_lastState.getIrq()) / totalDiff;
-            m_ioWaitUsage = ((float) m_currentState.getIoWait() - m_lastState.getIoWait()) / totalDiff;
+            m_idleUsage = ((float) p_currentState.getIdle() - p_lastState.getIdle()) / totalDiff;
+            m_sysUsage = ((float) p_currentState.getSys() - p_lastState.getSys()) / totalDiff;
+            m_usrUsage = ((float) p_currentState.getUsr() - p_lastState.getUsr()) / totalDiff;
+            m_niceUsage = ((float) p_currentState.getNice() - p_lastState.getNice()) / totalDiff;
+            m_softIrqUsage = ((float) p_currentState.getSoftIrq() - p_lastState.getSoftIrq()) / totalDiff;
+            m_irqUsage = ((float) p_currentState.getIrq() - p_lastState.getIrq()) / totalDiff;
+            m_ioWaitUsage = ((float) p_currentState.getIoWait() - p_lastState.getIoWait()) / totalDiff;
+            m_stealUsage = ((float) p_currentState.getSteal() - p_lastState.getSteal()) / totalDiff;
+            m_guestUsage = ((float) p_currentState.getGuest() - p_lastState.getGuest() +
+                    p_currentState.getGuestNice() - p_lastState.getGuestNice()) / totalDiff;
+
+            // time stolen by the hypervisor was not spent on this core
+            m_cpuUsage = 1.0f - m_idleUsage - m_stealUsage;
         }
     }
 
@@ -208,13 +289,14 @@ public class CpuCoreProgress implements Progress {
     public String generateCSVHeader(final char p_delim) {
         return "core id" + p_delim + "cpu usage %" + p_delim + "idle usage %" + p_delim + "sys usage %" + p_delim +
                 "usr usage %" + p_delim + "nice usage %" + p_delim + "soft irq usage %" + p_delim + "irq usage %" +
-                p_delim + "io wait usage %";
+                p_delim + "io wait usage %" + p_delim + "steal usage %" + p_delim + "guest usage %";
     }
 
     @Override
     public String toCSV(final char p_delim) {
-        return "" + m_lastState.getCoreId() + p_delim + getCpuUsagePercent() + p_delim + getIdleUsagePercent() +
+        return "" + m_coreId + p_delim + getCpuUsagePercent() + p_delim + getIdleUsagePercent() +
                 p_delim + getSysUsagePercent() + p_delim + getUsrUsagePercent() + p_delim + getNiceUsagePercent() +
-                p_delim + getSoftIrqUsagePercent() + p_delim + getIrqUsagePercent() + p_delim + getIoWaitUsagePercent();
+                p_delim + getSoftIrqUsagePercent() + p_delim + getIrqUsagePercent() + p_delim + getIoWaitUsagePercent() +
+                p_delim + getStealUsagePercent() + p_delim + getGuestUsagePercent();
     }
 }
\ No newline at end of file
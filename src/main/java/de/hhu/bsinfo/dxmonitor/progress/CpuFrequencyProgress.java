@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.CpuFrequencyState;
+import de.hhu.bsinfo.dxmonitor.state.CpuTopologyState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the frequencies, idle state (C-state) residencies and thermal throttling of all online cores.
+ * If created with a CpuProgress, the usage of each core is also normalized to the max frequency, i.e. a core
+ * fully busy at half of its max frequency has a normalized usage of 0.5.
+ */
+public class CpuFrequencyProgress implements Progress {
+    private final CpuProgress m_cpuProgress;
+    private final CpuTopologyState m_topology;
+    private int m_topologyVersion;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+
+    // indexed by core id, null if offline
+    private CpuFrequencyState[] m_lastStates;
+    private CpuFrequencyState[] m_currentStates;
+
+    // indexed by core id
+    private final float[] m_frequencyRatios;
+    private final float[] m_busyResidencies;
+    private final float[][] m_idleResidencies;
+    private final float[] m_throttleRates;
+    private final float[] m_normalizedUsages;
+
+    private float m_averageFrequencyKHz;
+    private float m_averageNormalizedUsage;
+    private float m_totalThrottleRate;
+
+    /**
+     * Constructor without frequency normalized usage
+     */
+    public CpuFrequencyProgress() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core usage and the topology from or null to disable the
+     *         frequency normalized usage. The progress is not updated by this class, i.e. it must be updated before
+     *         this progress.
+     */
+    public CpuFrequencyProgress(final CpuProgress p_cpuProgress) {
+        m_cpuProgress = p_cpuProgress;
+        m_topology = p_cpuProgress != null ? p_cpuProgress.getTopology() : new CpuTopologyState();
+        m_topologyVersion = -1;
+
+        int maxCpus = m_topology.getMaxCpus();
+
+        m_lastStates = new CpuFrequencyState[maxCpus];
+        m_currentStates = new CpuFrequencyState[maxCpus];
+
+        m_frequencyRatios = new float[maxCpus];
+        m_busyResidencies = new float[maxCpus];
+        m_idleResidencies = new float[maxCpus][];
+        m_throttleRates = new float[maxCpus];
+        m_normalizedUsages = new float[maxCpus];
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent state of a core
+     *
+     * @param p_coreId Id of the core
+     * @return State or null if the core is offline
+     */
+    public CpuFrequencyState getState(final int p_coreId) {
+        return m_currentStates[p_coreId];
+    }
+
+    /**
+     * Get the current frequency of a core
+     *
+     * @param p_coreId Id of the core
+     * @return Frequency in kHz or 0 if not available
+     */
+    public long getFrequencyKHz(final int p_coreId) {
+        return m_currentStates[p_coreId] != null ? m_currentStates[p_coreId].getCurrentFrequencyKHz() : 0;
+    }
+
+    /**
+     * Get the current frequency of a core relative to its max frequency
+     *
+     * @param p_coreId Id of the core
+     * @return Ratio [0, 1] or 1 if not available
+     */
+    public float getFrequencyRatio(final int p_coreId) {
+        return m_frequencyRatios[p_coreId];
+    }
+
+    /**
+     * Get the share of time a core was not in any idle state (C0)
+     *
+     * @param p_coreId Id of the core
+     * @return Ratio [0, 1] or 0 if cpuidle is not available
+     */
+    public float getBusyResidency(final int p_coreId) {
+        return m_busyResidencies[p_coreId];
+    }
+
+    /**
+     * Get the share of time a core was in an idle state
+     *
+     * @param p_coreId Id of the core
+     * @param p_state Index of the idle state (see CpuFrequencyState.getIdleStateName)
+     * @return Ratio [0, 1]
+     */
+    public float getIdleResidency(final int p_coreId, final int p_state) {
+        return m_idleResidencies[p_coreId][p_state];
+    }
+
+    /**
+     * Get the share of time a core was in an idle state in percent
+     *
+     * @param p_coreId Id of the core
+     * @param p_state Index of the idle state (see CpuFrequencyState.getIdleStateName)
+     */
+    public float getIdleResidencyPercent(final int p_coreId, final int p_state) {
+        return m_idleResidencies[p_coreId][p_state] * 100;
+    }
+
+    /**
+     * Get the thermal throttle events (core and package) per second of a core
+     *
+     * @param p_coreId Id of the core
+     */
+    public float getThrottleRate(final int p_coreId) {
+        return m_throttleRates[p_coreId];
+    }
+
+    /**
+     * Get the usage of a core normalized to its max frequency (requires a CpuProgress)
+     *
+     * @param p_coreId Id of the core
+     * @return Usage [0, 1]
+     */
+    public float getNormalizedUsage(final int p_coreId) {
+        return m_normalizedUsages[p_coreId];
+    }
+
+    /**
+     * Get the average frequency of all online cores
+     *
+     * @return Frequency in kHz or 0 if not available
+     */
+    public float getAverageFrequencyKHz() {
+        return m_averageFrequencyKHz;
+    }
+
+    /**
+     * Get the average usage of all online cores normalized to their max frequency (requires a CpuProgress)
+     *
+     * @return Usage [0, 1]
+     */
+    public float getAverageNormalizedUsage() {
+        return m_averageNormalizedUsage;
+    }
+
+    /**
+     * Get the thermal throttle events per second summed up over all online cores
+     */
+    public float getTotalThrottleRate() {
+        return m_totalThrottleRate;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        CpuFrequencyState[] tmp = m_lastStates;
+        m_lastStates = m_currentStates;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentStates = tmp;
+
+        updateTopology();
+
+        int[] cores = m_topology.getOnlineCpus();
+
+        for (int core : cores) {
+            m_currentStates[core].update();
+        }
+
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        float frequencySum = 0;
+        float normalizedUsageSum = 0;
+
+        m_totalThrottleRate = 0;
+
+        for (int core : cores) {
+            CpuFrequencyState last = m_lastStates[core];
+            CpuFrequencyState current = m_currentStates[core];
+
+            long maxFreq = current.getMaxFrequencyKHz();
+
+            m_frequencyRatios[core] = maxFreq > 0 && current.isFrequencyAvailable() ?
+                    Math.min(1.0f, (float) current.getCurrentFrequencyKHz() / maxFreq) : 1.0f;
+            frequencySum += current.getCurrentFrequencyKHz();
+
+            float idleSum = 0;
+
+            for (int i = 0; i < current.getIdleStateCount(); i++) {
+                long diff = current.getIdleStateTimeUs(i) - last.getIdleStateTimeUs(i);
+
+                m_idleResidencies[core][i] = diff <= 0 || timeDiff <= 0 ? 0 :
+                        Math.min(1.0f, diff / 1000.0f / 1000.0f / timeDiff);
+                idleSum += m_idleResidencies[core][i];
+            }
+
+            m_busyResidencies[core] = current.getIdleStateCount() > 0 ? Math.max(0, 1.0f - idleSum) : 0;
+
+            long throttleDiff = current.getCoreThrottleCount() - last.getCoreThrottleCount() +
+                    current.getPackageThrottleCount() - last.getPackageThrottleCount();
+
+            m_throttleRates[core] = throttleDiff <= 0 || timeDiff <= 0 ? 0 : throttleDiff / timeDiff;
+            m_totalThrottleRate += m_throttleRates[core];
+
+            if (m_cpuProgress != null) {
+                CpuCoreProgress coreProgress = m_cpuProgress.getCoreProgress(core);
+
+                m_normalizedUsages[core] = coreProgress != null ?
+                        coreProgress.getCpuUsage() * m_frequencyRatios[core] : 0;
+                normalizedUsageSum += m_normalizedUsages[core];
+            }
+        }
+
+        m_averageFrequencyKHz = cores.length > 0 ? frequencySum / cores.length : 0;
+        m_averageNormalizedUsage = cores.length > 0 ? normalizedUsageSum / cores.length : 0;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("avg freq (khz)").append(p_delim).append("avg normalized usage %").append(p_delim)
+                .append("throttle events/sec");
+
+        for (int core : m_topology.getOnlineCpus()) {
+            builder.append(p_delim).append("core").append(core).append(" freq (khz)").append(p_delim).append("core")
+                    .append(core).append(" c0 %").append(p_delim).append("core").append(core)
+                    .append(" normalized usage %");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_averageFrequencyKHz).append(p_delim).append(m_averageNormalizedUsage * 100).append(p_delim)
+                .append(m_totalThrottleRate);
+
+        for (int core : m_topology.getOnlineCpus()) {
+            builder.append(p_delim).append(getFrequencyKHz(core)).append(p_delim)
+                    .append(m_busyResidencies[core] * 100).append(p_delim).append(m_normalizedUsages[core] * 100);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("avg freq %.0f kHz, avg normalized usage %2.2f %%, throttle events %.2f/s",
+                m_averageFrequencyKHz, m_averageNormalizedUsage * 100, m_totalThrottleRate));
+
+        for (int core : m_topology.getOnlineCpus()) {
+            CpuFrequencyState state = m_currentStates[core];
+
+            builder.append(String.format("\ncore %d: freq %d kHz (%2.2f %%), normalized usage %2.2f %%, " +
+                            "throttle events %.2f/s, C0 %2.2f %%", core, getFrequencyKHz(core),
+                    m_frequencyRatios[core] * 100, m_normalizedUsages[core] * 100, m_throttleRates[core],
+                    m_busyResidencies[core] * 100));
+
+            for (int i = 0; i < state.getIdleStateCount(); i++) {
+                builder.append(String.format(", %s %2.2f %%", state.getIdleStateName(i),
+                        m_idleResidencies[core][i] * 100));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Update the topology (if not updated by the CpuProgress) and create/drop the states of cores which came
+     * online/went offline
+     *
+     * @throws StateUpdateException If reading the topology or the initial state of a new core failed
+     */
+    private void updateTopology() throws StateUpdateException {
+        if (m_cpuProgress == null) {
+            m_topology.update();
+        }
+
+        if (m_topology.getVersion() == m_topologyVersion) {
+            return;
+        }
+
+        m_topologyVersion = m_topology.getVersion();
+
+        for (int i = 0; i < m_currentStates.length; i++) {
+            if (!m_topology.isOnline(i)) {
+                m_lastStates[i] = null;
+                m_currentStates[i] = null;
+            } else if (m_currentStates[i] == null) {
+                m_lastStates[i] = new CpuFrequencyState(i);
+                m_currentStates[i] = new CpuFrequencyState(i);
+                m_idleResidencies[i] = new float[m_currentStates[i].getIdleStateCount()];
+
+                // first update of the core
+                m_lastStates[i].update();
+            }
+        }
+    }
+}
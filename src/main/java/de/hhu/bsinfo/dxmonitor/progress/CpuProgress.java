@@ -13,17 +13,31 @@
 
 package de.hhu.bsinfo.dxmonitor.progress;
 
+import de.hhu.bsinfo.dxmonitor.state.CpuCoreState;
 import de.hhu.bsinfo.dxmonitor.state.CpuState;
+import de.hhu.bsinfo.dxmonitor.state.CpuTopologyState;
 import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
 
 /**
  * Progress for the full CPU (all cores). All values are aggregated (i.e. on multi core systems: 100% = 1 core on full load)
+ * and derived from the "cpu" line of the kernel in /proc/stat, which sums up the times of all cores. The total and
+ * the cores are calculated from the same read of /proc/stat (see CpuState), i.e. the values of the cores add up to
+ * the total.
  *
  * @author Burak Akguel, burak.akguel@hhu.de, 23.11.2017
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
  */
 public class CpuProgress implements Progress {
-    private CpuCoreProgress[] m_cores;
+    private final CpuTopologyState m_topology;
+    private int m_topologyVersion;
+
+    private CpuState m_lastState;
+    private CpuState m_currentState;
+    private boolean m_first;
+
+    // indexed by core id, null if offline
+    private final CpuCoreProgress[] m_cores;
+    private final CpuCoreProgress m_total;
 
     private float m_cpuUsage;
     private float m_idleUsage;
@@ -33,16 +47,80 @@ public class CpuProgress implements Progress {
     private float m_softIrqUsage;
     private float m_irqUsage;
     private float m_ioWaitUsage;
+    private float m_stealUsage;
 
     /**
      * Constructor
      */
     public CpuProgress() {
-        m_cores = new CpuCoreProgress[CpuState.getTotalCores()];
-
-        for (int i = 0; i < CpuState.getTotalCores(); i++) {
-            m_cores[i] = new CpuCoreProgress(i);
+        m_topology = new CpuTopologyState();
+        m_topologyVersion = -1;
+        m_cores = new CpuCoreProgress[m_topology.getMaxCpus()];
+        m_total = new CpuCoreProgress(CpuCoreState.TOTAL, false);
+
+        try {
+            updateTopology();
+        } catch (StateUpdateException e) {
+            throw new IllegalStateException(e);
         }
+
+        m_lastState = new CpuState(m_topology);
+        m_currentState = new CpuState(m_topology);
+        m_first = true;
+    }
+
+    /**
+     * Get the topology of the CPUs (updated by this progress)
+     */
+    public CpuTopologyState getTopology() {
+        return m_topology;
+    }
+
+    /**
+     * Get the most recent state (all cores, load average and kernel activity counters)
+     */
+    public CpuState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the state of the previous update
+     */
+    CpuState getLastState() {
+        return m_lastState;
+    }
+
+    /**
+     * Get the ids of the cores tracked (online cores)
+     *
+     * @return Sorted array with core ids
+     */
+    public int[] getCoreIds() {
+        return m_topology.getOnlineCpus();
+    }
+
+    /**
+     * Get the number of cores tracked (online cores)
+     */
+    public int getCoreCount() {
+        return m_topology.getOnlineCpuCount();
+    }
+
+    /**
+     * Get the progress of a single core
+     *
+     * @param p_coreId Id of the core
+     * @return Progress of the core or null if the core is offline
+     */
+    public CpuCoreProgress getCoreProgress(final int p_coreId) {
+        return p_coreId >= 0 && p_coreId < m_cores.length ? m_cores[p_coreId] : null;
+    }
+
+    /**
+     * Get the progress of all cores (ratios [0, 1], not multiplied by the number of cores)
+     */
+    public CpuCoreProgress getTotalProgress() {
+        return m_total;
     }
 
     /**
@@ -52,6 +130,21 @@ public class CpuProgress implements Progress {
         return m_cpuUsage;
     }
 
+    /**
+     * Get the aggregated total CPU load divided by the number of cores, i.e. [0, 1] (see NumaProgress for per node
+     * values)
+     */
+    public float getAverageCpuUsage() {
+        return m_total.getCpuUsage();
+    }
+
+    /**
+     * Get the aggregated total CPU load divided by the number of cores (in percent)
+     */
+    public float getAverageCpuUsagePercent() {
+        return getAverageCpuUsage() * 100;
+    }
+
     /**
      * Get the aggregated idle usage to total CPU cycles (delta of the previous two update calls) ratio
      */
@@ -101,6 +194,28 @@ public class CpuProgress implements Progress {
         return m_ioWaitUsage;
     }
 
+    /**
+     * Get the aggregated steal time (waiting for the hypervisor) to total CPU cycles (delta of the previous two update
+     * calls) ratio
+     */
+    public float getStealUsage() {
+        return m_stealUsage;
+    }
+
+    /**
+     * Get the aggregated steal time divided by the number of cores, i.e. [0, 1]
+     */
+    public float getAverageStealUsage() {
+        return m_total.getStealUsage();
+    }
+
+    /**
+     * Get the aggregated steal time divided by the number of cores (in percent)
+     */
+    public float getAverageStealUsagePercent() {
+        return getAverageStealUsage() * 100;
+    }
+
     /**
      * Get the aggregated total CPU load to total CPU cycles (delta of the previous two update calls) ratio in percent
      */
@@ -157,38 +272,56 @@ public class CpuProgress implements Progress {
         return getIoWaitUsage() * 100;
     }
 
+    /**
+     * Get the aggregated steal time to total CPU cycles (delta of the previous two update calls) ratio in percent
+     */
+    public float getStealUsagePercent() {
+        return getStealUsage() * 100;
+    }
+
     @Override
     public String toString() {
         return String.format("usage %2.2f, idle %2.2f, usr %2.2f, sys %2.2f, nice %2.2f, soft irq %2.2f, irq %2.2f, " +
-                "io wait %2.2f", getCpuUsagePercent(), getIdleUsagePercent(), getUsrUsagePercent(),
+                "io wait %2.2f, steal %2.2f", getCpuUsagePercent(), getIdleUsagePercent(), getUsrUsagePercent(),
                 getSysUsagePercent(), getNiceUsagePercent(), getSoftIrqUsagePercent(), getIrqUsagePercent(),
-                getIoWaitUsagePercent());
+                getIoWaitUsagePercent(), getStealUsagePercent());
     }
 
     @Override
     public void update() throws StateUpdateException {
-        // reset previous stats
-        m_cpuUsage = 0;
-        m_idleUsage = 0;
-        m_sysUsage = 0;
-        m_usrUsage = 0;
-        m_niceUsage = 0;
-        m_softIrqUsage = 0;
-        m_irqUsage = 0;
-        m_ioWaitUsage = 0;
-
-        for (CpuCoreProgress core : m_cores) {
-            core.update();
-
-            m_cpuUsage += core.getCpuUsage();
-            m_idleUsage += core.getIdleUsage();
-            m_sysUsage += core.getSysUsage();
-            m_usrUsage += core.getUsrUsage();
-            m_niceUsage += core.getNiceUsage();
-            m_softIrqUsage += core.getSoftIrqUsage();
-            m_irqUsage += core.getIrqUsage();
-            m_ioWaitUsage += core.getIoWaitUsage();
+        updateTopology();
+
+        CpuState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
         }
+
+        m_currentState.update();
+
+        m_total.update(m_lastState.getTotalState(), m_currentState.getTotalState());
+
+        for (int id : getCoreIds()) {
+            // a core which just came online has no previous state
+            m_cores[id].update(m_lastState.hasCoreState(id) ? m_lastState.getCoreState(id) : null,
+                    m_currentState.getCoreState(id));
+        }
+
+        // ratios of the kernel's sum of all cores scaled to 100% = 1 core
+        int cores = getCoreCount();
+
+        m_cpuUsage = m_total.getCpuUsage() * cores;
+        m_idleUsage = m_total.getIdleUsage() * cores;
+        m_sysUsage = m_total.getSysUsage() * cores;
+        m_usrUsage = m_total.getUsrUsage() * cores;
+        m_niceUsage = m_total.getNiceUsage() * cores;
+        m_softIrqUsage = m_total.getSoftIrqUsage() * cores;
+        m_irqUsage = m_total.getIrqUsage() * cores;
+        m_ioWaitUsage = m_total.getIoWaitUsage() * cores;
+        m_stealUsage = m_total.getStealUsage() * cores;
     }
 
     @Override
@@ -198,10 +331,10 @@ public class CpuProgress implements Progress {
         builder.append("cpu usage %").append(p_delim).append("idle usage %").append(p_delim).append("sys usage %")
                 .append(p_delim).append("usr usage %").append(p_delim).append("nice usage %").append(p_delim)
                 .append("soft irq usage %").append(p_delim).append("irq usage %").append(p_delim)
-                .append("io wait usage %");
+                .append("io wait usage %").append(p_delim).append("steal usage %");
 
-        for (CpuCoreProgress core : m_cores) {
-            builder.append(core.generateCSVHeader(p_delim));
+        for (int id : getCoreIds()) {
+            builder.append(p_delim).append(m_cores[id].generateCSVHeader(p_delim));
         }
 
         return builder.toString();
@@ -214,12 +347,36 @@ public class CpuProgress implements Progress {
         builder.append(getCpuUsagePercent()).append(p_delim).append(getIdleUsagePercent()).append(p_delim)
                 .append(getSysUsagePercent()).append(p_delim).append(getUsrUsagePercent()).append(p_delim)
                 .append(getNiceUsagePercent()).append(p_delim).append(getSoftIrqUsagePercent()).append(p_delim)
-                .append(getIrqUsagePercent()).append(p_delim).append(getIoWaitUsagePercent());
+                .append(getIrqUsagePercent()).append(p_delim).append(getIoWaitUsagePercent()).append(p_delim)
+                .append(getStealUsagePercent());
 
-        for (CpuCoreProgress core : m_cores) {
-            builder.append(core.toCSV(p_delim));
+        for (int id : getCoreIds()) {
+            builder.append(p_delim).append(m_cores[id].toCSV(p_delim));
         }
 
         return builder.toString();
     }
+
+    /**
+     * Update the topology and create/drop the progress of cores which came online/went offline
+     *
+     * @throws StateUpdateException If reading the topology failed
+     */
+    private void updateTopology() throws StateUpdateException {
+        m_topology.update();
+
+        if (m_topology.getVersion() == m_topologyVersion) {
+            return;
+        }
+
+        m_topologyVersion = m_topology.getVersion();
+
+        for (int i = 0; i < m_cores.length; i++) {
+            if (!m_topology.isOnline(i)) {
+                m_cores[i] = null;
+            } else if (m_cores[i] == null) {
+                m_cores[i] = new CpuCoreProgress(i, false);
+            }
+        }
+    }
 }
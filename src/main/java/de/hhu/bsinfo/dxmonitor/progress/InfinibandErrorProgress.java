@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.InfinibandErrorState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the error and congestion counters of an infiniband device (e.g. mlx5_0), tracked per port.
+ *
+ * Unlike other progresses, a single state is used because the state extends the (narrow) hardware counters
+ * with every update and must see all reads to detect wrap arounds.
+ */
+public class InfinibandErrorProgress implements Progress {
+    private final InfinibandErrorState m_state;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final long[][] m_lastCounters;
+    private final long[][] m_deltas;
+    private final float[][] m_rates;
+
+    /**
+     * Constructor
+     *
+     * @param p_deviceIdentifier Name of the ib device (e.g. mlx5_0)
+     */
+    public InfinibandErrorProgress(final String p_deviceIdentifier) {
+        m_state = new InfinibandErrorState(p_deviceIdentifier);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_lastCounters = new long[m_state.getPortCount()][InfinibandErrorState.COUNTER_COUNT];
+        m_deltas = new long[m_state.getPortCount()][InfinibandErrorState.COUNTER_COUNT];
+        m_rates = new float[m_state.getPortCount()][InfinibandErrorState.COUNTER_COUNT];
+    }
+
+    /**
+     * Get the state tracking the (extended) counters
+     */
+    public InfinibandErrorState getState() {
+        return m_state;
+    }
+
+    /**
+     * Get the number of ports of the device
+     */
+    public int getPortCount() {
+        return m_state.getPortCount();
+    }
+
+    /**
+     * Get the number of events of a counter (delta of the previous two update calls)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. InfinibandErrorState.SYMBOL_ERROR)
+     */
+    public long getDelta(final int p_portIdx, final int p_counter) {
+        return m_deltas[p_portIdx][p_counter];
+    }
+
+    /**
+     * Get the events per second of a counter
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. InfinibandErrorState.SYMBOL_ERROR)
+     */
+    public float getRate(final int p_portIdx, final int p_counter) {
+        return m_rates[p_portIdx][p_counter];
+    }
+
+    /**
+     * Get the number of events of a counter summed up for all ports (delta of the previous two update calls)
+     *
+     * @param p_counter Counter id (e.g. InfinibandErrorState.LINK_DOWNED)
+     */
+    public long getDelta(final int p_counter) {
+        long sum = 0;
+
+        for (long[] deltas : m_deltas) {
+            sum += deltas[p_counter];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Get the events per second of a counter summed up for all ports
+     *
+     * @param p_counter Counter id (e.g. InfinibandErrorState.SYMBOL_ERROR)
+     */
+    public float getRate(final int p_counter) {
+        float sum = 0;
+
+        for (float[] rates : m_rates) {
+            sum += rates[p_counter];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Get the sequence errors per second (out of sequence and packet sequence errors) of all ports
+     */
+    public float getSequenceErrorRate() {
+        return getRate(InfinibandErrorState.OUT_OF_SEQUENCE) + getRate(InfinibandErrorState.PACKET_SEQ_ERR);
+    }
+
+    /**
+     * Get the physical link errors per second (symbol errors, link error recoveries, local link integrity errors)
+     * of all ports
+     */
+    public float getLinkErrorRate() {
+        return getRate(InfinibandErrorState.SYMBOL_ERROR) + getRate(InfinibandErrorState.LINK_ERROR_RECOVERY) +
+                getRate(InfinibandErrorState.LOCAL_LINK_INTEGRITY_ERRORS);
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_lastCounters.length; i++) {
+            for (int j = 0; j < InfinibandErrorState.COUNTER_COUNT; j++) {
+                m_lastCounters[i][j] = m_state.getCounter(i, j);
+            }
+        }
+
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        if (m_first) {
+            // counters are extended relative to the first read
+            m_first = false;
+            m_state.update();
+        }
+
+        m_state.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_lastCounters.length; i++) {
+            for (int j = 0; j < InfinibandErrorState.COUNTER_COUNT; j++) {
+                m_deltas[i][j] = m_state.getCounter(i, j) - m_lastCounters[i][j];
+
+                if (timeDiff <= 0) {
+                    m_rates[i][j] = 0;
+                } else {
+                    m_rates[i][j] = m_deltas[i][j] / timeDiff;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("device");
+
+        for (int i = 0; i < m_rates.length; i++) {
+            for (int j = 0; j < InfinibandErrorState.COUNTER_COUNT; j++) {
+                builder.append(p_delim).append("port ").append(m_state.getPortNumber(i)).append(' ')
+                        .append(InfinibandErrorState.getCounterName(j)).append("/sec");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_state.getDeviceIdentifier());
+
+        for (float[] rates : m_rates) {
+            for (float rate : rates) {
+                builder.append(p_delim).append(rate);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_state.getDeviceIdentifier());
+        builder.append(':');
+
+        for (int i = 0; i < m_rates.length; i++) {
+            builder.append("\nport ").append(m_state.getPortNumber(i));
+
+            if (m_state.isAnySaturated(i)) {
+                builder.append(" (counters saturated)");
+            }
+
+            builder.append(':');
+
+            for (int j = 0; j < InfinibandErrorState.COUNTER_COUNT; j++) {
+                if (j > 0) {
+                    builder.append(',');
+                }
+
+                builder.append(String.format(" %s %.2f/s", InfinibandErrorState.getCounterName(j), m_rates[i][j]));
+            }
+        }
+
+        return builder.toString();
+    }
+}
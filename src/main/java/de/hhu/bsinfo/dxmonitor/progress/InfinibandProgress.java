@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.InfinibandState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress for a specific infiniband device (e.g. mlx4_0), tracked per port
+ */
+public class InfinibandProgress implements Progress {
+    private InfinibandState m_lastState;
+    private InfinibandState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final float[] m_xmitThroughput;
+    private final float[] m_rcvThroughput;
+    private final float[] m_xmitPacketsPerSec;
+    private final float[] m_rcvPacketsPerSec;
+    private final long[] m_rcvErrors;
+    private final long[] m_xmitDiscards;
+
+    private float m_totalXmitThroughput;
+    private float m_totalRcvThroughput;
+
+    /**
+     * Constructor
+     *
+     * @param p_deviceIdentifier Name of the ib device (e.g. mlx4_0)
+     */
+    public InfinibandProgress(final String p_deviceIdentifier) {
+        m_lastState = new InfinibandState(p_deviceIdentifier);
+        m_currentState = new InfinibandState(p_deviceIdentifier);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        int ports = m_currentState.getPortCount();
+
+        m_xmitThroughput = new float[ports];
+        m_rcvThroughput = new float[ports];
+        m_xmitPacketsPerSec = new float[ports];
+        m_rcvPacketsPerSec = new float[ports];
+        m_rcvErrors = new long[ports];
+        m_xmitDiscards = new long[ports];
+    }
+
+    /**
+     * Get the most recent state of the device
+     */
+    public InfinibandState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the number of ports of the device
+     */
+    public int getPortCount() {
+        return m_currentState.getPortCount();
+    }
+
+    /**
+     * Get the transmit throughput of a port in bytes/sec
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getTransmitThroughput(final int p_portIdx) {
+        return m_xmitThroughput[p_portIdx];
+    }
+
+    /**
+     * Get the receive throughput of a port in bytes/sec
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getReceiveThroughput(final int p_portIdx) {
+        return m_rcvThroughput[p_portIdx];
+    }
+
+    /**
+     * Get the transmitted packets per second of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getTransmitPacketsPerSec(final int p_portIdx) {
+        return m_xmitPacketsPerSec[p_portIdx];
+    }
+
+    /**
+     * Get the received packets per second of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getReceivePacketsPerSec(final int p_portIdx) {
+        return m_rcvPacketsPerSec[p_portIdx];
+    }
+
+    /**
+     * Get the number of faulty packets received on a port (delta of the previous two update calls)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getReceiveErrorCount(final int p_portIdx) {
+        return m_rcvErrors[p_portIdx];
+    }
+
+    /**
+     * Get the number of outbound packets discarded on a port (delta of the previous two update calls)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getTransmitDiscardCount(final int p_portIdx) {
+        return m_xmitDiscards[p_portIdx];
+    }
+
+    /**
+     * Get the transmit throughput to link rate ratio of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getTransmitUtilization(final int p_portIdx) {
+        double rate = m_currentState.getRateBytesPerSec(p_portIdx);
+
+        if (rate <= 0) {
+            return 0;
+        }
+
+        return (float) (m_xmitThroughput[p_portIdx] / rate);
+    }
+
+    /**
+     * Get the receive throughput to link rate ratio of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public float getReceiveUtilization(final int p_portIdx) {
+        double rate = m_currentState.getRateBytesPerSec(p_portIdx);
+
+        if (rate <= 0) {
+            return 0;
+        }
+
+        return (float) (m_rcvThroughput[p_portIdx] / rate);
+    }
+
+    /**
+     * Get the transmit throughput of all ports in bytes/sec
+     */
+    public float getTransmitThroughput() {
+        return m_totalXmitThroughput;
+    }
+
+    /**
+     * Get the receive throughput of all ports in bytes/sec
+     */
+    public float getReceiveThroughput() {
+        return m_totalRcvThroughput;
+    }
+
+    /**
+     * Get the number of faulty packets received on all ports (delta of the previous two update calls)
+     */
+    public long getReceiveErrorCount() {
+        long sum = 0;
+
+        for (long errors : m_rcvErrors) {
+            sum += errors;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        InfinibandState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        m_totalXmitThroughput = 0;
+        m_totalRcvThroughput = 0;
+
+        for (int i = 0; i < m_xmitThroughput.length; i++) {
+            if (timeDiff <= 0) {
+                m_xmitThroughput[i] = 0;
+                m_rcvThroughput[i] = 0;
+                m_xmitPacketsPerSec[i] = 0;
+                m_rcvPacketsPerSec[i] = 0;
+            } else {
+                m_xmitThroughput[i] = delta(m_currentState.getXmitBytes(i), m_lastState.getXmitBytes(i)) / timeDiff;
+                m_rcvThroughput[i] = delta(m_currentState.getRcvBytes(i), m_lastState.getRcvBytes(i)) / timeDiff;
+                m_xmitPacketsPerSec[i] = delta(m_currentState.getXmitPackets(i), m_lastState.getXmitPackets(i)) /
+                        timeDiff;
+                m_rcvPacketsPerSec[i] = delta(m_currentState.getRcvPackets(i), m_lastState.getRcvPackets(i)) /
+                        timeDiff;
+            }
+
+            m_rcvErrors[i] = delta(m_currentState.getRcvErrors(i), m_lastState.getRcvErrors(i));
+            m_xmitDiscards[i] = delta(m_currentState.getXmitDiscards(i), m_lastState.getXmitDiscards(i));
+
+            m_totalXmitThroughput += m_xmitThroughput[i];
+            m_totalRcvThroughput += m_rcvThroughput[i];
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("device").append(p_delim).append("xmit throughput").append(p_delim).append("rcv throughput");
+
+        for (int i = 0; i < m_xmitThroughput.length; i++) {
+            String prefix = "port " + m_currentState.getPortNumber(i) + ' ';
+
+            builder.append(p_delim).append(prefix).append("state").append(p_delim).append(prefix)
+                    .append("xmit throughput").append(p_delim).append(prefix).append("rcv throughput").append(p_delim)
+                    .append(prefix).append("xmit packets/sec").append(p_delim).append(prefix)
+                    .append("rcv packets/sec").append(p_delim).append(prefix).append("rcv errors").append(p_delim)
+                    .append(prefix).append("xmit discards");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_currentState.getDeviceIdentifier()).append(p_delim).append(m_totalXmitThroughput)
+                .append(p_delim).append(m_totalRcvThroughput);
+
+        for (int i = 0; i < m_xmitThroughput.length; i++) {
+            builder.append(p_delim).append(m_currentState.getStates()[i]).append(p_delim).append(m_xmitThroughput[i])
+                    .append(p_delim).append(m_rcvThroughput[i]).append(p_delim).append(m_xmitPacketsPerSec[i])
+                    .append(p_delim).append(m_rcvPacketsPerSec[i]).append(p_delim).append(m_rcvErrors[i])
+                    .append(p_delim).append(m_xmitDiscards[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("%s (xmit throughput: %fB/s, rcv throughput: %fB/s)",
+                m_currentState.getDeviceIdentifier(), m_totalXmitThroughput, m_totalRcvThroughput));
+
+        for (int i = 0; i < m_xmitThroughput.length; i++) {
+            builder.append(String.format("\nport %d %s (xmit throughput: %fB/s, rcv throughput: %fB/s, " +
+                    "xmit packets: %f/s, rcv packets: %f/s, rcv errors: %d, xmit discards: %d)",
+                    m_currentState.getPortNumber(i), m_currentState.getStates()[i], m_xmitThroughput[i],
+                    m_rcvThroughput[i], m_xmitPacketsPerSec[i], m_rcvPacketsPerSec[i], m_rcvErrors[i],
+                    m_xmitDiscards[i]));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Calculate the difference of two counter values. Counters can be reset (e.g. by perfquery -R) which
+     * is not considered progress.
+     *
+     * @param p_current Current counter value
+     * @param p_last Last counter value
+     * @return Difference or 0 if the counter was reset
+     */
+    private static long delta(final long p_current, final long p_last) {
+        long diff = p_current - p_last;
+
+        return diff < 0 ? 0 : diff;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.InterruptState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the interrupts per CPU. Calculates the rates per interrupt and CPU and the skew of the
+ * interrupt load of each device (NIC, NVMe, HCA) across the CPUs.
+ */
+public class InterruptProgress implements Progress {
+    private InterruptState m_lastState;
+    private InterruptState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float[][] m_rates;
+    private float[] m_irqRates;
+    private float[] m_cpuRates;
+    private float[] m_deviceRates;
+    private float[] m_deviceSkews;
+
+    /**
+     * Constructor
+     */
+    public InterruptProgress() {
+        m_lastState = new InterruptState();
+        m_currentState = new InterruptState();
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        allocate();
+    }
+
+    /**
+     * Get the most recent state (e.g. to get names, devices and affinities of the interrupts)
+     */
+    public InterruptState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the rate of an interrupt on a CPU
+     *
+     * @param p_irqIdx Index of the interrupt [0, getState().getIrqCount())
+     * @param p_cpuIdx Index of the CPU [0, getState().getCpuCount())
+     * @return Interrupts per second
+     */
+    public float getRate(final int p_irqIdx, final int p_cpuIdx) {
+        return m_rates[p_irqIdx][p_cpuIdx];
+    }
+
+    /**
+     * Get the rate of an interrupt on all CPUs
+     *
+     * @param p_irqIdx Index of the interrupt [0, getState().getIrqCount())
+     * @return Interrupts per second
+     */
+    public float getIrqRate(final int p_irqIdx) {
+        return m_irqRates[p_irqIdx];
+    }
+
+    /**
+     * Get the rate of all device interrupts (numbered interrupts, no architecture specific ones) on a CPU
+     *
+     * @param p_cpuIdx Index of the CPU [0, getState().getCpuCount())
+     * @return Interrupts per second
+     */
+    public float getCpuRate(final int p_cpuIdx) {
+        return m_cpuRates[p_cpuIdx];
+    }
+
+    /**
+     * Get the rate of all interrupts of a device
+     *
+     * @param p_deviceIdx Index of the device [0, getState().getDeviceCount())
+     * @return Interrupts per second
+     */
+    public float getDeviceRate(final int p_deviceIdx) {
+        return m_deviceRates[p_deviceIdx];
+    }
+
+    /**
+     * Get the skew of the interrupt load of a device: Highest rate on a single CPU to the rate per CPU if the
+     * interrupts were spread evenly across min(number of device interrupts, number of CPUs) CPUs.
+     * 1 means the load is spread evenly, higher values mean that a few CPUs handle most interrupts.
+     *
+     * @param p_deviceIdx Index of the device [0, getState().getDeviceCount())
+     */
+    public float getDeviceSkew(final int p_deviceIdx) {
+        return m_deviceSkews[p_deviceIdx];
+    }
+
+    /**
+     * Get the index of the device with the highest skew
+     *
+     * @return Index of the device or -1 if there are no devices with interrupts
+     */
+    public int getMostSkewedDevice() {
+        int device = -1;
+
+        for (int i = 0; i < m_deviceSkews.length; i++) {
+            if (device == -1 || m_deviceSkews[i] > m_deviceSkews[device]) {
+                device = i;
+            }
+        }
+
+        return device;
+    }
+
+    /**
+     * Get the highest skew of all devices
+     */
+    public float getMaxDeviceSkew() {
+        int device = getMostSkewedDevice();
+
+        return device == -1 ? 0 : m_deviceSkews[device];
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        InterruptState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        // interrupts were added or removed, no rates for this interval
+        if (!m_currentState.hasSameLayout(m_lastState)) {
+            allocate();
+            return;
+        }
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_cpuRates.length; i++) {
+            m_cpuRates[i] = 0;
+        }
+
+        for (int i = 0; i < m_rates.length; i++) {
+            float sum = 0;
+
+            for (int j = 0; j < m_rates[i].length; j++) {
+                long diff = m_currentState.getCount(i, j) - m_lastState.getCount(i, j);
+
+                m_rates[i][j] = diff <= 0 || timeDiff <= 0 ? 0 : diff / timeDiff;
+                sum += m_rates[i][j];
+
+                if (m_currentState.getIrqNumber(i) != -1) {
+                    m_cpuRates[j] += m_rates[i][j];
+                }
+            }
+
+            m_irqRates[i] = sum;
+        }
+
+        for (int i = 0; i < m_deviceRates.length; i++) {
+            int[] irqs = m_currentState.getDeviceIrqs(i);
+            float total = 0;
+            float max = 0;
+
+            for (int j = 0; j < m_cpuRates.length; j++) {
+                float cpuRate = 0;
+
+                for (int irq : irqs) {
+                    cpuRate += m_rates[irq][j];
+                }
+
+                total += cpuRate;
+
+                if (cpuRate > max) {
+                    max = cpuRate;
+                }
+            }
+
+            int cpus = Math.min(irqs.length, m_cpuRates.length);
+
+            m_deviceRates[i] = total;
+            m_deviceSkews[i] = total > 0 && cpus > 0 ? max / (total / cpus) : 0;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("max device irq skew");
+
+        for (int i = 0; i < m_currentState.getDeviceCount(); i++) {
+            String device = m_currentState.getDeviceName(i);
+
+            builder.append(p_delim).append(device).append(" irqs/sec").append(p_delim).append(device)
+                    .append(" irq skew");
+        }
+
+        for (int i = 0; i < m_currentState.getCpuCount(); i++) {
+            builder.append(p_delim).append("cpu").append(m_currentState.getCpuId(i)).append(" irqs/sec");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(getMaxDeviceSkew());
+
+        for (int i = 0; i < m_deviceRates.length; i++) {
+            builder.append(p_delim).append(m_deviceRates[i]).append(p_delim).append(m_deviceSkews[i]);
+        }
+
+        for (float rate : m_cpuRates) {
+            builder.append(p_delim).append(rate);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("max device irq skew %.2f", getMaxDeviceSkew()));
+
+        for (int i = 0; i < m_deviceRates.length; i++) {
+            builder.append(String.format("\n%s: %d irqs, %.2f irqs/s, skew %.2f, affinity cpus %d%s",
+                    m_currentState.getDeviceName(i), m_currentState.getDeviceIrqs(i).length, m_deviceRates[i],
+                    m_deviceSkews[i], m_currentState.getDeviceAffinityCpuCount(i),
+                    m_currentState.isAffinitySkewed(i) ? " (affinity skewed)" : ""));
+        }
+
+        for (int i = 0; i < m_cpuRates.length; i++) {
+            builder.append(String.format("\ncpu %d: %.2f irqs/s", m_currentState.getCpuId(i), m_cpuRates[i]));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * (Re-)allocate the arrays for the rates matching the layout of the current state
+     */
+    private void allocate() {
+        m_rates = new float[m_currentState.getIrqCount()][m_currentState.getCpuCount()];
+        m_irqRates = new float[m_currentState.getIrqCount()];
+        m_cpuRates = new float[m_currentState.getCpuCount()];
+        m_deviceRates = new float[m_currentState.getDeviceCount()];
+        m_deviceSkews = new float[m_currentState.getDeviceCount()];
+    }
+}
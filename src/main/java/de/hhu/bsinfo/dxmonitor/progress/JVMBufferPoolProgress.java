@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.JVMBufferPoolState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Growth of the off-heap buffer pools of the JVM: buffers and bytes used per second since the last update and,
+ * to detect slow leaks that vanish in the noise of a single update, averaged since the first update. Rates are
+ * negative if buffers were freed.
+ */
+public class JVMBufferPoolProgress implements Progress {
+    private JVMBufferPoolState m_lastState;
+    private JVMBufferPoolState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private long m_startTimeStamp;
+    private boolean m_first;
+
+    // indexed by pool
+    private final long[] m_startUsed;
+    private final float[] m_countRates;
+    private final float[] m_usedRates;
+    private final float[] m_averageUsedRates;
+
+    /**
+     * Constructor
+     */
+    public JVMBufferPoolProgress() {
+        m_lastState = new JVMBufferPoolState();
+        m_currentState = new JVMBufferPoolState();
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_startTimeStamp = m_currentTimeStamp;
+
+        int pools = m_currentState.getPoolCount();
+
+        m_startUsed = new long[pools];
+        m_countRates = new float[pools];
+        m_usedRates = new float[pools];
+        m_averageUsedRates = new float[pools];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public JVMBufferPoolState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the buffers allocated per second of a pool
+     *
+     * @param p_index Index of the pool (see JVMBufferPoolState.getPoolIndex)
+     */
+    public float getCountRate(final int p_index) {
+        return m_countRates[p_index];
+    }
+
+    /**
+     * Get the growth of the memory used by a pool since the last update
+     *
+     * @param p_index Index of the pool (see JVMBufferPoolState.getPoolIndex)
+     * @return Rate in bytes/s
+     */
+    public float getUsedGrowthRate(final int p_index) {
+        return m_usedRates[p_index];
+    }
+
+    /**
+     * Get the growth of the memory used by a pool averaged since the first update
+     *
+     * @param p_index Index of the pool (see JVMBufferPoolState.getPoolIndex)
+     * @return Rate in bytes/s
+     */
+    public float getAverageUsedGrowthRate(final int p_index) {
+        return m_averageUsedRates[p_index];
+    }
+
+    /**
+     * Get the growth of the memory used for direct buffers since the last update (in bytes/s)
+     */
+    public float getDirectUsedGrowthRate() {
+        int index = m_currentState.getPoolIndex(JVMBufferPoolState.POOL_DIRECT);
+
+        return index != -1 ? m_usedRates[index] : 0;
+    }
+
+    /**
+     * Get the growth of the memory used for direct buffers averaged since the first update (in bytes/s)
+     */
+    public float getAverageDirectUsedGrowthRate() {
+        int index = m_currentState.getPoolIndex(JVMBufferPoolState.POOL_DIRECT);
+
+        return index != -1 ? m_averageUsedRates[index] : 0;
+    }
+
+    /**
+     * Get the growth of the memory used for mapped buffers since the last update (in bytes/s)
+     */
+    public float getMappedUsedGrowthRate() {
+        int index = m_currentState.getPoolIndex(JVMBufferPoolState.POOL_MAPPED);
+
+        return index != -1 ? m_usedRates[index] : 0;
+    }
+
+    /**
+     * Get the growth of the memory used for mapped buffers averaged since the first update (in bytes/s)
+     */
+    public float getAverageMappedUsedGrowthRate() {
+        int index = m_currentState.getPoolIndex(JVMBufferPoolState.POOL_MAPPED);
+
+        return index != -1 ? m_averageUsedRates[index] : 0;
+    }
+
+    /**
+     * Restart averaging the growth rates, e.g. after a warm up phase allocating buffers on purpose
+     */
+    public void resetAverage() {
+        m_startTimeStamp = m_currentTimeStamp;
+
+        for (int i = 0; i < m_startUsed.length; i++) {
+            m_startUsed[i] = m_currentState.getUsed(i);
+            m_averageUsedRates[i] = 0;
+        }
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        JVMBufferPoolState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+
+            for (int i = 0; i < m_startUsed.length; i++) {
+                m_startUsed[i] = m_lastState.getUsed(i);
+            }
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+        float totalTimeDiff = (m_currentTimeStamp - m_startTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_usedRates.length; i++) {
+            m_countRates[i] = timeDiff <= 0 ? 0 :
+                    (m_currentState.getCount(i) - m_lastState.getCount(i)) / timeDiff;
+            m_usedRates[i] = timeDiff <= 0 ? 0 : (m_currentState.getUsed(i) - m_lastState.getUsed(i)) / timeDiff;
+            m_averageUsedRates[i] = totalTimeDiff <= 0 ? 0 :
+                    (m_currentState.getUsed(i) - m_startUsed[i]) / totalTimeDiff;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_usedRates.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            String name = m_currentState.getPoolName(i);
+
+            builder.append(name).append(" used (bytes)").append(p_delim).append(name).append(" buffers/sec")
+                    .append(p_delim).append(name).append(" used growth (bytes/sec)").append(p_delim).append(name)
+                    .append(" average used growth (bytes/sec)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_usedRates.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_currentState.getUsed(i)).append(p_delim).append(m_countRates[i]).append(p_delim)
+                    .append(m_usedRates[i]).append(p_delim).append(m_averageUsedRates[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_usedRates.length; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(String.format("%s: buffers %d (%.2f/s), capacity %d bytes, used %d bytes, growth %.2f " +
+                            "bytes/s (average %.2f bytes/s)", m_currentState.getPoolName(i),
+                    m_currentState.getCount(i), m_countRates[i], m_currentState.getCapacity(i),
+                    m_currentState.getUsed(i), m_usedRates[i], m_averageUsedRates[i]));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.KernelActivityState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Rates of the kernel activity counters of /proc/stat: context switches, interrupts, forks and softirqs per second
+ * plus the number of running and blocked tasks. If created with a CpuProgress, the counters are taken from its read
+ * of /proc/stat instead of reading the file again.
+ */
+public class KernelActivityProgress implements Progress {
+    // null if reading its own states
+    private final CpuProgress m_cpuProgress;
+
+    private KernelActivityState m_lastState;
+    private KernelActivityState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_interruptRate;
+    private float m_contextSwitchRate;
+    private float m_forkRate;
+    private float m_softIrqRate;
+
+    /**
+     * Constructor. Reads /proc/stat on update.
+     */
+    public KernelActivityProgress() {
+        m_cpuProgress = null;
+        m_lastState = new KernelActivityState();
+        m_currentState = new KernelActivityState();
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the counters from. The progress is not updated by this class, i.e.
+     *         it must be updated (once) before each update of this progress.
+     */
+    public KernelActivityProgress(final CpuProgress p_cpuProgress) {
+        m_cpuProgress = p_cpuProgress;
+        m_lastState = p_cpuProgress.getLastState().getKernelActivityState();
+        m_currentState = p_cpuProgress.getState().getKernelActivityState();
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public KernelActivityState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the interrupts per second
+     */
+    public float getInterruptRate() {
+        return m_interruptRate;
+    }
+
+    /**
+     * Get the context switches per second
+     */
+    public float getContextSwitchRate() {
+        return m_contextSwitchRate;
+    }
+
+    /**
+     * Get the forks (new processes and threads) per second
+     */
+    public float getForkRate() {
+        return m_forkRate;
+    }
+
+    /**
+     * Get the softirqs per second
+     */
+    public float getSoftIrqRate() {
+        return m_softIrqRate;
+    }
+
+    /**
+     * Get the number of tasks running or runnable on the most recent update
+     */
+    public long getProcsRunning() {
+        return m_currentState.getProcsRunning();
+    }
+
+    /**
+     * Get the number of tasks blocked waiting for io on the most recent update
+     */
+    public long getProcsBlocked() {
+        return m_currentState.getProcsBlocked();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        if (m_cpuProgress != null) {
+            // the states of the CPU progress are swapped on its update
+            m_lastState = m_cpuProgress.getLastState().getKernelActivityState();
+            m_currentState = m_cpuProgress.getState().getKernelActivityState();
+        } else {
+            KernelActivityState tmp = m_lastState;
+            m_lastState = m_currentState;
+            m_currentState = tmp;
+
+            if (m_first) {
+                m_first = false;
+                m_lastState.update();
+            }
+
+            m_currentState.update();
+        }
+
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        m_interruptRate = rate(m_currentState.getInterrupts(), m_lastState.getInterrupts(), timeDiff);
+        m_contextSwitchRate = rate(m_currentState.getContextSwitches(), m_lastState.getContextSwitches(), timeDiff);
+        m_forkRate = rate(m_currentState.getForks(), m_lastState.getForks(), timeDiff);
+        m_softIrqRate = rate(m_currentState.getSoftIrqs(), m_lastState.getSoftIrqs(), timeDiff);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "intr/sec" + p_delim + "ctxt/sec" + p_delim + "forks/sec" + p_delim + "softirq/sec" + p_delim +
+                "procs running" + p_delim + "procs blocked";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_interruptRate) + p_delim + m_contextSwitchRate + p_delim + m_forkRate + p_delim +
+                m_softIrqRate + p_delim + getProcsRunning() + p_delim + getProcsBlocked();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("intr %.2f/s, ctxt %.2f/s, forks %.2f/s, softirq %.2f/s, procs running %d, " +
+                        "procs blocked %d", m_interruptRate, m_contextSwitchRate, m_forkRate, m_softIrqRate,
+                getProcsRunning(), getProcsBlocked());
+    }
+
+    /**
+     * Calculate the rate of a counter
+     *
+     * @param p_current Current value of the counter
+     * @param p_last Last value of the counter
+     * @param p_timeDiff Time between both values in seconds
+     * @return Rate per second
+     */
+    private static float rate(final long p_current, final long p_last, final float p_timeDiff) {
+        long diff = p_current - p_last;
+
+        return diff <= 0 || p_timeDiff <= 0 ? 0 : diff / p_timeDiff;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.NativeMemoryState;
+import de.hhu.bsinfo.dxmonitor.state.SmapsRollupState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Breakdown of the memory of a process and its changes between two updates: resident memory from smaps_rollup
+ * and optionally (current JVM only) the committed native memory by category from native memory tracking, e.g.
+ * to find out whether a growing RSS is caused by thread stacks, the code cache or off-heap allocations.
+ * Diffs are in KB and can be negative.
+ */
+public class MemoryMapProgress implements Progress {
+    private SmapsRollupState m_lastState;
+    private SmapsRollupState m_currentState;
+    private NativeMemoryState m_lastNativeState;
+    private NativeMemoryState m_currentNativeState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    /**
+     * Constructor for the current process without native memory tracking
+     */
+    public MemoryMapProgress() {
+        this(false);
+    }
+
+    /**
+     * Constructor for the current process
+     *
+     * @param p_nativeMemory True to include the native memory tracking summary (if enabled for the JVM)
+     */
+    public MemoryMapProgress(final boolean p_nativeMemory) {
+        this(new SmapsRollupState(), new SmapsRollupState(), p_nativeMemory);
+    }
+
+    /**
+     * Constructor for another process (without native memory tracking)
+     *
+     * @param p_pid Id of the process
+     */
+    public MemoryMapProgress(final int p_pid) {
+        this(new SmapsRollupState(p_pid), new SmapsRollupState(p_pid), false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_lastState State for the previous values
+     * @param p_currentState State for the current values
+     * @param p_nativeMemory True to include the native memory tracking summary
+     */
+    private MemoryMapProgress(final SmapsRollupState p_lastState, final SmapsRollupState p_currentState,
+            final boolean p_nativeMemory) {
+        m_lastState = p_lastState;
+        m_currentState = p_currentState;
+
+        if (p_nativeMemory) {
+            m_lastNativeState = new NativeMemoryState();
+            m_currentNativeState = new NativeMemoryState();
+        }
+
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent smaps_rollup state
+     */
+    public SmapsRollupState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the most recent native memory state
+     *
+     * @return State or null if native memory tracking is not included
+     */
+    public NativeMemoryState getNativeState() {
+        return m_currentNativeState;
+    }
+
+    /**
+     * Check if the native memory breakdown is available (included and enabled for the JVM)
+     */
+    public boolean isNativeMemoryAvailable() {
+        return m_currentNativeState != null && m_currentNativeState.isAvailable();
+    }
+
+    /**
+     * Get the change of a smaps_rollup field since the last update
+     *
+     * @param p_field Field (e.g. SmapsRollupState.ANONYMOUS)
+     * @return Diff in KB
+     */
+    public long getDiffKB(final int p_field) {
+        return m_currentState.getValue(p_field) - m_lastState.getValue(p_field);
+    }
+
+    /**
+     * Get the change per second of a smaps_rollup field
+     *
+     * @param p_field Field (e.g. SmapsRollupState.ANONYMOUS)
+     * @return Rate in KB/s
+     */
+    public float getGrowthRate(final int p_field) {
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        return timeDiff <= 0 ? 0 : getDiffKB(p_field) / timeDiff;
+    }
+
+    /**
+     * Get the change of the committed memory of a native memory category since the last update
+     *
+     * @param p_category Name of the category (e.g. "Thread")
+     * @return Diff in KB (0 if not available)
+     */
+    public long getCommittedDiffKB(final String p_category) {
+        if (!isNativeMemoryAvailable()) {
+            return 0;
+        }
+
+        int current = m_currentNativeState.getCategoryIndex(p_category);
+        int last = m_lastNativeState.getCategoryIndex(p_category);
+
+        return (current != -1 ? m_currentNativeState.getCommittedKB(current) : 0) -
+                (last != -1 ? m_lastNativeState.getCommittedKB(last) : 0);
+    }
+
+    /**
+     * Get the change of the committed native memory of all categories since the last update
+     *
+     * @return Diff in KB (0 if not available)
+     */
+    public long getTotalCommittedDiffKB() {
+        return isNativeMemoryAvailable() ?
+                m_currentNativeState.getTotalCommittedKB() - m_lastNativeState.getTotalCommittedKB() : 0;
+    }
+
+    /**
+     * Get an estimate of the resident memory not tracked by the JVM, e.g. malloc of native libraries: Rss minus
+     * the memory committed by the JVM (committed memory is not necessarily resident, so this is a lower bound)
+     *
+     * @return Memory in KB (0 if not available)
+     */
+    public long getUntrackedKB() {
+        return isNativeMemoryAvailable() ?
+                Math.max(0, m_currentState.getRssKB() - m_currentNativeState.getTotalCommittedKB()) : 0;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        SmapsRollupState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_currentNativeState != null) {
+            NativeMemoryState tmpNative = m_lastNativeState;
+            m_lastNativeState = m_currentNativeState;
+            m_currentNativeState = tmpNative;
+        }
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+
+            if (m_lastNativeState != null) {
+                m_lastNativeState.update();
+            }
+        }
+
+        m_currentState.update();
+
+        if (m_currentNativeState != null) {
+            m_currentNativeState.update();
+        }
+
+        m_currentTimeStamp = System.nanoTime();
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_currentState.generateCSVHeader(p_delim)).append(p_delim).append("rss diff (kb)")
+                .append(p_delim).append("anonymous diff (kb)");
+
+        if (isNativeMemoryAvailable()) {
+            builder.append(p_delim).append(m_currentNativeState.generateCSVHeader(p_delim)).append(p_delim)
+                    .append("committed diff (kb)").append(p_delim).append("untracked (kb)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_currentState.toCSV(p_delim)).append(p_delim).append(getDiffKB(SmapsRollupState.RSS))
+                .append(p_delim).append(getDiffKB(SmapsRollupState.ANONYMOUS));
+
+        if (isNativeMemoryAvailable()) {
+            builder.append(p_delim).append(m_currentNativeState.toCSV(p_delim)).append(p_delim)
+                    .append(getTotalCommittedDiffKB()).append(p_delim).append(getUntrackedKB());
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_currentState).append(String.format(", rss %+d KB (%.2f KB/s), anonymous %+d KB",
+                getDiffKB(SmapsRollupState.RSS), getGrowthRate(SmapsRollupState.RSS),
+                getDiffKB(SmapsRollupState.ANONYMOUS)));
+
+        if (isNativeMemoryAvailable()) {
+            builder.append(String.format("\nnative committed %d KB (%+d KB), untracked %d KB",
+                    m_currentNativeState.getTotalCommittedKB(), getTotalCommittedDiffKB(), getUntrackedKB()));
+
+            for (int i = 0; i < m_currentNativeState.getCategoryCount(); i++) {
+                String category = m_currentNativeState.getCategoryName(i);
+
+                builder.append(String.format("\n%s: committed %d KB (%+d KB)", category,
+                        m_currentNativeState.getCommittedKB(i), getCommittedDiffKB(category)));
+            }
+        }
+
+        return builder.toString();
+    }
+}
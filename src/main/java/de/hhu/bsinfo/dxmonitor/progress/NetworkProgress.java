@@ -65,12 +65,42 @@ public class NetworkProgress implements Progress {
 
     /**
      * Return the "current" receive Throughput.
-     * @return Receive Throughput
+     * @return Receive Throughput in bytes/ms (see getReceiveThroughputPerSec for bytes/sec)
      */
     public float getReceiveThroughput() {
+        return m_rThroughput / 1000;
+    }
+
+    /**
+     * Return the "current" receive Throughput per second.
+     * @return Receive Throughput in bytes/sec
+     */
+    public float getReceiveThroughputPerSec() {
         return m_rThroughput;
     }
 
+    /**
+     * Returns the receive throughput to max bandwidth (line rate) ratio.
+     * @return Receive utilization or 0 if the speed of the nic is unknown
+     */
+    public float getReceiveUtilization() {
+        long maxBandwidth = m_currentState.getMaxBandwidthBytesPerSec();
+
+        if (maxBandwidth <= 0) {
+            return 0;
+        }
+
+        return m_rThroughput / maxBandwidth;
+    }
+
+    /**
+     * Returns the receive throughput to max bandwidth (line rate) ratio in percent.
+     * @return Receive utilization in percent
+     */
+    public float getReceiveUtilizationPercent() {
+        return getReceiveUtilization() * 100;
+    }
+
     /**
      * Returns amount of received packets.
      * @return Receive packet count
@@ -161,12 +191,42 @@ public class NetworkProgress implements Progress {
 
     /**
      * Return the "current" transmit Throughput.
-     * @return Transmit Throughput
+     * @return Transmit Throughput in bytes/ms (see getTransmitThroughputPerSec for bytes/sec)
      */
     public float getTransmitThroughput() {
+        return m_tThroughput / 1000;
+    }
+
+    /**
+     * Return the "current" transmit Throughput per second.
+     * @return Transmit Throughput in bytes/sec
+     */
+    public float getTransmitThroughputPerSec() {
         return m_tThroughput;
     }
 
+    /**
+     * Returns the transmit throughput to max bandwidth (line rate) ratio.
+     * @return Transmit utilization or 0 if the speed of the nic is unknown
+     */
+    public float getTransmitUtilization() {
+        long maxBandwidth = m_currentState.getMaxBandwidthBytesPerSec();
+
+        if (maxBandwidth <= 0) {
+            return 0;
+        }
+
+        return m_tThroughput / maxBandwidth;
+    }
+
+    /**
+     * Returns the transmit throughput to max bandwidth (line rate) ratio in percent.
+     * @return Transmit utilization in percent
+     */
+    public float getTransmitUtilizationPercent() {
+        return getTransmitUtilization() * 100;
+    }
+
     /**
      * Return the amount of transmitted packets.
      * @return send packet count
@@ -264,7 +324,7 @@ public class NetworkProgress implements Progress {
         m_currentState.update();
         m_currentTimeStamp = System.nanoTime();
 
-        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp)/1000.0f/1000.0f;
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp)/1000.0f/1000.0f/1000.0f;
 
         m_rBytes = m_currentState.getRxBytes() - m_lastState.getRxBytes();
         if (m_rBytes <= 0) {
@@ -295,23 +355,26 @@ public class NetworkProgress implements Progress {
 
     @Override
     public String generateCSVHeader(char p_delim) {
-        return "device" + p_delim + "rThroughput" + p_delim + "rPackets" + p_delim + "rError" + p_delim +
-                "rDrop" + p_delim + "rSuccess" + p_delim + "tThroughput" + p_delim + "tPackets" + p_delim +
-                "tError" + p_delim + "tDrop" + p_delim + "tSuccess";
+        return "device" + p_delim + "rThroughput" + p_delim + "rUtilization" + p_delim + "rPackets" + p_delim +
+                "rError" + p_delim + "rDrop" + p_delim + "rSuccess" + p_delim + "tThroughput" + p_delim +
+                "tUtilization" + p_delim + "tPackets" + p_delim + "tError" + p_delim + "tDrop" + p_delim + "tSuccess";
     }
 
     @Override
     public String toCSV(char p_delim) {
-        return m_currentState.getName() + p_delim + m_rThroughput + p_delim + m_rPacket + p_delim + m_rError +
-                p_delim + m_rDrop + p_delim + getReceivePacketSuccessCount() + p_delim + m_tThroughput + p_delim +
-                p_delim + m_tPacket + p_delim + m_tError + p_delim + m_tDrop + p_delim + getTransmitPacketSuccessCount();
+        return m_currentState.getName() + p_delim + getReceiveThroughput() + p_delim +
+                getReceiveUtilizationPercent() + p_delim + m_rPacket + p_delim + m_rError + p_delim + m_rDrop +
+                p_delim + getReceivePacketSuccessCount() + p_delim + getTransmitThroughput() + p_delim +
+                getTransmitUtilizationPercent() + p_delim + m_tPacket + p_delim + m_tError + p_delim + m_tDrop +
+                p_delim + getTransmitPacketSuccessCount();
     }
 
     @Override
     public String toString() {
-        return String.format("%s (rThroughput: %f, rPackets: %d, rError: %d, rDrop: %d, rSuccess: %d," +
-                "tThroughput: %f, tPackets: %d, tError: %d, tDrop: %d, tSuccess: %d)",
-                m_currentState.getName(), m_rThroughput, m_rPacket, m_rError,  m_rDrop, getReceivePacketSuccessCount(),
-                m_tThroughput, m_tPacket, m_tError, m_tDrop, getTransmitPacketSuccessCount());
+        return String.format("%s (rThroughput: %f, rUtilization: %2.2f, rPackets: %d, rError: %d, rDrop: %d, " +
+                "rSuccess: %d, tThroughput: %f, tUtilization: %2.2f, tPackets: %d, tError: %d, tDrop: %d, " +
+                "tSuccess: %d)", m_currentState.getName(), getReceiveThroughput(), getReceiveUtilizationPercent(),
+                m_rPacket, m_rError,  m_rDrop, getReceivePacketSuccessCount(), getTransmitThroughput(),
+                getTransmitUtilizationPercent(), m_tPacket, m_tError, m_tDrop, getTransmitPacketSuccessCount());
     }
 }
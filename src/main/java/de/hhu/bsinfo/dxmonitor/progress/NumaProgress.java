@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.CpuState;
+import de.hhu.bsinfo.dxmonitor.state.NumaNodeState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the NUMA nodes: CPU usage per node (average of the node's online cores), free memory and
+ * rates of the allocation statistics (e.g. numa_miss/numa_foreign) per node. The cores of a node (cpulist) are
+ * matched to the "cpuN" lines of /proc/stat by their id, not by the position of the line.
+ */
+public class NumaProgress implements Progress {
+    private final CpuProgress m_cpuProgress;
+    private final boolean m_updateCpuProgress;
+
+    private NumaNodeState[] m_lastStates;
+    private NumaNodeState[] m_currentStates;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final float[] m_cpuUsage;
+    // [node][counter]
+    private final float[][] m_numaStatRates;
+
+    /**
+     * Constructor. Creates and updates its own CpuProgress.
+     */
+    public NumaProgress() {
+        this(new CpuProgress(), true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core usage from. The progress is not updated by this
+     *         class, i.e. it must be updated before this progress.
+     */
+    public NumaProgress(final CpuProgress p_cpuProgress) {
+        this(p_cpuProgress, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core usage from
+     * @param p_updateCpuProgress True to update the CPU progress on update
+     */
+    private NumaProgress(final CpuProgress p_cpuProgress, final boolean p_updateCpuProgress) {
+        m_cpuProgress = p_cpuProgress;
+        m_updateCpuProgress = p_updateCpuProgress;
+
+        int[] nodeIds = NumaNodeState.getNodeIds();
+
+        if (nodeIds.length == 0) {
+            throw new IllegalStateException("NUMA topology not available");
+        }
+
+        m_lastStates = new NumaNodeState[nodeIds.length];
+        m_currentStates = new NumaNodeState[nodeIds.length];
+
+        for (int i = 0; i < nodeIds.length; i++) {
+            m_lastStates[i] = new NumaNodeState(nodeIds[i]);
+            m_currentStates[i] = new NumaNodeState(nodeIds[i]);
+        }
+
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_cpuUsage = new float[nodeIds.length];
+        m_numaStatRates = new float[nodeIds.length][NumaNodeState.NUMASTAT_COUNT];
+    }
+
+    /**
+     * Get the number of (online) nodes
+     */
+    public int getNodeCount() {
+        return m_currentStates.length;
+    }
+
+    /**
+     * Get the most recent state of a node (topology and memory)
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     */
+    public NumaNodeState getNodeState(final int p_nodeIdx) {
+        return m_currentStates[p_nodeIdx];
+    }
+
+    /**
+     * Get the average CPU usage of the cores of a node
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     * @return Usage [0, 1]
+     */
+    public float getCpuUsage(final int p_nodeIdx) {
+        return m_cpuUsage[p_nodeIdx];
+    }
+
+    /**
+     * Get the average CPU usage of the cores of a node in percent
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     */
+    public float getCpuUsagePercent(final int p_nodeIdx) {
+        return m_cpuUsage[p_nodeIdx] * 100;
+    }
+
+    /**
+     * Get the free memory of a node (in KB)
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     */
+    public long getFreeMemoryKB(final int p_nodeIdx) {
+        return m_currentStates[p_nodeIdx].getFreeKB();
+    }
+
+    /**
+     * Get the rate (per second) of a numastat counter of a node
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     * @param p_counter Counter (e.g. NumaNodeState.NUMA_MISS)
+     */
+    public float getNumaStatRate(final int p_nodeIdx, final int p_counter) {
+        return m_numaStatRates[p_nodeIdx][p_counter];
+    }
+
+    /**
+     * Get the pages per second allocated on this node although another node was intended (remote memory
+     * for the allocating task)
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     */
+    public float getNumaMissRate(final int p_nodeIdx) {
+        return m_numaStatRates[p_nodeIdx][NumaNodeState.NUMA_MISS];
+    }
+
+    /**
+     * Get the pages per second intended for this node but allocated on another node
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     */
+    public float getNumaForeignRate(final int p_nodeIdx) {
+        return m_numaStatRates[p_nodeIdx][NumaNodeState.NUMA_FOREIGN];
+    }
+
+    /**
+     * Get the share of pages allocated on this node by tasks running on this node
+     *
+     * @param p_nodeIdx Index of the node [0, getNodeCount())
+     * @return Ratio [0, 1], 1 if there were no allocations
+     */
+    public float getLocalRatio(final int p_nodeIdx) {
+        float local = m_numaStatRates[p_nodeIdx][NumaNodeState.LOCAL_NODE];
+        float other = m_numaStatRates[p_nodeIdx][NumaNodeState.OTHER_NODE];
+
+        return local + other > 0 ? local / (local + other) : 1;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        NumaNodeState[] tmp = m_lastStates;
+        m_lastStates = m_currentStates;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentStates = tmp;
+
+        if (m_first) {
+            m_first = false;
+
+            for (NumaNodeState state : m_lastStates) {
+                state.update();
+            }
+        }
+
+        for (NumaNodeState state : m_currentStates) {
+            state.update();
+        }
+
+        m_currentTimeStamp = System.nanoTime();
+
+        if (m_updateCpuProgress) {
+            m_cpuProgress.update();
+        }
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        CpuState cpuState = m_cpuProgress.getState();
+
+        for (int i = 0; i < m_currentStates.length; i++) {
+            int[] cpus = m_currentStates[i].getCpus();
+            float usage = 0;
+            int count = 0;
+
+            for (int cpu : cpus) {
+                // cores are keyed on their "cpuN" line, skip cores without a line in /proc/stat (offline)
+                CpuCoreProgress core = cpuState.hasCoreState(cpu) ? m_cpuProgress.getCoreProgress(cpu) : null;
+
+                if (core != null) {
+                    usage += core.getCpuUsage();
+                    count++;
+                }
+            }
+
+            m_cpuUsage[i] = count > 0 ? usage / count : 0;
+
+            for (int j = 0; j < NumaNodeState.NUMASTAT_COUNT; j++) {
+                long diff = m_currentStates[i].getNumaStat(j) - m_lastStates[i].getNumaStat(j);
+
+                m_numaStatRates[i][j] = diff <= 0 || timeDiff <= 0 ? 0 : diff / timeDiff;
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_currentStates.length; i++) {
+            int node = m_currentStates[i].getNodeId();
+
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append("node").append(node).append(" cpu usage %").append(p_delim).append("node").append(node)
+                    .append(" free (kb)").append(p_delim).append("node").append(node).append(" numa_miss/sec")
+                    .append(p_delim).append("node").append(node).append(" numa_foreign/sec").append(p_delim)
+                    .append("node").append(node).append(" local ratio");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_currentStates.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(getCpuUsagePercent(i)).append(p_delim).append(getFreeMemoryKB(i)).append(p_delim)
+                    .append(getNumaMissRate(i)).append(p_delim).append(getNumaForeignRate(i)).append(p_delim)
+                    .append(getLocalRatio(i));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_currentStates.length; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(String.format("node %d: cpus %d, cpu usage %2.2f %%, free %d KB (%2.2f %%), " +
+                            "numa_miss %.2f/s, numa_foreign %.2f/s, local %2.2f %%", m_currentStates[i].getNodeId(),
+                    m_currentStates[i].getCpus().length, getCpuUsagePercent(i), getFreeMemoryKB(i),
+                    m_currentStates[i].getFreeRatio() * 100, getNumaMissRate(i), getNumaForeignRate(i),
+                    getLocalRatio(i) * 100));
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.state.CpuTopologyState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * CPU usage grouped by physical cores and packages (SMT aware). A physical core is busy as long as one of its
+ * hardware threads is busy, i.e. two threads at 50% each do not leave half of the core idle. The busy fraction
+ * of a physical core is estimated with the usage of its busiest thread (lower bound of the real value, the
+ * upper bound is the sum of all threads).
+ */
+public class PhysicalCpuProgress implements Progress {
+    private final CpuProgress m_cpuProgress;
+    private final boolean m_updateCpuProgress;
+
+    private int m_topologyVersion;
+
+    // [core] -> online CPU ids of the physical core
+    private int[][] m_coreCpus;
+    // [core] -> index of the package
+    private int[] m_corePackages;
+    // [package] -> package id
+    private int[] m_packageIds;
+
+    private float[] m_coreBusy;
+    private float[] m_coreUsageSum;
+    private float[] m_packageBusy;
+    private float[] m_packageLogicalUsage;
+    private int[] m_packageCoreCounts;
+    private int[] m_packageCpuCounts;
+
+    private float m_busy;
+    private float m_logicalUsage;
+
+    /**
+     * Constructor. Creates and updates its own CpuProgress.
+     */
+    public PhysicalCpuProgress() {
+        this(new CpuProgress(), true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core usage and the topology from. The progress is not
+     *         updated by this class, i.e. it must be updated before this progress.
+     */
+    public PhysicalCpuProgress(final CpuProgress p_cpuProgress) {
+        this(p_cpuProgress, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core usage and the topology from
+     * @param p_updateCpuProgress True to update the CPU progress on update
+     */
+    private PhysicalCpuProgress(final CpuProgress p_cpuProgress, final boolean p_updateCpuProgress) {
+        m_cpuProgress = p_cpuProgress;
+        m_updateCpuProgress = p_updateCpuProgress;
+        m_topologyVersion = -1;
+
+        updateTopology();
+    }
+
+    /**
+     * Get the number of physical cores with online CPUs
+     */
+    public int getPhysicalCoreCount() {
+        return m_coreCpus.length;
+    }
+
+    /**
+     * Get the online CPUs (hardware threads) of a physical core
+     *
+     * @param p_coreIdx Index of the physical core [0, getPhysicalCoreCount())
+     * @return Sorted array with CPU ids
+     */
+    public int[] getCoreCpus(final int p_coreIdx) {
+        return m_coreCpus[p_coreIdx];
+    }
+
+    /**
+     * Get the package of a physical core
+     *
+     * @param p_coreIdx Index of the physical core [0, getPhysicalCoreCount())
+     * @return Index of the package [0, getPackageCount())
+     */
+    public int getCorePackage(final int p_coreIdx) {
+        return m_corePackages[p_coreIdx];
+    }
+
+    /**
+     * Get the busy fraction of a physical core (usage of its busiest hardware thread)
+     *
+     * @param p_coreIdx Index of the physical core [0, getPhysicalCoreCount())
+     * @return Busy fraction [0, 1]
+     */
+    public float getCoreBusy(final int p_coreIdx) {
+        return m_coreBusy[p_coreIdx];
+    }
+
+    /**
+     * Get the summed up usage of the hardware threads of a physical core
+     *
+     * @param p_coreIdx Index of the physical core [0, getPhysicalCoreCount())
+     * @return Usage [0, number of threads]
+     */
+    public float getCoreThreadUsage(final int p_coreIdx) {
+        return m_coreUsageSum[p_coreIdx];
+    }
+
+    /**
+     * Get the number of physical cores with a busy fraction of at least the specified threshold
+     *
+     * @param p_threshold Threshold [0, 1], e.g. 0.9 for (nearly) saturated cores
+     */
+    public int getBusyCoreCount(final float p_threshold) {
+        int count = 0;
+
+        for (float busy : m_coreBusy) {
+            if (busy >= p_threshold) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of packages with online CPUs
+     */
+    public int getPackageCount() {
+        return m_packageIds.length;
+    }
+
+    /**
+     * Get the id of a package
+     *
+     * @param p_packageIdx Index of the package [0, getPackageCount())
+     */
+    public int getPackageId(final int p_packageIdx) {
+        return m_packageIds[p_packageIdx];
+    }
+
+    /**
+     * Get the average busy fraction of the physical cores of a package
+     *
+     * @param p_packageIdx Index of the package [0, getPackageCount())
+     * @return Busy fraction [0, 1]
+     */
+    public float getPackageBusy(final int p_packageIdx) {
+        return m_packageBusy[p_packageIdx];
+    }
+
+    /**
+     * Get the average usage of the logical CPUs of a package
+     *
+     * @param p_packageIdx Index of the package [0, getPackageCount())
+     * @return Usage [0, 1]
+     */
+    public float getPackageLogicalUsage(final int p_packageIdx) {
+        return m_packageLogicalUsage[p_packageIdx];
+    }
+
+    /**
+     * Get the average busy fraction of all physical cores
+     *
+     * @return Busy fraction [0, 1]
+     */
+    public float getBusy() {
+        return m_busy;
+    }
+
+    /**
+     * Get the average busy fraction of all physical cores in percent
+     */
+    public float getBusyPercent() {
+        return m_busy * 100;
+    }
+
+    /**
+     * Get the average usage of all logical CPUs
+     *
+     * @return Usage [0, 1]
+     */
+    public float getLogicalUsage() {
+        return m_logicalUsage;
+    }
+
+    /**
+     * Get the average usage of all logical CPUs in percent
+     */
+    public float getLogicalUsagePercent() {
+        return m_logicalUsage * 100;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        if (m_updateCpuProgress) {
+            m_cpuProgress.update();
+        }
+
+        updateTopology();
+
+        Arrays.fill(m_packageBusy, 0);
+        Arrays.fill(m_packageLogicalUsage, 0);
+        Arrays.fill(m_packageCoreCounts, 0);
+        Arrays.fill(m_packageCpuCounts, 0);
+
+        float busySum = 0;
+        float usageSum = 0;
+        int cpuCount = 0;
+
+        for (int i = 0; i < m_coreCpus.length; i++) {
+            float max = 0;
+            float sum = 0;
+            int count = 0;
+
+            for (int cpu : m_coreCpus[i]) {
+                CpuCoreProgress core = m_cpuProgress.getCoreProgress(cpu);
+
+                if (core != null) {
+                    float usage = core.getCpuUsage();
+
+                    max = Math.max(max, usage);
+                    sum += usage;
+                    count++;
+                }
+            }
+
+            m_coreBusy[i] = max;
+            m_coreUsageSum[i] = sum;
+
+            int pkg = m_corePackages[i];
+
+            m_packageBusy[pkg] += max;
+            m_packageLogicalUsage[pkg] += sum;
+            m_packageCoreCounts[pkg]++;
+            m_packageCpuCounts[pkg] += count;
+
+            busySum += max;
+            usageSum += sum;
+            cpuCount += count;
+        }
+
+        for (int i = 0; i < m_packageIds.length; i++) {
+            m_packageBusy[i] = m_packageCoreCounts[i] > 0 ? m_packageBusy[i] / m_packageCoreCounts[i] : 0;
+            m_packageLogicalUsage[i] = m_packageCpuCounts[i] > 0 ?
+                    m_packageLogicalUsage[i] / m_packageCpuCounts[i] : 0;
+        }
+
+        m_busy = m_coreCpus.length > 0 ? busySum / m_coreCpus.length : 0;
+        m_logicalUsage = cpuCount > 0 ? usageSum / cpuCount : 0;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("physical busy %").append(p_delim).append("logical usage %");
+
+        for (int id : m_packageIds) {
+            builder.append(p_delim).append("package").append(id).append(" physical busy %").append(p_delim)
+                    .append("package").append(id).append(" logical usage %");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(getBusyPercent()).append(p_delim).append(getLogicalUsagePercent());
+
+        for (int i = 0; i < m_packageIds.length; i++) {
+            builder.append(p_delim).append(m_packageBusy[i] * 100).append(p_delim)
+                    .append(m_packageLogicalUsage[i] * 100);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("physical cores %d, busy %2.2f %%, logical usage %2.2f %%",
+                m_coreCpus.length, getBusyPercent(), getLogicalUsagePercent()));
+
+        for (int i = 0; i < m_packageIds.length; i++) {
+            builder.append(String.format("\npackage %d: busy %2.2f %%, logical usage %2.2f %%", m_packageIds[i],
+                    m_packageBusy[i] * 100, m_packageLogicalUsage[i] * 100));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Group the online CPUs into physical cores and packages if the topology changed
+     */
+    private void updateTopology() {
+        CpuTopologyState topology = m_cpuProgress.getTopology();
+
+        if (topology.getVersion() == m_topologyVersion) {
+            return;
+        }
+
+        m_topologyVersion = topology.getVersion();
+
+        int[] online = topology.getOnlineCpus();
+        int[] packageIds = new int[online.length];
+        int packages = 0;
+        int cores = 0;
+
+        for (int cpu : online) {
+            int pkg = topology.getPackageId(cpu);
+
+            if (indexOf(packageIds, packages, pkg) == -1) {
+                packageIds[packages++] = pkg;
+            }
+
+            int[] siblings = topology.getThreadSiblings(cpu);
+
+            if (siblings.length == 0 || topology.getFirstOnline(siblings) == cpu) {
+                cores++;
+            }
+        }
+
+        m_packageIds = Arrays.copyOf(packageIds, packages);
+        Arrays.sort(m_packageIds);
+
+        m_coreCpus = new int[cores][];
+        m_corePackages = new int[cores];
+
+        int core = 0;
+
+        for (int cpu : online) {
+            int[] siblings = topology.getThreadSiblings(cpu);
+
+            // the first online thread represents the physical core
+            if (siblings.length == 0) {
+                m_coreCpus[core] = new int[] {cpu};
+            } else if (topology.getFirstOnline(siblings) == cpu) {
+                int count = 0;
+
+                for (int sibling : siblings) {
+                    if (topology.isOnline(sibling)) {
+                        count++;
+                    }
+                }
+
+                m_coreCpus[core] = new int[count];
+                count = 0;
+
+                for (int sibling : siblings) {
+                    if (topology.isOnline(sibling)) {
+                        m_coreCpus[core][count++] = sibling;
+                    }
+                }
+            } else {
+                continue;
+            }
+
+            m_corePackages[core] = indexOf(m_packageIds, m_packageIds.length, topology.getPackageId(cpu));
+            core++;
+        }
+
+        m_coreBusy = new float[cores];
+        m_coreUsageSum = new float[cores];
+        m_packageBusy = new float[m_packageIds.length];
+        m_packageLogicalUsage = new float[m_packageIds.length];
+        m_packageCoreCounts = new int[m_packageIds.length];
+        m_packageCpuCounts = new int[m_packageIds.length];
+    }
+
+    /**
+     * Get the index of a value in an array
+     *
+     * @param p_array Array to search
+     * @param p_length Number of valid elements in the array
+     * @param p_value Value to search
+     * @return Index or -1 if not found
+     */
+    private static int indexOf(final int[] p_array, final int p_length, final int p_value) {
+        for (int i = 0; i < p_length; i++) {
+            if (p_array[i] == p_value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.PressureState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the pressure stall information of a resource. Calculates the share of time tasks stalled
+ * on the resource between two updates from the total stall times (the kernel's avg10 is the shortest
+ * window available otherwise).
+ */
+public class PressureProgress implements Progress {
+    private PressureState m_lastState;
+    private PressureState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_someStall;
+    private float m_fullStall;
+
+    /**
+     * Constructor for the system wide pressure of a resource
+     *
+     * @param p_resource Resource (e.g. PressureState.RESOURCE_CPU)
+     */
+    public PressureProgress(final String p_resource) {
+        this(p_resource, null);
+    }
+
+    /**
+     * Constructor for the pressure of a resource of a cgroup (v2)
+     *
+     * @param p_resource Resource (e.g. PressureState.RESOURCE_CPU)
+     * @param p_cgroupPath Path of the cgroup, e.g. /sys/fs/cgroup/system.slice (null for system wide)
+     */
+    public PressureProgress(final String p_resource, final String p_cgroupPath) {
+        m_lastState = new PressureState(p_resource, p_cgroupPath);
+        m_currentState = new PressureState(p_resource, p_cgroupPath);
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the most recent state (e.g. for the avg10/avg60/avg300 values of the kernel)
+     */
+    public PressureState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the share of time at least one task stalled on the resource since the last update
+     *
+     * @return Stall time per second of wall time [0, 1]
+     */
+    public float getSomeStall() {
+        return m_someStall;
+    }
+
+    /**
+     * Get the share of time at least one task stalled on the resource since the last update in percent
+     */
+    public float getSomeStallPercent() {
+        return m_someStall * 100;
+    }
+
+    /**
+     * Get the share of time all non idle tasks stalled on the resource since the last update
+     *
+     * @return Stall time per second of wall time [0, 1]
+     */
+    public float getFullStall() {
+        return m_fullStall;
+    }
+
+    /**
+     * Get the share of time all non idle tasks stalled on the resource since the last update in percent
+     */
+    public float getFullStallPercent() {
+        return m_fullStall * 100;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        PressureState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiffUs = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f;
+
+        m_someStall = stall(m_currentState.getSomeTotalUs() - m_lastState.getSomeTotalUs(), timeDiffUs);
+        m_fullStall = stall(m_currentState.getFullTotalUs() - m_lastState.getFullTotalUs(), timeDiffUs);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        String resource = m_currentState.getResource();
+
+        return resource + " some stall %" + p_delim + resource + " full stall %" + p_delim +
+                m_currentState.generateCSVHeader(p_delim);
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(getSomeStallPercent()) + p_delim + getFullStallPercent() + p_delim +
+                m_currentState.toCSV(p_delim);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s pressure: some %2.2f %% (avg10 %2.2f %%), full %2.2f %% (avg10 %2.2f %%)",
+                m_currentState.getResource(), getSomeStallPercent(), m_currentState.getSomeAvg10(),
+                getFullStallPercent(), m_currentState.getFullAvg10());
+    }
+
+    /**
+     * Calculate the share of stalled time
+     *
+     * @param p_stallUs Stall time in microseconds
+     * @param p_timeDiffUs Elapsed time in microseconds
+     * @return Share of stalled time [0, 1]
+     */
+    private static float stall(final long p_stallUs, final float p_timeDiffUs) {
+        if (p_stallUs <= 0 || p_timeDiffUs <= 0) {
+            return 0;
+        }
+
+        // stall times are accounted with a small delay which can exceed the elapsed time slightly
+        return Math.min(p_stallUs / p_timeDiffUs, 1.0f);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.ProcessState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of a single process: CPU usage, page fault, io and context switch rates (per second)
+ */
+public class ProcessProgress implements Progress {
+    private ProcessState m_lastState;
+    private ProcessState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private float m_userUsage;
+    private float m_systemUsage;
+    private float m_minorFaultRate;
+    private float m_majorFaultRate;
+    private float m_readCharRate;
+    private float m_writeCharRate;
+    private float m_readSyscallRate;
+    private float m_writeSyscallRate;
+    private float m_readByteRate;
+    private float m_writeByteRate;
+    private float m_voluntaryCtxtSwitchRate;
+    private float m_nonvoluntaryCtxtSwitchRate;
+
+    /**
+     * Constructor for the current process
+     */
+    public ProcessProgress() {
+        m_lastState = new ProcessState();
+        m_currentState = new ProcessState();
+        init();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process
+     */
+    public ProcessProgress(final int p_pid) {
+        m_lastState = new ProcessState(p_pid);
+        m_currentState = new ProcessState(p_pid);
+        init();
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public ProcessState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the CPU usage of the process (user and system) in cores, e.g. 2.5 = two and a half cores busy
+     */
+    public float getCpuUsage() {
+        return m_userUsage + m_systemUsage;
+    }
+
+    /**
+     * Get the CPU usage of the process in user mode in cores
+     */
+    public float getUserUsage() {
+        return m_userUsage;
+    }
+
+    /**
+     * Get the CPU usage of the process in kernel mode in cores
+     */
+    public float getSystemUsage() {
+        return m_systemUsage;
+    }
+
+    /**
+     * Get the minor page faults per second
+     */
+    public float getMinorFaultRate() {
+        return m_minorFaultRate;
+    }
+
+    /**
+     * Get the major page faults (requiring io) per second
+     */
+    public float getMajorFaultRate() {
+        return m_majorFaultRate;
+    }
+
+    /**
+     * Get the bytes read by syscalls per second (including page cache hits)
+     */
+    public float getReadCharRate() {
+        return m_readCharRate;
+    }
+
+    /**
+     * Get the bytes written by syscalls per second
+     */
+    public float getWriteCharRate() {
+        return m_writeCharRate;
+    }
+
+    /**
+     * Get the read syscalls per second
+     */
+    public float getReadSyscallRate() {
+        return m_readSyscallRate;
+    }
+
+    /**
+     * Get the write syscalls per second
+     */
+    public float getWriteSyscallRate() {
+        return m_writeSyscallRate;
+    }
+
+    /**
+     * Get the bytes read from the storage layer per second
+     */
+    public float getReadByteRate() {
+        return m_readByteRate;
+    }
+
+    /**
+     * Get the bytes written to the storage layer per second
+     */
+    public float getWriteByteRate() {
+        return m_writeByteRate;
+    }
+
+    /**
+     * Get the voluntary context switches per second
+     */
+    public float getVoluntaryCtxtSwitchRate() {
+        return m_voluntaryCtxtSwitchRate;
+    }
+
+    /**
+     * Get the nonvoluntary context switches (preemptions) per second
+     */
+    public float getNonvoluntaryCtxtSwitchRate() {
+        return m_nonvoluntaryCtxtSwitchRate;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        ProcessState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        // ms of CPU time per second of wall time
+        m_userUsage = rate(m_currentState.getUserTimeMs(), m_lastState.getUserTimeMs(), timeDiff) / 1000.0f;
+        m_systemUsage = rate(m_currentState.getSystemTimeMs(), m_lastState.getSystemTimeMs(), timeDiff) / 1000.0f;
+
+        m_minorFaultRate = rate(m_currentState.getMinorFaults(), m_lastState.getMinorFaults(), timeDiff);
+        m_majorFaultRate = rate(m_currentState.getMajorFaults(), m_lastState.getMajorFaults(), timeDiff);
+        m_readCharRate = rate(m_currentState.getReadChars(), m_lastState.getReadChars(), timeDiff);
+        m_writeCharRate = rate(m_currentState.getWriteChars(), m_lastState.getWriteChars(), timeDiff);
+        m_readSyscallRate = rate(m_currentState.getReadSyscalls(), m_lastState.getReadSyscalls(), timeDiff);
+        m_writeSyscallRate = rate(m_currentState.getWriteSyscalls(), m_lastState.getWriteSyscalls(), timeDiff);
+        m_readByteRate = rate(m_currentState.getReadBytes(), m_lastState.getReadBytes(), timeDiff);
+        m_writeByteRate = rate(m_currentState.getWriteBytes(), m_lastState.getWriteBytes(), timeDiff);
+        m_voluntaryCtxtSwitchRate = rate(m_currentState.getVoluntaryContextSwitches(),
+                m_lastState.getVoluntaryContextSwitches(), timeDiff);
+        m_nonvoluntaryCtxtSwitchRate = rate(m_currentState.getNonvoluntaryContextSwitches(),
+                m_lastState.getNonvoluntaryContextSwitches(), timeDiff);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "cpu usage" + p_delim + "user usage" + p_delim + "system usage" + p_delim + "minflt/sec" + p_delim +
+                "majflt/sec" + p_delim + "read bytes/sec" + p_delim + "write bytes/sec" + p_delim + "syscr/sec" +
+                p_delim + "syscw/sec" + p_delim + "voluntary ctxt/sec" + p_delim + "nonvoluntary ctxt/sec" + p_delim +
+                "rss (kb)" + p_delim + "threads" + p_delim + "fds" + p_delim + "fd headroom";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(getCpuUsage()) + p_delim + m_userUsage + p_delim + m_systemUsage + p_delim +
+                m_minorFaultRate + p_delim + m_majorFaultRate + p_delim + m_readByteRate + p_delim + m_writeByteRate +
+                p_delim + m_readSyscallRate + p_delim + m_writeSyscallRate + p_delim + m_voluntaryCtxtSwitchRate +
+                p_delim + m_nonvoluntaryCtxtSwitchRate + p_delim + m_currentState.getRssKB() + p_delim +
+                m_currentState.getThreadCount() + p_delim + m_currentState.getFdCount() + p_delim +
+                m_currentState.getFdHeadroom();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pid %s: cpu %.2f cores (user %.2f, system %.2f), rss %d KB (hwm %d KB), threads %d, " +
+                        "minflt %.2f/s, majflt %.2f/s, read %.2f B/s, write %.2f B/s, syscr %.2f/s, syscw %.2f/s, " +
+                        "voluntary ctxt %.2f/s, nonvoluntary ctxt %.2f/s, fds %d/%d", m_currentState.getPid(),
+                getCpuUsage(), m_userUsage, m_systemUsage, m_currentState.getRssKB(), m_currentState.getVmHWMKB(),
+                m_currentState.getThreadCount(), m_minorFaultRate, m_majorFaultRate, m_readByteRate, m_writeByteRate,
+                m_readSyscallRate, m_writeSyscallRate, m_voluntaryCtxtSwitchRate, m_nonvoluntaryCtxtSwitchRate,
+                m_currentState.getFdCount(), m_currentState.getFdLimit());
+    }
+
+    /**
+     * Common initialization of the constructors
+     */
+    private void init() {
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Calculate the rate of a counter
+     *
+     * @param p_current Current value of the counter
+     * @param p_last Last value of the counter
+     * @param p_timeDiff Time between both values in seconds
+     * @return Rate per second
+     */
+    private static float rate(final long p_current, final long p_last, final float p_timeDiff) {
+        long diff = p_current - p_last;
+
+        return diff <= 0 || p_timeDiff <= 0 ? 0 : diff / p_timeDiff;
+    }
+}
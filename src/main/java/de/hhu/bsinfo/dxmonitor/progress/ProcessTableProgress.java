@@ -0,0 +1,921 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.util.AuxVector;
+import de.hhu.bsinfo.dxmonitor.util.ClockTicks;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Top like progress of all processes of the system: CPU usage, RSS, io and major fault rates per process.
+ *
+ * The stat file of each tracked process is kept open and re-read every update with a single read (a read on an
+ * open file is a lot cheaper than opening it again). To not starve the application of file descriptors, at most
+ * half of the open files limit is used for this, the stat files of further processes are opened on each update.
+ * The io file is opened, read and closed every update for processes which were scheduled since the last update
+ * and at least every 5 updates (staggered) for all others. The io rates are calculated over the time since the
+ * last read of the io file, i.e. io of processes hardly running (e.g. blocked writers) is averaged instead of
+ * reported as a spike, and keep their value until the next read. /proc is only listed again if the fork counter
+ * of /proc/stat changed. The processes are stored in parallel arrays, looked up by a primitive open addressing
+ * map (pid to index). An entry is bound to the process identified by pid and start time: if a pid is reused,
+ * the old entry is dropped and a new one created.
+ *
+ * If a file of an existing process can't be opened anyway (e.g. EMFILE), the process (or its io) is skipped for
+ * this update and retried on the next one, the failures are counted (see getOpenFailureCount()). Only processes
+ * of other users (EACCES) are excluded from io permanently.
+ */
+public class ProcessTableProgress implements Progress {
+    private static final String PROC = "/proc/";
+    private static final String PROC_STAT = "/proc/stat";
+    private static final String PROC_SELF_LIMITS = "/proc/self/limits";
+
+    private static final byte[] PROCESSES = "processes".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] READ_BYTES = "read_bytes".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WRITE_BYTES = "write_bytes".getBytes(StandardCharsets.US_ASCII);
+
+    public static final int METRIC_CPU = 0;
+    public static final int METRIC_RSS = 1;
+    public static final int METRIC_READ_RATE = 2;
+    public static final int METRIC_WRITE_RATE = 3;
+    public static final int METRIC_MAJOR_FAULT_RATE = 4;
+
+    private static final int DEFAULT_MAX_PROCESSES = 4096;
+    private static final int TO_STRING_TOP_COUNT = 10;
+    // max number of updates the io of a process which did not run is not re-read
+    private static final int IO_REFRESH_UPDATES = 5;
+
+    private static final byte IO_NO_BASE = 0;
+    private static final byte IO_VALID = 1;
+    private static final byte IO_DENIED = 2;
+
+    private final File m_procDir;
+    private final ProcSysFileReader m_procStatReader;
+    private final ProcSysTokenizer m_tokenizer;
+    private final long m_pageSizeKB;
+
+    // files opened on each read are small and read with a single call
+    private final ByteBuffer m_readBuffer;
+    private final byte[] m_readArray;
+
+    private final int m_maxOpenStatFiles;
+    private int m_openStatFiles;
+
+    private long m_lastTimeStamp;
+    private long m_lastForkCount;
+    private boolean m_first;
+    private boolean m_listPending;
+    private long m_openFailures;
+
+    // open addressing map (linear probing), pid to index of the process arrays, pid 0 = empty
+    private final int[] m_mapPids;
+    private final int[] m_mapIndices;
+    private final int m_mapMask;
+    private final int m_mapShift;
+
+    // processes, dense [0, m_count)
+    private int m_count;
+    private final int[] m_pids;
+    private final long[] m_startTimes;
+    private final String[] m_names;
+    private final ProcSysFileReader[] m_statReaders;
+    private final byte[] m_ioStates;
+    private final int[] m_ioAges;
+    private final long[] m_ioTimeStamps;
+
+    private final long[] m_cpuTicks;
+    private final long[] m_majorFaults;
+    private final long[] m_rssPages;
+    private final long[] m_readBytes;
+    private final long[] m_writeBytes;
+
+    private final float[] m_cpuUsage;
+    private final float[] m_majorFaultRates;
+    private final float[] m_readRates;
+    private final float[] m_writeRates;
+
+    private float[] m_topValues;
+
+    /**
+     * Constructor tracking up to 4096 processes
+     */
+    public ProcessTableProgress() {
+        this(DEFAULT_MAX_PROCESSES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_maxProcesses Max number of processes to track. Further processes are ignored until others exit.
+     */
+    public ProcessTableProgress(final int p_maxProcesses) {
+        m_procDir = new File(PROC);
+
+        try {
+            m_procStatReader = new ProcSysFileReader(PROC_STAT);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+        m_pageSizeKB = AuxVector.getPageSize() / 1024;
+
+        m_readBuffer = ByteBuffer.allocateDirect(512);
+        m_readArray = new byte[m_readBuffer.capacity()];
+
+        m_maxOpenStatFiles = (int) Math.min(p_maxProcesses, readOpenFilesLimit() / 2);
+
+        m_first = true;
+        m_lastTimeStamp = System.nanoTime();
+
+        // load factor <= 0.5
+        int mapSize = Integer.highestOneBit(Math.max(p_maxProcesses, 1)) << 2;
+
+        m_mapPids = new int[mapSize];
+        m_mapIndices = new int[mapSize];
+        m_mapMask = mapSize - 1;
+        m_mapShift = Integer.numberOfLeadingZeros(mapSize) + 1;
+
+        m_pids = new int[p_maxProcesses];
+        m_startTimes = new long[p_maxProcesses];
+        m_names = new String[p_maxProcesses];
+        m_statReaders = new ProcSysFileReader[p_maxProcesses];
+        m_ioStates = new byte[p_maxProcesses];
+        m_ioAges = new int[p_maxProcesses];
+        m_ioTimeStamps = new long[p_maxProcesses];
+
+        m_cpuTicks = new long[p_maxProcesses];
+        m_majorFaults = new long[p_maxProcesses];
+        m_rssPages = new long[p_maxProcesses];
+        m_readBytes = new long[p_maxProcesses];
+        m_writeBytes = new long[p_maxProcesses];
+
+        m_cpuUsage = new float[p_maxProcesses];
+        m_majorFaultRates = new float[p_maxProcesses];
+        m_readRates = new float[p_maxProcesses];
+        m_writeRates = new float[p_maxProcesses];
+
+        m_topValues = new float[TO_STRING_TOP_COUNT];
+    }
+
+    /**
+     * Get the number of tracked processes
+     */
+    public int getProcessCount() {
+        return m_count;
+    }
+
+    /**
+     * Get the number of stat files kept open
+     */
+    public int getOpenStatFileCount() {
+        return m_openStatFiles;
+    }
+
+    /**
+     * Get the number of files (stat or io) which could not be opened although the process existed, e.g. because
+     * the open files limit was reached. The affected processes or their io were skipped and retried.
+     */
+    public long getOpenFailureCount() {
+        return m_openFailures;
+    }
+
+    /**
+     * Check if a process is tracked
+     *
+     * @param p_pid Id of the process
+     */
+    public boolean isTracked(final int p_pid) {
+        return mapGet(p_pid) != -1;
+    }
+
+    /**
+     * Get the command name of a process
+     *
+     * @param p_pid Id of the process
+     * @return Name or null if the process is not tracked
+     */
+    public String getName(final int p_pid) {
+        int idx = mapGet(p_pid);
+
+        return idx != -1 ? m_names[idx] : null;
+    }
+
+    /**
+     * Get the CPU usage of a process in cores, e.g. 2.5 = two and a half cores busy
+     *
+     * @param p_pid Id of the process
+     * @return Usage or 0 if the process is not tracked
+     */
+    public float getCpuUsage(final int p_pid) {
+        return getMetric(p_pid, METRIC_CPU);
+    }
+
+    /**
+     * Get the CPU usage of a process in percent of a single core (like top)
+     *
+     * @param p_pid Id of the process
+     */
+    public float getCpuUsagePercent(final int p_pid) {
+        return getMetric(p_pid, METRIC_CPU) * 100;
+    }
+
+    /**
+     * Get the resident set size of a process (in KB)
+     *
+     * @param p_pid Id of the process
+     */
+    public long getRssKB(final int p_pid) {
+        int idx = mapGet(p_pid);
+
+        return idx != -1 ? m_rssPages[idx] * m_pageSizeKB : 0;
+    }
+
+    /**
+     * Get the bytes read from the storage layer per second by a process
+     *
+     * @param p_pid Id of the process
+     * @return Rate or 0 if the process is not tracked or its io counters are not accessible
+     */
+    public float getReadByteRate(final int p_pid) {
+        return getMetric(p_pid, METRIC_READ_RATE);
+    }
+
+    /**
+     * Get the bytes written to the storage layer per second by a process
+     *
+     * @param p_pid Id of the process
+     * @return Rate or 0 if the process is not tracked or its io counters are not accessible
+     */
+    public float getWriteByteRate(final int p_pid) {
+        return getMetric(p_pid, METRIC_WRITE_RATE);
+    }
+
+    /**
+     * Get the major page faults per second of a process
+     *
+     * @param p_pid Id of the process
+     */
+    public float getMajorFaultRate(final int p_pid) {
+        return getMetric(p_pid, METRIC_MAJOR_FAULT_RATE);
+    }
+
+    /**
+     * Get a metric of a process
+     *
+     * @param p_pid Id of the process
+     * @param p_metric Metric (e.g. ProcessTableProgress.METRIC_CPU)
+     * @return Value or 0 if the process is not tracked
+     */
+    public float getMetric(final int p_pid, final int p_metric) {
+        int idx = mapGet(p_pid);
+
+        return idx != -1 ? getMetricOfIndex(idx, p_metric) : 0;
+    }
+
+    /**
+     * Get the total CPU usage of all tracked processes in cores
+     */
+    public float getTotalCpuUsage() {
+        float usage = 0;
+
+        for (int i = 0; i < m_count; i++) {
+            usage += m_cpuUsage[i];
+        }
+
+        return usage;
+    }
+
+    /**
+     * Get the processes with the highest values of a metric
+     *
+     * @param p_metric Metric to sort by (e.g. ProcessTableProgress.METRIC_CPU)
+     * @param p_pids Array to write the pids to (descending order), the length determines N
+     * @return Number of pids written
+     */
+    public int getTopProcesses(final int p_metric, final int[] p_pids) {
+        if (m_topValues.length < p_pids.length) {
+            m_topValues = new float[p_pids.length];
+        }
+
+        int size = 0;
+
+        for (int i = 0; i < m_count; i++) {
+            float value = getMetricOfIndex(i, p_metric);
+
+            if (size == p_pids.length && value <= m_topValues[size - 1]) {
+                continue;
+            }
+
+            // insertion sort into the (small) top N array
+            int pos = size < p_pids.length ? size++ : size - 1;
+
+            while (pos > 0 && m_topValues[pos - 1] < value) {
+                m_topValues[pos] = m_topValues[pos - 1];
+                p_pids[pos] = p_pids[pos - 1];
+                pos--;
+            }
+
+            m_topValues[pos] = value;
+            p_pids[pos] = m_pids[i];
+        }
+
+        return size;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        long timeStamp = System.nanoTime();
+        float timeDiff = (timeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+        m_lastTimeStamp = timeStamp;
+
+        // backwards, removing swaps the last (already updated) process to the current index
+        for (int i = m_count - 1; i >= 0; i--) {
+            if (!updateProcess(i, timeStamp, timeDiff)) {
+                removeProcess(i);
+            }
+        }
+
+        long forkCount = readForkCount();
+
+        if (m_first || m_listPending || forkCount == -1 || forkCount != m_lastForkCount) {
+            m_first = false;
+            m_listPending = false;
+            m_lastForkCount = forkCount;
+
+            addNewProcesses();
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "processes" + p_delim + "cpu usage";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_count) + p_delim + getTotalCpuUsage();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        int[] pids = new int[TO_STRING_TOP_COUNT];
+        int count = getTopProcesses(METRIC_CPU, pids);
+
+        builder.append(String.format("processes %d, cpu usage %.2f cores", m_count, getTotalCpuUsage()));
+
+        if (m_openFailures > 0) {
+            builder.append(", open failures ").append(m_openFailures);
+        }
+
+        for (int i = 0; i < count; i++) {
+            builder.append(String.format("\n%7d %-16s cpu %6.2f %%, rss %d KB, read %.2f B/s, write %.2f B/s, " +
+                            "majflt %.2f/s", pids[i], getName(pids[i]), getCpuUsagePercent(pids[i]), getRssKB(pids[i]),
+                    getReadByteRate(pids[i]), getWriteByteRate(pids[i]), getMajorFaultRate(pids[i])));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get a metric of a process
+     *
+     * @param p_idx Index of the process
+     * @param p_metric Metric
+     */
+    private float getMetricOfIndex(final int p_idx, final int p_metric) {
+        switch (p_metric) {
+            case METRIC_CPU:
+                return m_cpuUsage[p_idx];
+            case METRIC_RSS:
+                return m_rssPages[p_idx] * m_pageSizeKB;
+            case METRIC_READ_RATE:
+                return m_readRates[p_idx];
+            case METRIC_WRITE_RATE:
+                return m_writeRates[p_idx];
+            case METRIC_MAJOR_FAULT_RATE:
+                return m_majorFaultRates[p_idx];
+            default:
+                throw new IllegalArgumentException("Unknown metric " + p_metric);
+        }
+    }
+
+    /**
+     * Re-read the stat (and io) file of a process and calculate its rates
+     *
+     * @param p_idx Index of the process
+     * @param p_timeStamp Time of the update (System.nanoTime())
+     * @param p_timeDiff Time since the last update in seconds
+     * @return False if the process exited
+     */
+    private boolean updateProcess(final int p_idx, final long p_timeStamp, final float p_timeDiff) {
+        ProcSysFileReader reader = m_statReaders[p_idx];
+
+        // reading the stat file fails with ESRCH once the process is gone, even if the pid was reused
+        try {
+            if (reader != null) {
+                int length = reader.readSmallFileToBuffer();
+                m_tokenizer.reset(reader.getBuffer(), length);
+            } else {
+                m_tokenizer.reset(m_readArray, readFile(PROC + m_pids[p_idx] + "/stat"));
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (FileSystemException e) {
+            // e.g. out of file descriptors, the rates would be wrong if skipped: drop and track again later
+            m_openFailures++;
+            m_listPending = true;
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (!m_tokenizer.hasRemaining() || !m_tokenizer.skipPastLast(')')) {
+            return false;
+        }
+
+        // state (field 3) up to cminflt
+        m_tokenizer.skipTokens(9);
+        long majorFaults = m_tokenizer.nextLong();
+        // cmajflt
+        m_tokenizer.skipToken();
+        long cpuTicks = m_tokenizer.nextLong() + m_tokenizer.nextLong();
+        // cutime, cstime, priority, nice, num_threads, itrealvalue
+        m_tokenizer.skipTokens(6);
+        long startTime = m_tokenizer.nextLong();
+        // vsize
+        m_tokenizer.skipToken();
+        long rssPages = m_tokenizer.nextLong();
+
+        if (startTime != m_startTimes[p_idx]) {
+            return false;
+        }
+
+        m_cpuUsage[p_idx] = rate(cpuTicks, m_cpuTicks[p_idx], p_timeDiff) / ClockTicks.getUserHz();
+        m_majorFaultRates[p_idx] = rate(majorFaults, m_majorFaults[p_idx], p_timeDiff);
+        m_rssPages[p_idx] = rssPages;
+
+        // io mostly requires the process to run, but not always (e.g. writeback of a blocked writer)
+        if (m_ioStates[p_idx] != IO_DENIED &&
+                (cpuTicks != m_cpuTicks[p_idx] || ++m_ioAges[p_idx] >= IO_REFRESH_UPDATES)) {
+            updateIo(p_idx, p_timeStamp);
+        }
+
+        m_cpuTicks[p_idx] = cpuTicks;
+        m_majorFaults[p_idx] = majorFaults;
+
+        return true;
+    }
+
+    /**
+     * Re-read the io counters of a process and calculate the rates since the last read
+     *
+     * @param p_idx Index of the process
+     * @param p_timeStamp Time of the read (System.nanoTime())
+     */
+    private void updateIo(final int p_idx, final long p_timeStamp) {
+        long readBytes = m_readBytes[p_idx];
+        long writeBytes = m_writeBytes[p_idx];
+
+        if (!readIo(p_idx)) {
+            return;
+        }
+
+        if (m_ioStates[p_idx] == IO_VALID) {
+            float timeDiff = (p_timeStamp - m_ioTimeStamps[p_idx]) / 1000.0f / 1000.0f / 1000.0f;
+
+            m_readRates[p_idx] = rate(m_readBytes[p_idx], readBytes, timeDiff);
+            m_writeRates[p_idx] = rate(m_writeBytes[p_idx], writeBytes, timeDiff);
+        } else {
+            // first successful read sets the base values
+            m_ioStates[p_idx] = IO_VALID;
+        }
+
+        m_ioTimeStamps[p_idx] = p_timeStamp;
+        m_ioAges[p_idx] = 0;
+    }
+
+    /**
+     * Read the io counters of a process. The file is opened for each read to not keep a second file descriptor
+     * open per process.
+     *
+     * @param p_idx Index of the process
+     * @return True if the counters were read
+     */
+    private boolean readIo(final int p_idx) {
+        int length;
+
+        try {
+            length = readFile(PROC + m_pids[p_idx] + "/io");
+        } catch (AccessDeniedException e) {
+            // process of another user
+            m_ioStates[p_idx] = IO_DENIED;
+            return false;
+        } catch (NoSuchFileException e) {
+            // exited (removed on next update) or task io accounting not available
+            return false;
+        } catch (FileSystemException e) {
+            // e.g. out of file descriptors, retried on next update
+            m_openFailures++;
+            return false;
+        } catch (IOException e) {
+            // exited or access denied by the ptrace check on read
+            return false;
+        }
+
+        m_tokenizer.reset(m_readArray, length);
+
+        if (m_tokenizer.findLine(READ_BYTES)) {
+            m_tokenizer.skipToken();
+            m_readBytes[p_idx] = m_tokenizer.nextLong();
+        }
+
+        if (m_tokenizer.findLine(WRITE_BYTES)) {
+            m_tokenizer.skipToken();
+            m_writeBytes[p_idx] = m_tokenizer.nextLong();
+        }
+
+        return true;
+    }
+
+    /**
+     * List /proc and start tracking all processes not tracked, yet
+     */
+    private void addNewProcesses() {
+        String[] entries = m_procDir.list();
+
+        if (entries == null) {
+            return;
+        }
+
+        for (String entry : entries) {
+            int pid = parsePid(entry);
+
+            if (pid <= 0 || mapGet(pid) != -1) {
+                continue;
+            }
+
+            if (m_count == m_pids.length) {
+                return;
+            }
+
+            if (!addProcess(pid, PROC + entry)) {
+                // don't use up the remaining file descriptors, try again on the next update
+                m_listPending = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Start tracking a process. The first read of the stat file sets the base values of the rates.
+     *
+     * @param p_pid Id of the process
+     * @param p_path Path to the directory of the process in /proc
+     * @return False if the stat file of the existing process could not be opened (e.g. out of file descriptors)
+     */
+    private boolean addProcess(final int p_pid, final String p_path) {
+        String statPath = p_path + "/stat";
+        ProcSysFileReader reader = null;
+        byte[] buffer;
+        int length;
+
+        try {
+            if (m_openStatFiles < m_maxOpenStatFiles) {
+                reader = new ProcSysFileReader(statPath, 512);
+                length = reader.readSmallFileToBuffer();
+                buffer = reader.getBuffer();
+            } else {
+                length = readFile(statPath);
+                buffer = m_readArray;
+            }
+        } catch (FileNotFoundException | FileSystemException e) {
+            // FileInputStream doesn't tell the reason: already exited or e.g. EMFILE
+            if (!(e instanceof NoSuchFileException) && new File(p_path).exists()) {
+                m_openFailures++;
+                return false;
+            }
+
+            return true;
+        } catch (IOException e) {
+            // already exited
+            closeReader(reader);
+            return true;
+        }
+
+        int nameStart = -1;
+        int nameEnd = -1;
+
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '(' && nameStart == -1) {
+                nameStart = i + 1;
+            } else if (buffer[i] == ')') {
+                nameEnd = i;
+            }
+        }
+
+        if (nameStart == -1 || nameEnd < nameStart) {
+            closeReader(reader);
+            return true;
+        }
+
+        int idx = m_count++;
+
+        m_pids[idx] = p_pid;
+        m_names[idx] = new String(buffer, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+        m_statReaders[idx] = reader;
+        m_ioStates[idx] = IO_NO_BASE;
+        // stagger the io reads of processes not running
+        m_ioAges[idx] = idx % IO_REFRESH_UPDATES;
+
+        if (reader != null) {
+            m_openStatFiles++;
+        }
+
+        m_tokenizer.reset(buffer, length);
+        m_tokenizer.skipPastLast(')');
+        m_tokenizer.skipTokens(9);
+        m_majorFaults[idx] = m_tokenizer.nextLong();
+        m_tokenizer.skipToken();
+        m_cpuTicks[idx] = m_tokenizer.nextLong() + m_tokenizer.nextLong();
+        m_tokenizer.skipTokens(6);
+        m_startTimes[idx] = m_tokenizer.nextLong();
+        m_tokenizer.skipToken();
+        m_rssPages[idx] = m_tokenizer.nextLong();
+
+        m_readBytes[idx] = 0;
+        m_writeBytes[idx] = 0;
+        m_cpuUsage[idx] = 0;
+        m_majorFaultRates[idx] = 0;
+        m_readRates[idx] = 0;
+        m_writeRates[idx] = 0;
+
+        updateIo(idx, System.nanoTime());
+
+        mapPut(p_pid, idx);
+
+        return true;
+    }
+
+    /**
+     * Stop tracking a process. The last process is moved to the freed index.
+     *
+     * @param p_idx Index of the process
+     */
+    private void removeProcess(final int p_idx) {
+        if (m_statReaders[p_idx] != null) {
+            closeReader(m_statReaders[p_idx]);
+            m_openStatFiles--;
+        }
+
+        mapRemove(m_pids[p_idx]);
+
+        int last = --m_count;
+
+        if (p_idx != last) {
+            m_pids[p_idx] = m_pids[last];
+            m_startTimes[p_idx] = m_startTimes[last];
+            m_names[p_idx] = m_names[last];
+            m_statReaders[p_idx] = m_statReaders[last];
+            m_ioStates[p_idx] = m_ioStates[last];
+            m_ioAges[p_idx] = m_ioAges[last];
+            m_ioTimeStamps[p_idx] = m_ioTimeStamps[last];
+            m_cpuTicks[p_idx] = m_cpuTicks[last];
+            m_majorFaults[p_idx] = m_majorFaults[last];
+            m_rssPages[p_idx] = m_rssPages[last];
+            m_readBytes[p_idx] = m_readBytes[last];
+            m_writeBytes[p_idx] = m_writeBytes[last];
+            m_cpuUsage[p_idx] = m_cpuUsage[last];
+            m_majorFaultRates[p_idx] = m_majorFaultRates[last];
+            m_readRates[p_idx] = m_readRates[last];
+            m_writeRates[p_idx] = m_writeRates[last];
+
+            mapPut(m_pids[p_idx], p_idx);
+        }
+
+        m_names[last] = null;
+        m_statReaders[last] = null;
+    }
+
+    /**
+     * Read the number of forks since boot from /proc/stat
+     *
+     * @return Fork count or -1 if not available (always lists /proc)
+     */
+    private long readForkCount() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_procStatReader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_STAT + ": " + e.getMessage());
+        }
+
+        if (!m_tokenizer.findLine(PROCESSES)) {
+            return -1;
+        }
+
+        m_tokenizer.skipToken();
+
+        return m_tokenizer.nextLong();
+    }
+
+    /**
+     * Get the index of a process
+     *
+     * @param p_pid Id of the process
+     * @return Index or -1 if not tracked
+     */
+    private int mapGet(final int p_pid) {
+        int slot = hash(p_pid);
+
+        while (m_mapPids[slot] != 0) {
+            if (m_mapPids[slot] == p_pid) {
+                return m_mapIndices[slot];
+            }
+
+            slot = slot + 1 & m_mapMask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Insert or replace the index of a process
+     *
+     * @param p_pid Id of the process
+     * @param p_idx Index of the process
+     */
+    private void mapPut(final int p_pid, final int p_idx) {
+        int slot = hash(p_pid);
+
+        while (m_mapPids[slot] != 0 && m_mapPids[slot] != p_pid) {
+            slot = slot + 1 & m_mapMask;
+        }
+
+        m_mapPids[slot] = p_pid;
+        m_mapIndices[slot] = p_idx;
+    }
+
+    /**
+     * Remove a process from the map (backward shift deletion, no tombstones)
+     *
+     * @param p_pid Id of the process
+     */
+    private void mapRemove(final int p_pid) {
+        int slot = hash(p_pid);
+
+        while (m_mapPids[slot] != p_pid) {
+            if (m_mapPids[slot] == 0) {
+                return;
+            }
+
+            slot = slot + 1 & m_mapMask;
+        }
+
+        int next = slot + 1 & m_mapMask;
+
+        while (m_mapPids[next] != 0) {
+            int home = hash(m_mapPids[next]);
+
+            // move entries back which can't be found anymore once the slot is empty
+            if ((next - home & m_mapMask) >= (next - slot & m_mapMask)) {
+                m_mapPids[slot] = m_mapPids[next];
+                m_mapIndices[slot] = m_mapIndices[next];
+                slot = next;
+            }
+
+            next = next + 1 & m_mapMask;
+        }
+
+        m_mapPids[slot] = 0;
+    }
+
+    /**
+     * Get the home slot of a pid in the map
+     *
+     * @param p_pid Id of the process
+     */
+    private int hash(final int p_pid) {
+        return p_pid * 0x9E3779B9 >>> m_mapShift;
+    }
+
+    /**
+     * Parse the name of an entry of /proc as pid
+     *
+     * @param p_entry Name of the entry
+     * @return Pid or -1 if the entry is not a process
+     */
+    private static int parsePid(final String p_entry) {
+        int pid = 0;
+
+        for (int i = 0; i < p_entry.length(); i++) {
+            char c = p_entry.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            pid = pid * 10 + c - '0';
+        }
+
+        return p_entry.isEmpty() ? -1 : pid;
+    }
+
+    /**
+     * Calculate the rate of a counter
+     *
+     * @param p_current Current value of the counter
+     * @param p_last Last value of the counter
+     * @param p_timeDiff Time between both values in seconds
+     * @return Rate per second
+     */
+    private static float rate(final long p_current, final long p_last, final float p_timeDiff) {
+        long diff = p_current - p_last;
+
+        return diff <= 0 || p_timeDiff <= 0 ? 0 : diff / p_timeDiff;
+    }
+
+    /**
+     * Open, read and close a small file of a process with a single read
+     *
+     * @param p_path Path of the file
+     * @return Number of bytes read to m_readArray
+     * @throws FileSystemException If opening the file failed, NoSuchFileException if the process exited
+     * @throws IOException If reading the file failed, e.g. the process exited (ESRCH)
+     */
+    private int readFile(final String p_path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(p_path))) {
+            m_readBuffer.clear();
+
+            int length = channel.read(m_readBuffer);
+
+            if (length <= 0) {
+                return 0;
+            }
+
+            m_readBuffer.flip();
+            m_readBuffer.get(m_readArray, 0, length);
+
+            return length;
+        }
+    }
+
+    /**
+     * Get the soft limit of open files of the current process
+     *
+     * @return Limit or Long.MAX_VALUE if unlimited or not available
+     */
+    private static long readOpenFilesLimit() {
+        try {
+            for (String line : ProcSysFileReader.readCompleteFileOnce(PROC_SELF_LIMITS).split("\n")) {
+                if (line.startsWith("Max open files")) {
+                    String limit = line.substring("Max open files".length()).trim().split("\\s+")[0];
+
+                    return "unlimited".equals(limit) ? Long.MAX_VALUE : Long.parseLong(limit);
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+            // no limit known
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Close a reader ignoring errors
+     *
+     * @param p_reader Reader to close (may be null)
+     */
+    private static void closeReader(final ProcSysFileReader p_reader) {
+        if (p_reader != null) {
+            try {
+                p_reader.close();
+            } catch (IOException ignored) {
+                // nothing to do
+            }
+        }
+    }
+}
@@ -13,8 +13,8 @@
 
 package de.hhu.bsinfo.dxmonitor.progress;
 
-import de.hhu.bsinfo.dxmonitor.state.CpuState;
 import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
 
 /**
  * Test for testing various progress classes
@@ -30,6 +30,18 @@ public class ProgressTest {
     public static void main(final String[] p_args) {
         testProgressCpuCore(1000, 5);
         testProgressCpu(500, 10);
+        testProgressPhysicalCpu(500, 5);
+        testProgressNuma(500, 5);
+        testProgressCpuFrequency(500, 5);
+        testProgressKernelActivity(500, 5);
+        testProgressInterrupt(500, 5);
+        testProgressSoftirq(500, 5);
+        testProgressThreadPlacement(1000, 5);
+        testProgressSwap(1000, 5);
+        testProgressVmStat(1000, 5);
+        testProgressMemoryMap(1000, 5);
+        testProgressJVMBufferPool(1000, 5);
+        testProgressProcessTable(1000, 5);
     }
 
     /**
@@ -42,6 +54,126 @@ public class ProgressTest {
         testProgress(new CpuProgress(), p_intervalMs, p_timeFrameSec, "testProgressCpu");
     }
 
+    /**
+     * Test case for physical cpu progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressPhysicalCpu(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new PhysicalCpuProgress(), p_intervalMs, p_timeFrameSec, "testProgressPhysicalCpu");
+    }
+
+    /**
+     * Test case for NUMA progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressNuma(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new NumaProgress(), p_intervalMs, p_timeFrameSec, "testProgressNuma");
+    }
+
+    /**
+     * Test case for cpu frequency progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressCpuFrequency(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new CpuFrequencyProgress(), p_intervalMs, p_timeFrameSec, "testProgressCpuFrequency");
+    }
+
+    /**
+     * Test case for kernel activity progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressKernelActivity(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new KernelActivityProgress(), p_intervalMs, p_timeFrameSec, "testProgressKernelActivity");
+    }
+
+    /**
+     * Test case for interrupt progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressInterrupt(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new InterruptProgress(), p_intervalMs, p_timeFrameSec, "testProgressInterrupt");
+    }
+
+    /**
+     * Test case for softirq progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressSoftirq(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new SoftirqProgress(), p_intervalMs, p_timeFrameSec, "testProgressSoftirq");
+    }
+
+    /**
+     * Test case for thread placement progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressThreadPlacement(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new ThreadPlacementProgress(), p_intervalMs, p_timeFrameSec, "testProgressThreadPlacement");
+    }
+
+    /**
+     * Test case for swap progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressSwap(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new SwapProgress(), p_intervalMs, p_timeFrameSec, "testProgressSwap");
+    }
+
+    /**
+     * Test case for vmstat progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressVmStat(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new VmStatProgress(), p_intervalMs, p_timeFrameSec, "testProgressVmStat");
+    }
+
+    /**
+     * Test case for memory map progress (native memory requires -XX:NativeMemoryTracking=summary)
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressMemoryMap(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new MemoryMapProgress(true), p_intervalMs, p_timeFrameSec, "testProgressMemoryMap");
+    }
+
+    /**
+     * Test case for JVM buffer pool progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressJVMBufferPool(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new JVMBufferPoolProgress(), p_intervalMs, p_timeFrameSec, "testProgressJVMBufferPool");
+    }
+
+    /**
+     * Test case for process table progress
+     *
+     * @param p_intervalMs Update call interval in ms
+     * @param p_timeFrameSec Total time to run the test in seconds
+     */
+    private static void testProgressProcessTable(final int p_intervalMs, final int p_timeFrameSec) {
+        testProgress(new ProcessTableProgress(), p_intervalMs, p_timeFrameSec, "testProgressProcessTable");
+    }
+
     /**
      * Common test "interface" for various cases
      *
@@ -86,10 +218,11 @@ public class ProgressTest {
         System.out.println("testProgressCpuCore");
         System.out.println("For " + p_timeFrameSec + " seconds, print every " + p_intervalMs + " ms");
 
-        CpuCoreProgress[] cpu = new CpuCoreProgress[CpuState.getTotalCores()];
+        int[] ids = CpuList.getOnlineCpus();
+        CpuCoreProgress[] cpu = new CpuCoreProgress[ids.length];
 
         for (int i = 0; i < cpu.length; i++) {
-            cpu[i] = new CpuCoreProgress(i);
+            cpu[i] = new CpuCoreProgress(ids[i]);
         }
 
         long end = System.currentTimeMillis() + p_timeFrameSec * 1000;
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.ProtocolStatsState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the TCP/UDP protocol stack counters (rates per second)
+ */
+public class ProtocolStatsProgress implements Progress {
+    private ProtocolStatsState m_lastState;
+    private ProtocolStatsState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final float[] m_rates;
+
+    /**
+     * Constructor
+     */
+    public ProtocolStatsProgress() {
+        m_lastState = new ProtocolStatsState();
+        m_currentState = new ProtocolStatsState();
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_rates = new float[ProtocolStatsState.COUNTER_COUNT];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public ProtocolStatsState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the rate (per second) of a counter
+     *
+     * @param p_counter Counter id (e.g. ProtocolStatsState.TCP_RETRANS_SEGS)
+     */
+    public float getRate(final int p_counter) {
+        return m_rates[p_counter];
+    }
+
+    /**
+     * Get the retransmitted TCP segments per second
+     */
+    public float getTcpRetransmitRate() {
+        return m_rates[ProtocolStatsState.TCP_RETRANS_SEGS];
+    }
+
+    /**
+     * Get the retransmitted to sent TCP segments ratio
+     */
+    public float getTcpRetransmitRatio() {
+        float outSegs = m_rates[ProtocolStatsState.TCP_OUT_SEGS];
+
+        if (outSegs <= 0) {
+            return 0;
+        }
+
+        return m_rates[ProtocolStatsState.TCP_RETRANS_SEGS] / outSegs;
+    }
+
+    /**
+     * Get the retransmitted to sent TCP segments ratio in percent
+     */
+    public float getTcpRetransmitRatioPercent() {
+        return getTcpRetransmitRatio() * 100;
+    }
+
+    /**
+     * Get the TCP packets queued out of order per second
+     */
+    public float getTcpOutOfOrderRate() {
+        return m_rates[ProtocolStatsState.TCP_OFO_QUEUE];
+    }
+
+    /**
+     * Get the dropped incoming TCP connection requests per second
+     */
+    public float getTcpListenDropRate() {
+        return m_rates[ProtocolStatsState.TCP_LISTEN_DROPS];
+    }
+
+    /**
+     * Get the UDP datagrams dropped per second because the receive buffer was full
+     */
+    public float getUdpRcvbufErrorRate() {
+        return m_rates[ProtocolStatsState.UDP_RCVBUF_ERRORS];
+    }
+
+    /**
+     * Get the UDP datagrams dropped per second because the send buffer was full
+     */
+    public float getUdpSndbufErrorRate() {
+        return m_rates[ProtocolStatsState.UDP_SNDBUF_ERRORS];
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        ProtocolStatsState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_rates.length; i++) {
+            long diff = m_currentState.getCounter(i) - m_lastState.getCounter(i);
+
+            // CurrEstab is a gauge and not a counter
+            if (timeDiff <= 0 || diff <= 0 || i == ProtocolStatsState.TCP_CURR_ESTAB) {
+                m_rates[i] = 0;
+            } else {
+                m_rates[i] = diff / timeDiff;
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("Tcp:CurrEstab").append(p_delim).append("tcp retransmit %");
+
+        for (int i = 0; i < m_rates.length; i++) {
+            if (i != ProtocolStatsState.TCP_CURR_ESTAB) {
+                builder.append(p_delim).append(ProtocolStatsState.getCounterName(i)).append("/sec");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_currentState.getTcpCurrentEstablished()).append(p_delim)
+                .append(getTcpRetransmitRatioPercent());
+
+        for (int i = 0; i < m_rates.length; i++) {
+            if (i != ProtocolStatsState.TCP_CURR_ESTAB) {
+                builder.append(p_delim).append(m_rates[i]);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("tcp established: %d, tcp retransmits: %.2f/s (%2.2f %%), tcp out of order: %.2f/s, " +
+                "tcp listen drops: %.2f/s, udp rcvbuf errors: %.2f/s, udp sndbuf errors: %.2f/s",
+                m_currentState.getTcpCurrentEstablished(), getTcpRetransmitRate(), getTcpRetransmitRatioPercent(),
+                getTcpOutOfOrderRate(), getTcpListenDropRate(), getUdpRcvbufErrorRate(), getUdpSndbufErrorRate());
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.RaplState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.util.CounterExtension;
+
+/**
+ * Power of the RAPL domains (watts) and the energy consumed since the start of a phase, e.g. of a benchmark run
+ * (call startPhase() at the beginning and update() at the end of the phase). The wrapping energy counters are
+ * extended to 64 bit, the interval between two updates must be shorter than a wrap around (usually hours).
+ */
+public class RaplProgress implements Progress {
+    private RaplState m_lastState;
+    private RaplState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final float[] m_powers;
+    private final long[] m_energiesUj;
+    private final long[] m_phaseStartEnergiesUj;
+    private long m_phaseStartTimeStamp;
+
+    /**
+     * Constructor
+     */
+    public RaplProgress() {
+        this(new RaplState(), new RaplState());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_root Directory with the intel-rapl:* directories (e.g. for a copy of the sysfs tree)
+     */
+    public RaplProgress(final String p_root) {
+        this(new RaplState(p_root), new RaplState(p_root));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_lastState State for the previous values
+     * @param p_currentState State for the current values (same domains)
+     */
+    private RaplProgress(final RaplState p_lastState, final RaplState p_currentState) {
+        m_lastState = p_lastState;
+        m_currentState = p_currentState;
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_phaseStartTimeStamp = m_currentTimeStamp;
+
+        int domains = m_currentState.getDomainCount();
+
+        m_powers = new float[domains];
+        m_energiesUj = new long[domains];
+        m_phaseStartEnergiesUj = new long[domains];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public RaplState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Check if RAPL is available (at least one readable domain)
+     */
+    public boolean isAvailable() {
+        return m_powers.length > 0;
+    }
+
+    /**
+     * Get the power of a domain
+     *
+     * @param p_domain Index of the domain (see RaplState)
+     * @return Power in watts
+     */
+    public float getPower(final int p_domain) {
+        return m_powers[p_domain];
+    }
+
+    /**
+     * Get the power of all domains of a type, e.g. all packages
+     *
+     * @param p_type Type of the domains (e.g. RaplState.TYPE_PACKAGE)
+     * @return Power in watts
+     */
+    public float getPowerOfType(final int p_type) {
+        float power = 0;
+
+        for (int i = 0; i < m_powers.length; i++) {
+            if (m_currentState.getType(i) == p_type) {
+                power += m_powers[i];
+            }
+        }
+
+        return power;
+    }
+
+    /**
+     * Get the energy consumed by a domain since the first update
+     *
+     * @param p_domain Index of the domain (see RaplState)
+     * @return Energy in joules
+     */
+    public double getEnergy(final int p_domain) {
+        return m_energiesUj[p_domain] / 1000.0 / 1000.0;
+    }
+
+    /**
+     * Start a new phase, i.e. reset the phase energies to 0. Takes the values of the most recent update.
+     */
+    public void startPhase() {
+        System.arraycopy(m_energiesUj, 0, m_phaseStartEnergiesUj, 0, m_energiesUj.length);
+        m_phaseStartTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Get the duration of the current phase (start to most recent update)
+     *
+     * @return Duration in seconds
+     */
+    public double getPhaseDuration() {
+        return (m_currentTimeStamp - m_phaseStartTimeStamp) / 1000.0 / 1000.0 / 1000.0;
+    }
+
+    /**
+     * Get the energy consumed by a domain in the current phase (start to most recent update)
+     *
+     * @param p_domain Index of the domain (see RaplState)
+     * @return Energy in joules
+     */
+    public double getPhaseEnergy(final int p_domain) {
+        return (m_energiesUj[p_domain] - m_phaseStartEnergiesUj[p_domain]) / 1000.0 / 1000.0;
+    }
+
+    /**
+     * Get the energy consumed by all domains of a type in the current phase
+     *
+     * @param p_type Type of the domains (e.g. RaplState.TYPE_DRAM)
+     * @return Energy in joules
+     */
+    public double getPhaseEnergyOfType(final int p_type) {
+        double energy = 0;
+
+        for (int i = 0; i < m_energiesUj.length; i++) {
+            if (m_currentState.getType(i) == p_type) {
+                energy += getPhaseEnergy(i);
+            }
+        }
+
+        return energy;
+    }
+
+    /**
+     * Get the energy per operation of the packages and dram in the current phase
+     *
+     * @param p_operations Number of operations executed in the phase
+     * @return Energy in joules per operation or 0 if no operations
+     */
+    public double getPhaseEnergyPerOperation(final long p_operations) {
+        if (p_operations <= 0) {
+            return 0;
+        }
+
+        return (getPhaseEnergyOfType(RaplState.TYPE_PACKAGE) + getPhaseEnergyOfType(RaplState.TYPE_DRAM)) /
+                p_operations;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        RaplState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_powers.length; i++) {
+            long diff = CounterExtension.deltaWrapping(m_currentState.getEnergyUj(i), m_lastState.getEnergyUj(i),
+                    m_currentState.getMaxEnergyRangeUj(i));
+
+            m_energiesUj[i] += diff;
+            m_powers[i] = diff <= 0 || timeDiff <= 0 ? 0 : diff / 1000.0f / 1000.0f / timeDiff;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("package power (w)").append(p_delim).append("dram power (w)");
+
+        for (int i = 0; i < m_powers.length; i++) {
+            builder.append(p_delim).append(m_currentState.getZone(i)).append(' ')
+                    .append(m_currentState.getName(i)).append(" (w)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(getPowerOfType(RaplState.TYPE_PACKAGE)).append(p_delim)
+                .append(getPowerOfType(RaplState.TYPE_DRAM));
+
+        for (float power : m_powers) {
+            builder.append(p_delim).append(power);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("package %.2f W, dram %.2f W, phase %.2f s: package %.2f J, dram %.2f J",
+                getPowerOfType(RaplState.TYPE_PACKAGE), getPowerOfType(RaplState.TYPE_DRAM), getPhaseDuration(),
+                getPhaseEnergyOfType(RaplState.TYPE_PACKAGE), getPhaseEnergyOfType(RaplState.TYPE_DRAM)));
+
+        for (int i = 0; i < m_powers.length; i++) {
+            builder.append(String.format(", %s %.2f W", m_currentState.getName(i), m_powers[i]));
+        }
+
+        return builder.toString();
+    }
+}
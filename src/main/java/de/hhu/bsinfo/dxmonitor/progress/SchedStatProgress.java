@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.SchedStatState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Run queue latency per CPU from /proc/schedstat. The run queue delay per second is the average number of tasks
+ * waiting for the CPU (e.g. 0.5 = on average half a task was runnable but not running), which shows CPU saturation
+ * much earlier and more precisely than the load average.
+ */
+public class SchedStatProgress implements Progress {
+    private SchedStatState m_lastState;
+    private SchedStatState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    // indexed by cpu id
+    private final float[] m_runTimes;
+    private final float[] m_runQueueDelays;
+    private final float[] m_timesliceRates;
+    private final float[] m_waitPerTimeslices;
+
+    private float m_totalRunQueueDelay;
+    private float m_maxRunQueueDelay;
+
+    /**
+     * Constructor
+     */
+    public SchedStatProgress() {
+        this(new SchedStatState(), new SchedStatState());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the schedstat file (e.g. for a copy of the file)
+     */
+    public SchedStatProgress(final String p_path) {
+        this(new SchedStatState(p_path), new SchedStatState(p_path));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_lastState State for the previous values
+     * @param p_currentState State for the current values
+     */
+    private SchedStatProgress(final SchedStatState p_lastState, final SchedStatState p_currentState) {
+        m_lastState = p_lastState;
+        m_currentState = p_currentState;
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        int maxCpus = m_currentState.getMaxCpus();
+
+        m_runTimes = new float[maxCpus];
+        m_runQueueDelays = new float[maxCpus];
+        m_timesliceRates = new float[maxCpus];
+        m_waitPerTimeslices = new float[maxCpus];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public SchedStatState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the time the CPU spent running tasks per second
+     *
+     * @param p_cpu Id of the CPU
+     * @return Ratio [0, 1]
+     */
+    public float getRunTime(final int p_cpu) {
+        return m_runTimes[p_cpu];
+    }
+
+    /**
+     * Get the time tasks spent waiting on the run queue of the CPU per second (average number of waiting tasks)
+     *
+     * @param p_cpu Id of the CPU
+     * @return Delay in seconds per second
+     */
+    public float getRunQueueDelay(final int p_cpu) {
+        return m_runQueueDelays[p_cpu];
+    }
+
+    /**
+     * Get the timeslices run on the CPU per second
+     *
+     * @param p_cpu Id of the CPU
+     */
+    public float getTimesliceRate(final int p_cpu) {
+        return m_timesliceRates[p_cpu];
+    }
+
+    /**
+     * Get the average time a task waited on the run queue of the CPU before running a timeslice
+     *
+     * @param p_cpu Id of the CPU
+     * @return Wait time in ms
+     */
+    public float getWaitPerTimeslice(final int p_cpu) {
+        return m_waitPerTimeslices[p_cpu];
+    }
+
+    /**
+     * Get the run queue delay per second summed up over all CPUs
+     */
+    public float getTotalRunQueueDelay() {
+        return m_totalRunQueueDelay;
+    }
+
+    /**
+     * Get the highest run queue delay per second of all CPUs
+     */
+    public float getMaxRunQueueDelay() {
+        return m_maxRunQueueDelay;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        SchedStatState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        m_totalRunQueueDelay = 0;
+        m_maxRunQueueDelay = 0;
+
+        for (int cpu = 0; cpu < m_runTimes.length; cpu++) {
+            // no rates for CPUs going on- or offline
+            if (!m_currentState.isPresent(cpu) || !m_lastState.isPresent(cpu) || timeDiff <= 0) {
+                m_runTimes[cpu] = 0;
+                m_runQueueDelays[cpu] = 0;
+                m_timesliceRates[cpu] = 0;
+                m_waitPerTimeslices[cpu] = 0;
+                continue;
+            }
+
+            long runDiff = m_currentState.getRunTimeNs(cpu) - m_lastState.getRunTimeNs(cpu);
+            long waitDiff = m_currentState.getWaitTimeNs(cpu) - m_lastState.getWaitTimeNs(cpu);
+            long timesliceDiff = m_currentState.getTimeslices(cpu) - m_lastState.getTimeslices(cpu);
+
+            m_runTimes[cpu] = runDiff <= 0 ? 0 : Math.min(1.0f, runDiff / 1000.0f / 1000.0f / 1000.0f / timeDiff);
+            m_runQueueDelays[cpu] = waitDiff <= 0 ? 0 : waitDiff / 1000.0f / 1000.0f / 1000.0f / timeDiff;
+            m_timesliceRates[cpu] = timesliceDiff <= 0 ? 0 : timesliceDiff / timeDiff;
+            m_waitPerTimeslices[cpu] = waitDiff <= 0 || timesliceDiff <= 0 ? 0 :
+                    waitDiff / 1000.0f / 1000.0f / timesliceDiff;
+
+            m_totalRunQueueDelay += m_runQueueDelays[cpu];
+            m_maxRunQueueDelay = Math.max(m_maxRunQueueDelay, m_runQueueDelays[cpu]);
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("total run queue delay (s/sec)").append(p_delim).append("max run queue delay (s/sec)");
+
+        for (int cpu = 0; cpu < m_runTimes.length; cpu++) {
+            if (m_currentState.isPresent(cpu)) {
+                builder.append(p_delim).append("cpu").append(cpu).append(" run queue delay (s/sec)").append(p_delim)
+                        .append("cpu").append(cpu).append(" wait per timeslice (ms)");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_totalRunQueueDelay).append(p_delim).append(m_maxRunQueueDelay);
+
+        for (int cpu = 0; cpu < m_runTimes.length; cpu++) {
+            if (m_currentState.isPresent(cpu)) {
+                builder.append(p_delim).append(m_runQueueDelays[cpu]).append(p_delim)
+                        .append(m_waitPerTimeslices[cpu]);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("run queue delay total %.3f s/s, max %.3f s/s", m_totalRunQueueDelay,
+                m_maxRunQueueDelay));
+
+        for (int cpu = 0; cpu < m_runTimes.length; cpu++) {
+            if (m_currentState.isPresent(cpu)) {
+                builder.append(String.format("\ncpu%d: run time %2.2f %%, run queue delay %.3f s/s, " +
+                                "timeslices %.2f/s, wait per timeslice %.3f ms", cpu, m_runTimes[cpu] * 100,
+                        m_runQueueDelays[cpu], m_timesliceRates[cpu], m_waitPerTimeslices[cpu]));
+            }
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.SoftirqState;
+import de.hhu.bsinfo.dxmonitor.state.SoftnetState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Progress of the software interrupts and network backlog processing per CPU. Shows if the network receive
+ * processing is concentrated on single cores (e.g. bad RSS/RPS setup) which limits the network throughput.
+ */
+public class SoftirqProgress implements Progress {
+    private SoftirqState m_lastSoftirqState;
+    private SoftirqState m_currentSoftirqState;
+    private SoftnetState m_lastSoftnetState;
+    private SoftnetState m_currentSoftnetState;
+
+    private final CpuProgress m_cpuProgress;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    // softirqs: [type][cpu idx], softnet: [cpu id]
+    private final float[][] m_softirqRates;
+    private final float[] m_processedRates;
+    private final float[] m_droppedRates;
+    private final float[] m_timeSqueezeRates;
+
+    private float m_netRxImbalance;
+    private int m_netRxHotCpuId;
+
+    /**
+     * Constructor
+     */
+    public SoftirqProgress() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cpuProgress CPU progress to get the per core softirq CPU usage from (might be null). The progress is
+     *         not updated by this class, i.e. it must be updated before this progress.
+     */
+    public SoftirqProgress(final CpuProgress p_cpuProgress) {
+        m_lastSoftirqState = new SoftirqState();
+        m_currentSoftirqState = new SoftirqState();
+        m_lastSoftnetState = new SoftnetState();
+        m_currentSoftnetState = new SoftnetState();
+        m_cpuProgress = p_cpuProgress;
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_softirqRates = new float[SoftirqState.TYPE_COUNT][m_currentSoftirqState.getCpuCount()];
+        m_processedRates = new float[m_currentSoftnetState.getCpuCount()];
+        m_droppedRates = new float[m_currentSoftnetState.getCpuCount()];
+        m_timeSqueezeRates = new float[m_currentSoftnetState.getCpuCount()];
+    }
+
+    /**
+     * Get the number of CPUs listed in /proc/softirqs
+     */
+    public int getCpuCount() {
+        return m_currentSoftirqState.getCpuCount();
+    }
+
+    /**
+     * Get the id of a CPU
+     *
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     */
+    public int getCpuId(final int p_cpuIdx) {
+        return m_currentSoftirqState.getCpuId(p_cpuIdx);
+    }
+
+    /**
+     * Get the softirqs per second of a type handled by a CPU
+     *
+     * @param p_type Softirq type (e.g. SoftirqState.NET_RX)
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     */
+    public float getSoftirqRate(final int p_type, final int p_cpuIdx) {
+        return m_softirqRates[p_type][p_cpuIdx];
+    }
+
+    /**
+     * Get the network frames processed per second by a CPU
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public float getProcessedRate(final int p_cpuId) {
+        return p_cpuId < m_processedRates.length ? m_processedRates[p_cpuId] : 0;
+    }
+
+    /**
+     * Get the network frames dropped per second because the backlog of a CPU was full
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public float getDroppedRate(final int p_cpuId) {
+        return p_cpuId < m_droppedRates.length ? m_droppedRates[p_cpuId] : 0;
+    }
+
+    /**
+     * Get the number of times per second the NET_RX processing of a CPU ran out of budget with work remaining
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public float getTimeSqueezeRate(final int p_cpuId) {
+        return p_cpuId < m_timeSqueezeRates.length ? m_timeSqueezeRates[p_cpuId] : 0;
+    }
+
+    /**
+     * Get the network frames dropped per second by all CPUs
+     */
+    public float getTotalDroppedRate() {
+        float sum = 0;
+
+        for (float rate : m_droppedRates) {
+            sum += rate;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Get the NET_RX imbalance indicator: Highest NET_RX rate of a single CPU to mean NET_RX rate of all CPUs.
+     * 1 means the processing is spread evenly, the number of CPUs means all processing happens on a single CPU.
+     */
+    public float getNetRxImbalance() {
+        return m_netRxImbalance;
+    }
+
+    /**
+     * Get the id of the CPU handling the most NET_RX softirqs
+     */
+    public int getNetRxHotCpuId() {
+        return m_netRxHotCpuId;
+    }
+
+    /**
+     * Get the softirq CPU usage of the CPU handling the most NET_RX softirqs in percent. Requires a CpuProgress
+     * on construction.
+     *
+     * @return Softirq usage or 0 if not available
+     */
+    public float getNetRxHotCpuSoftIrqUsagePercent() {
+        CpuCoreProgress core = m_cpuProgress == null ? null : m_cpuProgress.getCoreProgress(m_netRxHotCpuId);
+
+        return core == null ? 0 : core.getSoftIrqUsagePercent();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        SoftirqState tmpSoftirq = m_lastSoftirqState;
+        m_lastSoftirqState = m_currentSoftirqState;
+        m_currentSoftirqState = tmpSoftirq;
+
+        SoftnetState tmpSoftnet = m_lastSoftnetState;
+        m_lastSoftnetState = m_currentSoftnetState;
+        m_currentSoftnetState = tmpSoftnet;
+
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastSoftirqState.update();
+            m_lastSoftnetState.update();
+        }
+
+        m_currentSoftirqState.update();
+        m_currentSoftnetState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < SoftirqState.TYPE_COUNT; i++) {
+            for (int j = 0; j < m_softirqRates[i].length; j++) {
+                m_softirqRates[i][j] = rate(m_currentSoftirqState.getCount(i, j), m_lastSoftirqState.getCount(i, j),
+                        timeDiff);
+            }
+        }
+
+        for (int i = 0; i < m_processedRates.length; i++) {
+            // CPU went offline or came online in between
+            if (!m_currentSoftnetState.isOnline(i) || !m_lastSoftnetState.isOnline(i)) {
+                m_processedRates[i] = 0;
+                m_droppedRates[i] = 0;
+                m_timeSqueezeRates[i] = 0;
+                continue;
+            }
+
+            m_processedRates[i] = rate(m_currentSoftnetState.getProcessed(i), m_lastSoftnetState.getProcessed(i),
+                    timeDiff);
+            m_droppedRates[i] = rate(m_currentSoftnetState.getDropped(i), m_lastSoftnetState.getDropped(i),
+                    timeDiff);
+            m_timeSqueezeRates[i] = rate(m_currentSoftnetState.getTimeSqueeze(i),
+                    m_lastSoftnetState.getTimeSqueeze(i), timeDiff);
+        }
+
+        float[] netRx = m_softirqRates[SoftirqState.NET_RX];
+        float sum = 0;
+        int hotIdx = 0;
+
+        for (int i = 0; i < netRx.length; i++) {
+            sum += netRx[i];
+
+            if (netRx[i] > netRx[hotIdx]) {
+                hotIdx = i;
+            }
+        }
+
+        m_netRxHotCpuId = netRx.length > 0 ? m_currentSoftirqState.getCpuId(hotIdx) : 0;
+        m_netRxImbalance = sum > 0 ? netRx[hotIdx] / (sum / netRx.length) : 0;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("net rx imbalance").append(p_delim).append("net rx hot cpu").append(p_delim)
+                .append("net rx hot cpu softirq %");
+
+        for (int i = 0; i < getCpuCount(); i++) {
+            int cpuId = getCpuId(i);
+
+            builder.append(p_delim).append("cpu").append(cpuId).append(" NET_RX/sec").append(p_delim).append("cpu")
+                    .append(cpuId).append(" NET_TX/sec").append(p_delim).append("cpu").append(cpuId)
+                    .append(" processed/sec").append(p_delim).append("cpu").append(cpuId).append(" dropped/sec")
+                    .append(p_delim).append("cpu").append(cpuId).append(" time squeeze/sec");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_netRxImbalance).append(p_delim).append(m_netRxHotCpuId).append(p_delim)
+                .append(getNetRxHotCpuSoftIrqUsagePercent());
+
+        for (int i = 0; i < getCpuCount(); i++) {
+            int cpuId = getCpuId(i);
+
+            builder.append(p_delim).append(m_softirqRates[SoftirqState.NET_RX][i]).append(p_delim)
+                    .append(m_softirqRates[SoftirqState.NET_TX][i]).append(p_delim).append(getProcessedRate(cpuId))
+                    .append(p_delim).append(getDroppedRate(cpuId)).append(p_delim).append(getTimeSqueezeRate(cpuId));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("net rx imbalance %.2f, hot cpu %d (softirq %2.2f %%)", m_netRxImbalance,
+                m_netRxHotCpuId, getNetRxHotCpuSoftIrqUsagePercent()));
+
+        for (int i = 0; i < getCpuCount(); i++) {
+            int cpuId = getCpuId(i);
+
+            builder.append(String.format("\ncpu %d: NET_RX %.2f/s, NET_TX %.2f/s, BLOCK %.2f/s, TIMER %.2f/s, " +
+                    "processed %.2f/s, dropped %.2f/s, time squeeze %.2f/s", cpuId,
+                    m_softirqRates[SoftirqState.NET_RX][i], m_softirqRates[SoftirqState.NET_TX][i],
+                    m_softirqRates[SoftirqState.BLOCK][i], m_softirqRates[SoftirqState.TIMER][i],
+                    getProcessedRate(cpuId), getDroppedRate(cpuId), getTimeSqueezeRate(cpuId)));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Calculate the rate of a counter
+     *
+     * @param p_current Current value
+     * @param p_last Last value
+     * @param p_timeDiffSec Time between both values in seconds
+     * @return Rate per second (0 if the counter was reset)
+     */
+    private static float rate(final long p_current, final long p_last, final float p_timeDiffSec) {
+        long diff = p_current - p_last;
+
+        if (diff <= 0 || p_timeDiffSec <= 0) {
+            return 0;
+        }
+
+        return diff / p_timeDiffSec;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.MemState;
+import de.hhu.bsinfo.dxmonitor.state.ProcessState;
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+
+/**
+ * Swap activity of the system (usage from /proc/meminfo, pages swapped in and out from /proc/vmstat) and of a
+ * single process (VmSwap of /proc/PID/status). The kernel does not count swap-ins per process: pages swapped in
+ * by the process are derived from the decrease of VmSwap between two updates with major faults of the process
+ * in between (a decrease without major faults is swap freed, e.g. by unmapping).
+ *
+ * VmSwap is a net value: if the process swaps in and out within the same interval (i.e. under memory pressure),
+ * the swap-in is hidden by the swap-out and the amount swapped in is only a lower bound. To detect any swap-in,
+ * major faults of the process while memory of it is swapped out and the system swapped in pages are also counted
+ * as swap-in (see getProcessSwapInFaults). This might include major faults on files of the process while another
+ * process swapped in.
+ */
+public class SwapProgress implements Progress {
+    private final MemState m_memState;
+    private final VmStatProgress m_vmStatProgress;
+    private final ProcessState m_processState;
+
+    private boolean m_first;
+
+    private long m_lastProcessSwapKb;
+    private long m_lastProcessMajorFaults;
+
+    private long m_processSwapInKb;
+    private long m_processSwapOutKb;
+    private long m_processSwapInFaults;
+
+    /**
+     * Constructor for the current process
+     */
+    public SwapProgress() {
+        this(new ProcessState());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process
+     */
+    public SwapProgress(final int p_pid) {
+        this(new ProcessState(p_pid));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_processState State of the process to monitor
+     */
+    private SwapProgress(final ProcessState p_processState) {
+        m_memState = new MemState();
+        m_vmStatProgress = new VmStatProgress();
+        m_processState = p_processState;
+        m_first = true;
+    }
+
+    /**
+     * Get the most recent memory state
+     */
+    public MemState getMemState() {
+        return m_memState;
+    }
+
+    /**
+     * Get the most recent state of the process
+     */
+    public ProcessState getProcessState() {
+        return m_processState;
+    }
+
+    /**
+     * Get the total amount of swap space (in KB)
+     */
+    public long getSwapTotalKB() {
+        return m_memState.getSwapTotalKB();
+    }
+
+    /**
+     * Get the amount of used swap space (in KB)
+     */
+    public long getSwapUsedKB() {
+        return m_memState.getSwapTotalKB() - m_memState.getSwapFreeKB();
+    }
+
+    /**
+     * Get the amount of swapped memory also held in the swap cache, i.e. not written again on swap out (in KB)
+     */
+    public long getSwapCachedKB() {
+        return m_memState.getValue(MemState.SWAP_CACHED);
+    }
+
+    /**
+     * Get the used swap space to total swap space ratio (0 if no swap is configured)
+     */
+    public float getSwapUsedRatio() {
+        return getSwapTotalKB() == 0 ? 0 : (float) getSwapUsedKB() / getSwapTotalKB();
+    }
+
+    /**
+     * Get the used swap space to total swap space ratio (in percent)
+     */
+    public float getSwapUsedPercent() {
+        return getSwapUsedRatio() * 100;
+    }
+
+    /**
+     * Get the pages swapped in per second (system wide)
+     */
+    public float getSwapInRate() {
+        return m_vmStatProgress.getSwapInRate();
+    }
+
+    /**
+     * Get the pages swapped out per second (system wide)
+     */
+    public float getSwapOutRate() {
+        return m_vmStatProgress.getSwapOutRate();
+    }
+
+    /**
+     * Get the amount of memory of the process currently swapped out (in KB)
+     */
+    public long getProcessSwapKB() {
+        return m_processState.getSwapKB();
+    }
+
+    /**
+     * Get the amount of memory of the process swapped in since the last update (in KB). Lower bound, 0 if more was
+     * swapped out in the same interval (see getProcessSwapInFaults).
+     */
+    public long getProcessSwapInKB() {
+        return m_processSwapInKb;
+    }
+
+    /**
+     * Get the amount of memory of the process swapped out since the last update (in KB)
+     */
+    public long getProcessSwapOutKB() {
+        return m_processSwapOutKb;
+    }
+
+    /**
+     * Get the major faults of the process since the last update if it swapped in, 0 otherwise. Also detects
+     * swap-ins hidden by swap-outs of the same interval (see class description).
+     */
+    public long getProcessSwapInFaults() {
+        return m_processSwapInFaults;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_memState.update();
+        m_vmStatProgress.update();
+        m_processState.update();
+
+        long swapKb = m_processState.getSwapKB();
+        long majorFaults = m_processState.getMajorFaults();
+
+        if (m_first) {
+            m_first = false;
+        } else {
+            long diff = swapKb - m_lastProcessSwapKb;
+            long faults = majorFaults - m_lastProcessMajorFaults;
+
+            m_processSwapOutKb = diff > 0 ? diff : 0;
+            m_processSwapInKb = diff < 0 && faults > 0 ? -diff : 0;
+
+            // the net VmSwap hides swap-ins if more was swapped out in the same interval
+            boolean swapIn = m_processSwapInKb > 0 || faults > 0 && (m_lastProcessSwapKb > 0 || swapKb > 0) &&
+                    m_vmStatProgress.getSwapInRate() > 0;
+
+            m_processSwapInFaults = swapIn ? faults : 0;
+        }
+
+        m_lastProcessSwapKb = swapKb;
+        m_lastProcessMajorFaults = majorFaults;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "swap total (kb)" + p_delim + "swap used (kb)" + p_delim + "swap cached (kb)" + p_delim +
+                "swap used percent" + p_delim + "pswpin/sec" + p_delim + "pswpout/sec" + p_delim +
+                "process swap (kb)" + p_delim + "process swap in (kb)" + p_delim + "process swap out (kb)" + p_delim +
+                "process swap in faults";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(getSwapTotalKB()) + p_delim + getSwapUsedKB() + p_delim + getSwapCachedKB() + p_delim +
+                getSwapUsedPercent() + p_delim + getSwapInRate() + p_delim + getSwapOutRate() + p_delim +
+                getProcessSwapKB() + p_delim + m_processSwapInKb + p_delim + m_processSwapOutKb + p_delim +
+                m_processSwapInFaults;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("swap used %d/%d KB (%.2f %%, cached %d KB), swap in %.2f pages/s, swap out %.2f " +
+                        "pages/s, pid %s: swap %d KB, swapped in %d KB, swapped out %d KB, swap in faults %d",
+                getSwapUsedKB(), getSwapTotalKB(), getSwapUsedPercent(), getSwapCachedKB(), getSwapInRate(),
+                getSwapOutRate(), m_processState.getPid(), getProcessSwapKB(), m_processSwapInKb, m_processSwapOutKb,
+                m_processSwapInFaults);
+    }
+}
@@ -0,0 +1,643 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.util.ClockTicks;
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Placement of the threads of the JVM on the CPUs: the CPU each thread (task of /proc/self/task) last ran on
+ * (field 39 of stat), its allowed CPUs (Cpus_allowed_list of status), its migrations between two updates and a
+ * heatmap counting on which CPUs a thread was seen. Threads calling registerCurrentThread() are named with their
+ * Java names. All others are named by their native name, which is joined with a Java name if it is unique: Java 9+
+ * sets the native name of started threads to their Java name, truncated to 15 characters. Java 8 doesn't (most
+ * threads are named "java"), i.e. unregistered threads can't be named on Java 8.
+ *
+ * Alerts are raised if a pinned thread (allowed CPUs restricted compared to the process) migrates or if two hot
+ * threads (CPU usage above a threshold) last ran on the same CPU.
+ */
+public class ThreadPlacementProgress implements Progress {
+    public static final int ALERT_PINNED_MIGRATION = 0;
+    public static final int ALERT_SHARED_CPU = 1;
+
+    /**
+     * Callback for alerts
+     */
+    @FunctionalInterface
+    public interface CallbackFunction {
+        /**
+         * Function signature for callback on alert
+         *
+         * @param p_alert Type of alert (e.g. ThreadPlacementProgress.ALERT_PINNED_MIGRATION)
+         * @param p_tid Native id of the thread
+         * @param p_name Name of the thread
+         * @param p_message Description of the alert
+         */
+        void handle(final int p_alert, final int p_tid, final String p_name, final String p_message);
+    }
+
+    private static final String PROC_SELF_TASK = "/proc/self/task/";
+    private static final String PROC_THREAD_SELF = "/proc/thread-self";
+    private static final byte[] CPUS_ALLOWED_LIST = "Cpus_allowed_list:".getBytes(StandardCharsets.US_ASCII);
+    // TASK_COMM_LEN without the terminator
+    private static final int MAX_COMM_LENGTH = 15;
+
+    private final float m_hotThreshold;
+    private final int m_maxCpus;
+    private final int m_processAllowedCount;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final Map<Integer, String> m_registeredNames;
+    private final Map<Integer, Task> m_tasks;
+    private final int[] m_hotTidPerCpu;
+
+    private CallbackFunction m_callback;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+
+    private int m_tickMigrations;
+    private long m_alertCount;
+
+    /**
+     * Constructor with a hot thread threshold of half a core
+     */
+    public ThreadPlacementProgress() {
+        this(0.5f);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_hotThreshold CPU usage (in cores) above which a thread is considered hot
+     */
+    public ThreadPlacementProgress(final float p_hotThreshold) {
+        m_hotThreshold = p_hotThreshold;
+
+        int[] possible = CpuList.getPossibleCpus();
+        m_maxCpus = possible.length == 0 ? 1 : possible[possible.length - 1] + 1;
+
+        m_tokenizer = new ProcSysTokenizer();
+        m_registeredNames = new ConcurrentHashMap<>();
+        m_tasks = new HashMap<>();
+        m_hotTidPerCpu = new int[m_maxCpus];
+
+        int[] allowed = readAllowedCpusOnce("/proc/self/status");
+        m_processAllowedCount = allowed.length > 0 ? allowed.length : CpuList.getOnlineCpus().length;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+    }
+
+    /**
+     * Set the callback for alerts
+     *
+     * @param p_callback Callback or null to disable alerts
+     */
+    public void setCallback(final CallbackFunction p_callback) {
+        m_callback = p_callback;
+    }
+
+    /**
+     * Register the calling thread with its Java name (exact join of the native and Java thread). Call this from
+     * the threads to track, e.g. at the beginning of the run method of a pinned network thread.
+     */
+    public void registerCurrentThread() {
+        // e.g. "1234/task/1240"
+        try {
+            String link = Files.readSymbolicLink(Paths.get(PROC_THREAD_SELF)).toString();
+
+            m_registeredNames.put(Integer.parseInt(link.substring(link.lastIndexOf('/') + 1)),
+                    Thread.currentThread().getName());
+        } catch (IOException | NumberFormatException ignored) {
+            // not supported by the kernel (< 3.17), fall back to the native name
+        }
+    }
+
+    /**
+     * Get the native ids of all tracked threads
+     *
+     * @return Sorted array with thread ids
+     */
+    public int[] getThreadIds() {
+        int[] tids = new int[m_tasks.size()];
+        int i = 0;
+
+        for (int tid : m_tasks.keySet()) {
+            tids[i++] = tid;
+        }
+
+        Arrays.sort(tids);
+
+        return tids;
+    }
+
+    /**
+     * Get the name of a thread (Java name or native name if not registered and not resolvable)
+     *
+     * @param p_tid Native id of the thread
+     * @return Name or null if not tracked
+     */
+    public String getName(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_name : null;
+    }
+
+    /**
+     * Get the CPU a thread last ran on
+     *
+     * @param p_tid Native id of the thread
+     * @return CPU id or -1 if not tracked
+     */
+    public int getCpu(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_cpu : -1;
+    }
+
+    /**
+     * Get the CPUs a thread is allowed to run on
+     *
+     * @param p_tid Native id of the thread
+     * @return Sorted array with CPU ids or empty array if not tracked
+     */
+    public int[] getAllowedCpus(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_allowed : new int[0];
+    }
+
+    /**
+     * Check if a thread is pinned, i.e. allowed on less CPUs than the process
+     *
+     * @param p_tid Native id of the thread
+     */
+    public boolean isPinned(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null && isPinned(task);
+    }
+
+    /**
+     * Get the CPU usage of a thread
+     *
+     * @param p_tid Native id of the thread
+     * @return Usage in cores or 0 if not tracked
+     */
+    public float getCpuUsage(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_cpuUsage : 0;
+    }
+
+    /**
+     * Get the migrations of a thread between the last two updates (0 or 1, the CPU is sampled once per update)
+     *
+     * @param p_tid Native id of the thread
+     */
+    public int getTickMigrations(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_tickMigrations : 0;
+    }
+
+    /**
+     * Get the migrations of a thread counted since it is tracked
+     *
+     * @param p_tid Native id of the thread
+     */
+    public long getMigrations(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_migrations : 0;
+    }
+
+    /**
+     * Get the heatmap of a thread: the number of updates the thread was seen on each CPU (after running)
+     *
+     * @param p_tid Native id of the thread
+     * @return Samples indexed by CPU id or null if not tracked
+     */
+    public long[] getHeatmap(final int p_tid) {
+        Task task = m_tasks.get(p_tid);
+
+        return task != null ? task.m_heatmap : null;
+    }
+
+    /**
+     * Get the migrations of all threads between the last two updates
+     */
+    public int getTickMigrations() {
+        return m_tickMigrations;
+    }
+
+    /**
+     * Get the number of alerts raised so far
+     */
+    public long getAlertCount() {
+        return m_alertCount;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        String[] tids = new File(PROC_SELF_TASK).list();
+
+        if (tids == null) {
+            throw new StateUpdateException("Can't list " + PROC_SELF_TASK);
+        }
+
+        for (Task task : m_tasks.values()) {
+            task.m_seen = false;
+        }
+
+        for (String entry : tids) {
+            int tid;
+
+            try {
+                tid = Integer.parseInt(entry);
+            } catch (NumberFormatException ignored) {
+                continue;
+            }
+
+            Task task = m_tasks.get(tid);
+
+            if (task == null) {
+                task = createTask(tid);
+
+                if (task == null) {
+                    continue;
+                }
+
+                m_tasks.put(tid, task);
+            }
+
+            task.m_seen = true;
+        }
+
+        m_tickMigrations = 0;
+        Arrays.fill(m_hotTidPerCpu, 0);
+
+        Iterator<Task> iterator = m_tasks.values().iterator();
+
+        while (iterator.hasNext()) {
+            Task task = iterator.next();
+
+            if (!task.m_seen || !updateTask(task, timeDiff)) {
+                task.close();
+                iterator.remove();
+                // the tid might be reused by a new thread
+                m_registeredNames.remove(task.m_tid);
+                continue;
+            }
+
+            m_tickMigrations += task.m_tickMigrations;
+
+            if (task.m_tickMigrations > 0 && isPinned(task)) {
+                alert(ALERT_PINNED_MIGRATION, task, "pinned thread (allowed cpus " + Arrays.toString(task.m_allowed) +
+                        ") migrated from cpu " + task.m_lastCpu + " to cpu " + task.m_cpu);
+            }
+
+            if (task.m_cpuUsage >= m_hotThreshold && task.m_cpu >= 0 && task.m_cpu < m_maxCpus) {
+                int other = m_hotTidPerCpu[task.m_cpu];
+
+                if (other != 0) {
+                    alert(ALERT_SHARED_CPU, task, "hot thread shares cpu " + task.m_cpu + " with hot thread " +
+                            m_tasks.get(other).m_name + " (" + other + ')');
+                } else {
+                    m_hotTidPerCpu[task.m_cpu] = task.m_tid;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "threads" + p_delim + "migrations" + p_delim + "alerts";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_tasks.size()) + p_delim + m_tickMigrations + p_delim + m_alertCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("threads ").append(m_tasks.size()).append(", migrations ").append(m_tickMigrations)
+                .append(", alerts ").append(m_alertCount);
+
+        for (int tid : getThreadIds()) {
+            Task task = m_tasks.get(tid);
+
+            builder.append(String.format("\n%d %s: cpu %d, usage %.2f cores, migrations %d%s, heatmap", tid,
+                    task.m_name, task.m_cpu, task.m_cpuUsage, task.m_migrations,
+                    isPinned(task) ? ", pinned " + Arrays.toString(task.m_allowed) : ""));
+
+            for (int cpu = 0; cpu < m_maxCpus; cpu++) {
+                if (task.m_heatmap[cpu] > 0) {
+                    builder.append(' ').append(cpu).append(':').append(task.m_heatmap[cpu]);
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Start tracking a thread
+     *
+     * @param p_tid Native id of the thread
+     * @return Task or null if the thread exited in between
+     */
+    private Task createTask(final int p_tid) {
+        String path = PROC_SELF_TASK + p_tid + '/';
+        Task task;
+
+        try {
+            task = new Task(p_tid, new ProcSysFileReader(path + "stat", 1024),
+                    new ProcSysFileReader(path + "status", 2048), m_maxCpus);
+        } catch (FileNotFoundException ignored) {
+            return null;
+        }
+
+        String name = m_registeredNames.get(p_tid);
+
+        if (name == null) {
+            try {
+                name = resolveJavaName(ProcSysFileReader.readCompleteFileOnce(path + "comm").trim());
+            } catch (IOException ignored) {
+                name = String.valueOf(p_tid);
+            }
+        }
+
+        task.m_name = name;
+
+        return task;
+    }
+
+    /**
+     * Re-read the stat and status files of a thread
+     *
+     * @param p_task Task of the thread
+     * @param p_timeDiff Time since the last update in seconds
+     * @return False if the thread exited
+     */
+    private boolean updateTask(final Task p_task, final float p_timeDiff) {
+        // registration might happen after the thread was found
+        if (!m_registeredNames.isEmpty()) {
+            String name = m_registeredNames.get(p_task.m_tid);
+
+            if (name != null) {
+                p_task.m_name = name;
+            }
+        }
+
+        try {
+            m_tokenizer.reset(p_task.m_statReader);
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (!m_tokenizer.skipPastLast(')')) {
+            return false;
+        }
+
+        // state (field 3) up to cmajflt
+        m_tokenizer.skipTokens(11);
+        long ticks = m_tokenizer.nextLong() + m_tokenizer.nextLong();
+        // cutime (field 16) up to exit_signal (field 38)
+        m_tokenizer.skipTokens(23);
+        int cpu = (int) m_tokenizer.nextLong();
+
+        boolean first = p_task.m_cpu == -1;
+
+        p_task.m_lastCpu = p_task.m_cpu;
+        p_task.m_cpu = cpu;
+        p_task.m_tickMigrations = !first && cpu != p_task.m_lastCpu ? 1 : 0;
+        p_task.m_migrations += p_task.m_tickMigrations;
+
+        long ticksDiff = ticks - p_task.m_ticks;
+
+        p_task.m_cpuUsage = first || ticksDiff <= 0 || p_timeDiff <= 0 ? 0 :
+                ticksDiff / (float) ClockTicks.getUserHz() / p_timeDiff;
+        p_task.m_ticks = ticks;
+
+        // count the cpu only if the thread ran since the last update
+        if ((first || ticksDiff > 0 || p_task.m_tickMigrations > 0) && cpu >= 0 && cpu < m_maxCpus) {
+            p_task.m_heatmap[cpu]++;
+        }
+
+        try {
+            m_tokenizer.reset(p_task.m_statusReader);
+        } catch (IOException e) {
+            return false;
+        }
+
+        if (m_tokenizer.findLine(CPUS_ALLOWED_LIST)) {
+            m_tokenizer.setPosition(m_tokenizer.getPosition() + CPUS_ALLOWED_LIST.length);
+            m_tokenizer.skipWhitespaces();
+
+            int start = m_tokenizer.getPosition();
+            m_tokenizer.nextLine();
+
+            byte[] buffer = p_task.m_statusReader.getBuffer();
+            int length = m_tokenizer.getPosition() - start;
+
+            // parse only if changed (rarely)
+            if (length != p_task.m_allowedRaw.length ||
+                    !rangeEquals(buffer, start, p_task.m_allowedRaw, length)) {
+                p_task.m_allowedRaw = Arrays.copyOfRange(buffer, start, start + length);
+                p_task.m_allowed = CpuList.parse(new String(p_task.m_allowedRaw, StandardCharsets.US_ASCII));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if a thread is allowed on less CPUs than the process
+     *
+     * @param p_task Task of the thread
+     */
+    private boolean isPinned(final Task p_task) {
+        return p_task.m_allowed.length > 0 && p_task.m_allowed.length < m_processAllowedCount;
+    }
+
+    /**
+     * Raise an alert
+     *
+     * @param p_alert Type of the alert
+     * @param p_task Task of the thread
+     * @param p_message Description
+     */
+    private void alert(final int p_alert, final Task p_task, final String p_message) {
+        m_alertCount++;
+
+        if (m_callback != null) {
+            m_callback.handle(p_alert, p_task.m_tid, p_task.m_name, p_message);
+        }
+    }
+
+    /**
+     * Resolve the full Java name of a thread from its native name (truncated to 15 characters)
+     *
+     * @param p_comm Native name of the thread
+     * @return Java name or the native name if not unique or not found
+     */
+    private static String resolveJavaName(final String p_comm) {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        Thread[] threads = new Thread[root.activeCount() * 2 + 16];
+        int count = root.enumerate(threads, true);
+        String match = null;
+
+        for (int i = 0; i < count; i++) {
+            String name = threads[i].getName();
+
+            // longer names only match if the native name was truncated
+            if (name.equals(p_comm) || p_comm.length() == MAX_COMM_LENGTH && name.startsWith(p_comm)) {
+                if (match != null && !match.equals(name)) {
+                    return p_comm;
+                }
+
+                match = name;
+            }
+        }
+
+        return match != null ? match : p_comm;
+    }
+
+    /**
+     * Read the allowed CPUs once
+     *
+     * @param p_path Path of the status file
+     * @return Sorted CPU ids or empty array if not available
+     */
+    private static int[] readAllowedCpusOnce(final String p_path) {
+        try {
+            for (String line : ProcSysFileReader.readCompleteFileOnce(p_path).split("\n")) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    return CpuList.parse(line.substring(line.indexOf(':') + 1));
+                }
+            }
+        } catch (IOException ignored) {
+            // not available
+        }
+
+        return new int[0];
+    }
+
+    /**
+     * Compare a range of a buffer to an array
+     *
+     * @param p_buffer Buffer
+     * @param p_offset Start of the range in the buffer
+     * @param p_array Array to compare to
+     * @param p_length Length of the range
+     * @return True if equal
+     */
+    private static boolean rangeEquals(final byte[] p_buffer, final int p_offset, final byte[] p_array,
+            final int p_length) {
+        for (int i = 0; i < p_length; i++) {
+            if (p_buffer[p_offset + i] != p_array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A tracked thread
+     */
+    private static final class Task {
+        private final int m_tid;
+        private final ProcSysFileReader m_statReader;
+        private final ProcSysFileReader m_statusReader;
+        private final long[] m_heatmap;
+
+        private String m_name;
+        private boolean m_seen;
+
+        private int m_cpu;
+        private int m_lastCpu;
+        private long m_ticks;
+        private float m_cpuUsage;
+        private int m_tickMigrations;
+        private long m_migrations;
+
+        private byte[] m_allowedRaw;
+        private int[] m_allowed;
+
+        /**
+         * Constructor
+         *
+         * @param p_tid Native id of the thread
+         * @param p_statReader Reader of the stat file
+         * @param p_statusReader Reader of the status file
+         * @param p_maxCpus Max number of CPUs
+         */
+        private Task(final int p_tid, final ProcSysFileReader p_statReader, final ProcSysFileReader p_statusReader,
+                final int p_maxCpus) {
+            m_tid = p_tid;
+            m_statReader = p_statReader;
+            m_statusReader = p_statusReader;
+            m_heatmap = new long[p_maxCpus];
+
+            m_cpu = -1;
+            m_lastCpu = -1;
+
+            m_allowedRaw = new byte[0];
+            m_allowed = new int[0];
+        }
+
+        /**
+         * Close the files of the thread
+         */
+        private void close() {
+            try {
+                m_statReader.close();
+                m_statusReader.close();
+            } catch (IOException ignored) {
+                // thread is gone anyway
+            }
+        }
+    }
+}
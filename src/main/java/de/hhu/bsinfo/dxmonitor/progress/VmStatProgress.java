@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.progress;
+
+import de.hhu.bsinfo.dxmonitor.state.StateUpdateException;
+import de.hhu.bsinfo.dxmonitor.state.VmStatState;
+
+/**
+ * Progress of the virtual memory event counters (rates per second), e.g. to detect direct reclaim and
+ * compaction stalls
+ */
+public class VmStatProgress implements Progress {
+    private VmStatState m_lastState;
+    private VmStatState m_currentState;
+
+    private long m_lastTimeStamp;
+    private long m_currentTimeStamp;
+    private boolean m_first;
+
+    private final float[] m_rates;
+
+    /**
+     * Constructor
+     */
+    public VmStatProgress() {
+        m_lastState = new VmStatState();
+        m_currentState = new VmStatState();
+        m_first = true;
+
+        m_currentTimeStamp = System.nanoTime();
+        m_lastTimeStamp = m_currentTimeStamp;
+
+        m_rates = new float[VmStatState.COUNTER_COUNT];
+    }
+
+    /**
+     * Get the most recent state
+     */
+    public VmStatState getState() {
+        return m_currentState;
+    }
+
+    /**
+     * Get the rate (per second) of a counter
+     *
+     * @param p_counter Counter (e.g. VmStatState.PGMAJFAULT)
+     */
+    public float getRate(final int p_counter) {
+        return m_rates[p_counter];
+    }
+
+    /**
+     * Get the page faults per second
+     */
+    public float getPageFaultRate() {
+        return m_rates[VmStatState.PGFAULT];
+    }
+
+    /**
+     * Get the major page faults (requiring io) per second
+     */
+    public float getMajorFaultRate() {
+        return m_rates[VmStatState.PGMAJFAULT];
+    }
+
+    /**
+     * Get the pages swapped in per second
+     */
+    public float getSwapInRate() {
+        return m_rates[VmStatState.PSWPIN];
+    }
+
+    /**
+     * Get the pages swapped out per second
+     */
+    public float getSwapOutRate() {
+        return m_rates[VmStatState.PSWPOUT];
+    }
+
+    /**
+     * Get the pages scanned by the background reclaim (kswapd) per second
+     */
+    public float getKswapdScanRate() {
+        return m_rates[VmStatState.PGSCAN_KSWAPD];
+    }
+
+    /**
+     * Get the pages scanned by direct reclaim (in the context of an allocating task) per second
+     */
+    public float getDirectScanRate() {
+        return m_rates[VmStatState.PGSCAN_DIRECT];
+    }
+
+    /**
+     * Get the pages reclaimed by the background reclaim (kswapd) per second
+     */
+    public float getKswapdStealRate() {
+        return m_rates[VmStatState.PGSTEAL_KSWAPD];
+    }
+
+    /**
+     * Get the pages reclaimed by direct reclaim per second
+     */
+    public float getDirectStealRate() {
+        return m_rates[VmStatState.PGSTEAL_DIRECT];
+    }
+
+    /**
+     * Get the reclaimed to scanned pages ratio of the direct reclaim
+     */
+    public float getDirectReclaimEfficiency() {
+        float scan = m_rates[VmStatState.PGSCAN_DIRECT];
+
+        return scan > 0 ? m_rates[VmStatState.PGSTEAL_DIRECT] / scan : 0;
+    }
+
+    /**
+     * Get the allocations per second stalled to enter direct reclaim
+     */
+    public float getAllocStallRate() {
+        return m_rates[VmStatState.ALLOCSTALL];
+    }
+
+    /**
+     * Get the allocations per second stalled to compact memory
+     */
+    public float getCompactStallRate() {
+        return m_rates[VmStatState.COMPACT_STALL];
+    }
+
+    /**
+     * Get the transparent huge pages allocated on page faults per second
+     */
+    public float getThpFaultAllocRate() {
+        return m_rates[VmStatState.THP_FAULT_ALLOC];
+    }
+
+    /**
+     * Get the page faults per second that fell back to regular pages because no huge page was available
+     */
+    public float getThpFaultFallbackRate() {
+        return m_rates[VmStatState.THP_FAULT_FALLBACK];
+    }
+
+    /**
+     * Get the huge pages collapsed by khugepaged per second
+     */
+    public float getThpCollapseAllocRate() {
+        return m_rates[VmStatState.THP_COLLAPSE_ALLOC];
+    }
+
+    /**
+     * Get the pages allocated on the intended NUMA node per second
+     */
+    public float getNumaHitRate() {
+        return m_rates[VmStatState.NUMA_HIT];
+    }
+
+    /**
+     * Get the pages allocated on another than the intended NUMA node per second
+     */
+    public float getNumaMissRate() {
+        return m_rates[VmStatState.NUMA_MISS];
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        VmStatState tmp = m_lastState;
+        m_lastState = m_currentState;
+        m_lastTimeStamp = m_currentTimeStamp;
+        m_currentState = tmp;
+
+        if (m_first) {
+            m_first = false;
+            m_lastState.update();
+        }
+
+        m_currentState.update();
+        m_currentTimeStamp = System.nanoTime();
+
+        float timeDiff = (m_currentTimeStamp - m_lastTimeStamp) / 1000.0f / 1000.0f / 1000.0f;
+
+        for (int i = 0; i < m_rates.length; i++) {
+            long diff = m_currentState.getCounter(i) - m_lastState.getCounter(i);
+
+            m_rates[i] = diff <= 0 || timeDiff <= 0 ? 0 : diff / timeDiff;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_rates.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(VmStatState.getCounterName(i)).append("/sec");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_rates.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_rates[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("faults %.2f/s (major %.2f/s), swap in %.2f/s, swap out %.2f/s, scan kswapd %.2f/s, " +
+                        "scan direct %.2f/s, steal kswapd %.2f/s, steal direct %.2f/s, alloc stalls %.2f/s, " +
+                        "compact stalls %.2f/s, thp faults %.2f/s (fallback %.2f/s), thp collapses %.2f/s, " +
+                        "numa hits %.2f/s, numa misses %.2f/s", getPageFaultRate(), getMajorFaultRate(),
+                getSwapInRate(), getSwapOutRate(), getKswapdScanRate(), getDirectScanRate(), getKswapdStealRate(),
+                getDirectStealRate(), getAllocStallRate(), getCompactStallRate(), getThpFaultAllocRate(),
+                getThpFaultFallbackRate(), getThpCollapseAllocRate(), getNumaHitRate(), getNumaMissRate());
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.Cgroup;
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * CPU state of a cgroup: bandwidth limit (quota per period), usage and throttling. Reads cpu.max and
+ * cpu.stat (v2) or cpu.cfs_quota_us, cpu.cfs_period_us, cpu.stat and cpuacct.usage (v1). The CPUs of the
+ * cpuset are read once.
+ */
+public class CgroupCpuState implements State {
+    private static final int USAGE = 0;
+    private static final int NR_PERIODS = 1;
+    private static final int NR_THROTTLED = 2;
+    private static final int THROTTLED = 3;
+
+    private static final int STAT_COUNT = 4;
+
+    private static final String[] V2_STAT_KEYS = {"usage_usec", "nr_periods", "nr_throttled", "throttled_usec"};
+    private static final int[] V2_STAT_FIELDS = {USAGE, NR_PERIODS, NR_THROTTLED, THROTTLED};
+
+    // v1: usage is read from cpuacct.usage
+    private static final String[] V1_STAT_KEYS = {"nr_periods", "nr_throttled", "throttled_time"};
+    private static final int[] V1_STAT_FIELDS = {NR_PERIODS, NR_THROTTLED, THROTTLED};
+
+    private final Cgroup m_cgroup;
+    private final int m_cpusetCpus;
+
+    private final ProcSysFileReader m_maxReader;
+    private final ProcSysFileReader m_periodReader;
+    private final ProcSysFileReader m_statReader;
+    private final ProcSysFileReader m_usageReader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_statTable;
+
+    private long m_quotaUs;
+    private long m_periodUs;
+    private final long[] m_stat;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupCpuState() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy (e.g. /system.slice/foo.service) or null for the cgroup
+     *         of the current process
+     */
+    public CgroupCpuState(final String p_cgroup) {
+        m_cgroup = Cgroup.resolve("cpu", p_cgroup);
+
+        if (m_cgroup == null) {
+            throw new IllegalStateException("cpu controller not available for cgroup " +
+                    (p_cgroup != null ? p_cgroup : "of current process"));
+        }
+
+        boolean v2 = m_cgroup.getVersion() == Cgroup.VERSION_2;
+
+        try {
+            // limits don't exist for the root cgroup
+            String maxFile = v2 ? "cpu.max" : "cpu.cfs_quota_us";
+            m_maxReader = m_cgroup.hasFile(maxFile) ? new ProcSysFileReader(m_cgroup.getFile(maxFile), 64) : null;
+            m_periodReader = !v2 && m_cgroup.hasFile("cpu.cfs_period_us") ?
+                    new ProcSysFileReader(m_cgroup.getFile("cpu.cfs_period_us"), 64) : null;
+            m_statReader = new ProcSysFileReader(m_cgroup.getFile("cpu.stat"), 512);
+
+            // v1: usage is accounted by the cpuacct controller which might be mounted separately
+            Cgroup cpuacct = v2 ? null : Cgroup.resolve("cpuacct", p_cgroup);
+            m_usageReader = cpuacct != null ? new ProcSysFileReader(cpuacct.getFile("cpuacct.usage"), 64) : null;
+
+            String statFile = m_cgroup.getFile("cpu.stat");
+            m_statTable = v2 ? new ProcSysKeyTable(statFile, V2_STAT_KEYS, V2_STAT_FIELDS, STAT_COUNT, ' ') :
+                    new ProcSysKeyTable(statFile, V1_STAT_KEYS, V1_STAT_FIELDS, STAT_COUNT, ' ');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Cgroup cpuset = Cgroup.resolve("cpuset", p_cgroup);
+        int cpus = Runtime.getRuntime().availableProcessors();
+
+        if (cpuset != null) {
+            try {
+                cpus = CpuList.read(cpuset.getFile(cpuset.getVersion() == Cgroup.VERSION_2 ? "cpuset.cpus.effective" :
+                        "cpuset.effective_cpus")).length;
+            } catch (IOException ignored) {
+                // use available processors
+            }
+        }
+
+        m_cpusetCpus = cpus;
+        m_tokenizer = new ProcSysTokenizer();
+
+        m_quotaUs = -1;
+        m_periodUs = -1;
+        m_stat = new long[STAT_COUNT];
+    }
+
+    /**
+     * Get the cgroup
+     */
+    public Cgroup getCgroup() {
+        return m_cgroup;
+    }
+
+    /**
+     * Get the CPU time the cgroup may use per period (in us)
+     *
+     * @return Quota or -1 if unlimited
+     */
+    public long getQuotaUs() {
+        return m_quotaUs;
+    }
+
+    /**
+     * Get the length of a period of the bandwidth control (in us)
+     *
+     * @return Period or -1 if not available
+     */
+    public long getPeriodUs() {
+        return m_periodUs;
+    }
+
+    /**
+     * Get the quota as number of cores, e.g. 1.5 if the quota is 150 ms per 100 ms period
+     *
+     * @return Number of cores or -1 if unlimited
+     */
+    public float getQuotaCores() {
+        return m_quotaUs == -1 || m_periodUs <= 0 ? -1 : (float) m_quotaUs / m_periodUs;
+    }
+
+    /**
+     * Get the number of CPUs the cgroup may run on (cpuset)
+     */
+    public int getCpusetCpuCount() {
+        return m_cpusetCpus;
+    }
+
+    /**
+     * Get the number of cores the cgroup can actually use, i.e. the minimum of the quota and the cpuset. Use this
+     * instead of the number of available processors of the host for capacity planning.
+     */
+    public float getEffectiveCores() {
+        float quota = getQuotaCores();
+
+        return quota == -1 ? m_cpusetCpus : Math.min(quota, m_cpusetCpus);
+    }
+
+    /**
+     * Get the CPU time used by the cgroup (in us)
+     *
+     * @return Usage or 0 if not available (v1 without cpuacct)
+     */
+    public long getUsageUs() {
+        return m_stat[USAGE];
+    }
+
+    /**
+     * Get the number of elapsed enforcement periods (with runnable tasks)
+     */
+    public long getPeriods() {
+        return m_stat[NR_PERIODS];
+    }
+
+    /**
+     * Get the number of periods in which the cgroup was throttled (quota exhausted)
+     */
+    public long getThrottledPeriods() {
+        return m_stat[NR_THROTTLED];
+    }
+
+    /**
+     * Get the total time the tasks of the cgroup were throttled (in us)
+     */
+    public long getThrottledUs() {
+        return m_stat[THROTTLED];
+    }
+
+    @Override
+    public String toString() {
+        return "cgroup " + m_cgroup.getPath() + ", quota " + m_quotaUs + " us, period " + m_periodUs +
+                " us, cpuset cpus " + m_cpusetCpus + ", effective cores " + getEffectiveCores() + ", usage " +
+                getUsageUs() + " us, periods " + getPeriods() + ", throttled " + getThrottledPeriods() +
+                ", throttled time " + getThrottledUs() + " us";
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        boolean v2 = m_cgroup.getVersion() == Cgroup.VERSION_2;
+
+        try {
+            if (m_maxReader != null) {
+                // v2: "max 100000" or "50000 100000", v1: quota only, -1 if unlimited
+                m_tokenizer.reset(m_maxReader);
+                m_quotaUs = Cgroup.nextLimit(m_tokenizer);
+                m_periodUs = v2 ? m_tokenizer.nextLong() : m_periodReader != null ? m_periodReader.readLong() : -1;
+            }
+
+            m_tokenizer.reset(m_statReader);
+            m_statTable.read(m_tokenizer, m_stat);
+
+            if (!v2) {
+                // nanoseconds
+                m_stat[THROTTLED] /= 1000;
+                m_stat[USAGE] = m_usageReader != null ? m_usageReader.readLong() / 1000 : 0;
+            }
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read files of cgroup " + m_cgroup.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "quota (us)" + p_delim + "period (us)" + p_delim + "effective cores" + p_delim + "usage (us)" +
+                p_delim + "periods" + p_delim + "throttled periods" + p_delim + "throttled (us)";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_quotaUs) + p_delim + m_periodUs + p_delim + getEffectiveCores() + p_delim +
+                getUsageUs() + p_delim + getPeriods() + p_delim + getThrottledPeriods() + p_delim + getThrottledUs();
+    }
+}
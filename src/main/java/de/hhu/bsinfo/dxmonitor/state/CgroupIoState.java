@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import de.hhu.bsinfo.dxmonitor.util.Cgroup;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Block io state of a cgroup summed up over all devices. Reads io.stat (v2) or
+ * blkio.throttle.io_service_bytes_recursive and blkio.throttle.io_serviced_recursive (v1).
+ */
+public class CgroupIoState implements State {
+    private static final byte[] READ = "Read".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WRITE = "Write".getBytes(StandardCharsets.US_ASCII);
+
+    private final Cgroup m_cgroup;
+
+    private final ProcSysFileReader m_statReader;
+    private final ProcSysFileReader m_servicedReader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private long m_readBytes;
+    private long m_writeBytes;
+    private long m_readIos;
+    private long m_writeIos;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupIoState() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy (e.g. /system.slice/foo.service) or null for the cgroup
+     *         of the current process
+     */
+    public CgroupIoState(final String p_cgroup) {
+        m_cgroup = Cgroup.resolve("io", p_cgroup);
+
+        if (m_cgroup == null) {
+            throw new IllegalStateException("io controller not available for cgroup " +
+                    (p_cgroup != null ? p_cgroup : "of current process"));
+        }
+
+        try {
+            if (m_cgroup.getVersion() == Cgroup.VERSION_2) {
+                m_statReader = new ProcSysFileReader(m_cgroup.getFile("io.stat"), 1024);
+                m_servicedReader = null;
+            } else {
+                m_statReader = new ProcSysFileReader(m_cgroup.getFile("blkio.throttle.io_service_bytes_recursive"),
+                        1024);
+                m_servicedReader = new ProcSysFileReader(m_cgroup.getFile("blkio.throttle.io_serviced_recursive"),
+                        1024);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+    }
+
+    /**
+     * Get the cgroup
+     */
+    public Cgroup getCgroup() {
+        return m_cgroup;
+    }
+
+    /**
+     * Get the bytes read by the cgroup
+     */
+    public long getReadBytes() {
+        return m_readBytes;
+    }
+
+    /**
+     * Get the bytes written by the cgroup
+     */
+    public long getWriteBytes() {
+        return m_writeBytes;
+    }
+
+    /**
+     * Get the number of read operations of the cgroup
+     */
+    public long getReadIos() {
+        return m_readIos;
+    }
+
+    /**
+     * Get the number of write operations of the cgroup
+     */
+    public long getWriteIos() {
+        return m_writeIos;
+    }
+
+    @Override
+    public String toString() {
+        return "cgroup " + m_cgroup.getPath() + ", read bytes " + m_readBytes + ", write bytes " + m_writeBytes +
+                ", read ios " + m_readIos + ", write ios " + m_writeIos;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_statReader);
+
+            if (m_cgroup.getVersion() == Cgroup.VERSION_2) {
+                updateV2();
+            } else {
+                m_readBytes = 0;
+                m_writeBytes = 0;
+                m_readIos = 0;
+                m_writeIos = 0;
+
+                updateV1(true);
+                m_tokenizer.reset(m_servicedReader);
+                updateV1(false);
+            }
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read files of cgroup " + m_cgroup.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "read bytes" + p_delim + "write bytes" + p_delim + "read ios" + p_delim + "write ios";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_readBytes) + p_delim + m_writeBytes + p_delim + m_readIos + p_delim + m_writeIos;
+    }
+
+    /**
+     * Sum up the devices of io.stat, e.g. "8:0 rbytes=1 wbytes=2 rios=3 wios=4 dbytes=0 dios=0"
+     */
+    private void updateV2() {
+        m_readBytes = 0;
+        m_writeBytes = 0;
+        m_readIos = 0;
+        m_writeIos = 0;
+
+        while (m_tokenizer.hasRemaining()) {
+            if (m_tokenizer.skipPast('=')) {
+                m_readBytes += m_tokenizer.nextLong();
+                m_tokenizer.skipPast('=');
+                m_writeBytes += m_tokenizer.nextLong();
+                m_tokenizer.skipPast('=');
+                m_readIos += m_tokenizer.nextLong();
+                m_tokenizer.skipPast('=');
+                m_writeIos += m_tokenizer.nextLong();
+            }
+
+            m_tokenizer.nextLine();
+        }
+    }
+
+    /**
+     * Sum up the devices of a v1 blkio file, e.g. "8:0 Read 1234"
+     *
+     * @param p_bytes True for the bytes file, false for the operations file
+     */
+    private void updateV1(final boolean p_bytes) {
+        while (m_tokenizer.hasRemaining()) {
+            // device or "Total"
+            m_tokenizer.skipToken();
+
+            if (m_tokenizer.nextTokenEquals(READ)) {
+                if (p_bytes) {
+                    m_readBytes += m_tokenizer.nextLong();
+                } else {
+                    m_readIos += m_tokenizer.nextLong();
+                }
+            } else if (m_tokenizer.nextTokenEquals(WRITE)) {
+                if (p_bytes) {
+                    m_writeBytes += m_tokenizer.nextLong();
+                } else {
+                    m_writeIos += m_tokenizer.nextLong();
+                }
+            }
+
+            m_tokenizer.nextLine();
+        }
+    }
+}
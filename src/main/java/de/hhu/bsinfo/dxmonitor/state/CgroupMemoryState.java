@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.Cgroup;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Memory state of a cgroup: usage, limits, limit events and the memory.stat breakdown. Reads memory.current,
+ * memory.max, memory.high, memory.events and memory.stat (v2) or memory.usage_in_bytes, memory.limit_in_bytes,
+ * memory.failcnt, memory.oom_control and memory.stat (v1, hierarchical total_ values).
+ */
+public class CgroupMemoryState implements State {
+    public static final int EVENT_LOW = 0;
+    public static final int EVENT_HIGH = 1;
+    public static final int EVENT_MAX = 2;
+    public static final int EVENT_OOM = 3;
+    public static final int EVENT_OOM_KILL = 4;
+
+    public static final int EVENT_COUNT = 5;
+
+    private static final String[] EVENT_NAMES = {"low", "high", "max", "oom", "oom_kill"};
+
+    // v1: only the number of oom kills, the number of hits of the limit is read from memory.failcnt
+    private static final String[] V1_EVENT_KEYS = {"oom_kill"};
+    private static final int[] V1_EVENT_FIELDS = {EVENT_OOM_KILL};
+
+    public static final int STAT_ANON = 0;
+    public static final int STAT_FILE = 1;
+    public static final int STAT_SHMEM = 2;
+    public static final int STAT_FILE_DIRTY = 3;
+    public static final int STAT_FILE_WRITEBACK = 4;
+    public static final int STAT_INACTIVE_FILE = 5;
+    public static final int STAT_PGFAULT = 6;
+    public static final int STAT_PGMAJFAULT = 7;
+
+    public static final int STAT_COUNT = 8;
+
+    private static final String[] V2_STAT_KEYS = {"anon", "file", "shmem", "file_dirty", "file_writeback",
+            "inactive_file", "pgfault", "pgmajfault"};
+    private static final String[] V1_STAT_KEYS = {"total_rss", "total_cache", "total_shmem", "total_dirty",
+            "total_writeback", "total_inactive_file", "total_pgfault", "total_pgmajfault"};
+
+    private final Cgroup m_cgroup;
+
+    private final ProcSysFileReader m_currentReader;
+    private final ProcSysFileReader m_maxReader;
+    private final ProcSysFileReader m_highReader;
+    private final ProcSysFileReader m_eventsReader;
+    private final ProcSysFileReader m_failcntReader;
+    private final ProcSysFileReader m_statReader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_eventsTable;
+    private final ProcSysKeyTable m_statTable;
+
+    private long m_current;
+    private long m_max;
+    private long m_high;
+    private final long[] m_events;
+    private final long[] m_stat;
+
+    /**
+     * Constructor for the cgroup of the current process
+     */
+    public CgroupMemoryState() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_cgroup Path of the cgroup in the hierarchy (e.g. /system.slice/foo.service) or null for the cgroup
+     *         of the current process
+     */
+    public CgroupMemoryState(final String p_cgroup) {
+        m_cgroup = Cgroup.resolve("memory", p_cgroup);
+
+        if (m_cgroup == null) {
+            throw new IllegalStateException("memory controller not available for cgroup " +
+                    (p_cgroup != null ? p_cgroup : "of current process"));
+        }
+
+        boolean v2 = m_cgroup.getVersion() == Cgroup.VERSION_2;
+
+        try {
+            // usage and limits don't exist for the v2 root cgroup
+            m_currentReader = openIfExists(v2 ? "memory.current" : "memory.usage_in_bytes");
+            m_maxReader = openIfExists(v2 ? "memory.max" : "memory.limit_in_bytes");
+            m_highReader = v2 ? openIfExists("memory.high") : null;
+            m_failcntReader = v2 ? null : openIfExists("memory.failcnt");
+
+            if (v2) {
+                m_eventsReader = openIfExists("memory.events");
+                m_eventsTable = m_eventsReader != null ?
+                        new ProcSysKeyTable(m_cgroup.getFile("memory.events"), EVENT_NAMES, ' ') : null;
+            } else {
+                m_eventsReader = openIfExists("memory.oom_control");
+                m_eventsTable = m_eventsReader != null ? new ProcSysKeyTable(m_cgroup.getFile("memory.oom_control"),
+                        V1_EVENT_KEYS, V1_EVENT_FIELDS, EVENT_COUNT, ' ') : null;
+            }
+
+            m_statReader = new ProcSysFileReader(m_cgroup.getFile("memory.stat"));
+            m_statTable = new ProcSysKeyTable(m_cgroup.getFile("memory.stat"), v2 ? V2_STAT_KEYS : V1_STAT_KEYS, ' ');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        m_max = -1;
+        m_high = -1;
+        m_events = new long[EVENT_COUNT];
+        m_stat = new long[STAT_COUNT];
+    }
+
+    /**
+     * Get the name of an event
+     *
+     * @param p_event Event (e.g. CgroupMemoryState.EVENT_OOM_KILL)
+     */
+    public static String getEventName(final int p_event) {
+        return EVENT_NAMES[p_event];
+    }
+
+    /**
+     * Get the cgroup
+     */
+    public Cgroup getCgroup() {
+        return m_cgroup;
+    }
+
+    /**
+     * Get the memory used by the cgroup (including page cache) in bytes
+     */
+    public long getCurrentBytes() {
+        return m_current;
+    }
+
+    /**
+     * Get the hard limit (oom killer is invoked if reclaim fails) in bytes
+     *
+     * @return Limit or -1 if unlimited
+     */
+    public long getMaxBytes() {
+        return m_max;
+    }
+
+    /**
+     * Get the throttling limit (tasks are throttled and put under heavy reclaim) in bytes
+     *
+     * @return Limit or -1 if unlimited or not available (v1)
+     */
+    public long getHighBytes() {
+        return m_high;
+    }
+
+    /**
+     * Get the lower one of the high and max limit
+     *
+     * @return Limit in bytes or -1 if unlimited
+     */
+    public long getLimitBytes() {
+        if (m_high == -1) {
+            return m_max;
+        }
+
+        return m_max == -1 ? m_high : Math.min(m_high, m_max);
+    }
+
+    /**
+     * Get the memory which can still be used before hitting the (lower) limit
+     *
+     * @return Headroom in bytes or -1 if unlimited
+     */
+    public long getHeadroomBytes() {
+        long limit = getLimitBytes();
+
+        return limit == -1 ? -1 : Math.max(0, limit - m_current);
+    }
+
+    /**
+     * Get the usage to (lower) limit ratio
+     *
+     * @return Ratio or 0 if unlimited
+     */
+    public float getUsageRatio() {
+        long limit = getLimitBytes();
+
+        return limit <= 0 ? 0 : (float) m_current / limit;
+    }
+
+    /**
+     * Get the working set, i.e. the usage without the inactive page cache which is reclaimed first (in bytes)
+     */
+    public long getWorkingSetBytes() {
+        return Math.max(0, m_current - m_stat[STAT_INACTIVE_FILE]);
+    }
+
+    /**
+     * Get the number of occurrences of an event
+     *
+     * @param p_event Event (e.g. CgroupMemoryState.EVENT_OOM_KILL)
+     * @return Count (v1 only provides EVENT_MAX and EVENT_OOM_KILL)
+     */
+    public long getEventCount(final int p_event) {
+        return m_events[p_event];
+    }
+
+    /**
+     * Get a value of memory.stat
+     *
+     * @param p_stat Field (e.g. CgroupMemoryState.STAT_ANON)
+     * @return Value in bytes (count for STAT_PGFAULT, STAT_PGMAJFAULT)
+     */
+    public long getStat(final int p_stat) {
+        return m_stat[p_stat];
+    }
+
+    @Override
+    public String toString() {
+        return "cgroup " + m_cgroup.getPath() + ", current " + m_current + ", max " + m_max + ", high " + m_high +
+                ", headroom " + getHeadroomBytes() + ", working set " + getWorkingSetBytes() + ", anon " +
+                m_stat[STAT_ANON] + ", file " + m_stat[STAT_FILE] + ", events high " + m_events[EVENT_HIGH] +
+                ", max " + m_events[EVENT_MAX] + ", oom_kill " + m_events[EVENT_OOM_KILL];
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            if (m_currentReader != null) {
+                m_current = m_currentReader.readLong();
+            }
+
+            if (m_maxReader != null) {
+                m_tokenizer.reset(m_maxReader);
+                m_max = Cgroup.nextLimit(m_tokenizer);
+            }
+
+            if (m_highReader != null) {
+                m_tokenizer.reset(m_highReader);
+                m_high = Cgroup.nextLimit(m_tokenizer);
+            }
+
+            if (m_eventsReader != null) {
+                m_tokenizer.reset(m_eventsReader);
+                m_eventsTable.read(m_tokenizer, m_events);
+            }
+
+            m_tokenizer.reset(m_statReader);
+            m_statTable.read(m_tokenizer, m_stat);
+
+            if (m_failcntReader != null) {
+                // v1: number of times the limit was hit
+                m_events[EVENT_MAX] = m_failcntReader.readLong();
+            }
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read files of cgroup " + m_cgroup.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "current (bytes)" + p_delim + "max (bytes)" + p_delim + "high (bytes)" + p_delim +
+                "headroom (bytes)" + p_delim + "working set (bytes)" + p_delim + "anon (bytes)" + p_delim +
+                "file (bytes)" + p_delim + "high events" + p_delim + "max events" + p_delim + "oom kills";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_current) + p_delim + m_max + p_delim + m_high + p_delim + getHeadroomBytes() +
+                p_delim + getWorkingSetBytes() + p_delim + m_stat[STAT_ANON] + p_delim + m_stat[STAT_FILE] + p_delim +
+                m_events[EVENT_HIGH] + p_delim + m_events[EVENT_MAX] + p_delim + m_events[EVENT_OOM_KILL];
+    }
+
+    /**
+     * Open a file of the cgroup if it exists
+     *
+     * @param p_name Name of the file
+     * @return Reader or null if the file does not exist
+     * @throws IOException If opening the file failed
+     */
+    private ProcSysFileReader openIfExists(final String p_name) throws IOException {
+        return m_cgroup.hasFile(p_name) ? new ProcSysFileReader(m_cgroup.getFile(p_name), 64) : null;
+    }
+}
@@ -13,57 +13,74 @@
 
 package de.hhu.bsinfo.dxmonitor.state;
 
+import de.hhu.bsinfo.dxmonitor.util.ClockTicks;
 import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.StringTokenizer;
+import java.nio.charset.StandardCharsets;
 
 /**
- * State of a single CPU core
+ * State of a single CPU core (logical CPU). The line of the core in /proc/stat is identified by its cpuN label,
+ * i.e. offline CPUs and CPUs not available to the process (cpusets) don't shift the lines. Use TOTAL as id for
+ * the aggregated "cpu" line of the kernel (all CPUs). The times are in clock ticks (USER_HZ, see ClockTicks).
+ * /proc/stat is opened on the first update, i.e. states updated by CpuState don't keep a file open.
  *
  * @author Burak Akguel, burak.akguel@hhu.de, 23.11.2017
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
  */
 public class CpuCoreState implements State {
+    /**
+     * Core id of the aggregated line of all CPUs
+     */
+    public static final int TOTAL = -1;
+
     private static final String PROC_STAT = "/proc/stat";
+    private static final int COLUMNS = 10;
 
-    private final ProcSysFileReader m_reader;
+    private ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
 
     private final int m_coreId;
+    private final byte[] m_label;
+    private boolean m_online;
     private final long[] m_stats;
 
     /**
      * Constructor
      *
      * @param p_coreId
-     *     Id of the core: [0, maxCores)
+     *     Id of the core (CPU id of the kernel, see CpuTopologyState for the online CPUs) or TOTAL
      */
     public CpuCoreState(final int p_coreId) {
-        if (p_coreId < 0 || p_coreId > Runtime.getRuntime().availableProcessors()) {
-            throw new IllegalArgumentException("Invalid core id " + p_coreId + " for available core count " +
-                    Runtime.getRuntime().availableProcessors());
+        if (p_coreId < TOTAL) {
+            throw new IllegalArgumentException("Invalid core id " + p_coreId);
         }
 
-        try {
-            m_reader = new ProcSysFileReader(PROC_STAT);
-        } catch (FileNotFoundException e) {
-            throw new IllegalStateException(e);
-        }
+        m_tokenizer = new ProcSysTokenizer();
 
         m_coreId = p_coreId;
+        m_label = (p_coreId == TOTAL ? "cpu" : "cpu" + p_coreId).getBytes(StandardCharsets.US_ASCII);
 
-        // 0 usr - 1 nice - 2 sys - 3 idle - 4 iowait - 5 irq - 6 softirq - 7 total
-        m_stats = new long[8];
+        // 0 usr - 1 nice - 2 sys - 3 idle - 4 iowait - 5 irq - 6 softirq - 7 steal - 8 guest - 9 guest_nice - 10 total
+        m_stats = new long[COLUMNS + 1];
     }
 
     /**
-     * Get the id of the core
+     * Get the id of the core (TOTAL for all CPUs)
      */
     public int getCoreId() {
         return m_coreId;
     }
 
+    /**
+     * Check if the core was found in /proc/stat on the last update (false if offline). The values of the last
+     * update the core was online are kept.
+     */
+    public boolean isOnline() {
+        return m_online;
+    }
+
     /**
      * Returns the number of clock cycles (in Jiffies) that processes have spent in user mode on this core/cpu
      */
@@ -114,16 +131,66 @@ public class CpuCoreState implements State {
     }
 
     /**
-     * Returns the total number of clock cycles.
+     * Returns the number of clock cycles this (virtual) core had to wait for the hypervisor running other guests
      */
-    public long getTotal() {
+    public long getSteal() {
         return m_stats[7];
     }
 
+    /**
+     * Returns the number of clock cycles this core spent running virtual CPUs of guests (included in usr)
+     */
+    public long getGuest() {
+        return m_stats[8];
+    }
+
+    /**
+     * Returns the number of clock cycles this core spent running niced virtual CPUs of guests (included in nice)
+     */
+    public long getGuestNice() {
+        return m_stats[9];
+    }
+
+    /**
+     * Returns the total number of clock cycles (without guest and guest nice which are part of usr and nice)
+     */
+    public long getTotal() {
+        return m_stats[COLUMNS];
+    }
+
+    /**
+     * Returns the time this core was busy in ms (total without idle, io wait and steal)
+     */
+    public long getBusyTimeMs() {
+        return ClockTicks.toMs(getTotal() - getIdle() - getIoWait() - getSteal());
+    }
+
+    /**
+     * Returns the time this core was idle in ms (including io wait)
+     */
+    public long getIdleTimeMs() {
+        return ClockTicks.toMs(getIdle() + getIoWait());
+    }
+
+    /**
+     * Returns the time this core had to wait for the hypervisor in ms
+     */
+    public long getStealTimeMs() {
+        return ClockTicks.toMs(getSteal());
+    }
+
+    /**
+     * Returns the total time accounted for this core in ms
+     */
+    public long getTotalTimeMs() {
+        return ClockTicks.toMs(getTotal());
+    }
+
     @Override
     public String toString() {
         return "core id: " + getCoreId() + ", usr " + getUsr() + ", nice " + getNice() + ", sys " + getSys() +
-                ", idle " + getIdle() + ", iowait " + getIoWait() + ", irq " + getIrq() + ", softirq " + getSoftIrq();
+                ", idle " + getIdle() + ", iowait " + getIoWait() + ", irq " + getIrq() + ", softirq " + getSoftIrq() +
+                ", steal " + getSteal() + ", guest " + getGuest() + ", guest nice " + getGuestNice();
     }
 
     /**
@@ -132,43 +199,69 @@ public class CpuCoreState implements State {
      */
     @Override
     public void update() throws StateUpdateException {
-        String cpuState;
-
         try {
-            cpuState = m_reader.readCompleteFile();
+            if (m_reader == null) {
+                m_reader = new ProcSysFileReader(PROC_STAT);
+            }
+
+            m_tokenizer.reset(m_reader);
         } catch (IOException e) {
             throw new StateUpdateException("Can't read file " + PROC_STAT + ": " + e.getMessage());
         }
 
-        StringTokenizer tokenizer = new StringTokenizer(cpuState, "\n");
+        parse(m_tokenizer);
+    }
 
-        for (int i = 0; i < m_coreId; i++) {
-            tokenizer.nextToken();
-        }
+    /**
+     * Parse the line of the core from /proc/stat. Used by CpuState to update all cores from a single read of the
+     * file.
+     *
+     * @param p_tokenizer Tokenizer with the contents of /proc/stat. The search starts at the current position
+     *         which is moved behind the line of the core if found and left unchanged otherwise.
+     */
+    void parse(final ProcSysTokenizer p_tokenizer) {
+        int start = p_tokenizer.getPosition();
+
+        while (p_tokenizer.hasRemaining()) {
+            if (p_tokenizer.nextTokenEquals(m_label)) {
+                m_online = true;
 
-        tokenizer = new StringTokenizer(tokenizer.nextToken(), " ");
-        tokenizer.nextElement(); // skip the cpuX token
+                // older kernels don't have all columns
+                for (int i = 0; i < COLUMNS; i++) {
+                    m_stats[i] = p_tokenizer.hasTokenInLine() ? p_tokenizer.nextLong() : 0;
+                }
 
-        // reset previous sum
-        m_stats[7] = 0;
+                // sum the total amount of cpu time spent, guest times are already accounted in usr and nice
+                m_stats[COLUMNS] = 0;
 
-        for (int i = 0; i < 7; i++) {
-            m_stats[i] = Long.parseLong(tokenizer.nextToken());
+                for (int i = 0; i < 8; i++) {
+                    m_stats[COLUMNS] += m_stats[i];
+                }
 
-            // sum the total amount of cpu time spent
-            m_stats[7] += m_stats[i];
+                p_tokenizer.nextLine();
+
+                return;
+            }
+
+            p_tokenizer.nextLine();
         }
+
+        // offline
+        m_online = false;
+        p_tokenizer.setPosition(start);
     }
 
     @Override
     public String generateCSVHeader(final char p_delim) {
         return "core id" + p_delim + "usr" + p_delim + "nice" + p_delim + "sys" + p_delim + "idle" + p_delim +
-                "iowait" + p_delim + "irq" + p_delim + "softirq";
+                "iowait" + p_delim + "irq" + p_delim + "softirq" + p_delim + "steal" + p_delim + "guest" + p_delim +
+                "guest nice";
     }
 
     @Override
     public String toCSV(final char p_delim) {
         return "" + getCoreId() + p_delim + getUsr() + p_delim + getNice() + p_delim + getSys() + p_delim + getIdle() +
-                p_delim + getIoWait() + p_delim + getIrq() + p_delim + getSoftIrq();
+                p_delim + getIoWait() + p_delim + getIrq() + p_delim + getSoftIrq() + p_delim + getSteal() + p_delim +
+                getGuest() + p_delim + getGuestNice();
     }
 }
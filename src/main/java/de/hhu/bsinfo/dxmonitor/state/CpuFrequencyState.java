@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+
+/**
+ * Frequency, idle state (C-state) residency and thermal throttling of a single CPU core read from
+ * /sys/devices/system/cpu/cpuN/{cpufreq,cpuidle,thermal_throttle}. Each of the three is optional, e.g. VMs
+ * usually don't expose any of them, and reported as not available if missing.
+ */
+public class CpuFrequencyState implements State {
+    private static final String SYS_CPU = "/sys/devices/system/cpu/cpu";
+
+    private final int m_coreId;
+
+    private final ProcSysFileReader m_curFreqReader;
+    private final long m_minFreqKHz;
+    private final long m_maxFreqKHz;
+    private long m_curFreqKHz;
+
+    private final String[] m_idleStateNames;
+    private final ProcSysFileReader[] m_idleTimeReaders;
+    private final ProcSysFileReader[] m_idleUsageReaders;
+    private final long[] m_idleTimesUs;
+    private final long[] m_idleUsages;
+
+    private final ProcSysFileReader m_coreThrottleReader;
+    private final ProcSysFileReader m_packageThrottleReader;
+    private long m_coreThrottleCount;
+    private long m_packageThrottleCount;
+
+    /**
+     * Constructor
+     *
+     * @param p_coreId Id of the core (CPU id of the kernel)
+     */
+    public CpuFrequencyState(final int p_coreId) {
+        m_coreId = p_coreId;
+
+        String path = SYS_CPU + p_coreId + '/';
+
+        m_curFreqReader = openOptional(path + "cpufreq/scaling_cur_freq");
+        m_minFreqKHz = readOptional(path + "cpufreq/cpuinfo_min_freq");
+        m_maxFreqKHz = readOptional(path + "cpufreq/cpuinfo_max_freq");
+
+        int idleStates = 0;
+
+        while (new File(path + "cpuidle/state" + idleStates).isDirectory()) {
+            idleStates++;
+        }
+
+        m_idleStateNames = new String[idleStates];
+        m_idleTimeReaders = new ProcSysFileReader[idleStates];
+        m_idleUsageReaders = new ProcSysFileReader[idleStates];
+
+        for (int i = 0; i < idleStates; i++) {
+            String statePath = path + "cpuidle/state" + i + '/';
+
+            try {
+                m_idleStateNames[i] = ProcSysFileReader.readCompleteFileOnce(statePath + "name").trim();
+                m_idleTimeReaders[i] = new ProcSysFileReader(statePath + "time", 64);
+                m_idleUsageReaders[i] = new ProcSysFileReader(statePath + "usage", 64);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        m_idleTimesUs = new long[idleStates];
+        m_idleUsages = new long[idleStates];
+
+        m_coreThrottleReader = openOptional(path + "thermal_throttle/core_throttle_count");
+        m_packageThrottleReader = openOptional(path + "thermal_throttle/package_throttle_count");
+    }
+
+    /**
+     * Get the id of the core
+     */
+    public int getCoreId() {
+        return m_coreId;
+    }
+
+    /**
+     * Check if the frequency of the core is available (cpufreq driver loaded)
+     */
+    public boolean isFrequencyAvailable() {
+        return m_curFreqReader != null;
+    }
+
+    /**
+     * Get the current frequency of the core as reported by the cpufreq driver (on intel_pstate/amd-pstate an
+     * average over the last scheduler tick)
+     *
+     * @return Frequency in kHz or 0 if not available
+     */
+    public long getCurrentFrequencyKHz() {
+        return m_curFreqKHz;
+    }
+
+    /**
+     * Get the min frequency of the hardware
+     *
+     * @return Frequency in kHz or 0 if not available
+     */
+    public long getMinFrequencyKHz() {
+        return m_minFreqKHz;
+    }
+
+    /**
+     * Get the max frequency of the hardware (including boost frequencies)
+     *
+     * @return Frequency in kHz or 0 if not available
+     */
+    public long getMaxFrequencyKHz() {
+        return m_maxFreqKHz;
+    }
+
+    /**
+     * Get the number of idle states (0 if cpuidle is not available)
+     */
+    public int getIdleStateCount() {
+        return m_idleStateNames.length;
+    }
+
+    /**
+     * Get the name of an idle state, e.g. "C1E"
+     *
+     * @param p_state Index of the state [0, getIdleStateCount())
+     */
+    public String getIdleStateName(final int p_state) {
+        return m_idleStateNames[p_state];
+    }
+
+    /**
+     * Get the total time the core spent in an idle state
+     *
+     * @param p_state Index of the state [0, getIdleStateCount())
+     * @return Time in us
+     */
+    public long getIdleStateTimeUs(final int p_state) {
+        return m_idleTimesUs[p_state];
+    }
+
+    /**
+     * Get the number of times the core entered an idle state
+     *
+     * @param p_state Index of the state [0, getIdleStateCount())
+     */
+    public long getIdleStateUsage(final int p_state) {
+        return m_idleUsages[p_state];
+    }
+
+    /**
+     * Check if the thermal throttle counters are available
+     */
+    public boolean isThrottleAvailable() {
+        return m_coreThrottleReader != null;
+    }
+
+    /**
+     * Get the number of times the core was throttled because of its temperature
+     */
+    public long getCoreThrottleCount() {
+        return m_coreThrottleCount;
+    }
+
+    /**
+     * Get the number of times the package of the core was throttled because of its temperature
+     */
+    public long getPackageThrottleCount() {
+        return m_packageThrottleCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("core id: ").append(m_coreId).append(", cur freq ").append(m_curFreqKHz)
+                .append(" kHz, min freq ").append(m_minFreqKHz).append(" kHz, max freq ").append(m_maxFreqKHz)
+                .append(" kHz, core throttle ").append(m_coreThrottleCount).append(", package throttle ")
+                .append(m_packageThrottleCount);
+
+        for (int i = 0; i < m_idleStateNames.length; i++) {
+            builder.append(", ").append(m_idleStateNames[i]).append(' ').append(m_idleTimesUs[i]).append(" us (")
+                    .append(m_idleUsages[i]).append(')');
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            if (m_curFreqReader != null) {
+                m_curFreqKHz = m_curFreqReader.readLong();
+            }
+
+            for (int i = 0; i < m_idleTimeReaders.length; i++) {
+                m_idleTimesUs[i] = m_idleTimeReaders[i].readLong();
+                m_idleUsages[i] = m_idleUsageReaders[i].readLong();
+            }
+
+            if (m_coreThrottleReader != null) {
+                m_coreThrottleCount = m_coreThrottleReader.readLong();
+            }
+
+            if (m_packageThrottleReader != null) {
+                m_packageThrottleCount = m_packageThrottleReader.readLong();
+            }
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read files of " + SYS_CPU + m_coreId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("core id").append(p_delim).append("cur freq (khz)").append(p_delim).append("core throttle")
+                .append(p_delim).append("package throttle");
+
+        for (String name : m_idleStateNames) {
+            builder.append(p_delim).append(name).append(" time (us)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_coreId).append(p_delim).append(m_curFreqKHz).append(p_delim).append(m_coreThrottleCount)
+                .append(p_delim).append(m_packageThrottleCount);
+
+        for (long time : m_idleTimesUs) {
+            builder.append(p_delim).append(time);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Open a file which is not available on all systems
+     *
+     * @param p_path Path of the file
+     * @return Reader or null if the file does not exist
+     */
+    private static ProcSysFileReader openOptional(final String p_path) {
+        try {
+            return new ProcSysFileReader(p_path, 64);
+        } catch (FileNotFoundException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Read a value once from a file which is not available on all systems
+     *
+     * @param p_path Path of the file
+     * @return Value or 0 if the file does not exist
+     */
+    private static long readOptional(final String p_path) {
+        try {
+            return Long.parseLong(ProcSysFileReader.readCompleteFileOnce(p_path).trim());
+        } catch (IOException | NumberFormatException ignored) {
+            return 0;
+        }
+    }
+}
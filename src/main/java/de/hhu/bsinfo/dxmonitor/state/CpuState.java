@@ -14,41 +14,81 @@
 package de.hhu.bsinfo.dxmonitor.state;
 
 import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
- * State of the full CPU (all cores)
+ * State of the full CPU (all online cores). The cores are taken from the CPU topology and adjusted on hotplug
+ * events: states of cores staying online are kept. The aggregated line, all cores and the kernel activity
+ * counters are parsed from a single read of /proc/stat, i.e. they belong to the same snapshot.
  *
  * @author Burak Akguel, burak.akguel@hhu.de, 23.11.2017
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
  */
 public class CpuState implements State {
     private static final String PROC_LOADAVG = "/proc/loadavg";
+    private static final String PROC_STAT = "/proc/stat";
 
     private final ProcSysFileReader m_reader;
+    private final ProcSysFileReader m_statReader;
+    private final ProcSysTokenizer m_tokenizer;
 
-    private final int m_totalCores;
+    private final CpuTopologyState m_topology;
+    private final boolean m_updateTopology;
+    private int m_topologyVersion;
 
+    // indexed by core id, null if offline
     private final CpuCoreState[] m_coreStates;
+    private final CpuCoreState m_totalState;
+    private final KernelActivityState m_kernelActivityState;
     private final float[] m_loads;
 
     /**
      * Constructor
      */
     public CpuState() {
+        this(new CpuTopologyState(), true);
+    }
+
+    /**
+     * Constructor with a topology shared with other states, e.g. the two states of a progress
+     *
+     * @param p_topology Topology of the CPUs, updated by the caller before updating this state
+     */
+    public CpuState(final CpuTopologyState p_topology) {
+        this(p_topology, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_topology Topology of the CPUs
+     * @param p_updateTopology True to update the topology on update
+     */
+    private CpuState(final CpuTopologyState p_topology, final boolean p_updateTopology) {
         try {
             m_reader = new ProcSysFileReader(PROC_LOADAVG);
+            m_statReader = new ProcSysFileReader(PROC_STAT);
         } catch (FileNotFoundException e) {
             throw new IllegalStateException(e);
         }
 
-        m_totalCores = getTotalCores();
-        m_coreStates = new CpuCoreState[m_totalCores];
+        m_tokenizer = new ProcSysTokenizer();
 
-        for (int i = 0; i < m_coreStates.length; i++) {
-            m_coreStates[i] = new CpuCoreState(i);
+        m_topology = p_topology;
+        m_updateTopology = p_updateTopology;
+        m_topologyVersion = -1;
+        m_coreStates = new CpuCoreState[m_topology.getMaxCpus()];
+        m_totalState = new CpuCoreState(CpuCoreState.TOTAL);
+        m_kernelActivityState = new KernelActivityState();
+
+        try {
+            updateTopology();
+        } catch (StateUpdateException e) {
+            throw new IllegalStateException(e);
         }
 
         // avg of 1, 5 and 15 minutes
@@ -56,12 +96,60 @@ public class CpuState implements State {
     }
 
     /**
-     * Get the total number of cores (including virtual/hyper threading cores) of the current instance
+     * Get the total number of cores (including virtual/hyper threading cores) available to the JVM. This might be
+     * less than the online cores (cpusets) and the ids of the cores are not necessarily 0 to count - 1.
      */
     public static int getTotalCores() {
         return Runtime.getRuntime().availableProcessors();
     }
 
+    /**
+     * Get the topology of the CPUs (updated by this state)
+     */
+    public CpuTopologyState getTopology() {
+        return m_topology;
+    }
+
+    /**
+     * Get the ids of the online cores
+     *
+     * @return Sorted array with core ids
+     */
+    public int[] getCoreIds() {
+        return m_topology.getOnlineCpus();
+    }
+
+    /**
+     * Get the number of online cores
+     */
+    public int getCoreCount() {
+        return m_topology.getOnlineCpuCount();
+    }
+
+    /**
+     * Get the state of all cores (the aggregated "cpu" line of the kernel)
+     */
+    public CpuCoreState getTotalState() {
+        return m_totalState;
+    }
+
+    /**
+     * Get the kernel activity counters (context switches, interrupts, forks...)
+     */
+    public KernelActivityState getKernelActivityState() {
+        return m_kernelActivityState;
+    }
+
+    /**
+     * Check if the state of a core is available, i.e. the core was online on the last update
+     *
+     * @param p_coreId Id of the core
+     */
+    public boolean hasCoreState(final int p_coreId) {
+        return p_coreId >= 0 && p_coreId < m_coreStates.length && m_coreStates[p_coreId] != null &&
+                m_coreStates[p_coreId].isOnline();
+    }
+
     /**
      * Get the state of a single core
      *
@@ -69,9 +157,9 @@ public class CpuState implements State {
      * @return Core state of the specified core
      */
     public CpuCoreState getCoreState(final int p_coreId) {
-        if (p_coreId < 0 || p_coreId > m_totalCores) {
-            throw new IllegalArgumentException("Invalid core id " + p_coreId + " for available core count " +
-                    m_totalCores);
+        if (p_coreId < 0 || p_coreId >= m_coreStates.length || m_coreStates[p_coreId] == null) {
+            throw new IllegalArgumentException("Invalid core id " + p_coreId + ", online cores " +
+                    Arrays.toString(m_topology.getOnlineCpus()));
         }
 
         return m_coreStates[p_coreId];
@@ -105,8 +193,8 @@ public class CpuState implements State {
         builder.append(String.format("load avg 1 min %f, load avg 5 min %f, load avg 15 min %f\n", getLoadAvarage1Min(),
                 getLoadAvarage5Min(), getLoadAvarage15Min()));
 
-        for (CpuCoreState state : m_coreStates) {
-            builder.append(state);
+        for (int core : getCoreIds()) {
+            builder.append(m_coreStates[core]);
             builder.append('\n');
         }
 
@@ -115,22 +203,33 @@ public class CpuState implements State {
 
     @Override
     public void update() throws StateUpdateException {
-        for (CpuCoreState coreState : m_coreStates) {
-            coreState.update();
+        updateTopology();
+
+        // all cores from a single read of /proc/stat (lines are sorted by core id)
+        try {
+            m_tokenizer.reset(m_statReader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_STAT + ": " + e.getMessage());
         }
 
-        String tmp;
+        // aggregated line is the first one
+        m_totalState.parse(m_tokenizer);
+
+        for (int core : getCoreIds()) {
+            m_coreStates[core].parse(m_tokenizer);
+        }
+
+        // lines following the cpu lines
+        m_kernelActivityState.parse(m_tokenizer);
 
         try {
-            tmp = m_reader.readCompleteFile();
+            m_tokenizer.reset(m_reader);
         } catch (IOException e) {
             throw new StateUpdateException("Can't read file " + PROC_LOADAVG + ": " + e.getMessage());
         }
 
         for (int i = 0; i < 3; i++) {
-            int index = tmp.indexOf(' ');
-            m_loads[i] = Float.parseFloat(tmp.substring(0, index));
-            tmp = tmp.substring(index + 1);
+            m_loads[i] = (float) m_tokenizer.nextDouble();
         }
     }
 
@@ -144,9 +243,9 @@ public class CpuState implements State {
         builder.append(p_delim);
         builder.append("load avg 15 min");
 
-        for (CpuCoreState coreState : m_coreStates) {
+        for (int core : getCoreIds()) {
             builder.append(p_delim);
-            builder.append(coreState.generateCSVHeader(p_delim));
+            builder.append(m_coreStates[core].generateCSVHeader(p_delim));
         }
 
         return builder.toString();
@@ -162,11 +261,36 @@ public class CpuState implements State {
         builder.append(p_delim);
         builder.append(getLoadAvarage15Min());
 
-        for (CpuCoreState coreState : m_coreStates) {
+        for (int core : getCoreIds()) {
             builder.append(p_delim);
-            builder.append(coreState.toCSV(p_delim));
+            builder.append(m_coreStates[core].toCSV(p_delim));
         }
 
         return builder.toString();
     }
+
+    /**
+     * Update the topology and create/drop the states of cores which came online/went offline
+     *
+     * @throws StateUpdateException If reading the topology failed
+     */
+    private void updateTopology() throws StateUpdateException {
+        if (m_updateTopology) {
+            m_topology.update();
+        }
+
+        if (m_topology.getVersion() == m_topologyVersion) {
+            return;
+        }
+
+        m_topologyVersion = m_topology.getVersion();
+
+        for (int i = 0; i < m_coreStates.length; i++) {
+            if (!m_topology.isOnline(i)) {
+                m_coreStates[i] = null;
+            } else if (m_coreStates[i] == null) {
+                m_coreStates[i] = new CpuCoreState(i);
+            }
+        }
+    }
 }
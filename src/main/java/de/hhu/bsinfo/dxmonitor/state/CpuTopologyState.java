@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+
+/**
+ * Topology of the CPUs read from /sys/devices/system/cpu: online CPUs, package, die and core of each CPU, its
+ * hardware thread (SMT) siblings and its caches. The online list is re-read on every update (a single small
+ * file), the topology of a CPU only when it comes online. The version changes on every hotplug event, i.e.
+ * structures per CPU have to be adjusted if it differs from the last seen version.
+ */
+public class CpuTopologyState implements State {
+    private static final String SYS_CPU = "/sys/devices/system/cpu/";
+    private static final String SYS_CPU_ONLINE = SYS_CPU + "online";
+
+    private final int m_maxCpus;
+
+    private final ProcSysFileReader m_onlineReader;
+    private byte[] m_onlineList;
+    private int m_onlineListLength;
+
+    private int[] m_onlineCpus;
+    private int m_version;
+
+    // per CPU id, -1 if unknown (offline)
+    private final int[] m_packageIds;
+    private final int[] m_dieIds;
+    private final int[] m_coreIds;
+    private final int[][] m_threadSiblings;
+    private final Cache[][] m_caches;
+
+    /**
+     * A cache of a CPU
+     */
+    public static final class Cache {
+        private final int m_level;
+        private final String m_type;
+        private final long m_sizeKB;
+        private final int m_lineSize;
+        private final int[] m_sharedCpus;
+
+        /**
+         * Constructor
+         *
+         * @param p_level Level (1 = L1)
+         * @param p_type Type (Data, Instruction or Unified)
+         * @param p_sizeKB Size in KB
+         * @param p_lineSize Size of a cache line in bytes
+         * @param p_sharedCpus CPUs sharing the cache
+         */
+        private Cache(final int p_level, final String p_type, final long p_sizeKB, final int p_lineSize,
+                final int[] p_sharedCpus) {
+            m_level = p_level;
+            m_type = p_type;
+            m_sizeKB = p_sizeKB;
+            m_lineSize = p_lineSize;
+            m_sharedCpus = p_sharedCpus;
+        }
+
+        /**
+         * Get the level of the cache (1 = L1)
+         */
+        public int getLevel() {
+            return m_level;
+        }
+
+        /**
+         * Get the type of the cache (Data, Instruction or Unified)
+         */
+        public String getType() {
+            return m_type;
+        }
+
+        /**
+         * Get the size of the cache (in KB)
+         */
+        public long getSizeKB() {
+            return m_sizeKB;
+        }
+
+        /**
+         * Get the size of a cache line (in bytes)
+         */
+        public int getLineSize() {
+            return m_lineSize;
+        }
+
+        /**
+         * Get the CPUs sharing the cache
+         */
+        public int[] getSharedCpus() {
+            return m_sharedCpus;
+        }
+
+        @Override
+        public String toString() {
+            return "L" + m_level + ' ' + m_type + ' ' + m_sizeKB + " KB, shared " + Arrays.toString(m_sharedCpus);
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    public CpuTopologyState() {
+        int[] possible = CpuList.getPossibleCpus();
+
+        m_maxCpus = possible.length == 0 ? 1 : possible[possible.length - 1] + 1;
+
+        try {
+            m_onlineReader = new ProcSysFileReader(SYS_CPU_ONLINE, 256);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_onlineList = new byte[0];
+        m_onlineCpus = new int[0];
+
+        m_packageIds = new int[m_maxCpus];
+        m_dieIds = new int[m_maxCpus];
+        m_coreIds = new int[m_maxCpus];
+        m_threadSiblings = new int[m_maxCpus][];
+        m_caches = new Cache[m_maxCpus][];
+
+        Arrays.fill(m_packageIds, -1);
+        Arrays.fill(m_dieIds, -1);
+        Arrays.fill(m_coreIds, -1);
+    }
+
+    /**
+     * Get the max number of CPUs (highest possible CPU id + 1, including hotplug slots)
+     */
+    public int getMaxCpus() {
+        return m_maxCpus;
+    }
+
+    /**
+     * Get the version of the topology, incremented on every change of the online CPUs
+     */
+    public int getVersion() {
+        return m_version;
+    }
+
+    /**
+     * Get the ids of the online CPUs
+     *
+     * @return Sorted array with CPU ids
+     */
+    public int[] getOnlineCpus() {
+        return m_onlineCpus;
+    }
+
+    /**
+     * Get the number of online CPUs
+     */
+    public int getOnlineCpuCount() {
+        return m_onlineCpus.length;
+    }
+
+    /**
+     * Check if a CPU is online
+     *
+     * @param p_cpu Id of the CPU
+     */
+    public boolean isOnline(final int p_cpu) {
+        return p_cpu >= 0 && p_cpu < m_maxCpus && m_packageIds[p_cpu] != -1;
+    }
+
+    /**
+     * Get the package (socket) of a CPU
+     *
+     * @param p_cpu Id of the CPU
+     * @return Package id or -1 if offline
+     */
+    public int getPackageId(final int p_cpu) {
+        return m_packageIds[p_cpu];
+    }
+
+    /**
+     * Get the die of a CPU
+     *
+     * @param p_cpu Id of the CPU
+     * @return Die id (within the package) or -1 if offline or unknown
+     */
+    public int getDieId(final int p_cpu) {
+        return m_dieIds[p_cpu];
+    }
+
+    /**
+     * Get the physical core of a CPU
+     *
+     * @param p_cpu Id of the CPU
+     * @return Core id (unique within the package only) or -1 if offline
+     */
+    public int getCoreId(final int p_cpu) {
+        return m_coreIds[p_cpu];
+    }
+
+    /**
+     * Get the hardware threads sharing the physical core with a CPU (including the CPU itself)
+     *
+     * @param p_cpu Id of the CPU
+     * @return Sorted array with CPU ids or empty array if offline
+     */
+    public int[] getThreadSiblings(final int p_cpu) {
+        return m_threadSiblings[p_cpu] != null ? m_threadSiblings[p_cpu] : new int[0];
+    }
+
+    /**
+     * Get the caches of a CPU
+     *
+     * @param p_cpu Id of the CPU
+     * @return Caches or empty array if offline
+     */
+    public Cache[] getCaches(final int p_cpu) {
+        return m_caches[p_cpu] != null ? m_caches[p_cpu] : new Cache[0];
+    }
+
+    /**
+     * Get the number of packages with online CPUs
+     */
+    public int getPackageCount() {
+        int count = 0;
+
+        for (int i = 0; i < m_onlineCpus.length; i++) {
+            int pkg = m_packageIds[m_onlineCpus[i]];
+            boolean seen = false;
+
+            for (int j = 0; j < i && !seen; j++) {
+                seen = m_packageIds[m_onlineCpus[j]] == pkg;
+            }
+
+            if (!seen) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of physical cores with online CPUs
+     */
+    public int getPhysicalCoreCount() {
+        int count = 0;
+
+        // count the first online thread of each core only
+        for (int cpu : m_onlineCpus) {
+            int[] siblings = m_threadSiblings[cpu];
+
+            if (siblings == null || getFirstOnline(siblings) == cpu) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("online ").append(m_onlineCpus.length).append(", packages ").append(getPackageCount())
+                .append(", physical cores ").append(getPhysicalCoreCount()).append(", version ").append(m_version);
+
+        for (int cpu : m_onlineCpus) {
+            builder.append("\ncpu").append(cpu).append(": package ").append(m_packageIds[cpu]).append(", die ")
+                    .append(m_dieIds[cpu]).append(", core ").append(m_coreIds[cpu]).append(", siblings ")
+                    .append(Arrays.toString(getThreadSiblings(cpu))).append(", caches ")
+                    .append(Arrays.toString(getCaches(cpu)));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        int length;
+
+        try {
+            length = m_onlineReader.readCompleteFileToBuffer();
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + SYS_CPU_ONLINE + ": " + e.getMessage());
+        }
+
+        byte[] buffer = m_onlineReader.getBuffer();
+
+        if (length == m_onlineListLength && equals(buffer, m_onlineList, length)) {
+            return;
+        }
+
+        // hotplug event (or first update)
+        m_onlineList = Arrays.copyOf(buffer, length);
+        m_onlineListLength = length;
+
+        int[] online = CpuList.parse(new String(buffer, 0, length));
+
+        for (int cpu : m_onlineCpus) {
+            if (Arrays.binarySearch(online, cpu) < 0) {
+                m_packageIds[cpu] = -1;
+                m_dieIds[cpu] = -1;
+                m_coreIds[cpu] = -1;
+                m_threadSiblings[cpu] = null;
+                m_caches[cpu] = null;
+            }
+        }
+
+        for (int cpu : online) {
+            if (cpu < m_maxCpus && m_packageIds[cpu] == -1) {
+                readTopology(cpu);
+            }
+        }
+
+        // siblings of the cores of changed CPUs might have changed as well
+        for (int cpu : online) {
+            if (cpu < m_maxCpus) {
+                m_threadSiblings[cpu] = readList(SYS_CPU + "cpu" + cpu + "/topology/thread_siblings_list", cpu);
+            }
+        }
+
+        m_onlineCpus = online;
+        m_version++;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "online cpus" + p_delim + "packages" + p_delim + "physical cores" + p_delim + "topology version";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_onlineCpus.length) + p_delim + getPackageCount() + p_delim +
+                getPhysicalCoreCount() + p_delim + m_version;
+    }
+
+    /**
+     * Get the first online CPU of a list
+     *
+     * @param p_cpus Sorted CPU ids
+     * @return CPU id or -1 if none is online
+     */
+    public int getFirstOnline(final int[] p_cpus) {
+        for (int cpu : p_cpus) {
+            if (isOnline(cpu)) {
+                return cpu;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the topology and caches of a CPU which came online
+     *
+     * @param p_cpu Id of the CPU
+     */
+    private void readTopology(final int p_cpu) {
+        String path = SYS_CPU + "cpu" + p_cpu + '/';
+
+        // the topology directory might be missing on some architectures/VMs: treat each CPU as own core
+        m_packageIds[p_cpu] = Math.max(0, readInt(path + "topology/physical_package_id", 0));
+        m_dieIds[p_cpu] = readInt(path + "topology/die_id", -1);
+        m_coreIds[p_cpu] = readInt(path + "topology/core_id", p_cpu);
+
+        File[] indices = new File(path + "cache").listFiles((p_dir, p_name) -> p_name.startsWith("index"));
+
+        if (indices == null) {
+            m_caches[p_cpu] = new Cache[0];
+            return;
+        }
+
+        Arrays.sort(indices);
+        Cache[] caches = new Cache[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            String index = indices[i].getPath() + '/';
+
+            caches[i] = new Cache(readInt(index + "level", 0), readString(index + "type"),
+                    parseSize(readString(index + "size")), readInt(index + "coherency_line_size", 0),
+                    readList(index + "shared_cpu_list", p_cpu));
+        }
+
+        m_caches[p_cpu] = caches;
+    }
+
+    /**
+     * Parse a cache size, e.g. 48K or 2M
+     *
+     * @param p_size Size string
+     * @return Size in KB or 0 if invalid
+     */
+    private static long parseSize(final String p_size) {
+        if (p_size.isEmpty()) {
+            return 0;
+        }
+
+        char unit = p_size.charAt(p_size.length() - 1);
+        long multiplier = unit == 'M' ? 1024 : unit == 'G' ? 1024 * 1024 : 1;
+        String digits = Character.isDigit(unit) ? p_size : p_size.substring(0, p_size.length() - 1);
+
+        try {
+            return Long.parseLong(digits) * multiplier;
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Read an int from a sysfs file
+     *
+     * @param p_path Path of the file
+     * @param p_default Value if the file can't be read
+     */
+    private static int readInt(final String p_path, final int p_default) {
+        try {
+            return Integer.parseInt(readString(p_path));
+        } catch (NumberFormatException ignored) {
+            return p_default;
+        }
+    }
+
+    /**
+     * Read a CPU list from a sysfs file
+     *
+     * @param p_path Path of the file
+     * @param p_cpu CPU to return as the only element if the file can't be read
+     */
+    private static int[] readList(final String p_path, final int p_cpu) {
+        try {
+            return CpuList.read(p_path);
+        } catch (IOException | NumberFormatException ignored) {
+            return new int[] {p_cpu};
+        }
+    }
+
+    /**
+     * Read a trimmed string from a sysfs file
+     *
+     * @param p_path Path of the file
+     * @return Contents or empty string if the file can't be read
+     */
+    private static String readString(final String p_path) {
+        try {
+            return ProcSysFileReader.readCompleteFileOnce(p_path).trim();
+        } catch (IOException ignored) {
+            return "";
+        }
+    }
+
+    /**
+     * Compare two byte arrays
+     *
+     * @param p_a First array
+     * @param p_b Second array
+     * @param p_length Number of bytes to compare (both arrays must be at least this long)
+     */
+    private static boolean equals(final byte[] p_a, final byte[] p_b, final int p_length) {
+        for (int i = 0; i < p_length; i++) {
+            if (p_a[i] != p_b[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
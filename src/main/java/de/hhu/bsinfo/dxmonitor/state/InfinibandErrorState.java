@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.CounterExtension;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+
+/**
+ * Error and congestion counters of an Infiniband device (all ports). This includes the error counters of the
+ * PMA (ports/N/counters) and the vendor specific hw_counters (ports/N/hw_counters).
+ *
+ * The PMA error counters are only 4 to 32 bits wide and saturate, the hw_counters are 32 bit and wrap around.
+ * This state extends all of them to 64 bit values by accumulating the deltas between updates. Thus, the values
+ * returned are counted from the first update and not the raw values of the device.
+ */
+public class InfinibandErrorState implements State {
+    public static final int SYMBOL_ERROR = 0;
+    public static final int LINK_ERROR_RECOVERY = 1;
+    public static final int LINK_DOWNED = 2;
+    public static final int PORT_RCV_ERRORS = 3;
+    public static final int PORT_RCV_REMOTE_PHYSICAL_ERRORS = 4;
+    public static final int PORT_XMIT_DISCARDS = 5;
+    public static final int LOCAL_LINK_INTEGRITY_ERRORS = 6;
+    public static final int EXCESSIVE_BUFFER_OVERRUN_ERRORS = 7;
+    public static final int PORT_XMIT_WAIT = 8;
+    public static final int OUT_OF_SEQUENCE = 9;
+    public static final int PACKET_SEQ_ERR = 10;
+    public static final int RNR_NAK_RETRY_ERR = 11;
+    public static final int LOCAL_ACK_TIMEOUT_ERR = 12;
+
+    public static final int COUNTER_COUNT = 13;
+
+    // name of the counter file, sub directory, width in bits and true if the counter saturates (IB spec PortCounters)
+    private static final String[] COUNTER_NAMES = {"symbol_error", "link_error_recovery", "link_downed",
+            "port_rcv_errors", "port_rcv_remote_physical_errors", "port_xmit_discards", "local_link_integrity_errors",
+            "excessive_buffer_overrun_errors", "port_xmit_wait", "out_of_sequence", "packet_seq_err",
+            "rnr_nak_retry_err", "local_ack_timeout_err"};
+    private static final String[] COUNTER_DIRS = {"counters", "counters", "counters", "counters", "counters",
+            "counters", "counters", "counters", "counters", "hw_counters", "hw_counters", "hw_counters",
+            "hw_counters"};
+    private static final int[] COUNTER_BITS = {16, 8, 8, 16, 16, 16, 4, 4, 32, 32, 32, 32, 32};
+    private static final boolean[] COUNTER_SATURATING = {true, true, true, true, true, true, true, true, true, false,
+            false, false, false};
+
+    private final String m_deviceIdentifier;
+    private final int[] m_portNumbers;
+
+    private final ProcSysFileReader[][] m_readers;
+
+    private final long[][] m_raw;
+    private final long[][] m_extended;
+    private final boolean[][] m_saturated;
+    private boolean m_first;
+
+    /**
+     * Constructor
+     *
+     * @param p_deviceIdentifier Name of the ib device (e.g. mlx5_0)
+     */
+    public InfinibandErrorState(final String p_deviceIdentifier) {
+        m_deviceIdentifier = p_deviceIdentifier;
+        m_portNumbers = InfinibandState.readPortNumbers(p_deviceIdentifier);
+
+        m_readers = new ProcSysFileReader[m_portNumbers.length][COUNTER_COUNT];
+        m_raw = new long[m_portNumbers.length][COUNTER_COUNT];
+        m_extended = new long[m_portNumbers.length][COUNTER_COUNT];
+        m_saturated = new boolean[m_portNumbers.length][COUNTER_COUNT];
+        m_first = true;
+
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            String portPath = InfinibandState.getPortPath(p_deviceIdentifier, m_portNumbers[i]);
+
+            // hw_counters depend on the vendor/driver, missing ones stay 0
+            for (int j = 0; j < COUNTER_COUNT; j++) {
+                m_readers[i][j] = InfinibandState.openReader(portPath + COUNTER_DIRS[j] + '/' + COUNTER_NAMES[j]);
+            }
+        }
+    }
+
+    /**
+     * Get the name of a counter
+     *
+     * @param p_counter Counter id (e.g. SYMBOL_ERROR)
+     * @return Name of the counter file
+     */
+    public static String getCounterName(final int p_counter) {
+        return COUNTER_NAMES[p_counter];
+    }
+
+    /**
+     * Get the name of the ib device (e.g. mlx5_0)
+     */
+    public String getDeviceIdentifier() {
+        return m_deviceIdentifier;
+    }
+
+    /**
+     * Get the number of ports of the device
+     */
+    public int getPortCount() {
+        return m_portNumbers.length;
+    }
+
+    /**
+     * Get the port number (as used by the ib stack, starting at 1) of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public int getPortNumber(final int p_portIdx) {
+        return m_portNumbers[p_portIdx];
+    }
+
+    /**
+     * Check if a counter is provided by the device
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. SYMBOL_ERROR)
+     */
+    public boolean isAvailable(final int p_portIdx, final int p_counter) {
+        return m_readers[p_portIdx][p_counter] != null;
+    }
+
+    /**
+     * Get the 64 bit extended value of a counter (counted since the first update)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. SYMBOL_ERROR)
+     */
+    public long getCounter(final int p_portIdx, final int p_counter) {
+        return m_extended[p_portIdx][p_counter];
+    }
+
+    /**
+     * Get the raw value of a counter as read from the device
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. SYMBOL_ERROR)
+     */
+    public long getRawCounter(final int p_portIdx, final int p_counter) {
+        return m_raw[p_portIdx][p_counter];
+    }
+
+    /**
+     * Check if a saturating counter reached its max value. Further events are not counted until the counter
+     * is reset (e.g. perfquery -R), i.e. the values of this state are a lower bound.
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     * @param p_counter Counter id (e.g. SYMBOL_ERROR)
+     */
+    public boolean isSaturated(final int p_portIdx, final int p_counter) {
+        return m_saturated[p_portIdx][p_counter];
+    }
+
+    /**
+     * Check if any counter of a port is saturated
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public boolean isAnySaturated(final int p_portIdx) {
+        for (boolean saturated : m_saturated[p_portIdx]) {
+            if (saturated) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_deviceIdentifier);
+        builder.append(':');
+
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            builder.append("\nport ").append(m_portNumbers[i]).append(':');
+
+            for (int j = 0; j < COUNTER_COUNT; j++) {
+                if (j > 0) {
+                    builder.append(',');
+                }
+
+                builder.append(' ').append(COUNTER_NAMES[j]).append(' ').append(m_extended[i][j]);
+
+                if (m_saturated[i][j]) {
+                    builder.append(" (saturated)");
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            for (int j = 0; j < COUNTER_COUNT; j++) {
+                if (m_readers[i][j] == null) {
+                    continue;
+                }
+
+                long value;
+
+                try {
+                    value = m_readers[i][j].readLong();
+                } catch (IOException e) {
+                    throw new StateUpdateException("Can't read counter " + COUNTER_NAMES[j] + " of port " +
+                            m_portNumbers[i] + " of ib device " + m_deviceIdentifier + ": " + e.getMessage());
+                }
+
+                long maxValue = CounterExtension.getMaxValue(COUNTER_BITS[j]);
+
+                if (!m_first) {
+                    if (COUNTER_SATURATING[j]) {
+                        m_extended[i][j] += CounterExtension.deltaSaturating(value, m_raw[i][j]);
+                    } else {
+                        m_extended[i][j] += CounterExtension.deltaWrapping(value, m_raw[i][j], maxValue);
+                    }
+                }
+
+                m_raw[i][j] = value;
+                m_saturated[i][j] = COUNTER_SATURATING[j] && CounterExtension.isSaturated(value, maxValue);
+            }
+        }
+
+        m_first = false;
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("device");
+
+        for (int portNumber : m_portNumbers) {
+            for (int j = 0; j < COUNTER_COUNT; j++) {
+                builder.append(p_delim).append("port ").append(portNumber).append(' ').append(COUNTER_NAMES[j]);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_deviceIdentifier);
+
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            for (int j = 0; j < COUNTER_COUNT; j++) {
+                builder.append(p_delim).append(m_extended[i][j]);
+            }
+        }
+
+        return builder.toString();
+    }
+}
@@ -1,70 +1,455 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
 package de.hhu.bsinfo.dxmonitor.state;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
 
 /**
- * State of Infiniband device
+ * State of Infiniband device (all ports)
  *
  * Helpful doc link for /sys/class/infiniband - https://www.kernel.org/doc/Documentation/ABI/stable/sysfs-class-infiniband
  */
-public class InfinibandState implements State{
+public class InfinibandState implements State {
     private static final String SYS_INFINIBAND = "/sys/class/infiniband";
 
-    private String m_deviceIdentifier;
+    // port state names as defined by the IB spec, indexed by the numeric value in the state file
+    private static final String[] PORT_STATES = {"NOP", "DOWN", "INIT", "ARMED", "ACTIVE", "ACTIVE_DEFER"};
+    private static final String[] PORT_PHYS_STATES = {"NOP", "Sleep", "Polling", "Disabled",
+            "PortConfigurationTraining", "LinkUp", "LinkErrorRecovery", "Phy Test"};
+    private static final String PORT_STATE_UNKNOWN = "UNKNOWN";
+
+    private static final int PORT_STATE_ACTIVE = 4;
+
+    // counters read from ports/<n>/counters
+    private static final String[] COUNTER_FILES = {"port_xmit_data", "port_rcv_data", "port_xmit_packets",
+            "port_rcv_packets", "port_rcv_errors", "port_xmit_discards"};
+
+    private static final int COUNTER_XMIT_DATA = 0;
+    private static final int COUNTER_RCV_DATA = 1;
+    private static final int COUNTER_XMIT_PACKETS = 2;
+    private static final int COUNTER_RCV_PACKETS = 3;
+    private static final int COUNTER_RCV_ERRORS = 4;
+    private static final int COUNTER_XMIT_DISCARDS = 5;
+
+    // port_xmit_data and port_rcv_data count octets divided by 4
+    private static final int DATA_WORD_SIZE = 4;
+
+    private static final int READER_BUFFER_SIZE = 64;
 
-    private int m_portCnt;
-    // todo check everything with file content in /sys/class/infiniband
-    private long m_rate;
+    private final String m_deviceIdentifier;
+    private final int[] m_portNumbers;
 
-    private long[] m_lids;
-    private String[] m_states;
-    private String[] m_physStates;
+    private final ProcSysFileReader[] m_stateReaders;
+    private final ProcSysFileReader[] m_physStateReaders;
+    private final ProcSysFileReader[] m_lidReaders;
+    private final ProcSysFileReader[] m_rateReaders;
+    private final ProcSysFileReader[][] m_counterReaders;
+    private final ProcSysTokenizer m_tokenizer;
 
-    private long[] m_rcvErrors;
-    private long[] m_rcvBytes;
+    private final int[] m_stateCodes;
+    private final int[] m_physStateCodes;
+    private final long[] m_lids;
+    private final String[] m_states;
+    private final String[] m_physStates;
+    private final double[] m_rates;
+    private final long[][] m_counters;
 
+    /**
+     * Constructor
+     *
+     * @param p_deviceIdentifier Name of the ib device (e.g. mlx4_0)
+     */
     public InfinibandState(final String p_deviceIdentifier) {
         m_deviceIdentifier = p_deviceIdentifier;
-        m_portCnt = readPortCount();
+        m_portNumbers = readPortNumbers(p_deviceIdentifier);
+
+        int ports = m_portNumbers.length;
+
+        m_stateReaders = new ProcSysFileReader[ports];
+        m_physStateReaders = new ProcSysFileReader[ports];
+        m_lidReaders = new ProcSysFileReader[ports];
+        m_rateReaders = new ProcSysFileReader[ports];
+        m_counterReaders = new ProcSysFileReader[ports][COUNTER_FILES.length];
+        m_tokenizer = new ProcSysTokenizer();
+
+        m_stateCodes = new int[ports];
+        m_physStateCodes = new int[ports];
+        m_lids = new long[ports];
+        m_states = new String[ports];
+        m_physStates = new String[ports];
+        m_rates = new double[ports];
+        m_counters = new long[ports][COUNTER_FILES.length];
+
+        for (int i = 0; i < ports; i++) {
+            String portPath = getPortPath(p_deviceIdentifier, m_portNumbers[i]);
+
+            m_stateReaders[i] = openReader(portPath + "state");
+            m_physStateReaders[i] = openReader(portPath + "phys_state");
+            m_lidReaders[i] = openReader(portPath + "lid");
+            m_rateReaders[i] = openReader(portPath + "rate");
+
+            // not all counters are available on all devices (e.g. RoCE), missing ones stay 0
+            for (int j = 0; j < COUNTER_FILES.length; j++) {
+                m_counterReaders[i][j] = openReader(portPath + "counters/" + COUNTER_FILES[j]);
+            }
+
+            m_states[i] = PORT_STATE_UNKNOWN;
+            m_physStates[i] = PORT_STATE_UNKNOWN;
+        }
     }
 
-    @Override
-    public void update() throws StateUpdateException {
-        // TODO implement
+    /**
+     * Get the path of a port's sysfs directory (including trailing slash)
+     *
+     * @param p_deviceIdentifier Name of the ib device
+     * @param p_portNumber Number of the port (starting at 1)
+     * @return Path to the port directory
+     */
+    static String getPortPath(final String p_deviceIdentifier, final int p_portNumber) {
+        return SYS_INFINIBAND + '/' + p_deviceIdentifier + "/ports/" + p_portNumber + '/';
     }
 
-    @Override
-    public String generateCSVHeader(char p_delim) {
-        return null;
+    /**
+     * Open a reader for a small sysfs attribute file
+     *
+     * @param p_path Path of the file
+     * @return Reader or null if the file does not exist
+     */
+    static ProcSysFileReader openReader(final String p_path) {
+        try {
+            return new ProcSysFileReader(p_path, READER_BUFFER_SIZE);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
     }
 
-    @Override
-    public String toCSV(char p_delim) {
-        return null;
+    /**
+     * Get the name of the ib device (e.g. mlx4_0)
+     */
+    public String getDeviceIdentifier() {
+        return m_deviceIdentifier;
     }
 
+    /**
+     * Get the number of ports of the device
+     */
     public int getPortCount() {
-        return m_portCnt;
+        return m_portNumbers.length;
+    }
+
+    /**
+     * Get the port number (as used by the ib stack, starting at 1) of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public int getPortNumber(final int p_portIdx) {
+        return m_portNumbers[p_portIdx];
     }
 
+    /**
+     * Get the local identifiers of all ports
+     */
     public long[] getLids() {
         return m_lids;
     }
 
+    /**
+     * Get the logical states of all ports (e.g. ACTIVE)
+     */
     public String[] getStates() {
         return m_states;
     }
 
+    /**
+     * Get the physical states of all ports (e.g. LinkUp)
+     */
     public String[] getPhysStates() {
         return m_physStates;
     }
 
+    /**
+     * Get the local identifier of a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getLid(final int p_portIdx) {
+        return m_lids[p_portIdx];
+    }
+
+    /**
+     * Get the numeric logical state of a port (4 = ACTIVE)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public int getStateCode(final int p_portIdx) {
+        return m_stateCodes[p_portIdx];
+    }
+
+    /**
+     * Get the numeric physical state of a port (5 = LinkUp)
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public int getPhysStateCode(final int p_portIdx) {
+        return m_physStateCodes[p_portIdx];
+    }
+
+    /**
+     * Check if a port is in ACTIVE state, i.e. ready to transfer data
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public boolean isActive(final int p_portIdx) {
+        return m_stateCodes[p_portIdx] == PORT_STATE_ACTIVE;
+    }
+
+    /**
+     * Get the (currently negotiated) data rate of a port in gbits/sec
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public double getRateGbitsPerSec(final int p_portIdx) {
+        return m_rates[p_portIdx];
+    }
+
+    /**
+     * Get the (currently negotiated) data rate of a port in bytes/sec
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public double getRateBytesPerSec(final int p_portIdx) {
+        return m_rates[p_portIdx] * 1000 * 1000 * 1000 / 8;
+    }
+
+    /**
+     * Get the total number of data words (4 bytes each) transmitted on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getXmitDataWords(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_XMIT_DATA];
+    }
+
+    /**
+     * Get the total number of data words (4 bytes each) received on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getRcvDataWords(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_RCV_DATA];
+    }
+
+    /**
+     * Get the total number of bytes transmitted on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getXmitBytes(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_XMIT_DATA] * DATA_WORD_SIZE;
+    }
+
+    /**
+     * Get the total number of bytes received on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getRcvBytes(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_RCV_DATA] * DATA_WORD_SIZE;
+    }
+
+    /**
+     * Get the total number of packets transmitted on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getXmitPackets(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_XMIT_PACKETS];
+    }
+
+    /**
+     * Get the total number of packets received on a port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getRcvPackets(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_RCV_PACKETS];
+    }
+
+    /**
+     * Get the total number of received packets containing an error
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getRcvErrors(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_RCV_ERRORS];
+    }
+
+    /**
+     * Get the total number of outbound packets discarded by the port
+     *
+     * @param p_portIdx Index of the port [0, getPortCount())
+     */
+    public long getXmitDiscards(final int p_portIdx) {
+        return m_counters[p_portIdx][COUNTER_XMIT_DISCARDS];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_deviceIdentifier);
+        builder.append(':');
+
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            builder.append("\nport ").append(m_portNumbers[i]).append(": state ").append(m_states[i])
+                    .append(", phys state ").append(m_physStates[i]).append(", lid ").append(m_lids[i])
+                    .append(", rate ").append(m_rates[i]).append(" gbits/sec, xmit bytes ").append(getXmitBytes(i))
+                    .append(", rcv bytes ").append(getRcvBytes(i)).append(", xmit packets ")
+                    .append(getXmitPackets(i)).append(", rcv packets ").append(getRcvPackets(i))
+                    .append(", rcv errors ").append(getRcvErrors(i)).append(", xmit discards ")
+                    .append(getXmitDiscards(i));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            try {
+                if (m_stateReaders[i] != null) {
+                    // e.g. "4: ACTIVE"
+                    m_stateCodes[i] = (int) m_stateReaders[i].readLong();
+                    m_states[i] = getStateName(PORT_STATES, m_stateCodes[i]);
+                }
+
+                if (m_physStateReaders[i] != null) {
+                    // e.g. "5: LinkUp"
+                    m_physStateCodes[i] = (int) m_physStateReaders[i].readLong();
+                    m_physStates[i] = getStateName(PORT_PHYS_STATES, m_physStateCodes[i]);
+                }
+
+                if (m_lidReaders[i] != null) {
+                    // e.g. "0x1"
+                    m_tokenizer.reset(m_lidReaders[i]);
+                    m_lids[i] = m_tokenizer.nextHexLong();
+                }
+
+                if (m_rateReaders[i] != null) {
+                    // e.g. "56 Gb/sec (4X FDR)" or "2.5 Gb/sec (1X SDR)"
+                    m_tokenizer.reset(m_rateReaders[i]);
+                    m_rates[i] = m_tokenizer.nextDouble();
+                }
+
+                for (int j = 0; j < COUNTER_FILES.length; j++) {
+                    if (m_counterReaders[i][j] != null) {
+                        m_counters[i][j] = m_counterReaders[i][j].readLong();
+                    }
+                }
+            } catch (IOException e) {
+                throw new StateUpdateException("Can't read state of port " + m_portNumbers[i] + " of ib device " +
+                        m_deviceIdentifier + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("device");
+
+        for (int portNumber : m_portNumbers) {
+            String prefix = "port " + portNumber + ' ';
+
+            builder.append(p_delim).append(prefix).append("state").append(p_delim).append(prefix)
+                    .append("phys state").append(p_delim).append(prefix).append("lid").append(p_delim).append(prefix)
+                    .append("rate gbits/sec").append(p_delim).append(prefix).append("xmit bytes").append(p_delim)
+                    .append(prefix).append("rcv bytes").append(p_delim).append(prefix).append("xmit packets")
+                    .append(p_delim).append(prefix).append("rcv packets").append(p_delim).append(prefix)
+                    .append("rcv errors").append(p_delim).append(prefix).append("xmit discards");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_deviceIdentifier);
+
+        for (int i = 0; i < m_portNumbers.length; i++) {
+            builder.append(p_delim).append(m_states[i]).append(p_delim).append(m_physStates[i]).append(p_delim)
+                    .append(m_lids[i]).append(p_delim).append(m_rates[i]).append(p_delim).append(getXmitBytes(i))
+                    .append(p_delim).append(getRcvBytes(i)).append(p_delim).append(getXmitPackets(i))
+                    .append(p_delim).append(getRcvPackets(i)).append(p_delim).append(getRcvErrors(i))
+                    .append(p_delim).append(getXmitDiscards(i));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Map a numeric state to its name
+     *
+     * @param p_names Names indexed by state code
+     * @param p_code State code read
+     * @return Name of the state
+     */
+    private static String getStateName(final String[] p_names, final int p_code) {
+        if (p_code < 0 || p_code >= p_names.length) {
+            return PORT_STATE_UNKNOWN;
+        }
+
+        return p_names[p_code];
+    }
+
+    /**
+     * Get the (sorted) port numbers of an ib device from /sys/class/infiniband/DEV/ports
+     *
+     * @param p_deviceIdentifier Name of the ib device
+     * @return Array with port numbers
+     */
+    static int[] readPortNumbers(final String p_deviceIdentifier) {
+        File[] ports = new File(SYS_INFINIBAND + '/' + p_deviceIdentifier + "/ports").listFiles();
+
+        if (ports == null) {
+            throw new IllegalStateException("Can't find ports of ib device " + p_deviceIdentifier);
+        }
 
+        int[] portNumbers = new int[ports.length];
+        int count = 0;
 
+        for (File port : ports) {
+            try {
+                portNumbers[count] = Integer.parseInt(port.getName());
+                count++;
+            } catch (NumberFormatException ignore) {
 
+            }
+        }
 
+        portNumbers = Arrays.copyOf(portNumbers, count);
+        Arrays.sort(portNumbers);
 
-    private int readPortCount() {
-        return (new File(SYS_INFINIBAND + "/" + m_deviceIdentifier + "ports/")).listFiles().length; // TODO unsafe - check for nullpointer
+        return portNumbers;
     }
 }
@@ -0,0 +1,647 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.StringTokenizer;
+
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of the interrupts handled per CPU read from /proc/interrupts. Interrupts of NICs, NVMe devices
+ * and InfiniBand HCAs are mapped to their devices. The layout of the file is resolved once and only
+ * resolved again if interrupts are added or removed (e.g. driver loaded), regular updates don't allocate memory.
+ */
+public class InterruptState implements State {
+    private static final String PROC_INTERRUPTS = "/proc/interrupts";
+    private static final String PROC_IRQ = "/proc/irq/";
+    private static final String[] SYS_DEVICE_CLASSES = {"/sys/class/net", "/sys/class/infiniband",
+            "/sys/class/nvme", "/sys/class/block"};
+    // max levels to walk up from a class device to the pci device with the msi_irqs directory
+    private static final int MAX_PARENT_LEVELS = 3;
+
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private int m_layoutVersion;
+
+    private int[] m_cpuIds;
+
+    // per line of the file (without header)
+    private String[] m_labels;
+    private byte[][] m_labelTokens;
+    private String[] m_names;
+    private int[] m_irqNumbers;
+    private int[] m_columns;
+    private int[] m_irqDevices;
+    private int[][] m_affinities;
+    private long[][] m_counts;
+
+    private String[] m_devices;
+    private int[][] m_deviceIrqs;
+
+    /**
+     * Constructor
+     */
+    public InterruptState() {
+        try {
+            m_reader = new ProcSysFileReader(PROC_INTERRUPTS);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        try {
+            resolveLayout();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the version of the layout. The version changes if interrupts were added or removed, i.e. indices
+     * of interrupts and devices of states with different versions can't be compared.
+     */
+    public int getLayoutVersion() {
+        return m_layoutVersion;
+    }
+
+    /**
+     * Check if another state has the same layout, i.e. indices of interrupts and devices can be compared
+     *
+     * @param p_other Other state
+     */
+    public boolean hasSameLayout(final InterruptState p_other) {
+        return Arrays.equals(m_labels, p_other.m_labels) && Arrays.equals(m_cpuIds, p_other.m_cpuIds);
+    }
+
+    /**
+     * Get the number of CPUs
+     */
+    public int getCpuCount() {
+        return m_cpuIds.length;
+    }
+
+    /**
+     * Get the id of a CPU (as in cpuN)
+     *
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     */
+    public int getCpuId(final int p_cpuIdx) {
+        return m_cpuIds[p_cpuIdx];
+    }
+
+    /**
+     * Get the number of interrupts (lines of the file, including architecture specific ones like LOC or NMI)
+     */
+    public int getIrqCount() {
+        return m_labels.length;
+    }
+
+    /**
+     * Get the label of an interrupt, e.g. "42" or "LOC"
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     */
+    public String getLabel(final int p_irqIdx) {
+        return m_labels[p_irqIdx];
+    }
+
+    /**
+     * Get the name of an interrupt, i.e. the action (e.g. "eth0-TxRx-3", "nvme0q1") or the description
+     * for architecture specific interrupts (e.g. "Local timer interrupts")
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     */
+    public String getName(final int p_irqIdx) {
+        return m_names[p_irqIdx];
+    }
+
+    /**
+     * Get the number of an interrupt
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     * @return Interrupt number or -1 if it is an architecture specific interrupt (e.g. LOC)
+     */
+    public int getIrqNumber(final int p_irqIdx) {
+        return m_irqNumbers[p_irqIdx];
+    }
+
+    /**
+     * Get the total number of an interrupt handled by a CPU
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     * @return Count (0 for interrupts which are not counted per CPU, e.g. ERR)
+     */
+    public long getCount(final int p_irqIdx, final int p_cpuIdx) {
+        return m_counts[p_irqIdx][p_cpuIdx];
+    }
+
+    /**
+     * Get the total number of an interrupt handled by all CPUs
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     */
+    public long getTotalCount(final int p_irqIdx) {
+        long sum = 0;
+
+        for (long count : m_counts[p_irqIdx]) {
+            sum += count;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Get the CPUs an interrupt is delivered to (effective affinity)
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     * @return Sorted CPU ids, empty if not available (e.g. architecture specific interrupts)
+     */
+    public int[] getAffinity(final int p_irqIdx) {
+        return m_affinities[p_irqIdx];
+    }
+
+    /**
+     * Get the number of devices (NICs, NVMe devices, HCAs...) with interrupts
+     */
+    public int getDeviceCount() {
+        return m_devices.length;
+    }
+
+    /**
+     * Get the name of a device, e.g. eth0, nvme0 or mlx5_0
+     *
+     * @param p_deviceIdx Index of the device [0, getDeviceCount())
+     */
+    public String getDeviceName(final int p_deviceIdx) {
+        return m_devices[p_deviceIdx];
+    }
+
+    /**
+     * Get the index of a device by name
+     *
+     * @param p_name Name of the device, e.g. eth0
+     * @return Index of the device or -1 if the device has no interrupts
+     */
+    public int getDeviceIndex(final String p_name) {
+        for (int i = 0; i < m_devices.length; i++) {
+            if (m_devices[i].equals(p_name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the device of an interrupt
+     *
+     * @param p_irqIdx Index of the interrupt [0, getIrqCount())
+     * @return Index of the device or -1 if the interrupt does not belong to a known device
+     */
+    public int getIrqDevice(final int p_irqIdx) {
+        return m_irqDevices[p_irqIdx];
+    }
+
+    /**
+     * Get the (queue) interrupts of a device
+     *
+     * @param p_deviceIdx Index of the device [0, getDeviceCount())
+     * @return Indices of the interrupts
+     */
+    public int[] getDeviceIrqs(final int p_deviceIdx) {
+        return m_deviceIrqs[p_deviceIdx];
+    }
+
+    /**
+     * Get the number of distinct CPUs the interrupts of a device are delivered to
+     *
+     * @param p_deviceIdx Index of the device [0, getDeviceCount())
+     */
+    public int getDeviceAffinityCpuCount(final int p_deviceIdx) {
+        boolean[] cpus = new boolean[m_cpuIds.length == 0 ? 0 : m_cpuIds[m_cpuIds.length - 1] + 1];
+        int count = 0;
+
+        for (int irq : m_deviceIrqs[p_deviceIdx]) {
+            for (int cpu : m_affinities[irq]) {
+                if (cpu < cpus.length && !cpus[cpu]) {
+                    cpus[cpu] = true;
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Check if the affinity of the interrupts of a device is skewed, i.e. multiple queue interrupts are
+     * delivered to the same CPU although there are CPUs left to spread them
+     *
+     * @param p_deviceIdx Index of the device [0, getDeviceCount())
+     */
+    public boolean isAffinitySkewed(final int p_deviceIdx) {
+        int expected = Math.min(m_deviceIrqs[p_deviceIdx].length, m_cpuIds.length);
+
+        return getDeviceAffinityCpuCount(p_deviceIdx) < expected;
+    }
+
+    /**
+     * Read the affinities of all interrupts again (e.g. after irqbalance moved interrupts). This is not
+     * done on update because it requires reading a file per interrupt.
+     */
+    public void updateAffinities() {
+        for (int i = 0; i < m_labels.length; i++) {
+            m_affinities[i] = readAffinity(m_labels[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_labels.length; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(m_labels[i]).append(':');
+
+            for (long count : m_counts[i]) {
+                builder.append(' ').append(count);
+            }
+
+            builder.append(' ').append(m_names[i]);
+
+            if (m_irqDevices[i] != -1) {
+                builder.append(" [").append(m_devices[m_irqDevices[i]]).append(']');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+
+            if (!parse()) {
+                // interrupts were added or removed
+                resolveLayout();
+
+                if (!parse()) {
+                    throw new StateUpdateException("Unexpected format of file " + PROC_INTERRUPTS);
+                }
+            }
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_INTERRUPTS + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_labels.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append("irq ").append(m_labels[i]).append(" total");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_labels.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(getTotalCount(i));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Parse the counters of the file using the current layout. The tokenizer must be reset before.
+     *
+     * @return True if successful, false if the layout does not match the file
+     */
+    private boolean parse() {
+        // header
+        m_tokenizer.nextLine();
+
+        for (int i = 0; i < m_labelTokens.length; i++) {
+            if (!m_tokenizer.nextTokenEquals(m_labelTokens[i])) {
+                return false;
+            }
+
+            long[] counts = m_counts[i];
+
+            for (int j = 0; j < m_columns[i]; j++) {
+                counts[j] = m_tokenizer.nextLong();
+            }
+
+            m_tokenizer.nextLine();
+        }
+
+        // additional lines
+        return !m_tokenizer.hasRemaining();
+    }
+
+    /**
+     * Resolve the layout of the file: CPUs, interrupts and devices
+     *
+     * @throws IOException If reading the file failed
+     */
+    private void resolveLayout() throws IOException {
+        String[] lines = ProcSysFileReader.readCompleteFileOnce(PROC_INTERRUPTS).split("\n");
+
+        // header, e.g. "CPU0 CPU1 CPU2"
+        StringTokenizer tokenizer = new StringTokenizer(lines[0], " ");
+        int[] cpuIds = new int[tokenizer.countTokens()];
+
+        for (int i = 0; i < cpuIds.length; i++) {
+            cpuIds[i] = Integer.parseInt(tokenizer.nextToken().substring("CPU".length()));
+        }
+
+        ArrayList<String> labels = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Integer> columns = new ArrayList<>();
+
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i].trim();
+            int index = line.indexOf(':');
+
+            if (index == -1) {
+                continue;
+            }
+
+            String label = line.substring(0, index);
+            String[] tokens = line.substring(index + 1).trim().split("\\s+");
+
+            int numbers = 0;
+
+            while (numbers < tokens.length && numbers < cpuIds.length && isNumber(tokens[numbers])) {
+                numbers++;
+            }
+
+            labels.add(label);
+            columns.add(numbers);
+            names.add(getName(label, tokens, numbers));
+        }
+
+        m_cpuIds = cpuIds;
+        m_labels = labels.toArray(new String[0]);
+        m_labelTokens = new byte[m_labels.length][];
+        m_names = names.toArray(new String[0]);
+        m_columns = new int[m_labels.length];
+        m_irqNumbers = new int[m_labels.length];
+        m_counts = new long[m_labels.length][cpuIds.length];
+        m_affinities = new int[m_labels.length][];
+
+        for (int i = 0; i < m_labels.length; i++) {
+            m_labelTokens[i] = (m_labels[i] + ':').getBytes(StandardCharsets.US_ASCII);
+            m_columns[i] = columns.get(i);
+            m_irqNumbers[i] = isNumber(m_labels[i]) ? Integer.parseInt(m_labels[i]) : -1;
+        }
+
+        updateAffinities();
+        resolveDevices();
+
+        m_layoutVersion++;
+    }
+
+    /**
+     * Map the interrupts to devices. The interrupts of a (pci) device are listed in its msi_irqs directory.
+     * Interrupts not listed there are assigned if the name starts with the device name (e.g. eth0-TxRx-0).
+     */
+    private void resolveDevices() {
+        HashMap<Integer, String> irqToDevice = new HashMap<>();
+        ArrayList<String> deviceNames = new ArrayList<>();
+
+        for (String cls : SYS_DEVICE_CLASSES) {
+            File[] entries = new File(cls).listFiles();
+
+            if (entries == null) {
+                continue;
+            }
+
+            for (File entry : entries) {
+                File msiIrqs = getMsiIrqsDirectory(entry);
+                String[] irqs = msiIrqs == null ? null : msiIrqs.list();
+
+                deviceNames.add(entry.getName());
+
+                if (irqs == null) {
+                    continue;
+                }
+
+                for (String irq : irqs) {
+                    if (isNumber(irq)) {
+                        irqToDevice.putIfAbsent(Integer.parseInt(irq), entry.getName());
+                    }
+                }
+            }
+        }
+
+        ArrayList<String> devices = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> deviceIrqs = new ArrayList<>();
+        m_irqDevices = new int[m_labels.length];
+
+        for (int i = 0; i < m_labels.length; i++) {
+            String device = null;
+
+            if (m_irqNumbers[i] != -1) {
+                device = irqToDevice.get(m_irqNumbers[i]);
+
+                if (device == null) {
+                    device = getDeviceByName(m_names[i], deviceNames);
+                }
+            }
+
+            if (device == null) {
+                m_irqDevices[i] = -1;
+                continue;
+            }
+
+            int index = devices.indexOf(device);
+
+            if (index == -1) {
+                index = devices.size();
+                devices.add(device);
+                deviceIrqs.add(new ArrayList<>());
+            }
+
+            m_irqDevices[i] = index;
+            deviceIrqs.get(index).add(i);
+        }
+
+        m_devices = devices.toArray(new String[0]);
+        m_deviceIrqs = new int[m_devices.length][];
+
+        for (int i = 0; i < m_devices.length; i++) {
+            ArrayList<Integer> irqs = deviceIrqs.get(i);
+            m_deviceIrqs[i] = new int[irqs.size()];
+
+            for (int j = 0; j < irqs.size(); j++) {
+                m_deviceIrqs[i][j] = irqs.get(j);
+            }
+        }
+    }
+
+    /**
+     * Find the msi_irqs directory of the (pci) device of a class device
+     *
+     * @param p_classDevice Class device, e.g. /sys/class/net/eth0
+     * @return Directory or null if the device is virtual or not a msi capable device
+     */
+    private static File getMsiIrqsDirectory(final File p_classDevice) {
+        File device;
+
+        try {
+            device = new File(p_classDevice, "device").getCanonicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+
+        for (int i = 0; i < MAX_PARENT_LEVELS && device != null && device.exists(); i++) {
+            File msiIrqs = new File(device, "msi_irqs");
+
+            if (msiIrqs.isDirectory()) {
+                return msiIrqs;
+            }
+
+            device = device.getParentFile();
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the device of an interrupt by its name, e.g. eth0 for eth0-TxRx-0 or nvme0 for nvme0q1
+     *
+     * @param p_name Name of the interrupt
+     * @param p_deviceNames Known device names
+     * @return Name of the device with the longest matching prefix or null if none
+     */
+    private static String getDeviceByName(final String p_name, final ArrayList<String> p_deviceNames) {
+        String device = null;
+
+        for (String name : p_deviceNames) {
+            if (p_name.startsWith(name) && (device == null || name.length() > device.length())) {
+                device = name;
+            }
+        }
+
+        return device;
+    }
+
+    /**
+     * Get the name of an interrupt from the tokens of its line following the counters
+     *
+     * @param p_label Label of the interrupt
+     * @param p_tokens Tokens of the line without the label
+     * @param p_numbers Number of counter tokens
+     * @return Action name(s) for interrupt numbers, description for architecture specific interrupts
+     */
+    private static String getName(final String p_label, final String[] p_tokens, final int p_numbers) {
+        if (p_numbers >= p_tokens.length) {
+            return "";
+        }
+
+        int start = p_numbers;
+
+        if (isNumber(p_label)) {
+            // chip name and hw irq (and type) precede the actions, multiple actions are separated by ", "
+            start = p_tokens.length - 1;
+
+            while (start > p_numbers + 1 && p_tokens[start - 1].endsWith(",")) {
+                start--;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = start; i < p_tokens.length; i++) {
+            if (i > start) {
+                builder.append(' ');
+            }
+
+            builder.append(p_tokens[i]);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Read the effective affinity of an interrupt
+     *
+     * @param p_label Label of the interrupt
+     * @return Sorted CPU ids or empty array if not available
+     */
+    private static int[] readAffinity(final String p_label) {
+        if (!isNumber(p_label)) {
+            return new int[0];
+        }
+
+        try {
+            return CpuList.read(PROC_IRQ + p_label + "/effective_affinity_list");
+        } catch (IOException | NumberFormatException e) {
+            // effective affinity is not available on older kernels
+            try {
+                return CpuList.read(PROC_IRQ + p_label + "/smp_affinity_list");
+            } catch (IOException | NumberFormatException e2) {
+                return new int[0];
+            }
+        }
+    }
+
+    /**
+     * Check if a string is a (non negative) decimal number
+     *
+     * @param p_str String to check
+     */
+    private static boolean isNumber(final String p_str) {
+        if (p_str.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < p_str.length(); i++) {
+            if (p_str.charAt(i) < '0' || p_str.charAt(i) > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Off-heap buffer pools of the current JVM (direct and mapped byte buffers, on newer JVMs also mapped non-volatile
+ * memory) from the BufferPoolMXBeans of the platform. The values are sampled on update, so two states can be
+ * diffed. Memory allocated with Unsafe directly is not included (see NativeMemoryState).
+ */
+public class JVMBufferPoolState implements State {
+    public static final String POOL_DIRECT = "direct";
+    public static final String POOL_MAPPED = "mapped";
+
+    private final BufferPoolMXBean[] m_pools;
+
+    private final long[] m_counts;
+    private final long[] m_capacities;
+    private final long[] m_used;
+
+    private final int m_directIndex;
+    private final int m_mappedIndex;
+
+    /**
+     * Constructor
+     */
+    public JVMBufferPoolState() {
+        List<BufferPoolMXBean> pools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+
+        m_pools = pools.toArray(new BufferPoolMXBean[0]);
+
+        m_counts = new long[m_pools.length];
+        m_capacities = new long[m_pools.length];
+        m_used = new long[m_pools.length];
+
+        m_directIndex = getPoolIndex(POOL_DIRECT);
+        m_mappedIndex = getPoolIndex(POOL_MAPPED);
+    }
+
+    /**
+     * Get the number of buffer pools
+     */
+    public int getPoolCount() {
+        return m_pools.length;
+    }
+
+    /**
+     * Get the name of a buffer pool
+     *
+     * @param p_index Index of the pool
+     */
+    public String getPoolName(final int p_index) {
+        return m_pools[p_index].getName();
+    }
+
+    /**
+     * Get the index of a buffer pool
+     *
+     * @param p_name Name of the pool (e.g. JVMBufferPoolState.POOL_DIRECT)
+     * @return Index or -1 if the JVM does not provide the pool
+     */
+    public int getPoolIndex(final String p_name) {
+        for (int i = 0; i < m_pools.length; i++) {
+            if (m_pools[i].getName().equals(p_name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the number of buffers of a pool
+     *
+     * @param p_index Index of the pool
+     */
+    public long getCount(final int p_index) {
+        return m_counts[p_index];
+    }
+
+    /**
+     * Get the total capacity of the buffers of a pool (in bytes)
+     *
+     * @param p_index Index of the pool
+     */
+    public long getCapacity(final int p_index) {
+        return m_capacities[p_index];
+    }
+
+    /**
+     * Get the memory used by the JVM for the buffers of a pool, might differ from the capacity e.g. due to page
+     * alignment (in bytes)
+     *
+     * @param p_index Index of the pool
+     */
+    public long getUsed(final int p_index) {
+        return m_used[p_index];
+    }
+
+    /**
+     * Get the number of direct buffers
+     */
+    public long getDirectCount() {
+        return m_directIndex != -1 ? m_counts[m_directIndex] : 0;
+    }
+
+    /**
+     * Get the total capacity of the direct buffers (in bytes)
+     */
+    public long getDirectCapacity() {
+        return m_directIndex != -1 ? m_capacities[m_directIndex] : 0;
+    }
+
+    /**
+     * Get the memory used for direct buffers (in bytes)
+     */
+    public long getDirectUsed() {
+        return m_directIndex != -1 ? m_used[m_directIndex] : 0;
+    }
+
+    /**
+     * Get the number of mapped buffers
+     */
+    public long getMappedCount() {
+        return m_mappedIndex != -1 ? m_counts[m_mappedIndex] : 0;
+    }
+
+    /**
+     * Get the total capacity of the mapped buffers (in bytes)
+     */
+    public long getMappedCapacity() {
+        return m_mappedIndex != -1 ? m_capacities[m_mappedIndex] : 0;
+    }
+
+    /**
+     * Get the memory used for mapped buffers (in bytes)
+     */
+    public long getMappedUsed() {
+        return m_mappedIndex != -1 ? m_used[m_mappedIndex] : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_pools.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(m_pools[i].getName()).append(": count ").append(m_counts[i]).append(", capacity ")
+                    .append(m_capacities[i]).append(" bytes, used ").append(m_used[i]).append(" bytes");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_pools.length; i++) {
+            m_counts[i] = m_pools[i].getCount();
+            m_capacities[i] = m_pools[i].getTotalCapacity();
+            m_used[i] = m_pools[i].getMemoryUsed();
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_pools.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            String name = m_pools[i].getName();
+
+            builder.append(name).append(" count").append(p_delim).append(name).append(" capacity (bytes)")
+                    .append(p_delim).append(name).append(" used (bytes)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_pools.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_counts[i]).append(p_delim).append(m_capacities[i]).append(p_delim).append(m_used[i]);
+        }
+
+        return builder.toString();
+    }
+}
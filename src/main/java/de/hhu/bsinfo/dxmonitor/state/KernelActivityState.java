@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Kernel activity counters of /proc/stat following the cpu lines: context switches, interrupts, forks, softirqs
+ * and the number of running and blocked tasks. Also updated by CpuState from its read of /proc/stat, the file is
+ * only opened on the first update of a state used on its own.
+ */
+public class KernelActivityState implements State {
+    private static final String PROC_STAT = "/proc/stat";
+
+    private static final byte[] INTR = "intr".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CTXT = "ctxt".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PROCESSES = "processes".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PROCS_RUNNING = "procs_running".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PROCS_BLOCKED = "procs_blocked".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SOFTIRQ = "softirq".getBytes(StandardCharsets.US_ASCII);
+
+    private ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private long m_interrupts;
+    private long m_contextSwitches;
+    private long m_forks;
+    private long m_procsRunning;
+    private long m_procsBlocked;
+    private long m_softIrqs;
+
+    /**
+     * Constructor
+     */
+    public KernelActivityState() {
+        m_tokenizer = new ProcSysTokenizer();
+    }
+
+    /**
+     * Get the number of interrupts serviced since boot (all interrupts, including unnumbered ones)
+     */
+    public long getInterrupts() {
+        return m_interrupts;
+    }
+
+    /**
+     * Get the number of context switches since boot
+     */
+    public long getContextSwitches() {
+        return m_contextSwitches;
+    }
+
+    /**
+     * Get the number of forks (processes and threads created) since boot
+     */
+    public long getForks() {
+        return m_forks;
+    }
+
+    /**
+     * Get the number of tasks currently running or runnable
+     */
+    public long getProcsRunning() {
+        return m_procsRunning;
+    }
+
+    /**
+     * Get the number of tasks currently blocked waiting for io
+     */
+    public long getProcsBlocked() {
+        return m_procsBlocked;
+    }
+
+    /**
+     * Get the number of softirqs serviced since boot
+     */
+    public long getSoftIrqs() {
+        return m_softIrqs;
+    }
+
+    @Override
+    public String toString() {
+        return "intr " + m_interrupts + ", ctxt " + m_contextSwitches + ", processes " + m_forks +
+                ", procs_running " + m_procsRunning + ", procs_blocked " + m_procsBlocked + ", softirq " + m_softIrqs;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            if (m_reader == null) {
+                m_reader = new ProcSysFileReader(PROC_STAT);
+            }
+
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_STAT + ": " + e.getMessage());
+        }
+
+        parse(m_tokenizer);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "intr" + p_delim + "ctxt" + p_delim + "processes" + p_delim + "procs_running" + p_delim +
+                "procs_blocked" + p_delim + "softirq";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_interrupts) + p_delim + m_contextSwitches + p_delim + m_forks + p_delim +
+                m_procsRunning + p_delim + m_procsBlocked + p_delim + m_softIrqs;
+    }
+
+    /**
+     * Parse the counters from /proc/stat. The lines are searched in the order of the file starting at the
+     * current position, missing lines leave the value at 0.
+     *
+     * @param p_tokenizer Tokenizer with the contents of /proc/stat, e.g. positioned after the cpu lines
+     */
+    void parse(final ProcSysTokenizer p_tokenizer) {
+        // first value of intr and softirq is the total, followed by the counts of the single interrupts
+        m_interrupts = nextValue(p_tokenizer, INTR);
+        m_contextSwitches = nextValue(p_tokenizer, CTXT);
+        m_forks = nextValue(p_tokenizer, PROCESSES);
+        m_procsRunning = nextValue(p_tokenizer, PROCS_RUNNING);
+        m_procsBlocked = nextValue(p_tokenizer, PROCS_BLOCKED);
+        m_softIrqs = nextValue(p_tokenizer, SOFTIRQ);
+    }
+
+    /**
+     * Get the first value of a line
+     *
+     * @param p_tokenizer Tokenizer to search in, moved behind the line if found and left unchanged otherwise
+     * @param p_key Key of the line
+     * @return Value or 0 if the line does not exist
+     */
+    private static long nextValue(final ProcSysTokenizer p_tokenizer, final byte[] p_key) {
+        int start = p_tokenizer.getPosition();
+
+        while (p_tokenizer.hasRemaining()) {
+            if (p_tokenizer.nextTokenEquals(p_key)) {
+                long value = p_tokenizer.nextLong();
+
+                p_tokenizer.nextLine();
+
+                return value;
+            }
+
+            p_tokenizer.nextLine();
+        }
+
+        p_tokenizer.setPosition(start);
+
+        return 0;
+    }
+}
@@ -15,13 +15,16 @@ package de.hhu.bsinfo.dxmonitor.state;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.StringTokenizer;
 
 import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
 import de.hhu.bsinfo.dxutils.unit.StorageUnit;
 
 /**
- * State of the machine's memory managed by the operating system
+ * State of the machine's memory managed by the operating system. The lines of /proc/meminfo are mapped to
+ * fields by key once, updates read all fields without allocating memory. Values are in KB except for
+ * the HugePages_* fields which are page counts.
  *
  * @author Burak Akguel, burak.akguel@hhu.de, 23.11.2017
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
@@ -29,7 +32,48 @@ import de.hhu.bsinfo.dxutils.unit.StorageUnit;
 public class MemState implements State {
     private static String PROC_MEMINFO = "/proc/meminfo";
 
+    public static final int MEM_TOTAL = 0;
+    public static final int MEM_FREE = 1;
+    public static final int MEM_AVAILABLE = 2;
+    public static final int BUFFERS = 3;
+    public static final int CACHED = 4;
+    public static final int SWAP_CACHED = 5;
+    public static final int ACTIVE = 6;
+    public static final int INACTIVE = 7;
+    public static final int SWAP_TOTAL = 8;
+    public static final int SWAP_FREE = 9;
+    public static final int DIRTY = 10;
+    public static final int WRITEBACK = 11;
+    public static final int ANON_PAGES = 12;
+    public static final int MAPPED = 13;
+    public static final int SHMEM = 14;
+    public static final int SLAB = 15;
+    public static final int S_RECLAIMABLE = 16;
+    public static final int S_UNRECLAIM = 17;
+    public static final int KERNEL_STACK = 18;
+    public static final int PAGE_TABLES = 19;
+    public static final int COMMIT_LIMIT = 20;
+    public static final int COMMITTED_AS = 21;
+    public static final int ANON_HUGE_PAGES = 22;
+    public static final int HUGE_PAGES_TOTAL = 23;
+    public static final int HUGE_PAGES_FREE = 24;
+    public static final int HUGE_PAGES_RSVD = 25;
+    public static final int HUGE_PAGES_SURP = 26;
+    public static final int HUGE_PAGE_SIZE = 27;
+    public static final int HUGETLB = 28;
+
+    public static final int FIELD_COUNT = 29;
+
+    private static final String[] FIELD_KEYS = {"MemTotal", "MemFree", "MemAvailable", "Buffers", "Cached",
+            "SwapCached", "Active", "Inactive", "SwapTotal", "SwapFree", "Dirty", "Writeback", "AnonPages", "Mapped",
+            "Shmem", "Slab", "SReclaimable", "SUnreclaim", "KernelStack", "PageTables", "CommitLimit", "Committed_AS",
+            "AnonHugePages", "HugePages_Total", "HugePages_Free", "HugePages_Rsvd", "HugePages_Surp", "Hugepagesize",
+            "Hugetlb"};
+
     private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_table;
 
     private final long[] m_stats;
 
@@ -45,46 +89,218 @@ public class MemState implements State {
             throw new IllegalStateException(e);
         }
 
-        m_stats = new long[5];
+        m_tokenizer = new ProcSysTokenizer();
 
-        for (int i = 0; i < m_stats.length; i++) {
-            m_stats[i] = 0;
+        try {
+            m_table = new ProcSysKeyTable(PROC_MEMINFO, FIELD_KEYS, ':');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
+
+        m_stats = new long[FIELD_COUNT];
+    }
+
+    /**
+     * Get the key of a field in /proc/meminfo
+     *
+     * @param p_field Field (e.g. MemState.DIRTY)
+     */
+    public static String getFieldKey(final int p_field) {
+        return FIELD_KEYS[p_field];
+    }
+
+    /**
+     * Check if a field is provided by the kernel (e.g. MemAvailable is missing on kernels older than 3.14)
+     *
+     * @param p_field Field (e.g. MemState.DIRTY)
+     */
+    public boolean isAvailable(final int p_field) {
+        return m_table.isAvailable(p_field);
+    }
+
+    /**
+     * Get the value of a field
+     *
+     * @param p_field Field (e.g. MemState.DIRTY)
+     * @return Value in KB (number of pages for HugePages_*) or 0 if not available
+     */
+    public long getValue(final int p_field) {
+        return m_stats[p_field];
     }
 
     /**
      * Get the total memory available (in KB)
      */
     public long getTotalKB() {
-        return m_stats[0];
+        return m_stats[MEM_TOTAL];
     }
 
     /**
      * Get the amount of free memory (in KB)
      */
     public long getFreeKB() {
-        return m_stats[1];
+        return m_stats[MEM_FREE];
     }
 
     /**
      * Get the amount of available memory for an application without swapping (in KB)
      */
     public long getAvailableKB() {
-        return m_stats[2];
+        return m_stats[MEM_AVAILABLE];
     }
 
     /**
      * Get the amount of memory used as file buffer (in KB)
      */
     public long getBufferSizeKB() {
-        return m_stats[3];
+        return m_stats[BUFFERS];
     }
 
     /**
      * Get the amount of memory used for cache (in KB)
      */
     public long getCacheSizeKB() {
-        return m_stats[4];
+        return m_stats[CACHED];
+    }
+
+    /**
+     * Get the amount of memory waiting to be written back to disk (in KB)
+     */
+    public long getDirtyKB() {
+        return m_stats[DIRTY];
+    }
+
+    /**
+     * Get the amount of memory actively being written back to disk (in KB)
+     */
+    public long getWritebackKB() {
+        return m_stats[WRITEBACK];
+    }
+
+    /**
+     * Get the amount of anonymous (non file backed) memory mapped into page tables (in KB)
+     */
+    public long getAnonPagesKB() {
+        return m_stats[ANON_PAGES];
+    }
+
+    /**
+     * Get the amount of memory used by shared memory and tmpfs (in KB)
+     */
+    public long getShmemKB() {
+        return m_stats[SHMEM];
+    }
+
+    /**
+     * Get the amount of memory used by the kernel's slab allocator (in KB)
+     */
+    public long getSlabKB() {
+        return m_stats[SLAB];
+    }
+
+    /**
+     * Get the amount of slab memory that can be reclaimed, e.g. caches (in KB)
+     */
+    public long getSReclaimableKB() {
+        return m_stats[S_RECLAIMABLE];
+    }
+
+    /**
+     * Get the amount of slab memory that can't be reclaimed (in KB)
+     */
+    public long getSUnreclaimKB() {
+        return m_stats[S_UNRECLAIM];
+    }
+
+    /**
+     * Get the amount of memory that can be allocated with strict overcommit accounting (in KB)
+     */
+    public long getCommitLimitKB() {
+        return m_stats[COMMIT_LIMIT];
+    }
+
+    /**
+     * Get the amount of memory currently allocated (committed) by all processes (in KB)
+     */
+    public long getCommittedASKB() {
+        return m_stats[COMMITTED_AS];
+    }
+
+    /**
+     * Get the committed memory to commit limit ratio
+     */
+    public float getCommitRatio() {
+        return m_stats[COMMIT_LIMIT] == 0 ? 0 : (float) m_stats[COMMITTED_AS] / m_stats[COMMIT_LIMIT];
+    }
+
+    /**
+     * Get the amount of anonymous memory backed by transparent huge pages (in KB)
+     */
+    public long getAnonHugePagesKB() {
+        return m_stats[ANON_HUGE_PAGES];
+    }
+
+    /**
+     * Get the number of pages in the (static) huge page pool
+     */
+    public long getHugePagesTotal() {
+        return m_stats[HUGE_PAGES_TOTAL];
+    }
+
+    /**
+     * Get the number of free pages in the huge page pool
+     */
+    public long getHugePagesFree() {
+        return m_stats[HUGE_PAGES_FREE];
+    }
+
+    /**
+     * Get the number of huge pages reserved for an allocation but not yet faulted in
+     */
+    public long getHugePagesRsvd() {
+        return m_stats[HUGE_PAGES_RSVD];
+    }
+
+    /**
+     * Get the number of huge pages above the configured pool size (overcommitted)
+     */
+    public long getHugePagesSurp() {
+        return m_stats[HUGE_PAGES_SURP];
+    }
+
+    /**
+     * Get the number of used pages of the huge page pool
+     */
+    public long getHugePagesUsed() {
+        return m_stats[HUGE_PAGES_TOTAL] - m_stats[HUGE_PAGES_FREE];
+    }
+
+    /**
+     * Get the size of a huge page (in KB)
+     */
+    public long getHugePageSizeKB() {
+        return m_stats[HUGE_PAGE_SIZE];
+    }
+
+    /**
+     * Get the total memory of the huge page pools of all page sizes (in KB)
+     */
+    public long getHugetlbKB() {
+        return m_stats[HUGETLB];
+    }
+
+    /**
+     * Get the total amount of swap space (in KB)
+     */
+    public long getSwapTotalKB() {
+        return m_stats[SWAP_TOTAL];
+    }
+
+    /**
+     * Get the amount of unused swap space (in KB)
+     */
+    public long getSwapFreeKB() {
+        return m_stats[SWAP_FREE];
     }
 
     /**
@@ -209,27 +425,23 @@ public class MemState implements State {
     @Override
     public String toString() {
         return "total " + getTotal() + ", free " + getFree() + ", avail " + getAvailable() + ", buffer size " +
-                getBufferSize() + ", cache size " + getCacheSize() + ", used " + getUsed();
+                getBufferSize() + ", cache size " + getCacheSize() + ", used " + getUsed() + ", dirty " + getDirtyKB() +
+                " KB, writeback " + getWritebackKB() + " KB, anon " + getAnonPagesKB() + " KB, shmem " + getShmemKB() +
+                " KB, slab " + getSlabKB() + " KB (reclaimable " + getSReclaimableKB() + " KB), committed " +
+                getCommittedASKB() + "/" + getCommitLimitKB() + " KB, anon huge pages " + getAnonHugePagesKB() +
+                " KB, huge pages " + getHugePagesUsed() + "/" + getHugePagesTotal() + " (rsvd " + getHugePagesRsvd() +
+                ", surp " + getHugePagesSurp() + ", size " + getHugePageSizeKB() + " KB)";
     }
 
     @Override
     public void update() throws StateUpdateException {
-        String fileContent;
-
         try {
-            fileContent = m_reader.readCompleteFile();
+            m_tokenizer.reset(m_reader);
         } catch (IOException e) {
             throw new StateUpdateException("Can't read file " + PROC_MEMINFO + ": " + e.getMessage());
         }
 
-        StringTokenizer tokenizer = new StringTokenizer(fileContent, "\n");
-
-        for (int i = 0; i < 5; i++) {
-            String tmp = tokenizer.nextToken();
-
-            String t = tmp.substring(0, tmp.lastIndexOf(' '));
-            m_stats[i] = Long.parseLong(t.substring(t.lastIndexOf(' ') + 1));
-        }
+        m_table.read(m_tokenizer, m_stats);
 
         m_usedKb = getTotalKB() - getFreeKB() - getBufferSizeKB() - getCacheSizeKB();
     }
@@ -238,7 +450,11 @@ public class MemState implements State {
     public String generateCSVHeader(final char p_delim) {
         return "total (kb)" + p_delim + "free (kb)" + p_delim + "avail (kb)" + p_delim + "buffer size (kb)" + p_delim +
                 "cache size (kb)" + p_delim + "used (kb)" + p_delim + "free percent" + p_delim + "avail percent" +
-                p_delim + "buffer percent" + p_delim + "cache percent" + p_delim + "used percent";
+                p_delim + "buffer percent" + p_delim + "cache percent" + p_delim + "used percent" + p_delim +
+                "dirty (kb)" + p_delim + "writeback (kb)" + p_delim + "anon pages (kb)" + p_delim + "shmem (kb)" +
+                p_delim + "slab (kb)" + p_delim + "slab reclaimable (kb)" + p_delim + "committed (kb)" + p_delim +
+                "commit limit (kb)" + p_delim + "anon huge pages (kb)" + p_delim + "huge pages total" + p_delim +
+                "huge pages free" + p_delim + "huge pages rsvd" + p_delim + "huge page size (kb)";
     }
 
     @Override
@@ -246,6 +462,10 @@ public class MemState implements State {
         return "" + getTotalKB() + p_delim + getFreeKB() + p_delim + getAvailableKB() + p_delim + getBufferSizeKB() +
                 p_delim + getCacheSizeKB() + p_delim + getUsedKB() + p_delim + getFreePercent() + p_delim +
                 getAvailablePercent() + p_delim + getBufferPercent() + p_delim + getCachePercent() + p_delim +
-                getUsedPercent();
+                getUsedPercent() + p_delim + getDirtyKB() + p_delim + getWritebackKB() + p_delim + getAnonPagesKB() +
+                p_delim + getShmemKB() + p_delim + getSlabKB() + p_delim + getSReclaimableKB() + p_delim +
+                getCommittedASKB() + p_delim + getCommitLimitKB() + p_delim + getAnonHugePagesKB() + p_delim +
+                getHugePagesTotal() + p_delim + getHugePagesFree() + p_delim + getHugePagesRsvd() + p_delim +
+                getHugePageSizeKB();
     }
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Native memory of the current JVM by category (Java Heap, Class, Thread, Code, GC...) from the native memory
+ * tracking summary ("VM.native_memory summary"), run as diagnostic command on the platform MBean server. Requires
+ * the JVM to be started with -XX:NativeMemoryTracking=summary (or detail), otherwise the state is not available.
+ * Categories keep their index once seen, values are in KB. The summary is read once on construction to discover
+ * the categories for the CSV header. Categories showing up later (e.g. below 1 KB before) add columns.
+ */
+public class NativeMemoryState implements State {
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+    private static final String OPERATION = "vmNativeMemory";
+    private static final Object[] PARAMS = {new String[] {"summary", "scale=KB"}};
+    private static final String[] SIGNATURE = {String[].class.getName()};
+
+    private static final String TOTAL = "Total:";
+    private static final String RESERVED = "reserved=";
+    private static final String COMMITTED = "committed=";
+
+    private final MBeanServer m_server;
+    private final ObjectName m_name;
+
+    private final ArrayList<String> m_categories;
+    private final Map<String, Integer> m_categoryIndices;
+
+    private boolean m_available;
+    private long m_totalReservedKb;
+    private long m_totalCommittedKb;
+    private long[] m_reservedKb;
+    private long[] m_committedKb;
+
+    /**
+     * Constructor
+     */
+    public NativeMemoryState() {
+        m_server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            m_name = new ObjectName(DIAGNOSTIC_COMMAND);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_categories = new ArrayList<>();
+        m_categoryIndices = new HashMap<>();
+        m_reservedKb = new long[16];
+        m_committedKb = new long[16];
+
+        try {
+            update();
+        } catch (StateUpdateException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Check if native memory tracking is enabled
+     */
+    public boolean isAvailable() {
+        return m_available;
+    }
+
+    /**
+     * Get the number of categories seen so far
+     */
+    public int getCategoryCount() {
+        return m_categories.size();
+    }
+
+    /**
+     * Get the name of a category
+     *
+     * @param p_index Index of the category
+     */
+    public String getCategoryName(final int p_index) {
+        return m_categories.get(p_index);
+    }
+
+    /**
+     * Get the index of a category
+     *
+     * @param p_name Name of the category (e.g. "Thread")
+     * @return Index or -1 if not seen so far
+     */
+    public int getCategoryIndex(final String p_name) {
+        Integer index = m_categoryIndices.get(p_name);
+
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get the reserved (address space) memory of a category (in KB)
+     *
+     * @param p_index Index of the category
+     */
+    public long getReservedKB(final int p_index) {
+        return m_reservedKb[p_index];
+    }
+
+    /**
+     * Get the committed memory of a category (in KB)
+     *
+     * @param p_index Index of the category
+     */
+    public long getCommittedKB(final int p_index) {
+        return m_committedKb[p_index];
+    }
+
+    /**
+     * Get the reserved memory of all categories (in KB)
+     */
+    public long getTotalReservedKB() {
+        return m_totalReservedKb;
+    }
+
+    /**
+     * Get the committed memory of all categories (in KB)
+     */
+    public long getTotalCommittedKB() {
+        return m_totalCommittedKb;
+    }
+
+    @Override
+    public String toString() {
+        if (!m_available) {
+            return "native memory tracking not enabled";
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("total reserved ").append(m_totalReservedKb).append(" KB, committed ")
+                .append(m_totalCommittedKb).append(" KB");
+
+        for (int i = 0; i < m_categories.size(); i++) {
+            builder.append('\n').append(m_categories.get(i)).append(": reserved ").append(m_reservedKb[i])
+                    .append(" KB, committed ").append(m_committedKb[i]).append(" KB");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        String summary;
+
+        try {
+            summary = (String) m_server.invoke(m_name, OPERATION, PARAMS, SIGNATURE);
+        } catch (JMException e) {
+            throw new StateUpdateException("Can't run diagnostic command " + OPERATION + ": " + e.getMessage());
+        }
+
+        m_available = false;
+        m_totalReservedKb = 0;
+        m_totalCommittedKb = 0;
+
+        // categories below 1 KB are omitted
+        Arrays.fill(m_reservedKb, 0);
+        Arrays.fill(m_committedKb, 0);
+
+        // e.g. "Total: reserved=2941773KB, committed=125089KB" and
+        // "-                 Java Heap (reserved=1540096KB, committed=96256KB)"
+        for (String line : summary.split("\n")) {
+            String trimmed = line.trim();
+
+            if (trimmed.startsWith(TOTAL)) {
+                m_available = true;
+                m_totalReservedKb = parseValue(trimmed, RESERVED);
+                m_totalCommittedKb = parseValue(trimmed, COMMITTED);
+            } else if (trimmed.startsWith("-")) {
+                int index = trimmed.indexOf('(');
+
+                if (index == -1) {
+                    continue;
+                }
+
+                int category = getOrAddCategory(trimmed.substring(1, index).trim());
+
+                m_reservedKb[category] = parseValue(trimmed, RESERVED);
+                m_committedKb[category] = parseValue(trimmed, COMMITTED);
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("total reserved (kb)").append(p_delim).append("total committed (kb)");
+
+        for (String category : m_categories) {
+            builder.append(p_delim).append(category).append(" committed (kb)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(m_totalReservedKb).append(p_delim).append(m_totalCommittedKb);
+
+        for (int i = 0; i < m_categories.size(); i++) {
+            builder.append(p_delim).append(m_committedKb[i]);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the index of a category and add it if not seen so far
+     *
+     * @param p_name Name of the category
+     * @return Index of the category
+     */
+    private int getOrAddCategory(final String p_name) {
+        Integer index = m_categoryIndices.get(p_name);
+
+        if (index != null) {
+            return index;
+        }
+
+        if (m_categories.size() == m_reservedKb.length) {
+            m_reservedKb = Arrays.copyOf(m_reservedKb, m_reservedKb.length * 2);
+            m_committedKb = Arrays.copyOf(m_committedKb, m_committedKb.length * 2);
+        }
+
+        m_categories.add(p_name);
+        m_categoryIndices.put(p_name, m_categories.size() - 1);
+
+        return m_categories.size() - 1;
+    }
+
+    /**
+     * Parse a value of a line, e.g. "reserved=1540096KB"
+     *
+     * @param p_line Line to parse
+     * @param p_key Key of the value including '='
+     * @return Value (without unit) or 0 if not found
+     */
+    private static long parseValue(final String p_line, final String p_key) {
+        int start = p_line.indexOf(p_key);
+
+        if (start == -1) {
+            return 0;
+        }
+
+        start += p_key.length();
+        int end = start;
+
+        while (end < p_line.length() && Character.isDigit(p_line.charAt(end))) {
+            end++;
+        }
+
+        return end == start ? 0 : Long.parseLong(p_line.substring(start, end));
+    }
+}
@@ -13,6 +13,7 @@
 
 package de.hhu.bsinfo.dxmonitor.state;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.StringTokenizer;
 
@@ -28,6 +29,10 @@ import de.hhu.bsinfo.dxutils.unit.StorageUnit;
  */
 public class NetworkState implements State {
     private static final String PROC_NET_DEV = "/proc/net/dev";
+    private static final String SYS_CLASS_NET = "/sys/class/net/";
+
+    // device types from /sys/class/net/NIC/type, see include/uapi/linux/if_arp.h
+    private static final int ARPHRD_INFINIBAND = 32;
 
     private final ProcSysLineReader m_reader;
 
@@ -56,7 +61,7 @@ public class NetworkState implements State {
             m_name = p_name;
         }
 
-        m_maxBandwidthMbitsPerSec = getSpeed(p_name);
+        m_maxBandwidthMbitsPerSec = getSpeed(m_name);
 
         m_receiveStats = new long[4]; // bytes - packets - errs - drop
         m_transmitStats = new long[5]; // bytes - packets - errs - drop - collisions
@@ -133,7 +138,15 @@ public class NetworkState implements State {
     }
 
     /**
-     * Get the max bandwidth in StorageUnit (byte, kb, mb, ...) per second
+     * Get the max bandwidth (line rate) of the nic in bytes/sec (1 mbit = 10^6 bits)
+     */
+    public long getMaxBandwidthBytesPerSec() {
+        return getMaxBandwidthMbitsPerSec() * 1000 * 1000 / 8;
+    }
+
+    /**
+     * Get the max bandwidth in StorageUnit (byte, kb, mb, ...) per second. Converts the speed with binary units
+     * (1 mbit = 1024 * 1024 bits), use getMaxBandwidthBytesPerSec for the line rate in bytes.
      */
     public StorageUnit getMaxBandwidthPerSec() {
         return new StorageUnit((getMaxBandwidthMbitsPerSec() / 8) * 1024 * 1024, StorageUnit.BYTE);
@@ -221,38 +234,141 @@ public class NetworkState implements State {
     }
 
     /**
-     * Reads the maximum speed in mbits/sec of the nic from the /sys/class/net/NIC/speed file.
+     * Determines the maximum speed in mbits/sec of the nic based on its type in /sys/class/net/NIC. Bonding
+     * devices use the speeds of their slaves, IPoIB devices the rate of the underlying infiniband port and
+     * virtual devices (e.g. team, vlan) the speeds of their lower devices.
      *
      * @param p_name Name of the nic
-     * @return Speed of the NIC in mbits/sec
+     * @return Speed of the NIC in mbits/sec or 0 if unknown (e.g. loopback, wireless or link down)
      */
     private static long getSpeed(final String p_name) {
-        if (p_name.charAt(0) == 'e') {
-            String string;
+        String path = SYS_CLASS_NET + p_name + '/';
+
+        if (new File(path + "bonding/slaves").exists()) {
+            return getBondingSpeed(path);
+        }
 
-            try {
-                string = ProcSysFileReader.readCompleteFileOnce("/sys/class/net/" + p_name + "/speed");
-            } catch (IOException e) {
-                throw new RuntimeException("Reading net speed of " + p_name + " failed: " + e.getMessage());
+        if (readNumber(path + "type") == ARPHRD_INFINIBAND) {
+            return getInfinibandSpeed(path);
+        }
+
+        // -1 or reading fails (EINVAL) if the link is down or the driver does not report a speed
+        long speed = readNumber(path + "speed");
+
+        if (speed > 0) {
+            return speed;
+        }
+
+        return getLowerDevicesSpeed(path);
+    }
+
+    /**
+     * Gets the speed of a bonding device from its slaves. For active-backup mode, only one slave is used at a time.
+     *
+     * @param p_path Path of the nic in /sys/class/net (including trailing slash)
+     * @return Speed in mbits/sec
+     */
+    private static long getBondingSpeed(final String p_path) {
+        String slaves = readString(p_path + "bonding/slaves");
+        boolean activeBackup = readString(p_path + "bonding/mode").startsWith("active-backup");
+        long speed = 0;
+
+        for (String slave : slaves.split(" ")) {
+            if (slave.isEmpty()) {
+                continue;
             }
 
-            int index = 0;
+            long slaveSpeed = getSpeed(slave);
 
-            while (Character.isDigit(string.charAt(index))) {
-                index++;
+            if (activeBackup) {
+                speed = Math.max(speed, slaveSpeed);
+            } else {
+                speed += slaveSpeed;
             }
+        }
 
-            // value is in mbits/s -> convert byte / sec
-            return Long.parseLong(string.substring(0, index));
-        } else if (p_name.charAt(0) == 'w') {
-            // wireless interface, unsupported
+        return speed;
+    }
+
+    /**
+     * Gets the speed of an IPoIB device from the rate of the infiniband port it is bound to
+     *
+     * @param p_path Path of the nic in /sys/class/net (including trailing slash)
+     * @return Speed in mbits/sec
+     */
+    private static long getInfinibandSpeed(final String p_path) {
+        File[] ibDevices = new File(p_path + "device/infiniband").listFiles();
+
+        if (ibDevices == null || ibDevices.length == 0) {
             return 0;
-        } else if (p_name.charAt(0) == 'i') {
-            //infiniband interface, unsupported
+        }
+
+        // dev_port is 0 based, ib port numbers start at 1
+        long port = Math.max(readNumber(p_path + "dev_port"), 0) + 1;
+        String rate = readString(ibDevices[0].getPath() + "/ports/" + port + "/rate");
+
+        // e.g. "56 Gb/sec (4X FDR)"
+        int index = rate.indexOf(' ');
+
+        if (index <= 0) {
             return 0;
-        } else {
-            // unknown
+        }
+
+        try {
+            return (long) (Double.parseDouble(rate.substring(0, index)) * 1000);
+        } catch (NumberFormatException e) {
             return 0;
         }
     }
+
+    /**
+     * Gets the speed of a virtual device (e.g. team, vlan, macvlan) from its lower devices
+     *
+     * @param p_path Path of the nic in /sys/class/net (including trailing slash)
+     * @return Speed in mbits/sec
+     */
+    private static long getLowerDevicesSpeed(final String p_path) {
+        String[] entries = new File(p_path).list();
+        long speed = 0;
+
+        if (entries == null) {
+            return 0;
+        }
+
+        for (String entry : entries) {
+            if (entry.startsWith("lower_")) {
+                speed += getSpeed(entry.substring("lower_".length()));
+            }
+        }
+
+        return speed;
+    }
+
+    /**
+     * Reads a single (decimal) number from a sysfs file
+     *
+     * @param p_path Path of the file
+     * @return Number read or -1 on error
+     */
+    private static long readNumber(final String p_path) {
+        try {
+            return Long.parseLong(readString(p_path));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the (trimmed) content of a sysfs file
+     *
+     * @param p_path Path of the file
+     * @return Content or an empty string on error
+     */
+    private static String readString(final String p_path) {
+        try {
+            return ProcSysFileReader.readCompleteFileOnce(p_path).trim();
+        } catch (IOException e) {
+            return "";
+        }
+    }
 }
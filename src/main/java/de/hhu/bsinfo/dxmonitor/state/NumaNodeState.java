@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of a NUMA node read from /sys/devices/system/node/nodeN: CPUs and distances (read once),
+ * memory (meminfo) and allocation statistics (numastat)
+ */
+public class NumaNodeState implements State {
+    private static final String SYS_NODE = "/sys/devices/system/node/";
+    private static final String SYS_NODE_ONLINE = SYS_NODE + "online";
+
+    public static final int MEM_TOTAL = 0;
+    public static final int MEM_FREE = 1;
+    public static final int MEM_USED = 2;
+    public static final int FILE_PAGES = 3;
+    public static final int ANON_PAGES = 4;
+    public static final int HUGE_PAGES_TOTAL = 5;
+    public static final int HUGE_PAGES_FREE = 6;
+
+    public static final int MEM_FIELD_COUNT = 7;
+
+    private static final String[] MEM_FIELD_KEYS = {"MemTotal", "MemFree", "MemUsed", "FilePages", "AnonPages",
+            "HugePages_Total", "HugePages_Free"};
+
+    public static final int NUMA_HIT = 0;
+    public static final int NUMA_MISS = 1;
+    public static final int NUMA_FOREIGN = 2;
+    public static final int INTERLEAVE_HIT = 3;
+    public static final int LOCAL_NODE = 4;
+    public static final int OTHER_NODE = 5;
+
+    public static final int NUMASTAT_COUNT = 6;
+
+    private static final String[] NUMASTAT_NAMES = {"numa_hit", "numa_miss", "numa_foreign", "interleave_hit",
+            "local_node", "other_node"};
+
+    private final int m_nodeId;
+    private final int[] m_cpus;
+    private final int[] m_distances;
+
+    private final String m_meminfoPath;
+    private final String m_numastatPath;
+    private final ProcSysFileReader m_meminfoReader;
+    private final ProcSysFileReader m_numastatReader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_meminfoTable;
+    private final ProcSysKeyTable m_numastatTable;
+
+    private final long[] m_mem;
+    private final long[] m_numastat;
+
+    /**
+     * Constructor
+     *
+     * @param p_nodeId Id of the node
+     */
+    public NumaNodeState(final int p_nodeId) {
+        m_nodeId = p_nodeId;
+
+        String nodePath = SYS_NODE + "node" + p_nodeId + '/';
+
+        m_meminfoPath = nodePath + "meminfo";
+        m_numastatPath = nodePath + "numastat";
+
+        try {
+            m_meminfoReader = new ProcSysFileReader(m_meminfoPath);
+            m_numastatReader = new ProcSysFileReader(m_numastatPath, 512);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        try {
+            m_cpus = CpuList.read(nodePath + "cpulist");
+
+            StringTokenizer tokenizer = new StringTokenizer(ProcSysFileReader.readCompleteFileOnce(nodePath +
+                    "distance"));
+            m_distances = new int[tokenizer.countTokens()];
+
+            for (int i = 0; i < m_distances.length; i++) {
+                m_distances[i] = Integer.parseInt(tokenizer.nextToken());
+            }
+
+            // lines of meminfo are prefixed with "Node N ", e.g. "Node 0 MemTotal:   4161272 kB"
+            m_meminfoTable = new ProcSysKeyTable(m_meminfoPath, MEM_FIELD_KEYS, ':');
+            m_numastatTable = new ProcSysKeyTable(m_numastatPath, NUMASTAT_NAMES, ' ');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_mem = new long[MEM_FIELD_COUNT];
+        m_numastat = new long[NUMASTAT_COUNT];
+    }
+
+    /**
+     * Get the ids of all online NUMA nodes
+     *
+     * @return Sorted array with node ids or empty array if NUMA is not supported by the kernel
+     */
+    public static int[] getNodeIds() {
+        try {
+            return CpuList.read(SYS_NODE_ONLINE);
+        } catch (IOException e) {
+            return new int[0];
+        }
+    }
+
+    /**
+     * Get the name of a numastat counter
+     *
+     * @param p_counter Counter (e.g. NumaNodeState.NUMA_MISS)
+     */
+    public static String getNumaStatName(final int p_counter) {
+        return NUMASTAT_NAMES[p_counter];
+    }
+
+    /**
+     * Get the id of the node
+     */
+    public int getNodeId() {
+        return m_nodeId;
+    }
+
+    /**
+     * Get the CPUs of the node
+     *
+     * @return Sorted CPU ids (empty for memory only nodes)
+     */
+    public int[] getCpus() {
+        return m_cpus;
+    }
+
+    /**
+     * Get the distance (relative access cost, 10 = local) to another node
+     *
+     * @param p_nodeId Id of the other node
+     * @return Distance or -1 if unknown
+     */
+    public int getDistance(final int p_nodeId) {
+        return p_nodeId < m_distances.length ? m_distances[p_nodeId] : -1;
+    }
+
+    /**
+     * Get a memory value of the node
+     *
+     * @param p_field Field (e.g. NumaNodeState.MEM_FREE)
+     * @return Value in KB (number of pages for HUGE_PAGES_*)
+     */
+    public long getMemValue(final int p_field) {
+        return m_mem[p_field];
+    }
+
+    /**
+     * Get the total memory of the node (in KB)
+     */
+    public long getTotalKB() {
+        return m_mem[MEM_TOTAL];
+    }
+
+    /**
+     * Get the free memory of the node (in KB)
+     */
+    public long getFreeKB() {
+        return m_mem[MEM_FREE];
+    }
+
+    /**
+     * Get the used memory of the node (in KB)
+     */
+    public long getUsedKB() {
+        return m_mem[MEM_USED];
+    }
+
+    /**
+     * Get the free memory to total memory ratio of the node
+     */
+    public float getFreeRatio() {
+        return m_mem[MEM_TOTAL] == 0 ? 0 : (float) m_mem[MEM_FREE] / m_mem[MEM_TOTAL];
+    }
+
+    /**
+     * Get a numastat counter of the node
+     *
+     * @param p_counter Counter (e.g. NumaNodeState.NUMA_MISS)
+     */
+    public long getNumaStat(final int p_counter) {
+        return m_numastat[p_counter];
+    }
+
+    @Override
+    public String toString() {
+        return "node " + m_nodeId + ": cpus " + Arrays.toString(m_cpus) + ", distances " +
+                Arrays.toString(m_distances) + ", total " + getTotalKB() + " KB, free " + getFreeKB() + " KB, used " +
+                getUsedKB() + " KB, numa_hit " + m_numastat[NUMA_HIT] + ", numa_miss " + m_numastat[NUMA_MISS] +
+                ", numa_foreign " + m_numastat[NUMA_FOREIGN] + ", local_node " + m_numastat[LOCAL_NODE] +
+                ", other_node " + m_numastat[OTHER_NODE];
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_meminfoReader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + m_meminfoPath + ": " + e.getMessage());
+        }
+
+        m_meminfoTable.read(m_tokenizer, m_mem);
+
+        try {
+            m_tokenizer.reset(m_numastatReader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + m_numastatPath + ": " + e.getMessage());
+        }
+
+        m_numastatTable.read(m_tokenizer, m_numastat);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("node").append(m_nodeId).append(" total (kb)").append(p_delim).append("node").append(m_nodeId)
+                .append(" free (kb)").append(p_delim).append("node").append(m_nodeId).append(" used (kb)");
+
+        for (String name : NUMASTAT_NAMES) {
+            builder.append(p_delim).append("node").append(m_nodeId).append(' ').append(name);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(getTotalKB()).append(p_delim).append(getFreeKB()).append(p_delim).append(getUsedKB());
+
+        for (long value : m_numastat) {
+            builder.append(p_delim).append(value);
+        }
+
+        return builder.toString();
+    }
+}
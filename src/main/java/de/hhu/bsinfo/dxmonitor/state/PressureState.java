@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Pressure stall information (PSI) of a resource read from /proc/pressure/{cpu,memory,io} or the
+ * {cpu,memory,io}.pressure files of a cgroup (v2). "some" is the share of time at least one task stalled
+ * on the resource, "full" the share of time all non idle tasks stalled at the same time.
+ */
+public class PressureState implements State {
+    public static final String RESOURCE_CPU = "cpu";
+    public static final String RESOURCE_MEMORY = "memory";
+    public static final String RESOURCE_IO = "io";
+
+    private static final String PROC_PRESSURE = "/proc/pressure/";
+    private static final String CGROUP_PRESSURE_SUFFIX = ".pressure";
+
+    private static final byte[] SOME = "some".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FULL = "full".getBytes(StandardCharsets.US_ASCII);
+
+    private final String m_resource;
+    private final String m_path;
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private float m_someAvg10;
+    private float m_someAvg60;
+    private float m_someAvg300;
+    private long m_someTotal;
+
+    private boolean m_fullAvailable;
+    private float m_fullAvg10;
+    private float m_fullAvg60;
+    private float m_fullAvg300;
+    private long m_fullTotal;
+
+    /**
+     * Constructor for the system wide pressure of a resource
+     *
+     * @param p_resource Resource (RESOURCE_CPU, RESOURCE_MEMORY or RESOURCE_IO)
+     */
+    public PressureState(final String p_resource) {
+        this(p_resource, null);
+    }
+
+    /**
+     * Constructor for the pressure of a resource of a cgroup (v2)
+     *
+     * @param p_resource Resource (RESOURCE_CPU, RESOURCE_MEMORY or RESOURCE_IO)
+     * @param p_cgroupPath Path of the cgroup, e.g. /sys/fs/cgroup/system.slice (null for system wide)
+     */
+    public PressureState(final String p_resource, final String p_cgroupPath) {
+        m_resource = p_resource;
+
+        if (p_cgroupPath == null) {
+            m_path = PROC_PRESSURE + p_resource;
+        } else {
+            m_path = p_cgroupPath + '/' + p_resource + CGROUP_PRESSURE_SUFFIX;
+        }
+
+        try {
+            m_reader = new ProcSysFileReader(m_path, 256);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException("Pressure stall information not available (kernel >= 4.20 with " +
+                    "CONFIG_PSI required): " + m_path, e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+    }
+
+    /**
+     * Get the resource of this state
+     */
+    public String getResource() {
+        return m_resource;
+    }
+
+    /**
+     * Get the path of the pressure file
+     */
+    public String getPath() {
+        return m_path;
+    }
+
+    /**
+     * Get the share of time (in percent) at least one task stalled on the resource, averaged over 10 seconds
+     */
+    public float getSomeAvg10() {
+        return m_someAvg10;
+    }
+
+    /**
+     * Get the share of time (in percent) at least one task stalled on the resource, averaged over 60 seconds
+     */
+    public float getSomeAvg60() {
+        return m_someAvg60;
+    }
+
+    /**
+     * Get the share of time (in percent) at least one task stalled on the resource, averaged over 300 seconds
+     */
+    public float getSomeAvg300() {
+        return m_someAvg300;
+    }
+
+    /**
+     * Get the total time at least one task stalled on the resource in microseconds
+     */
+    public long getSomeTotalUs() {
+        return m_someTotal;
+    }
+
+    /**
+     * Check if "full" values are available (not available for the system wide cpu pressure before kernel 5.13)
+     */
+    public boolean isFullAvailable() {
+        return m_fullAvailable;
+    }
+
+    /**
+     * Get the share of time (in percent) all non idle tasks stalled on the resource, averaged over 10 seconds
+     */
+    public float getFullAvg10() {
+        return m_fullAvg10;
+    }
+
+    /**
+     * Get the share of time (in percent) all non idle tasks stalled on the resource, averaged over 60 seconds
+     */
+    public float getFullAvg60() {
+        return m_fullAvg60;
+    }
+
+    /**
+     * Get the share of time (in percent) all non idle tasks stalled on the resource, averaged over 300 seconds
+     */
+    public float getFullAvg300() {
+        return m_fullAvg300;
+    }
+
+    /**
+     * Get the total time all non idle tasks stalled on the resource in microseconds
+     */
+    public long getFullTotalUs() {
+        return m_fullTotal;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s some: avg10 %.2f %%, avg60 %.2f %%, avg300 %.2f %%, total %d us; " +
+                        "full: avg10 %.2f %%, avg60 %.2f %%, avg300 %.2f %%, total %d us", m_resource, m_someAvg10,
+                m_someAvg60, m_someAvg300, m_someTotal, m_fullAvg10, m_fullAvg60, m_fullAvg300, m_fullTotal);
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + m_path + ": " + e.getMessage());
+        }
+
+        m_fullAvailable = false;
+
+        while (m_tokenizer.hasRemaining()) {
+            // format: some avg10=0.00 avg60=0.00 avg300=0.00 total=0
+            if (m_tokenizer.nextTokenEquals(SOME)) {
+                m_someAvg10 = nextValue();
+                m_someAvg60 = nextValue();
+                m_someAvg300 = nextValue();
+                m_tokenizer.skipPast('=');
+                m_someTotal = m_tokenizer.nextLong();
+            } else if (m_tokenizer.nextTokenEquals(FULL)) {
+                m_fullAvailable = true;
+                m_fullAvg10 = nextValue();
+                m_fullAvg60 = nextValue();
+                m_fullAvg300 = nextValue();
+                m_tokenizer.skipPast('=');
+                m_fullTotal = m_tokenizer.nextLong();
+            }
+
+            m_tokenizer.nextLine();
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return m_resource + " some avg10" + p_delim + m_resource + " some avg60" + p_delim + m_resource +
+                " some avg300" + p_delim + m_resource + " some total us" + p_delim + m_resource + " full avg10" +
+                p_delim + m_resource + " full avg60" + p_delim + m_resource + " full avg300" + p_delim + m_resource +
+                " full total us";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(m_someAvg10) + p_delim + m_someAvg60 + p_delim + m_someAvg300 + p_delim + m_someTotal +
+                p_delim + m_fullAvg10 + p_delim + m_fullAvg60 + p_delim + m_fullAvg300 + p_delim + m_fullTotal;
+    }
+
+    /**
+     * Parse the next avgN=value pair of the current line
+     *
+     * @return Value
+     */
+    private float nextValue() {
+        m_tokenizer.skipPast('=');
+
+        return (float) m_tokenizer.nextDouble();
+    }
+}
@@ -0,0 +1,610 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+import de.hhu.bsinfo.dxmonitor.util.ClockTicks;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of a single process read from /proc/PID/stat, status, io, fd and limits. The lines of status and io
+ * are mapped to fields once, updates don't allocate memory except for counting the open file descriptors
+ * on kernels before 6.2 and for reading the context switches of each thread (/proc/PID/task/TID/status, the
+ * counters of the process' status only cover the main thread).
+ */
+public class ProcessState implements State {
+    private static final String PROC = "/proc/";
+    private static final String SELF = "self";
+
+    private static final int TASK_STATUS_BUFFER_SIZE = 8192;
+
+    private static final byte[] MAX_OPEN_FILES = "Max open files".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VM_PEAK = 0;
+    private static final int VM_SIZE = 1;
+    private static final int VM_HWM = 2;
+    private static final int VM_RSS = 3;
+    private static final int RSS_ANON = 4;
+    private static final int RSS_FILE = 5;
+    private static final int VM_SWAP = 6;
+    private static final int THREADS = 7;
+    private static final int VOLUNTARY_CTXT_SWITCHES = 8;
+    private static final int NONVOLUNTARY_CTXT_SWITCHES = 9;
+
+    private static final String[] STATUS_KEYS = {"VmPeak", "VmSize", "VmHWM", "VmRSS", "RssAnon", "RssFile",
+            "VmSwap", "Threads", "voluntary_ctxt_switches", "nonvoluntary_ctxt_switches"};
+
+    private static final int RCHAR = 0;
+    private static final int WCHAR = 1;
+    private static final int SYSCR = 2;
+    private static final int SYSCW = 3;
+    private static final int READ_BYTES = 4;
+    private static final int WRITE_BYTES = 5;
+    private static final int CANCELLED_WRITE_BYTES = 6;
+
+    private static final String[] IO_KEYS = {"rchar", "wchar", "syscr", "syscw", "read_bytes", "write_bytes",
+            "cancelled_write_bytes"};
+
+    private final String m_pid;
+    private final String m_path;
+
+    private final ProcSysFileReader m_statReader;
+    private final ProcSysFileReader m_statusReader;
+    private final ProcSysFileReader m_ioReader;
+    private final ProcSysFileReader m_limitsReader;
+    private final File m_fdDir;
+    private final File m_taskDir;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_statusTable;
+    private final ProcSysKeyTable m_ioTable;
+
+    // buffers to read the status of the threads
+    private final ByteBuffer m_taskBuffer;
+    private final byte[] m_taskArray;
+    private final long[] m_taskStatus;
+
+    // last context switches (voluntary, nonvoluntary) of each thread to keep the counts of exited threads
+    private HashMap<String, long[]> m_taskSwitches;
+    private HashMap<String, long[]> m_lastTaskSwitches;
+    private long m_exitedVoluntaryCtxtSwitches;
+    private long m_exitedNonvoluntaryCtxtSwitches;
+    private long m_voluntaryCtxtSwitches;
+    private long m_nonvoluntaryCtxtSwitches;
+
+    private char m_processState;
+    private long m_minorFaults;
+    private long m_majorFaults;
+    private long m_userTicks;
+    private long m_systemTicks;
+    private long m_startTimeTicks;
+
+    private final long[] m_status;
+    private final long[] m_io;
+
+    private int m_fdCount;
+    private long m_fdLimit;
+
+    /**
+     * Constructor for the current process
+     */
+    public ProcessState() {
+        this(SELF);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process
+     */
+    public ProcessState(final int p_pid) {
+        this(Integer.toString(p_pid));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process or "self"
+     */
+    private ProcessState(final String p_pid) {
+        m_pid = p_pid;
+        m_path = PROC + p_pid + '/';
+
+        try {
+            m_statReader = new ProcSysFileReader(m_path + "stat", 1024);
+            m_statusReader = new ProcSysFileReader(m_path + "status");
+            m_limitsReader = new ProcSysFileReader(m_path + "limits", 2048);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_fdDir = new File(m_path + "fd");
+        m_taskDir = new File(m_path + "task");
+        m_tokenizer = new ProcSysTokenizer();
+
+        try {
+            m_statusTable = new ProcSysKeyTable(m_path + "status", STATUS_KEYS, ':');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ProcSysFileReader ioReader;
+        ProcSysKeyTable ioTable;
+
+        try {
+            ioTable = new ProcSysKeyTable(m_path + "io", IO_KEYS, ':');
+            ioReader = new ProcSysFileReader(m_path + "io", 256);
+        } catch (IOException e) {
+            // io accounting not enabled or no permission (process of another user)
+            ioReader = null;
+            ioTable = null;
+        }
+
+        m_ioReader = ioReader;
+        m_ioTable = ioTable;
+
+        m_status = new long[STATUS_KEYS.length];
+
+        m_taskBuffer = ByteBuffer.allocateDirect(TASK_STATUS_BUFFER_SIZE);
+        m_taskArray = new byte[TASK_STATUS_BUFFER_SIZE];
+        m_taskStatus = new long[STATUS_KEYS.length];
+        m_taskSwitches = new HashMap<>();
+        m_lastTaskSwitches = new HashMap<>();
+        m_io = new long[IO_KEYS.length];
+    }
+
+    /**
+     * Get the id of the process ("self" for the current process)
+     */
+    public String getPid() {
+        return m_pid;
+    }
+
+    /**
+     * Get the state of the process (e.g. R running, S sleeping, D uninterruptible sleep, Z zombie)
+     */
+    public char getProcessState() {
+        return m_processState;
+    }
+
+    /**
+     * Get the number of minor page faults (no io required)
+     */
+    public long getMinorFaults() {
+        return m_minorFaults;
+    }
+
+    /**
+     * Get the number of major page faults (io required)
+     */
+    public long getMajorFaults() {
+        return m_majorFaults;
+    }
+
+    /**
+     * Get the CPU time spent in user mode (in ms)
+     */
+    public long getUserTimeMs() {
+        return ClockTicks.toMs(m_userTicks);
+    }
+
+    /**
+     * Get the CPU time spent in kernel mode (in ms)
+     */
+    public long getSystemTimeMs() {
+        return ClockTicks.toMs(m_systemTicks);
+    }
+
+    /**
+     * Get the start time of the process after system boot in clock ticks (identifies the process together with
+     * the pid)
+     */
+    public long getStartTimeTicks() {
+        return m_startTimeTicks;
+    }
+
+    /**
+     * Get the virtual memory size (in KB)
+     */
+    public long getVmSizeKB() {
+        return m_status[VM_SIZE];
+    }
+
+    /**
+     * Get the peak virtual memory size (in KB)
+     */
+    public long getVmPeakKB() {
+        return m_status[VM_PEAK];
+    }
+
+    /**
+     * Get the resident set size (in KB)
+     */
+    public long getRssKB() {
+        return m_status[VM_RSS];
+    }
+
+    /**
+     * Get the peak resident set size, high water mark (in KB)
+     */
+    public long getVmHWMKB() {
+        return m_status[VM_HWM];
+    }
+
+    /**
+     * Get the resident anonymous memory (in KB)
+     */
+    public long getRssAnonKB() {
+        return m_status[RSS_ANON];
+    }
+
+    /**
+     * Get the resident file mappings (in KB)
+     */
+    public long getRssFileKB() {
+        return m_status[RSS_FILE];
+    }
+
+    /**
+     * Get the anonymous memory swapped out (in KB)
+     */
+    public long getSwapKB() {
+        return m_status[VM_SWAP];
+    }
+
+    /**
+     * Get the number of threads
+     */
+    public long getThreadCount() {
+        return m_status[THREADS];
+    }
+
+    /**
+     * Get the number of voluntary context switches (e.g. blocking on io or locks) of all threads, summed up over
+     * /proc/PID/task/TID/status. Threads which exited are accounted with the count of their last update, threads
+     * which started and exited between two updates are missed.
+     */
+    public long getVoluntaryContextSwitches() {
+        return m_voluntaryCtxtSwitches;
+    }
+
+    /**
+     * Get the number of nonvoluntary context switches (preempted, time slice exceeded) of all threads, summed up
+     * over /proc/PID/task/TID/status. Threads which exited are accounted with the count of their last update,
+     * threads which started and exited between two updates are missed.
+     */
+    public long getNonvoluntaryContextSwitches() {
+        return m_nonvoluntaryCtxtSwitches;
+    }
+
+    /**
+     * Check if the io counters are available (requires permission and task io accounting)
+     */
+    public boolean isIoAvailable() {
+        return m_ioReader != null;
+    }
+
+    /**
+     * Get the bytes read by read syscalls (including page cache hits)
+     */
+    public long getReadChars() {
+        return m_io[RCHAR];
+    }
+
+    /**
+     * Get the bytes written by write syscalls (including page cache)
+     */
+    public long getWriteChars() {
+        return m_io[WCHAR];
+    }
+
+    /**
+     * Get the number of read syscalls
+     */
+    public long getReadSyscalls() {
+        return m_io[SYSCR];
+    }
+
+    /**
+     * Get the number of write syscalls
+     */
+    public long getWriteSyscalls() {
+        return m_io[SYSCW];
+    }
+
+    /**
+     * Get the bytes read from the storage layer
+     */
+    public long getReadBytes() {
+        return m_io[READ_BYTES];
+    }
+
+    /**
+     * Get the bytes written to the storage layer
+     */
+    public long getWriteBytes() {
+        return m_io[WRITE_BYTES];
+    }
+
+    /**
+     * Get the bytes not written because of truncated dirty pages
+     */
+    public long getCancelledWriteBytes() {
+        return m_io[CANCELLED_WRITE_BYTES];
+    }
+
+    /**
+     * Get the number of open file descriptors
+     */
+    public int getFdCount() {
+        return m_fdCount;
+    }
+
+    /**
+     * Get the (soft) limit of open file descriptors
+     *
+     * @return Limit or -1 if unlimited
+     */
+    public long getFdLimit() {
+        return m_fdLimit;
+    }
+
+    /**
+     * Get the number of file descriptors which can still be opened
+     *
+     * @return Remaining file descriptors or Long.MAX_VALUE if unlimited
+     */
+    public long getFdHeadroom() {
+        return m_fdLimit == -1 ? Long.MAX_VALUE : m_fdLimit - m_fdCount;
+    }
+
+    /**
+     * Get the open file descriptors to limit ratio
+     */
+    public float getFdUsageRatio() {
+        return m_fdLimit <= 0 ? 0 : (float) m_fdCount / m_fdLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "pid " + m_pid + ", state " + m_processState + ", utime " + getUserTimeMs() + " ms, stime " +
+                getSystemTimeMs() + " ms, rss " + getRssKB() + " KB, hwm " + getVmHWMKB() + " KB, threads " +
+                getThreadCount() + ", minflt " + m_minorFaults + ", majflt " + m_majorFaults + ", read bytes " +
+                getReadBytes() + ", write bytes " + getWriteBytes() + ", syscr " + getReadSyscalls() + ", syscw " +
+                getWriteSyscalls() + ", voluntary ctxt " + getVoluntaryContextSwitches() + ", nonvoluntary ctxt " +
+                getNonvoluntaryContextSwitches() + ", fds " + m_fdCount + '/' + m_fdLimit;
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            updateStat();
+            updateStatus();
+            updateContextSwitches();
+            updateIo();
+            updateLimits();
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read files of process " + m_path + ": " + e.getMessage());
+        }
+
+        // the size of the fd directory is the number of open fds since kernel 6.2
+        m_fdCount = (int) m_fdDir.length();
+
+        if (m_fdCount == 0) {
+            String[] fds = m_fdDir.list();
+            m_fdCount = fds != null ? fds.length : 0;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        return "utime (ms)" + p_delim + "stime (ms)" + p_delim + "rss (kb)" + p_delim + "hwm (kb)" + p_delim +
+                "threads" + p_delim + "minflt" + p_delim + "majflt" + p_delim + "read bytes" + p_delim +
+                "write bytes" + p_delim + "syscr" + p_delim + "syscw" + p_delim + "voluntary ctxt" + p_delim +
+                "nonvoluntary ctxt" + p_delim + "fds" + p_delim + "fd limit";
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        return String.valueOf(getUserTimeMs()) + p_delim + getSystemTimeMs() + p_delim + getRssKB() + p_delim +
+                getVmHWMKB() + p_delim + getThreadCount() + p_delim + m_minorFaults + p_delim + m_majorFaults +
+                p_delim + getReadBytes() + p_delim + getWriteBytes() + p_delim + getReadSyscalls() + p_delim +
+                getWriteSyscalls() + p_delim + getVoluntaryContextSwitches() + p_delim +
+                getNonvoluntaryContextSwitches() + p_delim + m_fdCount + p_delim + m_fdLimit;
+    }
+
+    /**
+     * Parse /proc/PID/stat
+     *
+     * @throws IOException If reading the file failed
+     */
+    private void updateStat() throws IOException {
+        m_tokenizer.reset(m_statReader);
+
+        // the command name (field 2) is in parentheses and can contain spaces and parentheses itself
+        m_tokenizer.skipPastLast(')');
+
+        // field 3
+        m_tokenizer.skipWhitespaces();
+        m_processState = m_tokenizer.hasTokenInLine() ? (char) m_statReader.getBuffer()[m_tokenizer.getPosition()] :
+                '?';
+
+        // state, ppid, pgrp, session, tty_nr, tpgid, flags
+        m_tokenizer.skipTokens(7);
+        // field 10
+        m_minorFaults = m_tokenizer.nextLong();
+        // cminflt
+        m_tokenizer.skipToken();
+        m_majorFaults = m_tokenizer.nextLong();
+        // cmajflt
+        m_tokenizer.skipToken();
+        // field 14
+        m_userTicks = m_tokenizer.nextLong();
+        m_systemTicks = m_tokenizer.nextLong();
+        // cutime, cstime, priority, nice, num_threads, itrealvalue
+        m_tokenizer.skipTokens(6);
+        // field 22
+        m_startTimeTicks = m_tokenizer.nextLong();
+    }
+
+    /**
+     * Parse /proc/PID/status
+     *
+     * @throws IOException If reading the file failed
+     */
+    private void updateStatus() throws IOException {
+        m_tokenizer.reset(m_statusReader);
+
+        m_statusTable.read(m_tokenizer, m_status);
+    }
+
+    /**
+     * Sum up the context switches of all threads of /proc/PID/task/TID/status
+     *
+     * @throws IOException If listing the threads or reading a file failed
+     */
+    private void updateContextSwitches() throws IOException {
+        String[] tids = m_taskDir.list();
+
+        if (tids == null) {
+            throw new IOException("Can't list " + m_taskDir);
+        }
+
+        HashMap<String, long[]> tmp = m_lastTaskSwitches;
+        m_lastTaskSwitches = m_taskSwitches;
+        m_taskSwitches = tmp;
+        m_taskSwitches.clear();
+
+        long voluntary = 0;
+        long nonvoluntary = 0;
+
+        for (String tid : tids) {
+            int length = readTaskStatus(tid);
+
+            if (length == -1) {
+                // thread exited after listing
+                continue;
+            }
+
+            m_tokenizer.reset(m_taskArray, length);
+            m_statusTable.read(m_tokenizer, m_taskStatus);
+
+            long[] switches = m_lastTaskSwitches.remove(tid);
+
+            if (switches == null) {
+                switches = new long[2];
+            }
+
+            switches[0] = m_taskStatus[VOLUNTARY_CTXT_SWITCHES];
+            switches[1] = m_taskStatus[NONVOLUNTARY_CTXT_SWITCHES];
+            m_taskSwitches.put(tid, switches);
+
+            voluntary += switches[0];
+            nonvoluntary += switches[1];
+        }
+
+        // threads left exited since the last update
+        for (long[] switches : m_lastTaskSwitches.values()) {
+            m_exitedVoluntaryCtxtSwitches += switches[0];
+            m_exitedNonvoluntaryCtxtSwitches += switches[1];
+        }
+
+        m_voluntaryCtxtSwitches = voluntary + m_exitedVoluntaryCtxtSwitches;
+        m_nonvoluntaryCtxtSwitches = nonvoluntary + m_exitedNonvoluntaryCtxtSwitches;
+    }
+
+    /**
+     * Open, read and close the status file of a thread with a single read
+     *
+     * @param p_tid Id of the thread
+     * @return Number of bytes read to m_taskArray or -1 if the thread exited
+     * @throws IOException If opening the file failed
+     */
+    private int readTaskStatus(final String p_tid) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(m_taskDir.getPath(), p_tid, "status"))) {
+            m_taskBuffer.clear();
+
+            int length;
+
+            try {
+                length = channel.read(m_taskBuffer);
+            } catch (IOException e) {
+                // thread exited after opening (ESRCH)
+                return -1;
+            }
+
+            if (length <= 0) {
+                return -1;
+            }
+
+            m_taskBuffer.flip();
+            m_taskBuffer.get(m_taskArray, 0, length);
+
+            return length;
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse /proc/PID/io
+     *
+     * @throws IOException If reading the file failed
+     */
+    private void updateIo() throws IOException {
+        if (m_ioReader == null) {
+            return;
+        }
+
+        m_tokenizer.reset(m_ioReader);
+
+        m_ioTable.read(m_tokenizer, m_io);
+    }
+
+    /**
+     * Parse the open files limit of /proc/PID/limits
+     *
+     * @throws IOException If reading the file failed
+     */
+    private void updateLimits() throws IOException {
+        m_tokenizer.reset(m_limitsReader);
+
+        m_fdLimit = -1;
+
+        if (m_tokenizer.findLine(MAX_OPEN_FILES)) {
+            // "Max open files            1024                 4096                 files"
+            m_tokenizer.skipTokens(3);
+            m_tokenizer.skipWhitespaces();
+
+            int pos = m_tokenizer.getPosition();
+            long limit = m_tokenizer.nextLong();
+
+            // "unlimited"
+            if (m_tokenizer.getPosition() != pos) {
+                m_fdLimit = limit;
+            }
+        }
+    }
+}
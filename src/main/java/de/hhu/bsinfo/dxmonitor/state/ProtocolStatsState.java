@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysHeaderTable;
+
+/**
+ * State of the TCP/UDP protocol stack (system wide) read from /proc/net/snmp and /proc/net/netstat. These
+ * counters show retransmits and buffer drops which are not visible in /proc/net/dev.
+ */
+public class ProtocolStatsState implements State {
+    private static final String PROC_NET_SNMP = "/proc/net/snmp";
+    private static final String PROC_NET_NETSTAT = "/proc/net/netstat";
+
+    public static final int TCP_IN_SEGS = 0;
+    public static final int TCP_OUT_SEGS = 1;
+    public static final int TCP_RETRANS_SEGS = 2;
+    public static final int TCP_IN_ERRS = 3;
+    public static final int TCP_OUT_RSTS = 4;
+    public static final int TCP_ACTIVE_OPENS = 5;
+    public static final int TCP_PASSIVE_OPENS = 6;
+    public static final int TCP_ATTEMPT_FAILS = 7;
+    public static final int TCP_ESTAB_RESETS = 8;
+    public static final int TCP_CURR_ESTAB = 9;
+    public static final int UDP_IN_DATAGRAMS = 10;
+    public static final int UDP_OUT_DATAGRAMS = 11;
+    public static final int UDP_IN_ERRORS = 12;
+    public static final int UDP_NO_PORTS = 13;
+    public static final int UDP_RCVBUF_ERRORS = 14;
+    public static final int UDP_SNDBUF_ERRORS = 15;
+    public static final int TCP_OFO_QUEUE = 16;
+    public static final int TCP_LISTEN_DROPS = 17;
+    public static final int TCP_LISTEN_OVERFLOWS = 18;
+    public static final int TCP_TIMEOUTS = 19;
+    public static final int TCP_FAST_RETRANS = 20;
+    public static final int TCP_BACKLOG_DROP = 21;
+    public static final int TCP_PRUNE_CALLED = 22;
+    public static final int TCP_RCVQ_DROP = 23;
+
+    public static final int COUNTER_COUNT = 24;
+
+    // keys of the counters up to UDP_SNDBUF_ERRORS are located in /proc/net/snmp, the others in /proc/net/netstat
+    private static final String[] SNMP_KEYS = {"Tcp:InSegs", "Tcp:OutSegs", "Tcp:RetransSegs", "Tcp:InErrs",
+            "Tcp:OutRsts", "Tcp:ActiveOpens", "Tcp:PassiveOpens", "Tcp:AttemptFails", "Tcp:EstabResets",
+            "Tcp:CurrEstab", "Udp:InDatagrams", "Udp:OutDatagrams", "Udp:InErrors", "Udp:NoPorts",
+            "Udp:RcvbufErrors", "Udp:SndbufErrors"};
+    private static final String[] NETSTAT_KEYS = {"TcpExt:TCPOFOQueue", "TcpExt:ListenDrops",
+            "TcpExt:ListenOverflows", "TcpExt:TCPTimeouts", "TcpExt:TCPFastRetrans", "TcpExt:TCPBacklogDrop",
+            "TcpExt:PruneCalled", "TcpExt:TCPRcvQDrop"};
+
+    private final ProcSysHeaderTable m_snmp;
+    private final ProcSysHeaderTable m_netstat;
+
+    /**
+     * Constructor
+     */
+    public ProtocolStatsState() {
+        try {
+            m_snmp = new ProcSysHeaderTable(PROC_NET_SNMP, SNMP_KEYS);
+            m_netstat = new ProcSysHeaderTable(PROC_NET_NETSTAT, NETSTAT_KEYS);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the name of a counter (e.g. Tcp:RetransSegs)
+     *
+     * @param p_counter Counter id (e.g. TCP_RETRANS_SEGS)
+     */
+    public static String getCounterName(final int p_counter) {
+        if (p_counter < SNMP_KEYS.length) {
+            return SNMP_KEYS[p_counter];
+        }
+
+        return NETSTAT_KEYS[p_counter - SNMP_KEYS.length];
+    }
+
+    /**
+     * Check if the running kernel provides a counter
+     *
+     * @param p_counter Counter id (e.g. TCP_RETRANS_SEGS)
+     */
+    public boolean isAvailable(final int p_counter) {
+        if (p_counter < SNMP_KEYS.length) {
+            return m_snmp.isAvailable(p_counter);
+        }
+
+        return m_netstat.isAvailable(p_counter - SNMP_KEYS.length);
+    }
+
+    /**
+     * Get the value of a counter
+     *
+     * @param p_counter Counter id (e.g. TCP_RETRANS_SEGS)
+     */
+    public long getCounter(final int p_counter) {
+        if (p_counter < SNMP_KEYS.length) {
+            return m_snmp.getValue(p_counter);
+        }
+
+        return m_netstat.getValue(p_counter - SNMP_KEYS.length);
+    }
+
+    /**
+     * Get the total number of TCP segments received
+     */
+    public long getTcpInSegments() {
+        return getCounter(TCP_IN_SEGS);
+    }
+
+    /**
+     * Get the total number of TCP segments sent
+     */
+    public long getTcpOutSegments() {
+        return getCounter(TCP_OUT_SEGS);
+    }
+
+    /**
+     * Get the total number of TCP segments retransmitted
+     */
+    public long getTcpRetransmittedSegments() {
+        return getCounter(TCP_RETRANS_SEGS);
+    }
+
+    /**
+     * Get the total number of TCP packets queued to the out of order queue
+     */
+    public long getTcpOutOfOrderQueued() {
+        return getCounter(TCP_OFO_QUEUE);
+    }
+
+    /**
+     * Get the total number of dropped incoming TCP connection requests (SYNs) on listening sockets
+     */
+    public long getTcpListenDrops() {
+        return getCounter(TCP_LISTEN_DROPS);
+    }
+
+    /**
+     * Get the number of currently established TCP connections
+     */
+    public long getTcpCurrentEstablished() {
+        return getCounter(TCP_CURR_ESTAB);
+    }
+
+    /**
+     * Get the total number of UDP datagrams dropped because the receive buffer was full
+     */
+    public long getUdpRcvbufErrors() {
+        return getCounter(UDP_RCVBUF_ERRORS);
+    }
+
+    /**
+     * Get the total number of UDP datagrams dropped because the send buffer was full
+     */
+    public long getUdpSndbufErrors() {
+        return getCounter(UDP_SNDBUF_ERRORS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(getCounterName(i)).append(' ').append(getCounter(i));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_snmp.update();
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_NET_SNMP + ": " + e.getMessage());
+        }
+
+        try {
+            m_netstat.update();
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_NET_NETSTAT + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(getCounterName(i));
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(getCounter(i));
+        }
+
+        return builder.toString();
+    }
+}
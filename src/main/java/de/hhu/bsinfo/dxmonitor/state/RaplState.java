@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+
+/**
+ * Energy counters of the RAPL (running average power limit) domains in /sys/class/powercap/intel-rapl:* (also
+ * used for AMD CPUs), e.g. package-0 (intel-rapl:0) and its dram subzone (intel-rapl:0:1). Domains are listed
+ * once on construction. Without RAPL (e.g. in VMs) or without permission to read energy_uj (root only on recent
+ * kernels) the state has no domains.
+ */
+public class RaplState implements State {
+    public static final int TYPE_PACKAGE = 0;
+    public static final int TYPE_CORE = 1;
+    public static final int TYPE_UNCORE = 2;
+    public static final int TYPE_DRAM = 3;
+    public static final int TYPE_PSYS = 4;
+    public static final int TYPE_OTHER = 5;
+
+    private static final String SYS_POWERCAP = "/sys/class/powercap";
+    private static final String ZONE_PREFIX = "intel-rapl:";
+
+    private final String[] m_zones;
+    private final String[] m_names;
+    private final int[] m_types;
+    private final int[] m_packages;
+    private final long[] m_maxEnergyRangesUj;
+    private final ProcSysFileReader[] m_energyReaders;
+    private final long[] m_energiesUj;
+
+    /**
+     * Constructor
+     */
+    public RaplState() {
+        this(SYS_POWERCAP);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_root Directory with the intel-rapl:* directories (e.g. for a copy of the sysfs tree)
+     */
+    public RaplState(final String p_root) {
+        ArrayList<String> zones = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Long> maxRanges = new ArrayList<>();
+        ArrayList<ProcSysFileReader> readers = new ArrayList<>();
+
+        String[] entries = new File(p_root).list();
+
+        if (entries != null) {
+            // intel-rapl:0, intel-rapl:0:0, intel-rapl:0:1, intel-rapl:1, ...
+            Arrays.sort(entries);
+
+            for (String entry : entries) {
+                if (!entry.startsWith(ZONE_PREFIX)) {
+                    continue;
+                }
+
+                String zonePath = p_root + '/' + entry + '/';
+                long maxRange;
+                String name;
+
+                try {
+                    maxRange = Long.parseLong(ProcSysFileReader.readCompleteFileOnce(zonePath +
+                            "max_energy_range_uj").trim());
+                    name = ProcSysFileReader.readCompleteFileOnce(zonePath + "name").trim();
+                } catch (IOException | NumberFormatException ignored) {
+                    continue;
+                }
+
+                try {
+                    readers.add(new ProcSysFileReader(zonePath + "energy_uj", 64));
+                } catch (FileNotFoundException ignored) {
+                    // missing or no permission
+                    continue;
+                }
+
+                zones.add(entry);
+                names.add(name);
+                maxRanges.add(maxRange);
+            }
+        }
+
+        m_zones = zones.toArray(new String[0]);
+        m_names = names.toArray(new String[0]);
+        m_energyReaders = readers.toArray(new ProcSysFileReader[0]);
+
+        m_types = new int[m_zones.length];
+        m_packages = new int[m_zones.length];
+        m_maxEnergyRangesUj = new long[m_zones.length];
+        m_energiesUj = new long[m_zones.length];
+
+        for (int i = 0; i < m_zones.length; i++) {
+            m_types[i] = parseType(m_names[i]);
+            m_maxEnergyRangesUj[i] = maxRanges.get(i);
+
+            // first number of the zone, e.g. 0 of intel-rapl:0:1
+            String id = m_zones[i].substring(ZONE_PREFIX.length());
+            int end = id.indexOf(':');
+
+            m_packages[i] = Integer.parseInt(end == -1 ? id : id.substring(0, end));
+        }
+    }
+
+    /**
+     * Get the number of readable domains (0 if RAPL is not available)
+     */
+    public int getDomainCount() {
+        return m_zones.length;
+    }
+
+    /**
+     * Get the powercap zone of a domain, e.g. "intel-rapl:0:1"
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     */
+    public String getZone(final int p_domain) {
+        return m_zones[p_domain];
+    }
+
+    /**
+     * Get the name of a domain, e.g. "package-0" or "dram"
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     */
+    public String getName(final int p_domain) {
+        return m_names[p_domain];
+    }
+
+    /**
+     * Get the type of a domain
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     * @return Type, e.g. RaplState.TYPE_DRAM
+     */
+    public int getType(final int p_domain) {
+        return m_types[p_domain];
+    }
+
+    /**
+     * Get the index of the package (top level zone) of a domain
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     */
+    public int getPackage(final int p_domain) {
+        return m_packages[p_domain];
+    }
+
+    /**
+     * Get the value after which the energy counter of a domain wraps around to 0
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     * @return Max value in uJ
+     */
+    public long getMaxEnergyRangeUj(final int p_domain) {
+        return m_maxEnergyRangesUj[p_domain];
+    }
+
+    /**
+     * Get the raw energy counter of a domain
+     *
+     * @param p_domain Index of the domain [0, getDomainCount())
+     * @return Energy in uJ (wraps around at getMaxEnergyRangeUj)
+     */
+    public long getEnergyUj(final int p_domain) {
+        return m_energiesUj[p_domain];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("rapl domains ").append(m_zones.length);
+
+        for (int i = 0; i < m_zones.length; i++) {
+            builder.append(", ").append(m_zones[i]).append(' ').append(m_names[i]).append(' ')
+                    .append(m_energiesUj[i]).append(" uJ");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_energyReaders.length; i++) {
+            try {
+                m_energiesUj[i] = m_energyReaders[i].readLong();
+            } catch (IOException e) {
+                throw new StateUpdateException("Can't read energy of RAPL zone " + m_zones[i] + ": " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_zones.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_zones[i]).append(' ').append(m_names[i]).append(" (uj)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_zones.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_energiesUj[i]);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the type of a domain by its name
+     *
+     * @param p_name Name of the domain
+     * @return Type
+     */
+    private static int parseType(final String p_name) {
+        if (p_name.startsWith("package")) {
+            return TYPE_PACKAGE;
+        }
+
+        switch (p_name) {
+            case "core":
+                return TYPE_CORE;
+            case "uncore":
+                return TYPE_UNCORE;
+            case "dram":
+                return TYPE_DRAM;
+            case "psys":
+                return TYPE_PSYS;
+            default:
+                return TYPE_OTHER;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Scheduler statistics of all CPUs from /proc/schedstat (requires CONFIG_SCHEDSTATS): time spent running tasks,
+ * time tasks spent waiting on the run queue and the number of timeslices run. The three values are the last
+ * columns of the cpuN lines in all versions of the file.
+ */
+public class SchedStatState implements State {
+    private static final String PROC_SCHEDSTAT = "/proc/schedstat";
+    private static final byte[] CPU = "cpu".getBytes(StandardCharsets.US_ASCII);
+
+    // max number of columns of a cpu line (without label)
+    private static final int MAX_COLUMNS = 16;
+
+    private final String m_path;
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+    private final long[] m_columns;
+
+    // indexed by cpu id
+    private final boolean[] m_present;
+    private final long[] m_runTimesNs;
+    private final long[] m_waitTimesNs;
+    private final long[] m_timeslices;
+
+    /**
+     * Constructor
+     */
+    public SchedStatState() {
+        this(PROC_SCHEDSTAT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the schedstat file (e.g. for a copy of the file)
+     */
+    public SchedStatState(final String p_path) {
+        m_path = p_path;
+
+        try {
+            m_reader = new ProcSysFileReader(p_path);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+        m_columns = new long[MAX_COLUMNS];
+
+        int[] possible = CpuList.getPossibleCpus();
+        int maxCpus = possible.length == 0 ? 1 : possible[possible.length - 1] + 1;
+
+        m_present = new boolean[maxCpus];
+        m_runTimesNs = new long[maxCpus];
+        m_waitTimesNs = new long[maxCpus];
+        m_timeslices = new long[maxCpus];
+    }
+
+    /**
+     * Get the max number of CPUs (highest possible CPU id + 1)
+     */
+    public int getMaxCpus() {
+        return m_present.length;
+    }
+
+    /**
+     * Check if a CPU was listed on the last update (false if offline)
+     *
+     * @param p_cpu Id of the CPU
+     */
+    public boolean isPresent(final int p_cpu) {
+        return m_present[p_cpu];
+    }
+
+    /**
+     * Get the time the CPU spent running tasks
+     *
+     * @param p_cpu Id of the CPU
+     * @return Time in ns
+     */
+    public long getRunTimeNs(final int p_cpu) {
+        return m_runTimesNs[p_cpu];
+    }
+
+    /**
+     * Get the time tasks spent waiting on the run queue of the CPU
+     *
+     * @param p_cpu Id of the CPU
+     * @return Time in ns
+     */
+    public long getWaitTimeNs(final int p_cpu) {
+        return m_waitTimesNs[p_cpu];
+    }
+
+    /**
+     * Get the number of timeslices run on the CPU
+     *
+     * @param p_cpu Id of the CPU
+     */
+    public long getTimeslices(final int p_cpu) {
+        return m_timeslices[p_cpu];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int cpu = 0; cpu < m_present.length; cpu++) {
+            if (!m_present[cpu]) {
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            builder.append("cpu").append(cpu).append(": run time ").append(m_runTimesNs[cpu])
+                    .append(" ns, wait time ").append(m_waitTimesNs[cpu]).append(" ns, timeslices ")
+                    .append(m_timeslices[cpu]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + m_path + ": " + e.getMessage());
+        }
+
+        Arrays.fill(m_present, false);
+
+        // e.g. "cpu0 0 0 0 0 0 0 2811435478 22950331 4421"
+        while (m_tokenizer.findLine(CPU)) {
+            m_tokenizer.setPosition(m_tokenizer.getPosition() + CPU.length);
+
+            int cpu = (int) m_tokenizer.nextLong();
+            int columns = 0;
+
+            while (columns < MAX_COLUMNS && m_tokenizer.hasTokenInLine()) {
+                m_columns[columns++] = m_tokenizer.nextLong();
+            }
+
+            if (cpu < m_present.length && columns >= 3) {
+                m_present[cpu] = true;
+                m_runTimesNs[cpu] = m_columns[columns - 3];
+                m_waitTimesNs[cpu] = m_columns[columns - 2];
+                m_timeslices[cpu] = m_columns[columns - 1];
+            }
+
+            m_tokenizer.nextLine();
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int cpu = 0; cpu < m_present.length; cpu++) {
+            if (!m_present[cpu]) {
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append("cpu").append(cpu).append(" run time (ns)").append(p_delim).append("cpu").append(cpu)
+                    .append(" wait time (ns)").append(p_delim).append("cpu").append(cpu).append(" timeslices");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int cpu = 0; cpu < m_present.length; cpu++) {
+            if (!m_present[cpu]) {
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_runTimesNs[cpu]).append(p_delim).append(m_waitTimesNs[cpu]).append(p_delim)
+                    .append(m_timeslices[cpu]);
+        }
+
+        return builder.toString();
+    }
+}
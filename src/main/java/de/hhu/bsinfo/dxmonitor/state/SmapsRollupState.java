@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * Memory of a process summed up over all of its mappings from /proc/PID/smaps_rollup (kernel 4.14+). Reading the
+ * rollup is much cheaper than summing up smaps. The lines are mapped to fields once, all values are in KB.
+ */
+public class SmapsRollupState implements State {
+    private static final String PROC = "/proc/";
+    private static final String SMAPS_ROLLUP = "/smaps_rollup";
+
+    public static final int RSS = 0;
+    public static final int PSS = 1;
+    public static final int PSS_ANON = 2;
+    public static final int PSS_FILE = 3;
+    public static final int PSS_SHMEM = 4;
+    public static final int SHARED_CLEAN = 5;
+    public static final int SHARED_DIRTY = 6;
+    public static final int PRIVATE_CLEAN = 7;
+    public static final int PRIVATE_DIRTY = 8;
+    public static final int ANONYMOUS = 9;
+    public static final int ANON_HUGE_PAGES = 10;
+    public static final int SWAP = 11;
+    public static final int SWAP_PSS = 12;
+    public static final int LOCKED = 13;
+
+    public static final int FIELD_COUNT = 14;
+
+    private static final String[] FIELD_KEYS = {"Rss", "Pss", "Pss_Anon", "Pss_File", "Pss_Shmem", "Shared_Clean",
+            "Shared_Dirty", "Private_Clean", "Private_Dirty", "Anonymous", "AnonHugePages", "Swap", "SwapPss",
+            "Locked"};
+
+    private final String m_path;
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_table;
+
+    private final long[] m_values;
+
+    /**
+     * Constructor for the current process
+     */
+    public SmapsRollupState() {
+        this("self");
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process
+     */
+    public SmapsRollupState(final int p_pid) {
+        this(Integer.toString(p_pid));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_pid Id of the process or "self"
+     */
+    private SmapsRollupState(final String p_pid) {
+        m_path = PROC + p_pid + SMAPS_ROLLUP;
+
+        try {
+            m_reader = new ProcSysFileReader(m_path, 2048);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        // first line is the address range of the rollup (no field)
+        try {
+            m_table = new ProcSysKeyTable(m_path, FIELD_KEYS, ':');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_values = new long[FIELD_COUNT];
+    }
+
+    /**
+     * Get the key of a field in smaps_rollup
+     *
+     * @param p_field Field (e.g. SmapsRollupState.PSS)
+     */
+    public static String getFieldKey(final int p_field) {
+        return FIELD_KEYS[p_field];
+    }
+
+    /**
+     * Check if a field is provided by the kernel (e.g. the Pss_* fields are missing on kernels older than 5.8)
+     *
+     * @param p_field Field (e.g. SmapsRollupState.PSS)
+     */
+    public boolean isAvailable(final int p_field) {
+        return m_table.isAvailable(p_field);
+    }
+
+    /**
+     * Get the value of a field
+     *
+     * @param p_field Field (e.g. SmapsRollupState.PSS)
+     * @return Value in KB or 0 if not available
+     */
+    public long getValue(final int p_field) {
+        return m_values[p_field];
+    }
+
+    /**
+     * Get the resident memory (in KB)
+     */
+    public long getRssKB() {
+        return m_values[RSS];
+    }
+
+    /**
+     * Get the proportional share of the resident memory, i.e. shared pages divided by the number of sharers (in KB)
+     */
+    public long getPssKB() {
+        return m_values[PSS];
+    }
+
+    /**
+     * Get the resident anonymous (non file backed) memory (in KB)
+     */
+    public long getAnonymousKB() {
+        return m_values[ANONYMOUS];
+    }
+
+    /**
+     * Get the anonymous memory backed by transparent huge pages (in KB)
+     */
+    public long getAnonHugePagesKB() {
+        return m_values[ANON_HUGE_PAGES];
+    }
+
+    /**
+     * Get the resident file backed memory, i.e. Rss without anonymous memory (in KB)
+     */
+    public long getFileKB() {
+        return m_values[RSS] - m_values[ANONYMOUS];
+    }
+
+    /**
+     * Get the memory swapped out (in KB)
+     */
+    public long getSwapKB() {
+        return m_values[SWAP];
+    }
+
+    /**
+     * Get the memory locked in RAM, e.g. by mlock (in KB)
+     */
+    public long getLockedKB() {
+        return m_values[LOCKED];
+    }
+
+    @Override
+    public String toString() {
+        return "rss " + getRssKB() + " KB, pss " + getPssKB() + " KB, anonymous " + getAnonymousKB() +
+                " KB, anon huge pages " + getAnonHugePagesKB() + " KB, private dirty " + m_values[PRIVATE_DIRTY] +
+                " KB, swap " + getSwapKB() + " KB, locked " + getLockedKB() + " KB";
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + m_path + ": " + e.getMessage());
+        }
+
+        m_table.read(m_tokenizer, m_values);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(FIELD_KEYS[i]).append(" (kb)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_values[i]);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of the software interrupts handled per CPU read from /proc/softirqs
+ */
+public class SoftirqState implements State {
+    private static final String PROC_SOFTIRQS = "/proc/softirqs";
+
+    public static final int HI = 0;
+    public static final int TIMER = 1;
+    public static final int NET_TX = 2;
+    public static final int NET_RX = 3;
+    public static final int BLOCK = 4;
+    public static final int IRQ_POLL = 5;
+    public static final int TASKLET = 6;
+    public static final int SCHED = 7;
+    public static final int HRTIMER = 8;
+    public static final int RCU = 9;
+
+    public static final int TYPE_COUNT = 10;
+
+    private static final String[] TYPE_NAMES = {"HI", "TIMER", "NET_TX", "NET_RX", "BLOCK", "IRQ_POLL", "TASKLET",
+            "SCHED", "HRTIMER", "RCU"};
+
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final int[] m_cpuIds;
+    // maps line in file (without header) to softirq type or -1 if unknown
+    private final int[] m_lineTypes;
+
+    private final long[][] m_counts;
+
+    /**
+     * Constructor
+     */
+    public SoftirqState() {
+        try {
+            m_reader = new ProcSysFileReader(PROC_SOFTIRQS);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        String content;
+
+        try {
+            content = ProcSysFileReader.readCompleteFileOnce(PROC_SOFTIRQS);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        String[] lines = content.split("\n");
+
+        // header, e.g. "CPU0 CPU1 CPU2"
+        StringTokenizer tokenizer = new StringTokenizer(lines[0], " ");
+        m_cpuIds = new int[tokenizer.countTokens()];
+
+        for (int i = 0; i < m_cpuIds.length; i++) {
+            m_cpuIds[i] = Integer.parseInt(tokenizer.nextToken().substring("CPU".length()));
+        }
+
+        m_lineTypes = new int[lines.length - 1];
+
+        for (int i = 1; i < lines.length; i++) {
+            String name = lines[i].trim();
+            int index = name.indexOf(':');
+
+            m_lineTypes[i - 1] = index == -1 ? -1 : Arrays.asList(TYPE_NAMES).indexOf(name.substring(0, index));
+        }
+
+        m_counts = new long[TYPE_COUNT][m_cpuIds.length];
+    }
+
+    /**
+     * Get the name of a softirq type (e.g. NET_RX)
+     *
+     * @param p_type Softirq type (e.g. NET_RX)
+     */
+    public static String getTypeName(final int p_type) {
+        return TYPE_NAMES[p_type];
+    }
+
+    /**
+     * Get the number of CPUs
+     */
+    public int getCpuCount() {
+        return m_cpuIds.length;
+    }
+
+    /**
+     * Get the id of a CPU (as in cpuN)
+     *
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     */
+    public int getCpuId(final int p_cpuIdx) {
+        return m_cpuIds[p_cpuIdx];
+    }
+
+    /**
+     * Get the total number of softirqs of a type handled on a CPU
+     *
+     * @param p_type Softirq type (e.g. NET_RX)
+     * @param p_cpuIdx Index of the CPU [0, getCpuCount())
+     */
+    public long getCount(final int p_type, final int p_cpuIdx) {
+        return m_counts[p_type][p_cpuIdx];
+    }
+
+    /**
+     * Get the total number of softirqs of a type handled on all CPUs
+     *
+     * @param p_type Softirq type (e.g. NET_RX)
+     */
+    public long getTotalCount(final int p_type) {
+        long sum = 0;
+
+        for (long count : m_counts[p_type]) {
+            sum += count;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+
+            builder.append(TYPE_NAMES[i]).append(':');
+
+            for (long count : m_counts[i]) {
+                builder.append(' ').append(count);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_SOFTIRQS + ": " + e.getMessage());
+        }
+
+        for (int type : m_lineTypes) {
+            if (!m_tokenizer.nextLine()) {
+                throw new StateUpdateException("Unexpected end of file " + PROC_SOFTIRQS);
+            }
+
+            if (type == -1) {
+                continue;
+            }
+
+            // skip type name
+            m_tokenizer.skipToken();
+
+            for (int j = 0; j < m_cpuIds.length; j++) {
+                m_counts[type][j] = m_tokenizer.nextLong();
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            for (int cpuId : m_cpuIds) {
+                if (builder.length() > 0) {
+                    builder.append(p_delim);
+                }
+
+                builder.append(TYPE_NAMES[i]).append(" cpu").append(cpuId);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            for (int j = 0; j < m_cpuIds.length; j++) {
+                if (i > 0 || j > 0) {
+                    builder.append(p_delim);
+                }
+
+                builder.append(m_counts[i][j]);
+            }
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of the network backlog processing per CPU read from /proc/net/softnet_stat
+ */
+public class SoftnetState implements State {
+    private static final String PROC_NET_SOFTNET_STAT = "/proc/net/softnet_stat";
+
+    // columns (hex values): processed, dropped, time_squeeze, ..., cpu id (since kernel 5.10, column 13)
+    private static final int COLUMN_CPU_ID = 12;
+
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    // indexed by cpu id, only online CPUs are listed in the file
+    private final boolean[] m_online;
+    private final long[] m_processed;
+    private final long[] m_dropped;
+    private final long[] m_timeSqueeze;
+
+    /**
+     * Constructor
+     */
+    public SoftnetState() {
+        try {
+            m_reader = new ProcSysFileReader(PROC_NET_SOFTNET_STAT);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        int[] possibleCpus = CpuList.getPossibleCpus();
+        int cpus = possibleCpus.length == 0 ? 1 : possibleCpus[possibleCpus.length - 1] + 1;
+
+        m_online = new boolean[cpus];
+        m_processed = new long[cpus];
+        m_dropped = new long[cpus];
+        m_timeSqueeze = new long[cpus];
+    }
+
+    /**
+     * Get the number of CPU slots (max possible cpu id + 1)
+     */
+    public int getCpuCount() {
+        return m_online.length;
+    }
+
+    /**
+     * Check if a CPU was listed (online) on the last update
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public boolean isOnline(final int p_cpuId) {
+        return m_online[p_cpuId];
+    }
+
+    /**
+     * Get the total number of network frames processed by a CPU
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public long getProcessed(final int p_cpuId) {
+        return m_processed[p_cpuId];
+    }
+
+    /**
+     * Get the total number of network frames dropped because the backlog queue of a CPU was full
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public long getDropped(final int p_cpuId) {
+        return m_dropped[p_cpuId];
+    }
+
+    /**
+     * Get the total number of times the NET_RX softirq of a CPU ran out of budget/time with work remaining
+     *
+     * @param p_cpuId Id of the CPU
+     */
+    public long getTimeSqueeze(final int p_cpuId) {
+        return m_timeSqueeze[p_cpuId];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_online.length; i++) {
+            if (!m_online[i]) {
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+
+            builder.append("cpu ").append(i).append(": processed ").append(m_processed[i]).append(", dropped ")
+                    .append(m_dropped[i]).append(", time squeeze ").append(m_timeSqueeze[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_NET_SOFTNET_STAT + ": " + e.getMessage());
+        }
+
+        Arrays.fill(m_online, false);
+
+        int line = 0;
+
+        while (m_tokenizer.hasRemaining()) {
+            int lineStart = m_tokenizer.getPosition();
+
+            long processed = m_tokenizer.nextHexLong();
+            long dropped = m_tokenizer.nextHexLong();
+            long timeSqueeze = m_tokenizer.nextHexLong();
+
+            // older kernels don't print the cpu id and skip offline CPUs, assume the line number
+            int cpuId = line;
+
+            m_tokenizer.skipTokens(COLUMN_CPU_ID - 3);
+
+            if (m_tokenizer.hasTokenInLine()) {
+                cpuId = (int) m_tokenizer.nextHexLong();
+            }
+
+            if (cpuId >= 0 && cpuId < m_online.length && m_tokenizer.getPosition() != lineStart) {
+                m_online[cpuId] = true;
+                m_processed[cpuId] = processed;
+                m_dropped[cpuId] = dropped;
+                m_timeSqueeze[cpuId] = timeSqueeze;
+            }
+
+            m_tokenizer.nextLine();
+            line++;
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_online.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append("cpu").append(i).append(" processed").append(p_delim).append("cpu").append(i)
+                    .append(" dropped").append(p_delim).append("cpu").append(i).append(" time squeeze");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_online.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_processed[i]).append(p_delim).append(m_dropped[i]).append(p_delim)
+                    .append(m_timeSqueeze[i]);
+        }
+
+        return builder.toString();
+    }
+}
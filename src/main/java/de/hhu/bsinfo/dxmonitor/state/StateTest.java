@@ -13,6 +13,9 @@
 
 package de.hhu.bsinfo.dxmonitor.state;
 
+import de.hhu.bsinfo.dxmonitor.util.CpuList;
+import de.hhu.bsinfo.dxmonitor.util.DeviceLister;
+
 /**
  * Test for testing the various state classes
  *
@@ -28,9 +31,27 @@ public class StateTest {
         testSystemState();
         testCpuCoreState(1000);
         testCpuState(1000);
+        testCpuTopologyState(1000);
+        testNumaNodeStates(1000);
+        testThermalState(1000);
+        testRaplState(1000);
+        testSchedStatState(1000);
+        testMemState(1000);
+        testVmStatState(1000);
+        testInterruptState(1000);
+        testSoftirqState(1000);
+        testSoftnetState(1000);
         testDiskState(1000);
         testNetworkState(1000);
+        testInfinibandState(1000);
+        testProtocolStatsState(1000);
+        testPressureState(1000);
+        testProcessState(1000);
+        testSmapsRollupState(1000);
+        testCgroupStates(1000);
         testJVMMem();
+        testJVMBufferPoolState(1000);
+        testNativeMemoryState(10);
     }
 
     /**
@@ -40,6 +61,13 @@ public class StateTest {
         testState(new JVMMemState(), 1, "testJVMMem");
     }
 
+    /**
+     * Test case for JVMBufferPoolState
+     */
+    private static void testJVMBufferPoolState(final int p_benchmarkCount) {
+        testState(new JVMBufferPoolState(), p_benchmarkCount, "testJVMBufferPoolState");
+    }
+
     /**
      * Test case for NetworkState
      */
@@ -47,6 +75,61 @@ public class StateTest {
         testState(new NetworkState("eth0"), p_benchmarkCount, "testNetworkState");
     }
 
+    /**
+     * Test case for InfinibandState (all available ib devices)
+     */
+    private static void testInfinibandState(final int p_benchmarkCount) {
+        for (String device : DeviceLister.getIBs()) {
+            testState(new InfinibandState(device), p_benchmarkCount, "testInfinibandState " + device);
+        }
+    }
+
+    /**
+     * Test case for ProtocolStatsState
+     */
+    private static void testProtocolStatsState(final int p_benchmarkCount) {
+        testState(new ProtocolStatsState(), p_benchmarkCount, "testProtocolStatsState");
+    }
+
+    /**
+     * Test case for PressureState
+     */
+    private static void testPressureState(final int p_benchmarkCount) {
+        testState(new PressureState(PressureState.RESOURCE_CPU), p_benchmarkCount, "testPressureState cpu");
+        testState(new PressureState(PressureState.RESOURCE_MEMORY), p_benchmarkCount, "testPressureState memory");
+        testState(new PressureState(PressureState.RESOURCE_IO), p_benchmarkCount, "testPressureState io");
+    }
+
+    /**
+     * Test case for ProcessState (own process)
+     */
+    private static void testProcessState(final int p_benchmarkCount) {
+        testState(new ProcessState(), p_benchmarkCount, "testProcessState");
+    }
+
+    /**
+     * Test case for SmapsRollupState (own process)
+     */
+    private static void testSmapsRollupState(final int p_benchmarkCount) {
+        testState(new SmapsRollupState(), p_benchmarkCount, "testSmapsRollupState");
+    }
+
+    /**
+     * Test case for NativeMemoryState (requires -XX:NativeMemoryTracking=summary)
+     */
+    private static void testNativeMemoryState(final int p_benchmarkCount) {
+        testState(new NativeMemoryState(), p_benchmarkCount, "testNativeMemoryState");
+    }
+
+    /**
+     * Test case for the cgroup states (own cgroup)
+     */
+    private static void testCgroupStates(final int p_benchmarkCount) {
+        testState(new CgroupCpuState(), p_benchmarkCount, "testCgroupCpuState");
+        testState(new CgroupMemoryState(), p_benchmarkCount, "testCgroupMemoryState");
+        testState(new CgroupIoState(), p_benchmarkCount, "testCgroupIoState");
+    }
+
     /**
      * Test case for DiskState
      */
@@ -62,6 +145,78 @@ public class StateTest {
         testState(new CpuState(), p_benchmarkCount, "testCpuState");
     }
 
+    /**
+     * Test case for CpuTopologyState
+     */
+    private static void testCpuTopologyState(final int p_benchmarkCount) {
+        testState(new CpuTopologyState(), p_benchmarkCount, "testCpuTopologyState");
+    }
+
+    /**
+     * Test case for NumaNodeState (all online nodes)
+     */
+    private static void testNumaNodeStates(final int p_benchmarkCount) {
+        for (int node : NumaNodeState.getNodeIds()) {
+            testState(new NumaNodeState(node), p_benchmarkCount, "testNumaNodeState " + node);
+        }
+    }
+
+    /**
+     * Test case for ThermalState
+     */
+    private static void testThermalState(final int p_benchmarkCount) {
+        testState(new ThermalState(), p_benchmarkCount, "testThermalState");
+    }
+
+    /**
+     * Test case for RaplState
+     */
+    private static void testRaplState(final int p_benchmarkCount) {
+        testState(new RaplState(), p_benchmarkCount, "testRaplState");
+    }
+
+    /**
+     * Test case for SchedStatState
+     */
+    private static void testSchedStatState(final int p_benchmarkCount) {
+        testState(new SchedStatState(), p_benchmarkCount, "testSchedStatState");
+    }
+
+    /**
+     * Test case for SoftirqState
+     */
+    private static void testSoftirqState(final int p_benchmarkCount) {
+        testState(new SoftirqState(), p_benchmarkCount, "testSoftirqState");
+    }
+
+    /**
+     * Test case for SoftnetState
+     */
+    private static void testSoftnetState(final int p_benchmarkCount) {
+        testState(new SoftnetState(), p_benchmarkCount, "testSoftnetState");
+    }
+
+    /**
+     * Test case for MemState
+     */
+    private static void testMemState(final int p_benchmarkCount) {
+        testState(new MemState(), p_benchmarkCount, "testMemState");
+    }
+
+    /**
+     * Test case for VmStatState
+     */
+    private static void testVmStatState(final int p_benchmarkCount) {
+        testState(new VmStatState(), p_benchmarkCount, "testVmStatState");
+    }
+
+    /**
+     * Test case for InterruptState
+     */
+    private static void testInterruptState(final int p_benchmarkCount) {
+        testState(new InterruptState(), p_benchmarkCount, "testInterruptState");
+    }
+
     /**
      * Common test "interface" for various cases
      *
@@ -104,14 +259,14 @@ public class StateTest {
         System.out.println("================================================");
         System.out.println("testCpuCoreState");
 
-        int cores = CpuState.getTotalCores();
+        int[] ids = CpuList.getOnlineCpus();
 
-        System.out.println("Cores: " + cores);
+        System.out.println("Cores: " + ids.length);
 
-        CpuCoreState[] states = new CpuCoreState[cores];
+        CpuCoreState[] states = new CpuCoreState[ids.length];
 
-        for (int i = 0; i < cores; i++) {
-            states[i] = new CpuCoreState(i);
+        for (int i = 0; i < ids.length; i++) {
+            states[i] = new CpuCoreState(ids[i]);
         }
 
         long start = System.nanoTime();
@@ -127,7 +282,7 @@ public class StateTest {
         }
 
         System.out.printf("State update benchmark, avg: %f ms\n", ((System.nanoTime() - start) / p_benchmarkCount *
-                cores / 1000.0 / 1000.0));
+                ids.length / 1000.0 / 1000.0));
 
         System.out.println("CPU States:");
 
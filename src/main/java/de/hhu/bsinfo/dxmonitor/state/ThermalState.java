@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+
+/**
+ * Temperatures of all thermal zones in /sys/class/thermal (e.g. x86_pkg_temp, acpitz). The zones are listed
+ * once on construction, no zones (e.g. in VMs) result in an empty state.
+ */
+public class ThermalState implements State {
+    private static final String SYS_THERMAL = "/sys/class/thermal";
+    private static final String ZONE_PREFIX = "thermal_zone";
+
+    private final int[] m_zoneIds;
+    private final String[] m_zoneTypes;
+    private final ProcSysFileReader[] m_tempReaders;
+    private final long[] m_temps;
+
+    /**
+     * Constructor
+     */
+    public ThermalState() {
+        this(SYS_THERMAL);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_root Directory with the thermal_zoneN directories (e.g. for a copy of the sysfs tree)
+     */
+    public ThermalState(final String p_root) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        ArrayList<String> types = new ArrayList<>();
+        ArrayList<ProcSysFileReader> readers = new ArrayList<>();
+
+        String[] entries = new File(p_root).list();
+
+        if (entries != null) {
+            for (int id : sortedZoneIds(entries)) {
+                String zonePath = p_root + '/' + ZONE_PREFIX + id + '/';
+
+                try {
+                    readers.add(new ProcSysFileReader(zonePath + "temp", 64));
+                } catch (FileNotFoundException ignored) {
+                    continue;
+                }
+
+                String type;
+
+                try {
+                    type = ProcSysFileReader.readCompleteFileOnce(zonePath + "type").trim();
+                } catch (IOException ignored) {
+                    type = ZONE_PREFIX + id;
+                }
+
+                ids.add(id);
+                types.add(type);
+            }
+        }
+
+        m_zoneIds = new int[ids.size()];
+
+        for (int i = 0; i < m_zoneIds.length; i++) {
+            m_zoneIds[i] = ids.get(i);
+        }
+
+        m_zoneTypes = types.toArray(new String[0]);
+        m_tempReaders = readers.toArray(new ProcSysFileReader[0]);
+        m_temps = new long[m_zoneIds.length];
+    }
+
+    /**
+     * Get the number of thermal zones (0 if not available)
+     */
+    public int getZoneCount() {
+        return m_zoneIds.length;
+    }
+
+    /**
+     * Get the id of a zone (N of thermal_zoneN)
+     *
+     * @param p_zone Index of the zone [0, getZoneCount())
+     */
+    public int getZoneId(final int p_zone) {
+        return m_zoneIds[p_zone];
+    }
+
+    /**
+     * Get the type of a zone, e.g. "x86_pkg_temp"
+     *
+     * @param p_zone Index of the zone [0, getZoneCount())
+     */
+    public String getZoneType(final int p_zone) {
+        return m_zoneTypes[p_zone];
+    }
+
+    /**
+     * Find the first zone of a type
+     *
+     * @param p_type Type of the zone, e.g. "x86_pkg_temp"
+     * @return Index of the zone or -1 if not available
+     */
+    public int findZone(final String p_type) {
+        for (int i = 0; i < m_zoneTypes.length; i++) {
+            if (m_zoneTypes[i].equals(p_type)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the temperature of a zone
+     *
+     * @param p_zone Index of the zone [0, getZoneCount())
+     * @return Temperature in millidegree Celsius
+     */
+    public long getTemperatureMilliC(final int p_zone) {
+        return m_temps[p_zone];
+    }
+
+    /**
+     * Get the temperature of a zone
+     *
+     * @param p_zone Index of the zone [0, getZoneCount())
+     * @return Temperature in degree Celsius
+     */
+    public float getTemperature(final int p_zone) {
+        return m_temps[p_zone] / 1000.0f;
+    }
+
+    /**
+     * Get the highest temperature of all zones
+     *
+     * @return Temperature in degree Celsius or 0 if no zones are available
+     */
+    public float getMaxTemperature() {
+        long max = 0;
+
+        for (int i = 0; i < m_temps.length; i++) {
+            if (i == 0 || m_temps[i] > max) {
+                max = m_temps[i];
+            }
+        }
+
+        return max / 1000.0f;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("thermal zones ").append(m_zoneIds.length);
+
+        for (int i = 0; i < m_zoneIds.length; i++) {
+            builder.append(", ").append(m_zoneTypes[i]).append(' ').append(getTemperature(i)).append(" C");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        for (int i = 0; i < m_tempReaders.length; i++) {
+            try {
+                m_temps[i] = m_tempReaders[i].readLong();
+            } catch (IOException e) {
+                // some zones (e.g. of sleeping devices) return errors temporarily
+                m_temps[i] = 0;
+            }
+        }
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_zoneIds.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_zoneTypes[i]).append(m_zoneIds[i]).append(" (c)");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < m_zoneIds.length; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(getTemperature(i));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Get the ids of all thermal_zoneN entries
+     *
+     * @param p_entries Entries of the directory
+     * @return Sorted ids
+     */
+    private static int[] sortedZoneIds(final String[] p_entries) {
+        int[] ids = new int[p_entries.length];
+        int count = 0;
+
+        for (String entry : p_entries) {
+            if (!entry.startsWith(ZONE_PREFIX)) {
+                continue;
+            }
+
+            try {
+                ids[count] = Integer.parseInt(entry.substring(ZONE_PREFIX.length()));
+                count++;
+            } catch (NumberFormatException ignored) {
+                // not a zone
+            }
+        }
+
+        int[] sorted = Arrays.copyOf(ids, count);
+        Arrays.sort(sorted);
+
+        return sorted;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.state;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import de.hhu.bsinfo.dxmonitor.util.ProcSysFileReader;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysKeyTable;
+import de.hhu.bsinfo.dxmonitor.util.ProcSysTokenizer;
+
+/**
+ * State of the virtual memory event counters (paging, reclaim, compaction, THP, NUMA) read from /proc/vmstat.
+ * The lines are mapped to counters once, updates don't allocate memory. Counters split per zone on some kernels
+ * (e.g. allocstall_normal, allocstall_movable) are summed up.
+ */
+public class VmStatState implements State {
+    private static final String PROC_VMSTAT = "/proc/vmstat";
+
+    public static final int PGFAULT = 0;
+    public static final int PGMAJFAULT = 1;
+    public static final int PGPGIN = 2;
+    public static final int PGPGOUT = 3;
+    public static final int PSWPIN = 4;
+    public static final int PSWPOUT = 5;
+    public static final int PGSCAN_KSWAPD = 6;
+    public static final int PGSCAN_DIRECT = 7;
+    public static final int PGSTEAL_KSWAPD = 8;
+    public static final int PGSTEAL_DIRECT = 9;
+    public static final int ALLOCSTALL = 10;
+    public static final int COMPACT_STALL = 11;
+    public static final int COMPACT_FAIL = 12;
+    public static final int COMPACT_SUCCESS = 13;
+    public static final int THP_FAULT_ALLOC = 14;
+    public static final int THP_FAULT_FALLBACK = 15;
+    public static final int THP_COLLAPSE_ALLOC = 16;
+    public static final int THP_COLLAPSE_ALLOC_FAILED = 17;
+    public static final int NUMA_HIT = 18;
+    public static final int NUMA_MISS = 19;
+    public static final int NUMA_FOREIGN = 20;
+    public static final int NUMA_LOCAL = 21;
+    public static final int NUMA_OTHER = 22;
+    public static final int NUMA_HINT_FAULTS = 23;
+    public static final int NUMA_PAGES_MIGRATED = 24;
+    public static final int OOM_KILL = 25;
+
+    public static final int COUNTER_COUNT = 26;
+
+    private static final String[] COUNTER_NAMES = {"pgfault", "pgmajfault", "pgpgin", "pgpgout", "pswpin", "pswpout",
+            "pgscan_kswapd", "pgscan_direct", "pgsteal_kswapd", "pgsteal_direct", "allocstall", "compact_stall",
+            "compact_fail", "compact_success", "thp_fault_alloc", "thp_fault_fallback", "thp_collapse_alloc",
+            "thp_collapse_alloc_failed", "numa_hit", "numa_miss", "numa_foreign", "numa_local", "numa_other",
+            "numa_hint_faults", "numa_pages_migrated", "oom_kill"};
+
+    private static final String[] ZONE_SUFFIXES = {"_dma", "_dma32", "_normal", "_high", "_movable", "_device"};
+
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final ProcSysKeyTable m_table;
+
+    private final long[] m_counters;
+
+    /**
+     * Constructor
+     */
+    public VmStatState() {
+        try {
+            m_reader = new ProcSysFileReader(PROC_VMSTAT);
+        } catch (FileNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_tokenizer = new ProcSysTokenizer();
+
+        // counters split per zone (e.g. allocstall_normal) are summed up
+        try {
+            m_table = new ProcSysKeyTable(PROC_VMSTAT, COUNTER_NAMES, ' ', ZONE_SUFFIXES);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        m_counters = new long[COUNTER_COUNT];
+    }
+
+    /**
+     * Get the name of a counter in /proc/vmstat
+     *
+     * @param p_counter Counter (e.g. VmStatState.PGMAJFAULT)
+     */
+    public static String getCounterName(final int p_counter) {
+        return COUNTER_NAMES[p_counter];
+    }
+
+    /**
+     * Check if a counter is provided by the kernel (e.g. NUMA counters require CONFIG_NUMA)
+     *
+     * @param p_counter Counter (e.g. VmStatState.PGMAJFAULT)
+     */
+    public boolean isAvailable(final int p_counter) {
+        return m_table.isAvailable(p_counter);
+    }
+
+    /**
+     * Get the value of a counter
+     *
+     * @param p_counter Counter (e.g. VmStatState.PGMAJFAULT)
+     * @return Value or 0 if not available
+     */
+    public long getCounter(final int p_counter) {
+        return m_counters[p_counter];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(COUNTER_NAMES[i]).append(' ').append(m_counters[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public void update() throws StateUpdateException {
+        try {
+            m_tokenizer.reset(m_reader);
+        } catch (IOException e) {
+            throw new StateUpdateException("Can't read file " + PROC_VMSTAT + ": " + e.getMessage());
+        }
+
+        m_table.read(m_tokenizer, m_counters);
+    }
+
+    @Override
+    public String generateCSVHeader(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(COUNTER_NAMES[i]);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toCSV(final char p_delim) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            if (i > 0) {
+                builder.append(p_delim);
+            }
+
+            builder.append(m_counters[i]);
+        }
+
+        return builder.toString();
+    }
+}
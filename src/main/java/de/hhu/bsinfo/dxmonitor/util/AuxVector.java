@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Auxiliary vector passed by the kernel to the current process (/proc/self/auxv), e.g. the page size or the clock
+ * ticks per second. Same values as returned by getauxval/sysconf, read once.
+ */
+public final class AuxVector {
+    public static final long AT_PAGESZ = 6;
+    public static final long AT_CLKTCK = 17;
+
+    private static final String PROC_SELF_AUXV = "/proc/self/auxv";
+
+    // pairs of type and value
+    private static final long[] ENTRIES = readEntries();
+
+    /**
+     * Utility class
+     */
+    private AuxVector() {
+
+    }
+
+    /**
+     * Get a value of the auxiliary vector
+     *
+     * @param p_type Type of the entry (e.g. AuxVector.AT_PAGESZ)
+     * @param p_default Value to return if the entry is not available
+     * @return Value of the entry or p_default
+     */
+    public static long getValue(final long p_type, final long p_default) {
+        for (int i = 0; i < ENTRIES.length; i += 2) {
+            if (ENTRIES[i] == p_type && ENTRIES[i + 1] > 0) {
+                return ENTRIES[i + 1];
+            }
+        }
+
+        return p_default;
+    }
+
+    /**
+     * Get the page size of the kernel
+     *
+     * @return Page size in bytes (4096 if not available)
+     */
+    public static long getPageSize() {
+        return getValue(AT_PAGESZ, 4096);
+    }
+
+    /**
+     * Read the entries of the auxiliary vector
+     *
+     * @return Pairs of type and value, empty if not available
+     */
+    private static long[] readEntries() {
+        byte[] auxv;
+
+        try {
+            auxv = Files.readAllBytes(Paths.get(PROC_SELF_AUXV));
+        } catch (IOException e) {
+            return new long[0];
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(auxv).order(ByteOrder.nativeOrder());
+        boolean is32Bit = "32".equals(System.getProperty("sun.arch.data.model"));
+        int entrySize = is32Bit ? 8 : 16;
+        long[] entries = new long[auxv.length / entrySize * 2];
+        int count = 0;
+
+        // entries of (type, value), terminated by AT_NULL
+        while (buffer.remaining() >= entrySize) {
+            long type = is32Bit ? buffer.getInt() : buffer.getLong();
+            long value = is32Bit ? buffer.getInt() : buffer.getLong();
+
+            if (type == 0) {
+                break;
+            }
+
+            entries[count++] = type;
+            entries[count++] = value;
+        }
+
+        long[] tmp = new long[count];
+        System.arraycopy(entries, 0, tmp, 0, count);
+
+        return tmp;
+    }
+}
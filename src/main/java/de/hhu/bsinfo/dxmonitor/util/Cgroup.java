@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Directory of a cgroup for a controller (e.g. cpu, memory, io). Resolved from /proc/self/cgroup and
+ * /proc/self/mountinfo, i.e. it works in containers with and without cgroup namespaces. The unified (v2)
+ * hierarchy is used if the controller is enabled there, otherwise the v1 hierarchy of the controller.
+ */
+public final class Cgroup {
+    private static final String PROC_SELF_CGROUP = "/proc/self/cgroup";
+    private static final String PROC_SELF_MOUNTINFO = "/proc/self/mountinfo";
+
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+
+    // v1 limits are set to LONG_MAX rounded down to the page size if unlimited
+    private static final long V1_UNLIMITED = Long.MAX_VALUE >> 1;
+
+    private final String m_controller;
+    private final int m_version;
+    private final String m_path;
+
+    /**
+     * Constructor
+     *
+     * @param p_controller Controller (v2 name)
+     * @param p_version Version of the hierarchy
+     * @param p_path Path to the directory of the cgroup
+     */
+    private Cgroup(final String p_controller, final int p_version, final String p_path) {
+        m_controller = p_controller;
+        m_version = p_version;
+        m_path = p_path;
+    }
+
+    /**
+     * Resolve the cgroup of the current process for a controller
+     *
+     * @param p_controller Controller (v2 names: cpu, cpuset, memory, io)
+     * @return Cgroup or null if the controller is not available
+     */
+    public static Cgroup resolve(final String p_controller) {
+        return resolve(p_controller, null);
+    }
+
+    /**
+     * Resolve a cgroup for a controller
+     *
+     * @param p_controller Controller (v2 names: cpu, cpuset, memory, io)
+     * @param p_cgroup Path of the cgroup in the hierarchy (e.g. /system.slice/foo.service) or null for the
+     *         cgroup of the current process
+     * @return Cgroup or null if the controller or cgroup is not available
+     */
+    public static Cgroup resolve(final String p_controller, final String p_cgroup) {
+        String[] cgroupLines;
+        String[] mountLines;
+
+        try {
+            cgroupLines = ProcSysFileReader.readCompleteFileOnce(PROC_SELF_CGROUP).split("\n");
+            mountLines = ProcSysFileReader.readCompleteFileOnce(PROC_SELF_MOUNTINFO).split("\n");
+        } catch (IOException ignored) {
+            return null;
+        }
+
+        // blkio is the v1 name of io
+        String v1Controller = "io".equals(p_controller) ? "blkio" : p_controller;
+
+        for (String mount : mountLines) {
+            // 42 32 0:38 / /sys/fs/cgroup/unified rw,relatime - cgroup2 cgroup2 rw
+            String[] tokens = mount.split(" ");
+            int separator = Arrays.asList(tokens).indexOf("-");
+
+            if (separator == -1 || separator + 3 >= tokens.length) {
+                continue;
+            }
+
+            String fsType = tokens[separator + 1];
+            String root = tokens[3];
+            String mountPoint = tokens[4];
+
+            if ("cgroup2".equals(fsType)) {
+                String controllers;
+
+                try {
+                    controllers = ProcSysFileReader.readCompleteFileOnce(mountPoint + "/cgroup.controllers");
+                } catch (IOException ignored) {
+                    continue;
+                }
+
+                if (!Arrays.asList(controllers.trim().split(" ")).contains(p_controller)) {
+                    continue;
+                }
+
+                String path = p_cgroup != null ? p_cgroup : getProcessCgroup(cgroupLines, null);
+
+                if (path != null) {
+                    return create(p_controller, VERSION_2, mountPoint, root, path);
+                }
+            } else if ("cgroup".equals(fsType)) {
+                if (!Arrays.asList(tokens[separator + 3].split(",")).contains(v1Controller)) {
+                    continue;
+                }
+
+                String path = p_cgroup != null ? p_cgroup : getProcessCgroup(cgroupLines, v1Controller);
+
+                if (path != null) {
+                    return create(p_controller, VERSION_1, mountPoint, root, path);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse a limit value of a cgroup file ("max" for v2 and huge values for v1 if unlimited)
+     *
+     * @param p_tokenizer Tokenizer positioned at the value
+     * @return Limit or -1 if unlimited
+     */
+    public static long nextLimit(final ProcSysTokenizer p_tokenizer) {
+        p_tokenizer.skipWhitespaces();
+
+        int pos = p_tokenizer.getPosition();
+        long value = p_tokenizer.nextLong();
+
+        // "max"
+        if (p_tokenizer.getPosition() == pos) {
+            p_tokenizer.skipToken();
+            return -1;
+        }
+
+        return value < 0 || value >= V1_UNLIMITED ? -1 : value;
+    }
+
+    /**
+     * Get the controller (v2 name)
+     */
+    public String getController() {
+        return m_controller;
+    }
+
+    /**
+     * Get the version of the hierarchy (Cgroup.VERSION_1 or Cgroup.VERSION_2)
+     */
+    public int getVersion() {
+        return m_version;
+    }
+
+    /**
+     * Get the path to the directory of the cgroup
+     */
+    public String getPath() {
+        return m_path;
+    }
+
+    /**
+     * Get the path of a file of the cgroup
+     *
+     * @param p_name Name of the file, e.g. cpu.stat
+     */
+    public String getFile(final String p_name) {
+        return m_path + '/' + p_name;
+    }
+
+    /**
+     * Check if a file of the cgroup exists (e.g. limit files don't exist for the root cgroup)
+     *
+     * @param p_name Name of the file, e.g. cpu.max
+     */
+    public boolean hasFile(final String p_name) {
+        return new File(getFile(p_name)).exists();
+    }
+
+    @Override
+    public String toString() {
+        return m_controller + " v" + m_version + ' ' + m_path;
+    }
+
+    /**
+     * Get the cgroup of the current process from /proc/self/cgroup
+     *
+     * @param p_lines Lines of /proc/self/cgroup
+     * @param p_v1Controller v1 controller or null for the unified hierarchy
+     * @return Path of the cgroup in the hierarchy or null if not found
+     */
+    private static String getProcessCgroup(final String[] p_lines, final String p_v1Controller) {
+        for (String line : p_lines) {
+            // 4:memory:/docker/1234 or 0::/system.slice/foo.service
+            int first = line.indexOf(':');
+            int second = line.indexOf(':', first + 1);
+
+            if (first == -1 || second == -1) {
+                continue;
+            }
+
+            String controllers = line.substring(first + 1, second);
+
+            if (p_v1Controller == null ? controllers.isEmpty() :
+                    Arrays.asList(controllers.split(",")).contains(p_v1Controller)) {
+                return line.substring(second + 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Create a cgroup and map the path in the hierarchy to the mount point
+     *
+     * @param p_controller Controller
+     * @param p_version Version of the hierarchy
+     * @param p_mountPoint Mount point of the hierarchy
+     * @param p_root Root of the hierarchy at the mount point (not / in containers without cgroup namespace)
+     * @param p_cgroup Path of the cgroup in the hierarchy
+     * @return Cgroup or null if the directory does not exist
+     */
+    private static Cgroup create(final String p_controller, final int p_version, final String p_mountPoint,
+            final String p_root, final String p_cgroup) {
+        String relative = p_cgroup;
+
+        if (!"/".equals(p_root) && relative.startsWith(p_root)) {
+            relative = relative.substring(p_root.length());
+        }
+
+        String path = p_mountPoint + (relative.startsWith("/") || relative.isEmpty() ? "" : "/") + relative;
+
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        return new File(path).isDirectory() ? new Cgroup(p_controller, p_version, path) : null;
+    }
+}
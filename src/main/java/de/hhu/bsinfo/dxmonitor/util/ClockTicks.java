@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+/**
+ * Clock ticks per second (USER_HZ) of the kernel which is the unit of the times in /proc/stat and
+ * /proc/PID/stat. Read once from the auxiliary vector of the process (AT_CLKTCK, same as sysconf(_SC_CLK_TCK)).
+ */
+public final class ClockTicks {
+    // value on all common architectures
+    private static final long DEFAULT_USER_HZ = 100;
+
+    private static final long USER_HZ = AuxVector.getValue(AuxVector.AT_CLKTCK, DEFAULT_USER_HZ);
+
+    /**
+     * Utility class
+     */
+    private ClockTicks() {
+
+    }
+
+    /**
+     * Get the clock ticks per second
+     */
+    public static long getUserHz() {
+        return USER_HZ;
+    }
+
+    /**
+     * Convert clock ticks to milliseconds
+     *
+     * @param p_ticks Clock ticks
+     * @return Time in ms
+     */
+    public static long toMs(final long p_ticks) {
+        return p_ticks * 1000 / USER_HZ;
+    }
+}
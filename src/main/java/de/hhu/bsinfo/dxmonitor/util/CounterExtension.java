@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+/**
+ * Helper to extend hardware counters with less than 64 bits (e.g. 8, 16 or 32 bit counters of a NIC) to 64 bit
+ * values by accumulating the deltas of two reads. Counters either wrap around to 0 or saturate (stick at their
+ * maximum value until they are reset).
+ */
+public final class CounterExtension {
+    /**
+     * Utility class
+     */
+    private CounterExtension() {
+
+    }
+
+    /**
+     * Get the maximum value of an unsigned counter
+     *
+     * @param p_bits Width of the counter in bits (1 - 64)
+     * @return Max value (all bits set, -1 for 64 bit counters)
+     */
+    public static long getMaxValue(final int p_bits) {
+        if (p_bits >= 64) {
+            return -1;
+        }
+
+        return (1L << p_bits) - 1;
+    }
+
+    /**
+     * Calculate the difference of two reads of a wrapping counter
+     *
+     * @param p_current Current (raw) value
+     * @param p_last Last (raw) value
+     * @param p_maxValue Max value of the counter (e.g. getMaxValue(32)), -1 for 64 bit counters
+     * @return Difference of the two reads considering a single wrap around
+     */
+    public static long deltaWrapping(final long p_current, final long p_last, final long p_maxValue) {
+        // two's complement arithmetic already handles unsigned 64 bit wrap arounds
+        if (p_maxValue == -1 || p_current >= p_last) {
+            return p_current - p_last;
+        }
+
+        return p_maxValue - p_last + p_current + 1;
+    }
+
+    /**
+     * Calculate the difference of two reads of a saturating counter. A value smaller than the previous one
+     * means the counter was reset in between.
+     *
+     * @param p_current Current (raw) value
+     * @param p_last Last (raw) value
+     * @return Difference of the two reads (never negative)
+     */
+    public static long deltaSaturating(final long p_current, final long p_last) {
+        if (p_current >= p_last) {
+            return p_current - p_last;
+        }
+
+        return p_current;
+    }
+
+    /**
+     * Check if a saturating counter reached its max value. Increments are lost until the counter is reset.
+     *
+     * @param p_value Current (raw) value
+     * @param p_maxValue Max value of the counter
+     * @return True if saturated
+     */
+    public static boolean isSaturated(final long p_value, final long p_maxValue) {
+        return p_maxValue != -1 && p_value >= p_maxValue;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Helper to parse CPU (or node) lists as used by the kernel, e.g. "0-3,8-11" in
+ * /sys/devices/system/cpu/online or the Cpus_allowed_list field of /proc/PID/status
+ */
+public final class CpuList {
+    private static final String SYS_CPU_ONLINE = "/sys/devices/system/cpu/online";
+    private static final String SYS_CPU_POSSIBLE = "/sys/devices/system/cpu/possible";
+
+    /**
+     * Utility class
+     */
+    private CpuList() {
+
+    }
+
+    /**
+     * Parse a list
+     *
+     * @param p_list List to parse, e.g. "0-3,8-11"
+     * @return Sorted array with all ids of the list, e.g. {0, 1, 2, 3, 8, 9, 10, 11}
+     */
+    public static int[] parse(final String p_list) {
+        String list = p_list.trim();
+
+        if (list.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] ids = new int[16];
+        int count = 0;
+
+        for (String range : list.split(",")) {
+            int index = range.indexOf('-');
+            int start;
+            int end;
+
+            if (index == -1) {
+                start = Integer.parseInt(range);
+                end = start;
+            } else {
+                start = Integer.parseInt(range.substring(0, index));
+                end = Integer.parseInt(range.substring(index + 1));
+            }
+
+            for (int i = start; i <= end; i++) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+
+                ids[count++] = i;
+            }
+        }
+
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+
+        return ids;
+    }
+
+    /**
+     * Read and parse a list from a file
+     *
+     * @param p_path Path of the file, e.g. /sys/devices/system/node/node0/cpulist
+     * @return Sorted array with all ids of the list
+     * @throws IOException If reading the file failed
+     */
+    public static int[] read(final String p_path) throws IOException {
+        return parse(ProcSysFileReader.readCompleteFileOnce(p_path));
+    }
+
+    /**
+     * Get the ids of all currently online CPUs
+     *
+     * @return Sorted array with CPU ids
+     */
+    public static int[] getOnlineCpus() {
+        try {
+            return read(SYS_CPU_ONLINE);
+        } catch (IOException e) {
+            return getDefaultCpus();
+        }
+    }
+
+    /**
+     * Get the ids of all CPUs that can be online on this machine (including hotplug slots)
+     *
+     * @return Sorted array with CPU ids
+     */
+    public static int[] getPossibleCpus() {
+        try {
+            return read(SYS_CPU_POSSIBLE);
+        } catch (IOException e) {
+            return getDefaultCpus();
+        }
+    }
+
+    /**
+     * Fallback if sysfs is not available: Ids 0 to number of available processors - 1
+     *
+     * @return Array with CPU ids
+     */
+    private static int[] getDefaultCpus() {
+        int[] ids = new int[Runtime.getRuntime().availableProcessors()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+
+        return ids;
+    }
+}
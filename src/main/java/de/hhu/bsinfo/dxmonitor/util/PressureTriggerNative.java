@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+/**
+ * Optional JNI backend to register pressure stall triggers with the kernel and wait for them with poll().
+ * Java can't poll a file for POLLPRI which is required for triggers. The shim (src/main/native/pressure_trigger.c)
+ * must be compiled to libdxmonitorpsi.so and put on java.library.path, e.g.:
+ * gcc -shared -fPIC -O2 -I$JAVA_HOME/include -I$JAVA_HOME/include/linux pressure_trigger.c -o libdxmonitorpsi.so
+ */
+public final class PressureTriggerNative {
+    private static final String LIBRARY_NAME = "dxmonitorpsi";
+
+    private static final boolean ms_available = loadLibrary();
+
+    /**
+     * Utility class
+     */
+    private PressureTriggerNative() {
+
+    }
+
+    /**
+     * Check if the native library was loaded
+     */
+    public static boolean isAvailable() {
+        return ms_available;
+    }
+
+    /**
+     * Open a pressure file and register a trigger
+     *
+     * @param p_path Path of the pressure file, e.g. /proc/pressure/memory
+     * @param p_trigger Trigger to register, e.g. "some 150000 1000000" (stall and window in us)
+     * @return File descriptor or negative errno on error
+     */
+    public static native int open(final String p_path, final String p_trigger);
+
+    /**
+     * Wait for triggers to fire
+     *
+     * @param p_fds File descriptors returned by open
+     * @param p_count Number of valid file descriptors in the array
+     * @param p_timeoutMs Timeout in ms (-1 infinite)
+     * @param p_fired Set to 1 for every triggered file descriptor, negative errno for every failed file
+     *         descriptor (e.g. the cgroup was removed) and 0 otherwise (same size as p_fds)
+     * @return Number of fired or failed file descriptors, 0 on timeout or negative errno if poll failed
+     */
+    public static native int poll(final int[] p_fds, final int p_count, final int p_timeoutMs, final int[] p_fired);
+
+    /**
+     * Close a file descriptor which unregisters the trigger
+     *
+     * @param p_fd File descriptor returned by open
+     */
+    public static native void close(final int p_fd);
+
+    /**
+     * Try to load the native library
+     *
+     * @return True if loaded, false if not available
+     */
+    private static boolean loadLibrary() {
+        try {
+            System.loadLibrary(LIBRARY_NAME);
+            return true;
+        } catch (UnsatisfiedLinkError | SecurityException e) {
+            return false;
+        }
+    }
+}
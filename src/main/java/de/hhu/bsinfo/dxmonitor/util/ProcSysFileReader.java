@@ -26,9 +26,11 @@ import java.nio.channels.FileChannel;
  * @author Stefan Nothaas, stefan.nothaas@hhu.de, 20.02.2018
  */
 public final class ProcSysFileReader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
     private final FileChannel m_fileChannel;
     private final ByteBuffer m_buffer;
-    private final byte[] m_bufferArray;
+    private byte[] m_bufferArray;
 
     /**
      * Constructor
@@ -37,12 +39,26 @@ public final class ProcSysFileReader {
      * @throws FileNotFoundException If file does not exist
      */
     public ProcSysFileReader(final String p_path) throws FileNotFoundException {
+        this(p_path, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * Use a small buffer size for single value files (e.g. sysfs attributes) to keep the footprint low if many
+     * files are read periodically.
+     *
+     * @param p_path Path of file to read
+     * @param p_bufferSize Size of the read buffer in bytes
+     * @throws FileNotFoundException If file does not exist
+     */
+    public ProcSysFileReader(final String p_path, final int p_bufferSize) throws FileNotFoundException {
         FileInputStream fileInputStream;
 
         fileInputStream = new FileInputStream(p_path);
         m_fileChannel = fileInputStream.getChannel();
-        m_buffer = ByteBuffer.allocateDirect(8192);
-        m_bufferArray = new byte[4096];
+        m_buffer = ByteBuffer.allocateDirect(p_bufferSize);
+        m_bufferArray = new byte[p_bufferSize];
     }
 
     /**
@@ -114,7 +130,7 @@ public final class ProcSysFileReader {
             m_buffer.limit(nRead);
 
             while (m_buffer.hasRemaining()) {
-                nGet = Math.min(m_buffer.remaining(), 4096);
+                nGet = Math.min(m_buffer.remaining(), m_bufferArray.length);
                 m_buffer.get(m_bufferArray, 0, nGet);
 
                 // seems like we can't avoid copying twice and using new String is faster than encoding chars
@@ -127,6 +143,117 @@ public final class ProcSysFileReader {
         return builder.toString();
     }
 
+    /**
+     * Read the contents of the file into the internal buffer without creating any objects. The buffer grows if the
+     * file does not fit into it. Use getBuffer() to access the data read, e.g. with a ProcSysTokenizer.
+     *
+     * @return Number of bytes read
+     * @throws IOException If reading the file failed
+     */
+    public int readCompleteFileToBuffer() throws IOException {
+        int length = 0;
+        int nRead;
+
+        m_fileChannel.position(0);
+        m_buffer.clear();
+
+        while ((nRead = m_fileChannel.read(m_buffer)) != -1) {
+            if (nRead == 0) {
+                continue;
+            }
+
+            if (length + nRead > m_bufferArray.length) {
+                byte[] tmp = new byte[Math.max(m_bufferArray.length * 2, length + nRead)];
+                System.arraycopy(m_bufferArray, 0, tmp, 0, length);
+                m_bufferArray = tmp;
+            }
+
+            m_buffer.flip();
+            m_buffer.get(m_bufferArray, length, nRead);
+            length += nRead;
+
+            m_buffer.clear();
+        }
+
+        return length;
+    }
+
+    /**
+     * Read a small file into the internal buffer with a single positional read (pread) instead of seeking and
+     * reading until end of file, i.e. one syscall instead of three. Files generated by the kernel on read (seq_file,
+     * e.g. /proc/PID/stat) return as much as fits into the buffer, so a read not filling the buffer got the
+     * complete file. Falls back to readCompleteFileToBuffer() if the file does not fit.
+     *
+     * @return Number of bytes read
+     * @throws IOException If reading the file failed
+     */
+    public int readSmallFileToBuffer() throws IOException {
+        m_buffer.clear();
+
+        int nRead = m_fileChannel.read(m_buffer, 0);
+
+        if (nRead <= 0) {
+            return 0;
+        }
+
+        if (nRead == m_buffer.capacity()) {
+            return readCompleteFileToBuffer();
+        }
+
+        // the array is never smaller than the direct buffer
+        m_buffer.flip();
+        m_buffer.get(m_bufferArray, 0, nRead);
+
+        return nRead;
+    }
+
+    /**
+     * Read a file containing a single (decimal) number, e.g. a sysfs attribute or counter, without creating
+     * any objects. Leading whitespaces are skipped and parsing stops at the first non digit character.
+     *
+     * @return Parsed value or 0 if the file does not start with a number
+     * @throws IOException If reading the file failed
+     */
+    public long readLong() throws IOException {
+        int length = readCompleteFileToBuffer();
+        int pos = 0;
+        long value = 0;
+        boolean negative = false;
+
+        while (pos < length && Character.isWhitespace(m_bufferArray[pos])) {
+            pos++;
+        }
+
+        if (pos < length && m_bufferArray[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        while (pos < length && m_bufferArray[pos] >= '0' && m_bufferArray[pos] <= '9') {
+            value = value * 10 + m_bufferArray[pos] - '0';
+            pos++;
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Get the internal buffer filled by readCompleteFileToBuffer(). The array might be replaced on the next read
+     * if the file grew.
+     */
+    public byte[] getBuffer() {
+        return m_bufferArray;
+    }
+
+    /**
+     * Close the underlying file
+     *
+     * @throws IOException If closing failed
+     */
+    public void close() throws IOException {
+        m_fileChannel.close();
+    }
+
     @Override
     protected void finalize() throws Throwable {
         m_fileChannel.close();
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+
+/**
+ * Reader for files with a header line followed by a value line per section, e.g. /proc/net/snmp or
+ * /proc/net/netstat:
+ *
+ * Tcp: RtoAlgorithm RtoMin RtoMax ...
+ * Tcp: 1 200 120000 ...
+ *
+ * Values are selected by keys of the form "Section:Name" (e.g. "Tcp:RetransSegs"). The position (line and column)
+ * of each key is resolved once on construction. Afterwards, reading the values does not create any objects.
+ * Keys which are not provided by the running kernel are marked as unavailable and read as 0. The kernel adds
+ * sections while running (e.g. IcmpMsg: once ICMP messages of a new type were seen), so the section prefix of
+ * each value line is checked on update and the layout is resolved again if it moved.
+ */
+public final class ProcSysHeaderTable {
+    private final String m_path;
+    private final ProcSysFileReader m_reader;
+    private final ProcSysTokenizer m_tokenizer;
+
+    private final String[] m_keys;
+    // section prefix of the value line of each key, e.g. "Tcp: "
+    private final byte[][] m_sections;
+    private final long[] m_values;
+
+    // keys sorted by their position in the file
+    private final int[] m_order;
+    private final int[] m_lines;
+    private final int[] m_columns;
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the file to read (e.g. /proc/net/snmp)
+     * @param p_keys Keys of the values to read (e.g. "Tcp:RetransSegs")
+     * @throws FileNotFoundException If the file does not exist
+     */
+    public ProcSysHeaderTable(final String p_path, final String[] p_keys) throws FileNotFoundException {
+        m_path = p_path;
+        m_reader = new ProcSysFileReader(p_path);
+        m_tokenizer = new ProcSysTokenizer();
+
+        m_keys = p_keys;
+        m_sections = new byte[p_keys.length][];
+        m_values = new long[p_keys.length];
+        m_order = new int[p_keys.length];
+        m_lines = new int[p_keys.length];
+        m_columns = new int[p_keys.length];
+
+        for (int i = 0; i < p_keys.length; i++) {
+            m_sections[i] = (p_keys[i].substring(0, p_keys[i].indexOf(':') + 1) + ' ').getBytes(
+                    StandardCharsets.US_ASCII);
+        }
+
+        try {
+            resolveLayout(ProcSysFileReader.readCompleteFileOnce(p_path));
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read file " + p_path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the path of the file read
+     */
+    public String getPath() {
+        return m_path;
+    }
+
+    /**
+     * Get the number of keys
+     */
+    public int getKeyCount() {
+        return m_keys.length;
+    }
+
+    /**
+     * Get a key
+     *
+     * @param p_idx Index of the key (as passed to the constructor)
+     */
+    public String getKey(final int p_idx) {
+        return m_keys[p_idx];
+    }
+
+    /**
+     * Check if a key is provided by the file
+     *
+     * @param p_idx Index of the key (as passed to the constructor)
+     */
+    public boolean isAvailable(final int p_idx) {
+        return m_lines[p_idx] != -1;
+    }
+
+    /**
+     * Get the value of a key read on the last update
+     *
+     * @param p_idx Index of the key (as passed to the constructor)
+     */
+    public long getValue(final int p_idx) {
+        return m_values[p_idx];
+    }
+
+    /**
+     * Read the file and update all values
+     *
+     * @throws IOException If reading the file failed
+     */
+    public void update() throws IOException {
+        m_tokenizer.reset(m_reader);
+
+        if (!parse()) {
+            // sections were added or removed
+            resolveLayout(ProcSysFileReader.readCompleteFileOnce(m_path));
+            m_tokenizer.reset(m_reader);
+
+            if (!parse()) {
+                throw new IOException("Unexpected format of file " + m_path);
+            }
+        }
+    }
+
+    /**
+     * Parse the values using the current layout. The tokenizer must be reset before.
+     *
+     * @return True if successful, false if the layout does not match the file
+     */
+    private boolean parse() {
+        int line = 0;
+        int column = 0;
+
+        for (int idx : m_order) {
+            if (m_lines[idx] == -1) {
+                // unavailable keys are sorted to the end
+                break;
+            }
+
+            while (line < m_lines[idx]) {
+                if (!m_tokenizer.nextLine()) {
+                    return false;
+                }
+
+                line++;
+                column = 0;
+            }
+
+            if (column == 0) {
+                // value line must still belong to the section of the key
+                if (!m_tokenizer.startsWith(m_sections[idx])) {
+                    return false;
+                }
+
+                // skip section prefix
+                m_tokenizer.skipToken();
+            }
+
+            while (column < m_columns[idx]) {
+                m_tokenizer.skipToken();
+                column++;
+            }
+
+            m_values[idx] = m_tokenizer.nextLong();
+            column++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the line of the value and the column of each key
+     *
+     * @param p_content Content of the file
+     */
+    private void resolveLayout(final String p_content) {
+        String[] lines = p_content.split("\n");
+
+        Arrays.fill(m_lines, -1);
+
+        for (int i = 0; i + 1 < lines.length; i++) {
+            StringTokenizer tokenizer = new StringTokenizer(lines[i], " ");
+
+            if (!tokenizer.hasMoreTokens()) {
+                continue;
+            }
+
+            String section = tokenizer.nextToken();
+
+            // header and value lines have the same section prefix
+            if (!lines[i + 1].startsWith(section + ' ')) {
+                continue;
+            }
+
+            int column = 0;
+
+            while (tokenizer.hasMoreTokens()) {
+                String key = section + tokenizer.nextToken();
+
+                for (int j = 0; j < m_keys.length; j++) {
+                    if (m_lines[j] == -1 && m_keys[j].equals(key)) {
+                        m_lines[j] = i + 1;
+                        m_columns[j] = column;
+                    }
+                }
+
+                column++;
+            }
+
+            // skip value line
+            i++;
+        }
+
+        Integer[] order = new Integer[m_keys.length];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (p_a, p_b) -> {
+            long a = m_lines[p_a] == -1 ? Long.MAX_VALUE : ((long) m_lines[p_a] << 32) + m_columns[p_a];
+            long b = m_lines[p_b] == -1 ? Long.MAX_VALUE : ((long) m_lines[p_b] << 32) + m_columns[p_b];
+
+            return Long.compare(a, b);
+        });
+
+        for (int i = 0; i < order.length; i++) {
+            m_order[i] = order[i];
+        }
+    }
+}
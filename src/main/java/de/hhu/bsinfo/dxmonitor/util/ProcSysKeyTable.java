@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Layout of files with one "key value" or "key: value" line per value, e.g. /proc/meminfo, /proc/vmstat or
+ * memory.stat of a cgroup. The line of each key is resolved once on construction. Afterwards, reading the values
+ * parses the lines of interest only and does not create any objects. Keys which are not provided by the running
+ * kernel are marked as unavailable and their values are not touched.
+ */
+public final class ProcSysKeyTable {
+    private final char m_separator;
+
+    // field of each line or -1 if not of interest
+    private final int[] m_lineFields;
+    // true if the line is the first one of its field (values of further lines are added)
+    private final boolean[] m_firstLines;
+    private final boolean[] m_available;
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the file to read (e.g. /proc/meminfo)
+     * @param p_keys Keys of the fields, the index of a key is the field it is read to
+     * @param p_separator Character terminating the key (e.g. ':' for /proc/meminfo, ' ' for /proc/vmstat)
+     * @throws IOException If reading the file failed
+     */
+    public ProcSysKeyTable(final String p_path, final String[] p_keys, final char p_separator) throws IOException {
+        this(p_path, p_keys, identity(p_keys.length), p_keys.length, p_separator, new String[0]);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the file to read
+     * @param p_keys Keys to read
+     * @param p_fields Field each key is read to
+     * @param p_fieldCount Number of fields
+     * @param p_separator Character terminating the key
+     * @throws IOException If reading the file failed
+     */
+    public ProcSysKeyTable(final String p_path, final String[] p_keys, final int[] p_fields, final int p_fieldCount,
+            final char p_separator) throws IOException {
+        this(p_path, p_keys, p_fields, p_fieldCount, p_separator, new String[0]);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the file to read
+     * @param p_keys Keys of the fields, the index of a key is the field it is read to
+     * @param p_separator Character terminating the key
+     * @param p_keySuffixes Suffixes of keys split into multiple lines, e.g. the zones of allocstall_normal in
+     *         /proc/vmstat. The values of all lines of a key are summed up.
+     * @throws IOException If reading the file failed
+     */
+    public ProcSysKeyTable(final String p_path, final String[] p_keys, final char p_separator,
+            final String[] p_keySuffixes) throws IOException {
+        this(p_path, p_keys, identity(p_keys.length), p_keys.length, p_separator, p_keySuffixes);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param p_path Path of the file to read
+     * @param p_keys Keys to read
+     * @param p_fields Field each key is read to
+     * @param p_fieldCount Number of fields
+     * @param p_separator Character terminating the key
+     * @param p_keySuffixes Suffixes of keys split into multiple lines
+     * @throws IOException If reading the file failed
+     */
+    private ProcSysKeyTable(final String p_path, final String[] p_keys, final int[] p_fields,
+            final int p_fieldCount, final char p_separator, final String[] p_keySuffixes) throws IOException {
+        m_separator = p_separator;
+
+        String[] lines = ProcSysFileReader.readCompleteFileOnce(p_path).split("\n");
+
+        m_lineFields = new int[lines.length];
+        m_firstLines = new boolean[lines.length];
+        m_available = new boolean[p_fieldCount];
+
+        for (int i = 0; i < lines.length; i++) {
+            int key = resolveKey(lines[i], p_keys, p_keySuffixes);
+
+            m_lineFields[i] = key == -1 ? -1 : p_fields[key];
+
+            if (m_lineFields[i] != -1) {
+                m_firstLines[i] = !m_available[m_lineFields[i]];
+                m_available[m_lineFields[i]] = true;
+            }
+        }
+    }
+
+    /**
+     * Check if a field is provided by the file
+     *
+     * @param p_field Field to check
+     */
+    public boolean isAvailable(final int p_field) {
+        return m_available[p_field];
+    }
+
+    /**
+     * Read the values of all available fields. The tokenizer must be reset to the contents of the file.
+     *
+     * @param p_tokenizer Tokenizer with the contents of the file
+     * @param p_values Array to write the values to (indexed by field)
+     */
+    public void read(final ProcSysTokenizer p_tokenizer, final long[] p_values) {
+        for (int i = 0; i < m_lineFields.length && p_tokenizer.hasRemaining(); i++) {
+            if (m_lineFields[i] != -1) {
+                p_tokenizer.skipPast(m_separator);
+
+                if (m_firstLines[i]) {
+                    p_values[m_lineFields[i]] = p_tokenizer.nextLong();
+                } else {
+                    p_values[m_lineFields[i]] += p_tokenizer.nextLong();
+                }
+            }
+
+            p_tokenizer.nextLine();
+        }
+    }
+
+    /**
+     * Get the key of a line
+     *
+     * @param p_line Line of the file
+     * @param p_keys Keys to read
+     * @param p_keySuffixes Suffixes of keys split into multiple lines
+     * @return Index of the key or -1 if not of interest
+     */
+    private int resolveKey(final String p_line, final String[] p_keys, final String[] p_keySuffixes) {
+        int end = p_line.indexOf(m_separator);
+
+        if (end <= 0) {
+            return -1;
+        }
+
+        // strip prefixes, e.g. "Node 0 MemTotal:" of /sys/devices/system/node/node0/meminfo
+        String name = p_line.substring(p_line.lastIndexOf(' ', end - 1) + 1, end);
+        int key = Arrays.asList(p_keys).indexOf(name);
+
+        for (int i = 0; key == -1 && i < p_keySuffixes.length; i++) {
+            if (name.endsWith(p_keySuffixes[i])) {
+                key = Arrays.asList(p_keys).indexOf(name.substring(0, name.length() - p_keySuffixes[i].length()));
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Create the mapping of keys to fields with equal indices
+     *
+     * @param p_count Number of keys
+     */
+    private static int[] identity(final int p_count) {
+        int[] fields = new int[p_count];
+
+        for (int i = 0; i < p_count; i++) {
+            fields[i] = i;
+        }
+
+        return fields;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+package de.hhu.bsinfo.dxmonitor.util;
+
+import java.io.IOException;
+
+/**
+ * Allocation free tokenizer working on the raw (ASCII) contents of files from /proc, /sys or similar locations.
+ * Tokens are separated by spaces or tabs, lines by '\n'. None of the methods creates objects which allows
+ * states to parse their files periodically without putting pressure on the garbage collector.
+ */
+public final class ProcSysTokenizer {
+    private byte[] m_buffer;
+    private int m_length;
+    private int m_pos;
+
+    /**
+     * Constructor
+     */
+    public ProcSysTokenizer() {
+        m_buffer = new byte[0];
+    }
+
+    /**
+     * Reset the tokenizer to work on new data
+     *
+     * @param p_buffer Buffer with data to tokenize
+     * @param p_length Number of valid bytes in the buffer
+     */
+    public void reset(final byte[] p_buffer, final int p_length) {
+        m_buffer = p_buffer;
+        m_length = p_length;
+        m_pos = 0;
+    }
+
+    /**
+     * Read the complete file of a reader and reset the tokenizer to work on its contents
+     *
+     * @param p_reader Reader to read the file from
+     * @throws IOException If reading the file failed
+     */
+    public void reset(final ProcSysFileReader p_reader) throws IOException {
+        int length = p_reader.readCompleteFileToBuffer();
+        reset(p_reader.getBuffer(), length);
+    }
+
+    /**
+     * Get the current position in the buffer
+     */
+    public int getPosition() {
+        return m_pos;
+    }
+
+    /**
+     * Set the current position in the buffer, e.g. to return to a previously marked line
+     *
+     * @param p_pos Position to set
+     */
+    public void setPosition(final int p_pos) {
+        m_pos = p_pos;
+    }
+
+    /**
+     * Check if there is data left to tokenize
+     */
+    public boolean hasRemaining() {
+        return m_pos < m_length;
+    }
+
+    /**
+     * Check if the current line has further (non whitespace) tokens
+     */
+    public boolean hasTokenInLine() {
+        skipWhitespaces();
+
+        return m_pos < m_length && m_buffer[m_pos] != '\n';
+    }
+
+    /**
+     * Skip spaces and tabs (but not line breaks)
+     */
+    public void skipWhitespaces() {
+        while (m_pos < m_length && (m_buffer[m_pos] == ' ' || m_buffer[m_pos] == '\t')) {
+            m_pos++;
+        }
+    }
+
+    /**
+     * Skip the next token of the current line
+     *
+     * @return True if a token was skipped, false if the end of the line was reached
+     */
+    public boolean skipToken() {
+        skipWhitespaces();
+
+        int start = m_pos;
+
+        while (m_pos < m_length && !isSeparator(m_buffer[m_pos])) {
+            m_pos++;
+        }
+
+        return m_pos != start;
+    }
+
+    /**
+     * Skip the next tokens of the current line
+     *
+     * @param p_count Number of tokens to skip
+     */
+    public void skipTokens(final int p_count) {
+        for (int i = 0; i < p_count; i++) {
+            skipToken();
+        }
+    }
+
+    /**
+     * Move to the beginning of the next line
+     *
+     * @return True if there is a next line, false if the end of the data is reached
+     */
+    public boolean nextLine() {
+        while (m_pos < m_length && m_buffer[m_pos] != '\n') {
+            m_pos++;
+        }
+
+        if (m_pos < m_length) {
+            m_pos++;
+        }
+
+        return m_pos < m_length;
+    }
+
+    /**
+     * Move to the beginning of the next line starting with the specified prefix (including the current line)
+     *
+     * @param p_prefix Prefix to look for
+     * @return True if found, false if the end of the data was reached (position is at the end)
+     */
+    public boolean findLine(final byte[] p_prefix) {
+        while (m_pos < m_length) {
+            if (startsWith(p_prefix)) {
+                return true;
+            }
+
+            nextLine();
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if the data at the current position starts with the specified bytes
+     *
+     * @param p_prefix Bytes to compare
+     * @return True if the prefix matches
+     */
+    public boolean startsWith(final byte[] p_prefix) {
+        if (m_pos + p_prefix.length > m_length) {
+            return false;
+        }
+
+        for (int i = 0; i < p_prefix.length; i++) {
+            if (m_buffer[m_pos + i] != p_prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if the next token (after skipping whitespaces) equals the specified bytes. The position is moved
+     * behind the token if it matches, otherwise it is left at the beginning of the token.
+     *
+     * @param p_token Token to compare
+     * @return True if the token matches
+     */
+    public boolean nextTokenEquals(final byte[] p_token) {
+        skipWhitespaces();
+
+        int end = m_pos + p_token.length;
+
+        if (!startsWith(p_token) || end < m_length && !isSeparator(m_buffer[end])) {
+            return false;
+        }
+
+        m_pos = end;
+
+        return true;
+    }
+
+    /**
+     * Skip everything up to and including the next occurrence of the specified character in the current line
+     *
+     * @param p_char Character to look for
+     * @return True if found, false if the end of the line was reached
+     */
+    public boolean skipPast(final char p_char) {
+        while (m_pos < m_length && m_buffer[m_pos] != '\n') {
+            if (m_buffer[m_pos++] == p_char) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip everything up to and including the last occurrence of the specified character in the current line,
+     * e.g. to skip the command name of /proc/PID/stat which can contain any character
+     *
+     * @param p_char Character to look for
+     * @return True if found, false if not found (position unchanged)
+     */
+    public boolean skipPastLast(final char p_char) {
+        int last = -1;
+
+        for (int i = m_pos; i < m_length && m_buffer[i] != '\n'; i++) {
+            if (m_buffer[i] == p_char) {
+                last = i;
+            }
+        }
+
+        if (last == -1) {
+            return false;
+        }
+
+        m_pos = last + 1;
+
+        return true;
+    }
+
+    /**
+     * Parse the next token as a (decimal) long value. Parsing stops at the first non digit character.
+     *
+     * @return Parsed value or 0 if there is no number at the current position
+     */
+    public long nextLong() {
+        skipWhitespaces();
+
+        boolean negative = false;
+        long value = 0;
+
+        if (m_pos < m_length && m_buffer[m_pos] == '-') {
+            negative = true;
+            m_pos++;
+        }
+
+        while (m_pos < m_length && m_buffer[m_pos] >= '0' && m_buffer[m_pos] <= '9') {
+            value = value * 10 + m_buffer[m_pos] - '0';
+            m_pos++;
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse the next token as a hex value with optional 0x prefix
+     *
+     * @return Parsed value or 0 if there is no number at the current position
+     */
+    public long nextHexLong() {
+        skipWhitespaces();
+
+        if (m_pos + 1 < m_length && m_buffer[m_pos] == '0' && (m_buffer[m_pos + 1] == 'x' ||
+                m_buffer[m_pos + 1] == 'X')) {
+            m_pos += 2;
+        }
+
+        long value = 0;
+
+        while (m_pos < m_length) {
+            int digit = Character.digit(m_buffer[m_pos], 16);
+
+            if (digit == -1) {
+                break;
+            }
+
+            value = (value << 4) | digit;
+            m_pos++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Parse the next token as a decimal value with an optional fractional part, e.g. 2.5
+     *
+     * @return Parsed value or 0 if there is no number at the current position
+     */
+    public double nextDouble() {
+        skipWhitespaces();
+
+        boolean negative = false;
+
+        if (m_pos < m_length && m_buffer[m_pos] == '-') {
+            negative = true;
+            m_pos++;
+        }
+
+        double value = nextLong();
+
+        if (m_pos < m_length && m_buffer[m_pos] == '.') {
+            m_pos++;
+
+            double factor = 0.1;
+
+            while (m_pos < m_length && m_buffer[m_pos] >= '0' && m_buffer[m_pos] <= '9') {
+                value += (m_buffer[m_pos] - '0') * factor;
+                factor /= 10;
+                m_pos++;
+            }
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Check if a byte separates tokens
+     *
+     * @param p_byte Byte to check
+     * @return True if separator
+     */
+    private static boolean isSeparator(final byte p_byte) {
+        return p_byte == ' ' || p_byte == '\t' || p_byte == '\n';
+    }
+}
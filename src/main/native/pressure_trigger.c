@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 Heinrich-Heine-Universitaet Duesseldorf, Institute of Computer Science, Department Operating Systems
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+
+/*
+ * JNI shim for de.hhu.bsinfo.dxmonitor.util.PressureTriggerNative: registers pressure stall triggers
+ * (see Documentation/accounting/psi.rst of the kernel) and waits for them with poll().
+ *
+ * gcc -shared -fPIC -O2 -I$JAVA_HOME/include -I$JAVA_HOME/include/linux pressure_trigger.c -o libdxmonitorpsi.so
+ */
+
+#include <errno.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <string.h>
+#include <unistd.h>
+
+#include <jni.h>
+
+#define MAX_TRIGGERS 64
+
+JNIEXPORT jint JNICALL Java_de_hhu_bsinfo_dxmonitor_util_PressureTriggerNative_open(JNIEnv *env, jclass clazz,
+        jstring path, jstring trigger)
+{
+    const char *cpath = (*env)->GetStringUTFChars(env, path, NULL);
+    const char *ctrigger = (*env)->GetStringUTFChars(env, trigger, NULL);
+    int fd;
+    int ret;
+
+    fd = open(cpath, O_RDWR | O_NONBLOCK | O_CLOEXEC);
+
+    if (fd < 0) {
+        ret = -errno;
+    } else if (write(fd, ctrigger, strlen(ctrigger) + 1) < 0) {
+        ret = -errno;
+        close(fd);
+    } else {
+        ret = fd;
+    }
+
+    (*env)->ReleaseStringUTFChars(env, path, cpath);
+    (*env)->ReleaseStringUTFChars(env, trigger, ctrigger);
+
+    return ret;
+}
+
+JNIEXPORT jint JNICALL Java_de_hhu_bsinfo_dxmonitor_util_PressureTriggerNative_poll(JNIEnv *env, jclass clazz,
+        jintArray fds, jint count, jint timeoutMs, jintArray fired)
+{
+    struct pollfd pfds[MAX_TRIGGERS];
+    jint cfds[MAX_TRIGGERS];
+    jint cfired[MAX_TRIGGERS];
+    int ret;
+    int i;
+
+    if (count > MAX_TRIGGERS) {
+        return -EINVAL;
+    }
+
+    (*env)->GetIntArrayRegion(env, fds, 0, count, cfds);
+
+    for (i = 0; i < count; i++) {
+        pfds[i].fd = cfds[i];
+        pfds[i].events = POLLPRI;
+        pfds[i].revents = 0;
+    }
+
+    ret = poll(pfds, count, timeoutMs);
+
+    if (ret < 0) {
+        return errno == EINTR ? 0 : -errno;
+    }
+
+    /* report failed fds (e.g. cgroup removed) separately so the other triggers keep working */
+    for (i = 0; i < count; i++) {
+        if (pfds[i].revents & POLLNVAL) {
+            cfired[i] = -EBADF;
+        } else if (pfds[i].revents & POLLERR) {
+            cfired[i] = -ENODEV;
+        } else {
+            cfired[i] = (pfds[i].revents & POLLPRI) ? 1 : 0;
+        }
+    }
+
+    (*env)->SetIntArrayRegion(env, fired, 0, count, cfired);
+
+    return ret;
+}
+
+JNIEXPORT void JNICALL Java_de_hhu_bsinfo_dxmonitor_util_PressureTriggerNative_close(JNIEnv *env, jclass clazz,
+        jint fd)
+{
+    close(fd);
+}